@@ -2,6 +2,8 @@ package imageprocessing;
 
 import imageprocessing.controller.ImageProcessingController;
 import imageprocessing.controller.SimpleIPController;
+import imageprocessing.model.ImageFactory;
+import imageprocessing.model.RowBands;
 import imageprocessing.view.ImageProcessingGuiView;
 import imageprocessing.view.ImageProcessingTextView;
 import imageprocessing.view.ImageProcessingView;
@@ -9,6 +11,7 @@ import imageprocessing.view.SimpleIPGuiView;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.InputStreamReader;
+import java.util.Arrays;
 
 /**
  * Represents an image processing program, which can load and save images and perform image
@@ -16,15 +19,42 @@ import java.io.InputStreamReader;
  */
 public class ImageProcessing {
 
+  private static final String USAGE =
+      "Usage: ImageProcessing [-parallel [threads]] [-file <path> | -text]";
+
   /**
    * The main method of the program. Allows the user to provide a path to a script file as a command
-   * line argument, or defaults to System.in if no script file is provided.
+   * line argument, or defaults to System.in if no script file is provided. In any mode (including
+   * the GUI), the arguments may start with -parallel, optionally followed by a number of threads
+   * (all available processors by default), to split work on large images across threads. The
+   * number of threads must be positive; otherwise the usage of the program is printed instead.
    *
    * @param args the arguments to the program.
    * @throws IllegalArgumentException if a file is not found for the fileReader.
    */
   public static void main(String[] args) throws IllegalArgumentException {
     Readable input = null;
+    RowBands bands = RowBands.SEQUENTIAL;
+
+    if (args.length > 0 && args[0].equals("-parallel")) {
+      int threads = Runtime.getRuntime().availableProcessors();
+      int skip = 1;
+      if (args.length > 1 && args[1].matches("-?\\d+")) { // the number of threads was given
+        try {
+          threads = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+          threads = 0; // too many to be valid
+        }
+        if (threads <= 0) {
+          System.err.println("Invalid number of threads: " + args[1]);
+          System.err.println(USAGE);
+          return;
+        }
+        skip = 2;
+      }
+      bands = new RowBands(threads);
+      args = Arrays.copyOfRange(args, skip, args.length);
+    }
 
     if (args.length > 0) {
       if (args[0].equals("-file")) {
@@ -51,10 +81,13 @@ public class ImageProcessing {
     // create the controller and run the program
     if (args.length > 0) { // -file and -text modes
       ImageProcessingView view = new ImageProcessingTextView(System.out);
-      ImageProcessingController controller = new SimpleIPController(input, view);
+      // scripts may keep many images loaded, so keep their pixels off the heap
+      ImageProcessingController controller = new SimpleIPController(input, view,
+          new ImageFactory(ImageFactory.Storage.OFF_HEAP), Runtime.getRuntime().maxMemory() / 2,
+          bands);
       controller.processImage();
     } else { // gui (default) mode
-      ImageProcessingGuiView view = new SimpleIPGuiView();
+      ImageProcessingGuiView view = new SimpleIPGuiView(bands);
     }
   }
 }
@@ -32,4 +32,30 @@ public interface ImageProcessingGuiController {
    * @param op    the operation to apply to the image.
    */
   void applyOperation(ManipulableImage image, Operation op);
+
+  /**
+   * Apply the given operation to the given region of the given ManipulableImage only, and send the
+   * resulting image back to the GUI.
+   *
+   * @param image  the image to modify.
+   * @param op     the operation to apply to the region.
+   * @param row    the top row of the region.
+   * @param col    the leftmost column of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   */
+  void applyOperation(ManipulableImage image, Operation op, int row, int col, int width,
+      int height);
+
+  /**
+   * Crop the given ManipulableImage to the given region, and send the resulting image back to the
+   * GUI.
+   *
+   * @param image  the image to crop.
+   * @param row    the top row of the region.
+   * @param col    the leftmost column of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   */
+  void crop(ManipulableImage image, int row, int col, int width, int height);
 }
@@ -3,7 +3,13 @@ package imageprocessing.controller;
 import imageprocessing.filehandler.FileHandler;
 import imageprocessing.filehandler.GenericFileHandler;
 import imageprocessing.filehandler.PPMHandler;
+import imageprocessing.model.ImageFactory;
+import imageprocessing.model.ImagePool;
+import imageprocessing.model.LazyImage;
 import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.MappedImage;
+import imageprocessing.model.RowBands;
+import imageprocessing.model.WritableImage;
 import imageprocessing.operations.Blur;
 import imageprocessing.operations.Brighten;
 import imageprocessing.operations.FlipHorizontal;
@@ -16,15 +22,25 @@ import imageprocessing.operations.GrayscaleLuma;
 import imageprocessing.operations.GrayscaleR;
 import imageprocessing.operations.GrayscaleValue;
 import imageprocessing.operations.Operation;
+import imageprocessing.operations.Reorientation;
+import imageprocessing.operations.RotateClockwise;
+import imageprocessing.operations.RotateCounterclockwise;
 import imageprocessing.operations.Sepia;
 import imageprocessing.operations.Sharpen;
 import imageprocessing.view.ImageProcessingView;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.InputMismatchException;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.Set;
 import java.util.function.Function;
 
 /**
@@ -36,31 +52,103 @@ public class SimpleIPController implements ImageProcessingController {
 
   private final Readable input; // the readable to read inputs from
   private final ImageProcessingView view; // the view to transmit to
-  private final Map<String, ManipulableImage> images; // the currently loaded images
+  private final ImageFactory factory; // decides how loaded images are stored
+  private final long residentLimit; // the number of bytes of images kept in memory before spilling
+  private final RowBands bands; // decides whether operations run on several threads
+  private final ImagePool pool; // images which are no longer stored, kept for reuse
+  private final Map<String, ManipulableImage> images; // loaded images, least recently used first
+  private final Map<ManipulableImage, Usage> usages; // the images in use, by identity
+  private long resident; // the number of bytes held by the images in use
   private final Map<String, Function<Scanner, Operation>> commands;
   // the operations that can be applied to images
 
   /**
-   * Construct a controller with the given Readable input, view, and file handler.
+   * Construct a controller with the given Readable input and view, which stores images as decided
+   * by the given image factory (for example, tiling images too large to fit in memory). Once the
+   * images it keeps in memory take up more than the given number of bytes, the least recently used
+   * ones are moved to memory-mapped scratch files, so that long scripts with many intermediate
+   * images do not run out of memory. Commands are run as decided by the given row bands, so
+   * operations on large images can be split across several threads.
    *
-   * @param input the readable input.
-   * @param view  the view.
-   * @throws IllegalArgumentException if any arguments are null.
+   * @param input         the readable input.
+   * @param view          the view.
+   * @param factory       the factory which creates loaded images.
+   * @param residentLimit the number of bytes of images to keep in memory.
+   * @param bands         decides whether commands run on one thread or several.
+   * @throws IllegalArgumentException if any arguments are null, or the limit is negative.
    */
-  public SimpleIPController(Readable input, ImageProcessingView view)
-      throws IllegalArgumentException {
+  public SimpleIPController(Readable input, ImageProcessingView view, ImageFactory factory,
+      long residentLimit, RowBands bands) throws IllegalArgumentException {
     if (input == null) {
       throw new IllegalArgumentException("Readable cannot be null");
     }
     if (view == null) {
       throw new IllegalArgumentException("View cannot be null");
     }
+    if (factory == null) {
+      throw new IllegalArgumentException("Image factory cannot be null");
+    }
+    if (residentLimit < 0) {
+      throw new IllegalArgumentException("Resident memory limit cannot be negative");
+    }
+    if (bands == null) {
+      throw new IllegalArgumentException("Row bands cannot be null");
+    }
     this.input = input;
     this.view = view;
-    this.images = new HashMap<>();
+    this.factory = factory;
+    this.residentLimit = residentLimit;
+    this.bands = bands;
+    this.pool = new ImagePool(residentLimit / 4);
+    this.images = new LinkedHashMap<>(16, 0.75f, true);
+    this.usages = new IdentityHashMap<>();
     this.commands = setBaseCommands();
   }
 
+  /**
+   * Construct a controller with the given Readable input and view, which stores images as decided
+   * by the given image factory, spills images to scratch files past the given number of bytes
+   * (see {@link #SimpleIPController(Readable, ImageProcessingView, ImageFactory, long, RowBands)}),
+   * and runs every command on a single thread.
+   *
+   * @param input         the readable input.
+   * @param view          the view.
+   * @param factory       the factory which creates loaded images.
+   * @param residentLimit the number of bytes of images to keep in memory.
+   * @throws IllegalArgumentException if any arguments are null, or the limit is negative.
+   */
+  public SimpleIPController(Readable input, ImageProcessingView view, ImageFactory factory,
+      long residentLimit) throws IllegalArgumentException {
+    this(input, view, factory, residentLimit, RowBands.SEQUENTIAL);
+  }
+
+  /**
+   * Construct a controller with the given Readable input and view, which stores images as decided
+   * by the given image factory, and keeps up to half of the maximum heap size worth of images in
+   * memory.
+   *
+   * @param input   the readable input.
+   * @param view    the view.
+   * @param factory the factory which creates loaded images.
+   * @throws IllegalArgumentException if any arguments are null.
+   */
+  public SimpleIPController(Readable input, ImageProcessingView view, ImageFactory factory)
+      throws IllegalArgumentException {
+    this(input, view, factory, Runtime.getRuntime().maxMemory() / 2);
+  }
+
+  /**
+   * Construct a controller with the given Readable input and view, using a default image factory.
+   *
+   * @param input the readable input.
+   * @param view  the view.
+   * @throws IllegalArgumentException if any arguments are null.
+   */
+  public SimpleIPController(Readable input, ImageProcessingView view)
+      throws IllegalArgumentException {
+    this(input, view, new ImageFactory());
+  }
+
   /**
    * Reads text-based user inputs to perform image processing functions.
    *
@@ -68,13 +156,27 @@ public class SimpleIPController implements ImageProcessingController {
    */
   @Override
   public void processImage() throws IllegalStateException {
+    try {
+      processCommands();
+    } finally {
+      pool.clear(); // nothing can use the pooled images any more
+    }
+  }
+
+  /**
+   * Read and run commands until the user quits or the input runs out. Commands are read on the
+   * calling thread, and only their work is run as decided by the row bands of this controller, so
+   * no worker thread is kept waiting for input.
+   *
+   * @throws IllegalStateException in the case of an i/o exception.
+   */
+  private void processCommands() throws IllegalStateException {
     Scanner scan = new Scanner(this.input);
     boolean quit = false;
     transmitMessage("Welcome to MikMike BogoPhotoShop\n");
     transmitMessage("Press 'h' or 'help' for help\n");
     transmitMessage("Press 'q' or 'quit' to quit\n");
     while (!quit) {
-      Operation o;
       String in;
       try {
         in = scan.next();
@@ -92,7 +194,7 @@ public class SimpleIPController implements ImageProcessingController {
         case "help":
           transmitMessage(helpMenu());
           break;
-        case "load":
+        case "load": {
           transmitMessage("Loading...\n");
           String path;
           String name;
@@ -102,75 +204,570 @@ public class SimpleIPController implements ImageProcessingController {
           } catch (NoSuchElementException e) {
             throw new IllegalStateException(e.getMessage());
           }
-          FileHandler fileHandler = getFileHandler(path);
-          ManipulableImage img;
-          try {
-            img = fileHandler.load(path);
-            images.put(name, img);
-            transmitMessage(
-                "Loaded " + path + " as " + name + "\n" + "Width: " + img.getWidth() + " | Height: "
-                    + img.getHeight() + " | Max value: " + img.getMaxValue() + "\n");
-          } catch (IOException e) {
-            transmitMessage("File " + path + " not found. Try again.\n");
-          } catch (NullPointerException ne) {
-            transmitMessage("Unsupported file format. Try again.\n");
-          }
+          runCommand(() -> load(path, name));
           break;
-        case "save":
+        }
+        case "save": {
+          String name;
+          String path;
           try {
             name = scan.next();
             path = scan.next();
           } catch (NoSuchElementException e) {
             throw new IllegalStateException(e.getMessage());
           }
-          img = images.get(name);
-          if (img == null) {
-            transmitMessage("Image " + name + " not found. Try again.\n");
-          } else {
-            try {
-              fileHandler = getFileHandler(path);
-              fileHandler.save(img, path);
-              transmitMessage("Saved " + name + " to " + path + "\n");
-            } catch (IOException e) {
-              transmitMessage("File " + path + " could not be written to: " + e.getMessage()
-                  + " Try again.\n");
-            }
+          runCommand(() -> save(name, path));
+          break;
+        }
+        case "crop": {
+          int[] region = readRegion(scan);
+          String src;
+          String dest;
+          try {
+            src = scan.next();
+            dest = scan.next();
+          } catch (NoSuchElementException e) {
+            throw new IllegalStateException(e.getMessage());
           }
+          runCommand(() -> crop(region, src, dest));
           break;
-        default:
-          Function<Scanner, Operation> cmd = commands.getOrDefault(in, null);
-          if (cmd == null) {
-            transmitMessage("Invalid command provided. Try again.\n");
-          } else {
-            try {
-              o = cmd.apply(scan);
-            } catch (InputMismatchException ime) {
-              transmitMessage("Invalid parameter. Try again.\n");
-              scan.next();
-              scan.next();
-              scan.next();
-              break;
-            }
-            String src;
-            String dest;
-            try {
-              src = scan.next();
-              dest = scan.next();
-            } catch (NoSuchElementException e) {
-              throw new IllegalStateException(e.getMessage());
-            }
-            img = images.get(src);
-            if (img == null) {
-              transmitMessage("Image " + src + " not found. Try again.\n");
-            } else {
-              images.put(dest, o.modify(img));
-              transmitMessage(
-                  "Successfully applied " + in + " to " + src + ", now named " + dest + "\n");
-            }
+        }
+        case "apply-region": {
+          int[] region = readRegion(scan);
+          String command;
+          try {
+            command = scan.next();
+          } catch (NoSuchElementException e) {
+            throw new IllegalStateException(e.getMessage());
+          }
+          Operation o = readOperation(command, scan);
+          if (o == null) {
+            break;
+          }
+          String src;
+          String dest;
+          try {
+            src = scan.next();
+            dest = scan.next();
+          } catch (NoSuchElementException e) {
+            throw new IllegalStateException(e.getMessage());
           }
+          runCommand(() -> applyToRegion(region, command, o, src, dest));
           break;
+        }
+        default: {
+          Operation o = readOperation(in, scan);
+          if (o == null) {
+            break;
+          }
+          String src;
+          String dest;
+          try {
+            src = scan.next();
+            dest = scan.next();
+          } catch (NoSuchElementException e) {
+            throw new IllegalStateException(e.getMessage());
+          }
+          runCommand(() -> apply(in, o, src, dest));
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Read the parameters of the given command from the given scanner, and return the operation it
+   * stands for. If the command does not exist or a parameter is invalid, the user is told so.
+   *
+   * @param command the name of the command.
+   * @param scan    the scanner to read parameters from.
+   * @return the operation, or null if there is none to apply.
+   */
+  private Operation readOperation(String command, Scanner scan) {
+    Function<Scanner, Operation> cmd = commands.getOrDefault(command, null);
+    if (cmd == null) {
+      transmitMessage("Invalid command provided. Try again.\n");
+      return null;
+    }
+    try {
+      return cmd.apply(scan);
+    } catch (InputMismatchException ime) {
+      transmitMessage("Invalid parameter. Try again.\n");
+      scan.next();
+      scan.next();
+      scan.next();
+      return null;
+    }
+  }
+
+  /**
+   * Run the work of a command as decided by the row bands of this controller, so that any image
+   * loops in it may be split across threads.
+   *
+   * @param work the work of the command.
+   */
+  private void runCommand(Runnable work) {
+    bands.run(() -> {
+      work.run();
+      return null;
+    });
+  }
+
+  /**
+   * Load the image at the given path and store it under the given name.
+   *
+   * @param path the path of the image file.
+   * @param name the name to store the image under.
+   */
+  private void load(String path, String name) {
+    FileHandler fileHandler = getFileHandler(path);
+    try {
+      ManipulableImage img = fileHandler.load(path);
+      // describe the image before storing it, since storing it may spill it to disk
+      String loaded =
+          "Loaded " + path + " as " + name + "\n" + "Width: " + img.getWidth() + " | Height: "
+              + img.getHeight() + " | Max value: " + img.getMaxValue() + "\n";
+      adopt(img);
+      store(name, img);
+      transmitMessage(loaded);
+    } catch (IOException e) {
+      transmitMessage("File " + path + " not found. Try again.\n");
+    } catch (NullPointerException ne) {
+      transmitMessage("Unsupported file format. Try again.\n");
+    }
+  }
+
+  /**
+   * Save the image stored under the given name to the given path.
+   *
+   * @param name the name of the image.
+   * @param path the path to save the image to.
+   */
+  private void save(String name, String path) {
+    ManipulableImage img = images.get(name);
+    if (img == null) {
+      transmitMessage("Image " + name + " not found. Try again.\n");
+      return;
+    }
+    try {
+      getFileHandler(path).save(img, path);
+      transmitMessage("Saved " + name + " to " + path + "\n");
+      // saving computed any pixels of the image which were not computed yet
+      recount(img);
+      spill();
+    } catch (IOException e) {
+      transmitMessage("File " + path + " could not be written to: " + e.getMessage()
+          + " Try again.\n");
+    }
+  }
+
+  /**
+   * Store the given region of the image stored under one name under another name.
+   *
+   * @param region the row, column, width and height of the region, or null if they were invalid.
+   * @param src    the name of the image to crop.
+   * @param dest   the name to store the region under.
+   */
+  private void crop(int[] region, String src, String dest) {
+    ManipulableImage img = images.get(src);
+    if (region == null) {
+      transmitMessage("Invalid region. Try again.\n");
+    } else if (img == null) {
+      transmitMessage("Image " + src + " not found. Try again.\n");
+    } else {
+      try {
+        // the region is a view of the image, so no pixels are copied
+        store(dest, img.crop(region[0], region[1], region[2], region[3]));
+        transmitMessage("Successfully cropped " + src + ", now named " + dest + "\n");
+      } catch (IllegalArgumentException e) {
+        transmitMessage(e.getMessage() + ". Try again.\n");
+      }
+    }
+  }
+
+  /**
+   * Apply the given operation to a region of the image stored under one name, and store the
+   * result under another name.
+   *
+   * @param region  the row, column, width and height of the region, or null if they were invalid.
+   * @param command the name of the command the operation was read from.
+   * @param o       the operation to apply.
+   * @param src     the name of the image to modify.
+   * @param dest    the name to store the result under.
+   */
+  private void applyToRegion(int[] region, String command, Operation o, String src,
+      String dest) {
+    ManipulableImage img = images.get(src);
+    if (region == null) {
+      transmitMessage("Invalid region. Try again.\n");
+    } else if (img == null) {
+      transmitMessage("Image " + src + " not found. Try again.\n");
+    } else {
+      try {
+        // only the region is computed, the rest of the result is a view of the image
+        ManipulableImage result =
+            o.modifyRegion(img, region[0], region[1], region[2], region[3]);
+        recount(img);
+        adopt(result);
+        store(dest, result);
+        transmitMessage("Successfully applied " + command + " to a region of " + src
+            + ", now named " + dest + "\n");
+      } catch (IllegalArgumentException e) {
+        transmitMessage(e.getMessage() + ". Try again.\n");
+      }
+    }
+  }
+
+  /**
+   * Apply the given operation to the image stored under one name, and store the result under
+   * another name.
+   *
+   * @param command the name of the command the operation was read from.
+   * @param o       the operation to apply.
+   * @param src     the name of the image to modify.
+   * @param dest    the name to store the result under.
+   */
+  private void apply(String command, Operation o, String src, String dest) {
+    ManipulableImage img = images.get(src);
+    if (img == null) {
+      transmitMessage("Image " + src + " not found. Try again.\n");
+      return;
+    }
+    // flips and rotations only record how to read the image, so nothing is written
+    WritableImage target = o instanceof Reorientation ? null
+        : pool.poll(img.getWidth(), img.getHeight(), img.hasAlpha());
+    if (target == null) {
+      // defer per-pixel operations, so chains of them run in a single pass
+      ManipulableImage result = o.modify(LazyImage.of(img));
+      recount(img);
+      adopt(result);
+      store(dest, result);
+    } else {
+      // write over an image which is no longer stored, instead of creating one
+      o.modify(LazyImage.of(img), target);
+      recount(img);
+      store(dest, target);
+    }
+    transmitMessage(
+        "Successfully applied " + command + " to " + src + ", now named " + dest + "\n");
+  }
+
+  /**
+   * Read a region of an image from the given scanner, as its top row, leftmost column, width and
+   * height. All four values are read even if some of them are not integers.
+   *
+   * @param scan the scanner to read from.
+   * @return the row, column, width and height of the region, or null if they are not all integers.
+   * @throws IllegalStateException if the input runs out.
+   */
+  private static int[] readRegion(Scanner scan) throws IllegalStateException {
+    int[] region = new int[4];
+    boolean valid = true;
+    try {
+      for (int i = 0; i < region.length; i++) {
+        if (scan.hasNextInt()) {
+          region[i] = scan.nextInt();
+        } else {
+          scan.next();
+          valid = false;
+        }
+      }
+    } catch (NoSuchElementException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+    return valid ? region : null;
+  }
+
+  /**
+   * Store the given image under the given name, then spill the least recently used images to
+   * scratch files if the images in use take up more than the resident limit. If this replaces an
+   * image which is no longer in use, it is kept in the pool so that later commands can write their
+   * results over it, or closed so that any memory it holds outside the heap is freed right away
+   * instead of whenever the garbage collector gets to it.
+   *
+   * @param name the name to store the image under.
+   * @param img  the image to store.
+   */
+  private void store(String name, ManipulableImage img) {
+    retain(img);
+    release(images.put(name, img), true);
+    spill();
+  }
+
+  /**
+   * Let the pool keep the given image once it is no longer in use, if the image was just loaded
+   * or computed by an operation, and so belongs to this controller alone: it must not be in use
+   * already (as operations may return their input) or read from other images.
+   *
+   * @param img the image which was just loaded or computed.
+   */
+  private void adopt(ManipulableImage img) {
+    if (!usages.containsKey(img) && img.getSources().isEmpty()) {
+      pool.adopt(img);
+    }
+  }
+
+  /**
+   * Count one more use of the given image. An image which was not in use before also starts using
+   * the images it reads from (see {@link ManipulableImage#getSources()}).
+   *
+   * @param img the image to use.
+   */
+  private void retain(ManipulableImage img) {
+    Usage usage = usages.get(img);
+    if (usage == null) {
+      usage = new Usage(img.getResidentBytes(), img.getSources());
+      usages.put(img, usage);
+      resident += usage.bytes;
+      for (ManipulableImage source : usage.sources) {
+        retain(source);
       }
     }
+    usage.count++;
+  }
+
+  /**
+   * Count one less use of the given image. Once it is no longer used, it is offered to the pool
+   * if asked to, and closed if the pool does not keep it, and it stops using the images it was
+   * last counted as reading from in turn.
+   *
+   * @param img     the image which is used once less, or null.
+   * @param recycle whether to offer the image to the pool.
+   */
+  private void release(ManipulableImage img, boolean recycle) {
+    if (img == null) {
+      return;
+    }
+    Usage usage = usages.get(img);
+    if (--usage.count > 0) {
+      return;
+    }
+    usages.remove(img);
+    resident -= usage.bytes;
+    if (!recycle || !pool.offer(img)) {
+      if (img instanceof AutoCloseable) {
+        try {
+          ((AutoCloseable) img).close();
+        } catch (Exception e) {
+          // the image is unreachable either way, so it is freed once it is garbage collected
+        }
+      }
+    }
+    for (ManipulableImage source : usage.sources) {
+      release(source, recycle);
+    }
+  }
+
+  /**
+   * Update the number of bytes held by the given image and the images it reads from, and which
+   * images those are, which may have changed since they were counted because reading them computed
+   * their pixels, or because an operation continued from the computed pixels (see
+   * {@link LazyImage}).
+   *
+   * @param img the image which was read.
+   */
+  private void recount(ManipulableImage img) {
+    recount(img, Collections.newSetFromMap(new IdentityHashMap<>()));
+  }
+
+  /**
+   * Update the number of bytes held by the given image and the images it reads from, skipping
+   * the images which were updated already.
+   *
+   * @param img  the image which was read.
+   * @param seen the images updated so far.
+   */
+  private void recount(ManipulableImage img, Set<ManipulableImage> seen) {
+    if (!seen.add(img)) {
+      return;
+    }
+    Usage usage = usages.get(img);
+    List<ManipulableImage> sources = img.getSources();
+    if (usage != null) {
+      long bytes = img.getResidentBytes();
+      resident += bytes - usage.bytes;
+      usage.bytes = bytes;
+      if (!sameImages(sources, usage.sources)) {
+        // use the new sources before releasing the old ones, as they may share some images
+        List<ManipulableImage> old = usage.sources;
+        usage.sources = sources;
+        for (ManipulableImage source : sources) {
+          retain(source);
+        }
+        for (ManipulableImage source : old) {
+          release(source, true);
+        }
+      }
+    }
+    for (ManipulableImage source : sources) {
+      recount(source, seen);
+    }
+  }
+
+  /**
+   * Return whether the given lists hold the very same images in the same order. Images which are
+   * merely equal (see {@link Object#equals(Object)}) do not count as the same.
+   *
+   * @param first  the first list of images.
+   * @param second the second list of images.
+   * @return true if the lists hold the same images, false otherwise.
+   */
+  private static boolean sameImages(List<ManipulableImage> first,
+      List<ManipulableImage> second) {
+    if (first.size() != second.size()) {
+      return false;
+    }
+    for (int i = 0; i < first.size(); i++) {
+      if (first.get(i) != second.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Move the least recently used images out of memory until the images in use take up no more
+   * than the resident limit, or nothing more can be moved. Images which read from other images
+   * (such as materialized lazy images) drop the pixels they computed, and other images are copied
+   * to memory-mapped scratch files.
+   */
+  private void spill() {
+    if (resident <= residentLimit) {
+      return;
+    }
+    for (ManipulableImage img : leastRecentlyUsed()) {
+      if (resident <= residentLimit) {
+        return;
+      }
+      Usage usage = usages.get(img);
+      if (usage == null || usage.bytes == 0) {
+        continue; // replaced already, or holds no memory
+      }
+      ManipulableImage replacement;
+      if (!img.getSources().isEmpty()) {
+        // the pixels can be computed again from the sources when needed
+        replacement = img.withSources(img.getSources());
+      } else if ((long) img.getWidth() * img.getHeight() <= MappedImage.MAX_PIXELS) {
+        try {
+          replacement = MappedImage.copyOf(img);
+        } catch (UncheckedIOException e) {
+          return; // no scratch space left, so keep the remaining images in memory
+        }
+      } else {
+        continue;
+      }
+      if (replacement != img) {
+        replace(img, replacement);
+      }
+    }
+  }
+
+  /**
+   * Return every image in use, least recently used first, with each image listed after the images
+   * it reads from, and listed once even if it is used in several places.
+   *
+   * @return the images in use.
+   */
+  private List<ManipulableImage> leastRecentlyUsed() {
+    Set<ManipulableImage> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<ManipulableImage> result = new ArrayList<>();
+    for (ManipulableImage stored : images.values()) {
+      addInOrder(stored, seen, result);
+    }
+    return result;
+  }
+
+  /**
+   * Add the given image to the given list, after the images it reads from, if it has not been
+   * added already.
+   *
+   * @param img    the image in use.
+   * @param seen   the images added so far.
+   * @param result the list of images in use.
+   */
+  private static void addInOrder(ManipulableImage img, Set<ManipulableImage> seen,
+      List<ManipulableImage> result) {
+    if (!seen.add(img)) {
+      return;
+    }
+    for (ManipulableImage source : img.getSources()) {
+      addInOrder(source, seen, result);
+    }
+    result.add(img);
+  }
+
+  /**
+   * Replace every use of the given image with the given replacement, which holds the same pixels,
+   * rebuilding the images which read from it over the replacement, and release the images which
+   * are no longer used.
+   *
+   * @param old         the image to replace.
+   * @param replacement the image to replace it with.
+   */
+  private void replace(ManipulableImage old, ManipulableImage replacement) {
+    Map<ManipulableImage, ManipulableImage> rebuilt = new IdentityHashMap<>();
+    for (Map.Entry<String, ManipulableImage> entry : images.entrySet()) {
+      ManipulableImage img = entry.getValue();
+      ManipulableImage result = rebuild(img, old, replacement, rebuilt);
+      if (result != img) {
+        retain(result);
+        entry.setValue(result);
+        release(img, false);
+      }
+    }
+  }
+
+  /**
+   * Return the given image with every use of one image in it (or in the images it reads from)
+   * replaced by another, which holds the same pixels.
+   *
+   * @param img         the image to rebuild.
+   * @param old         the image to replace.
+   * @param replacement the image to replace it with.
+   * @param rebuilt     the images rebuilt so far, and what they were rebuilt as.
+   * @return the rebuilt image, or the given image if it does not use the replaced one.
+   */
+  private static ManipulableImage rebuild(ManipulableImage img, ManipulableImage old,
+      ManipulableImage replacement, Map<ManipulableImage, ManipulableImage> rebuilt) {
+    if (img == old) {
+      return replacement;
+    }
+    ManipulableImage result = rebuilt.get(img);
+    if (result != null) {
+      return result;
+    }
+    List<ManipulableImage> sources = img.getSources();
+    List<ManipulableImage> replaced = new ArrayList<>();
+    boolean changed = false;
+    for (ManipulableImage source : sources) {
+      replaced.add(rebuild(source, old, replacement, rebuilt));
+      changed |= replaced.get(replaced.size() - 1) != source;
+    }
+    result = changed ? img.withSources(replaced) : img;
+    rebuilt.put(img, result);
+    return result;
+  }
+
+  /**
+   * The number of uses of an image in use (by a name, or by the images which read from it), and
+   * the number of bytes it held and the images it read from when it was last counted.
+   */
+  private static final class Usage {
+
+    private int count;
+    private long bytes;
+    private List<ManipulableImage> sources;
+
+    /**
+     * Construct the usage of an image which is not used yet.
+     *
+     * @param bytes   the number of bytes the image holds.
+     * @param sources the images the image reads from.
+     */
+    private Usage(long bytes, List<ManipulableImage> sources) {
+      this.bytes = bytes;
+      this.sources = sources;
+    }
   }
 
   /**
@@ -183,9 +780,9 @@ public class SimpleIPController implements ImageProcessingController {
   private FileHandler getFileHandler(String path) {
     String fileType = path.substring(path.lastIndexOf('.') + 1);
     if (fileType.equals("ppm")) {
-      return new PPMHandler();
+      return new PPMHandler(factory);
     }
-    return new GenericFileHandler();
+    return new GenericFileHandler(factory);
   }
 
   /**
@@ -205,6 +802,8 @@ public class SimpleIPController implements ImageProcessingController {
     commands.put("brighten", s -> new Brighten(s.nextInt()));
     commands.put("horizontal-flip", s -> new FlipHorizontal());
     commands.put("vertical-flip", s -> new FlipVertical());
+    commands.put("rotate-clockwise", s -> new RotateClockwise());
+    commands.put("rotate-counterclockwise", s -> new RotateCounterclockwise());
     commands.put("blur", s -> new Blur());
     commands.put("sharpen", s -> new Sharpen());
     commands.put("grayscale", s -> new Grayscale());
@@ -236,6 +835,10 @@ public class SimpleIPController implements ImageProcessingController {
         + "Save an image: save <name> <path> (i.e. save koala images/koala.ppm)\n"
         + "Command syntax: <command> [param] <src> <dest> (i.e. brighten 10 koala koala-brighter; "
         + "red-component koala koalaR)\n"
+        + "Crop an image: crop <row> <col> <width> <height> <src> <dest> "
+        + "(i.e. crop 0 0 100 50 koala koala-top)\n"
+        + "Apply a command to a region: apply-region <row> <col> <width> <height> <command> "
+        + "[param] <src> <dest> (i.e. apply-region 0 0 100 50 blur koala koala-blur-top)\n"
         + "Available commands (brighten requires int brightening factor):\n" + cmds
         + "Help: h or help\n"
         + "Quit: q or quit\n";
@@ -2,7 +2,9 @@ package imageprocessing.controller;
 
 import imageprocessing.filehandler.GenericFileHandler;
 import imageprocessing.filehandler.PPMHandler;
+import imageprocessing.model.ImageFactory;
 import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.RowBands;
 import imageprocessing.operations.Operation;
 import imageprocessing.view.ImageProcessingGuiView;
 import java.io.File;
@@ -14,14 +16,35 @@ import java.io.IOException;
 public class SimpleIPGuiController implements ImageProcessingGuiController {
 
   private final ImageProcessingGuiView view; // the view to send images and messages to
+  private final ImageFactory factory; // decides how loaded images are stored
+  private final RowBands bands; // decides whether operations run on several threads
 
   /**
-   * Construct a graphical controller with the given view.
+   * Construct a graphical controller with the given view, which applies operations as decided by
+   * the given row bands, so operations on large images can be split across several threads.
+   *
+   * @param view  the given view.
+   * @param bands decides whether operations run on one thread or several.
+   * @throws IllegalArgumentException if the row bands are null.
+   */
+  public SimpleIPGuiController(ImageProcessingGuiView view, RowBands bands)
+      throws IllegalArgumentException {
+    if (bands == null) {
+      throw new IllegalArgumentException("Row bands cannot be null");
+    }
+    this.view = view;
+    this.factory = new ImageFactory();
+    this.bands = bands;
+  }
+
+  /**
+   * Construct a graphical controller with the given view, which applies operations on a single
+   * thread.
    *
    * @param view the given view.
    */
   public SimpleIPGuiController(ImageProcessingGuiView view) {
-    this.view = view;
+    this(view, RowBands.SEQUENTIAL);
   }
 
   @Override
@@ -31,9 +54,9 @@ public class SimpleIPGuiController implements ImageProcessingGuiController {
 
     try {
       if (fileType.equals("ppm")) {
-        img = new PPMHandler().load(file.getPath());
+        img = new PPMHandler(factory).load(file.getPath());
       } else {
-        img = new GenericFileHandler().load(file.getPath());
+        img = new GenericFileHandler(factory).load(file.getPath());
       }
       view.setImage(img);
       view.renderMessage("Successfully loaded image " + file.getPath());
@@ -68,11 +91,41 @@ public class SimpleIPGuiController implements ImageProcessingGuiController {
       view.renderMessage("No image to modify");
       return;
     }
-    ManipulableImage result = op.modify(image);
+    ManipulableImage result = bands.run(() -> op.modify(image));
     view.setImage(result);
     view.renderMessage("Successfully applied operation");
   }
 
+  @Override
+  public void applyOperation(ManipulableImage image, Operation op, int row, int col, int width,
+      int height) {
+    if (image == null) {
+      view.renderMessage("No image to modify");
+      return;
+    }
+    try {
+      ManipulableImage result = bands.run(() -> op.modifyRegion(image, row, col, width, height));
+      view.setImage(result);
+      view.renderMessage("Successfully applied operation to region");
+    } catch (IllegalArgumentException e) {
+      view.renderMessage(e.getMessage() + ". Try again.");
+    }
+  }
+
+  @Override
+  public void crop(ManipulableImage image, int row, int col, int width, int height) {
+    if (image == null) {
+      view.renderMessage("No image to crop");
+      return;
+    }
+    try {
+      view.setImage(image.crop(row, col, width, height));
+      view.renderMessage("Successfully cropped image");
+    } catch (IllegalArgumentException e) {
+      view.renderMessage(e.getMessage() + ". Try again.");
+    }
+  }
+
   /**
    * Detect the extension of the given file from the filepath.
    *
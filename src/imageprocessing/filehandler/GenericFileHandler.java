@@ -1,16 +1,19 @@
 package imageprocessing.filehandler;
 
-import java.awt.Color;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.Iterator;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
+import imageprocessing.model.ImageFactory;
 import imageprocessing.model.ManipulableImage;
-import imageprocessing.model.Pixel;
-import imageprocessing.model.PixelGridImage;
-import imageprocessing.model.RGBAPixel;
+import imageprocessing.model.WritableImage;
 
 /**
  * A file handler for converting between ManipulableImages and image file types supported by the
@@ -18,19 +21,89 @@ import imageprocessing.model.RGBAPixel;
  */
 public class GenericFileHandler implements FileHandler {
 
+  private static final int BAND_HEIGHT = 256; // the number of rows decoded at once when tiling
+
+  private final ImageFactory factory; // decides how loaded images are stored
+
+  /**
+   * Construct a generic file handler which loads images through the given factory.
+   *
+   * @param factory the factory to create loaded images with.
+   * @throws IllegalArgumentException if the factory is null.
+   */
+  public GenericFileHandler(ImageFactory factory) throws IllegalArgumentException {
+    if (factory == null) {
+      throw new IllegalArgumentException("Image factory can't be null");
+    }
+    this.factory = factory;
+  }
+
+  /**
+   * Construct a generic file handler which loads images through a default image factory.
+   */
+  public GenericFileHandler() {
+    this(new ImageFactory());
+  }
+
   @Override
   public ManipulableImage load(String path) throws IOException {
-    BufferedImage img = ImageIO.read(new File(path));
-    Pixel[][] grid = new Pixel[img.getHeight()][img.getWidth()];
-
-    for (int r = 0; r < img.getHeight(); r++) {
-      for (int c = 0; c < img.getWidth(); c++) {
-        Color col = new Color(img.getRGB(c, r), true);
-        grid[r][c] = new RGBAPixel(col.getRed(), col.getGreen(), col.getBlue(), col.getAlpha());
+    File file = new File(path);
+    if (file.canRead()) {
+      ManipulableImage tiled = loadTiled(file);
+      if (tiled != null) {
+        return tiled;
       }
     }
+    BufferedImage img = ImageIO.read(file);
+    int[] argb = img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+    return factory.createImage(img.getWidth(), img.getHeight(), argb,
+        img.getColorModel().hasAlpha());
+  }
 
-    return new PixelGridImage(grid);
+  /**
+   * Load the given file into a tiled image one band of rows at a time, if it is large enough to
+   * be tiled by this handler's factory.
+   *
+   * @param file the file to load.
+   * @return the loaded image, or null if the file should be loaded all at once instead.
+   * @throws IOException if there is an error reading the file.
+   */
+  private ManipulableImage loadTiled(File file) throws IOException {
+    try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+      Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+      if (readers == null || !readers.hasNext()) {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(in);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        if (!factory.isTiled(width, height)) {
+          return null;
+        }
+        WritableImage result = null;
+        int[] buffer = new int[width * BAND_HEIGHT];
+        int[] row = new int[width];
+        ImageReadParam param = reader.getDefaultReadParam();
+        for (int top = 0; top < height; top += BAND_HEIGHT) {
+          int bandHeight = Math.min(BAND_HEIGHT, height - top);
+          param.setSourceRegion(new Rectangle(0, top, width, bandHeight));
+          BufferedImage band = reader.read(0, param);
+          if (result == null) {
+            result = factory.createImage(width, height, band.getColorModel().hasAlpha());
+          }
+          band.getRGB(0, 0, width, bandHeight, buffer, 0, width);
+          for (int r = 0; r < bandHeight; r++) {
+            System.arraycopy(buffer, r * width, row, 0, width);
+            result.setRow(top + r, row);
+          }
+        }
+        return result;
+      } finally {
+        reader.dispose();
+      }
+    }
   }
 
   @Override
@@ -1,81 +1,109 @@
 package imageprocessing.filehandler;
 
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ImageFactory;
 import imageprocessing.model.ManipulableImage;
-import imageprocessing.model.Pixel;
-import imageprocessing.model.PixelGridImage;
-import imageprocessing.model.RGBPixel;
-import java.io.File;
-import java.io.FileInputStream;
+import imageprocessing.model.WritableImage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.IntBuffer;
 import java.util.Scanner;
 
 /**
  * Represents a file handler for ASCII PPM images. It can load ppm files and turn them into
- * ManipulableImages and save them back into ppm files onto the user's computer.
+ * ManipulableImages and save them back into ppm files onto the user's computer. Files are read and
+ * written as a stream, so images too large to fit in memory can be handled through a tiled
+ * {@link ImageFactory}.
  */
 public class PPMHandler implements FileHandler {
 
+  private final ImageFactory factory; // creates the images that files are loaded into
+
+  /**
+   * Construct a PPM handler which loads images through the given factory.
+   *
+   * @param factory the factory to create loaded images with.
+   * @throws IllegalArgumentException if the factory is null.
+   */
+  public PPMHandler(ImageFactory factory) throws IllegalArgumentException {
+    if (factory == null) {
+      throw new IllegalArgumentException("Image factory can't be null");
+    }
+    this.factory = factory;
+  }
+
+  /**
+   * Construct a PPM handler which loads images through a default image factory.
+   */
+  public PPMHandler() {
+    this(new ImageFactory());
+  }
+
   @Override
   public ManipulableImage load(String path) throws IOException {
     Scanner sc;
     try {
-      sc = new Scanner(new FileInputStream(path));
+      sc = new Scanner(new BufferedReader(new FileReader(path)));
     } catch (FileNotFoundException e) {
       throw new IOException(e.getMessage());
     }
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s).append(System.lineSeparator());
-      }
-    }
+    // treat comments, which run from a '#' to the end of the line, like whitespace
+    sc.useDelimiter("(\\s|#[^\\r\\n]*)+");
 
-    //now set up the scanner to read from the string we just built
-    sc = new Scanner(builder.toString());
-    if (!sc.next().equals("P3")) {
-      throw new IOException("Invalid PPM file: plain RAW file should begin with P3");
-    }
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    sc.nextInt(); // skip over max value
+    try {
+      if (!sc.next().equals("P3")) {
+        throw new IOException("Invalid PPM file: plain RAW file should begin with P3");
+      }
+      int width = sc.nextInt();
+      int height = sc.nextInt();
+      sc.nextInt(); // skip over max value
 
-    Pixel[][] grid = new Pixel[height][width];
+      WritableImage img = factory.createImage(width, height, false);
+      int[] row = new int[width];
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        grid[i][j] = new RGBPixel(r, g, b);
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          int r = sc.nextInt();
+          int g = sc.nextInt();
+          int b = sc.nextInt();
+          if (r < 0 || g < 0 || b < 0 || r > 255 || g > 255 || b > 255) {
+            throw new IllegalArgumentException("RGB values must be between 0 and 255");
+          }
+          row[j] = ARGB.pack(r, g, b);
+        }
+        img.setRow(i, row);
       }
+      return img;
+    } finally {
+      sc.close();
     }
-    return new PixelGridImage(grid);
   }
 
   @Override
   public void save(ManipulableImage img, String path) throws IOException {
-    StringBuilder contents = new StringBuilder();
-
-    // make the header
-    contents.append("P3").append(System.lineSeparator());
-    contents.append(img.getWidth()).append(" ").append(img.getHeight())
-        .append(System.lineSeparator());
-    contents.append(img.getMaxValue()).append(System.lineSeparator());
+    try (Writer writer = new BufferedWriter(new FileWriter(path))) {
+      // make the header
+      writer.write("P3" + System.lineSeparator());
+      writer.write(img.getWidth() + " " + img.getHeight() + System.lineSeparator());
+      writer.write(img.getMaxValue() + System.lineSeparator());
 
-    // make contents
-    for (Pixel[] row : img.getPixels()) {
-      for (Pixel p : row) {
-        contents.append(p.toString()).append(" ");
+      // make contents
+      StringBuilder contents = new StringBuilder();
+      for (int r = 0; r < img.getHeight(); r++) {
+        IntBuffer row = img.getRow(r);
+        contents.setLength(0);
+        for (int c = 0; c < img.getWidth(); c++) {
+          int p = row.get(c);
+          contents.append(ARGB.red(p)).append(" ").append(ARGB.green(p)).append(" ")
+              .append(ARGB.blue(p)).append(" ");
+        }
+        writer.append(contents);
       }
     }
-
-    File outFile = new File(path);
-    FileWriter writer = new FileWriter(outFile);
-    writer.write(contents.toString());
-    writer.close();
   }
 }
@@ -0,0 +1,160 @@
+package imageprocessing.model;
+
+/**
+ * Static helpers for working with pixels packed into a single int, using the same
+ * 0xAARRGGBB layout as {@code java.awt.Color.getRGB()} and {@code BufferedImage.TYPE_INT_ARGB}.
+ */
+public final class ARGB {
+
+  // the luma contribution of each value of each channel, and the intensity of each channel sum,
+  // computed once with exactly the same arithmetic as the per-pixel formulas
+  private static final double[] LUMA_RED = new double[256];
+  private static final double[] LUMA_GREEN = new double[256];
+  private static final double[] LUMA_BLUE = new double[256];
+  private static final int[] INTENSITY = new int[3 * 255 + 1];
+
+  static {
+    for (int v = 0; v < 256; v++) {
+      LUMA_RED[v] = 0.2126 * v;
+      LUMA_GREEN[v] = 0.7152 * v;
+      LUMA_BLUE[v] = 0.0722 * v;
+    }
+    for (int sum = 0; sum < INTENSITY.length; sum++) {
+      INTENSITY[sum] = (int) Math.rint(sum / 3.0);
+    }
+  }
+
+  private ARGB() {
+    // static helpers only
+  }
+
+  /**
+   * Pack the given channel values into a single ARGB int. Values are assumed to already be
+   * between 0 and 255, inclusive.
+   *
+   * @param r the red component.
+   * @param g the green component.
+   * @param b the blue component.
+   * @param a the alpha component.
+   * @return the packed ARGB value.
+   */
+  public static int pack(int r, int g, int b, int a) {
+    return (a << 24) | (r << 16) | (g << 8) | b;
+  }
+
+  /**
+   * Pack the given channel values into a single, fully opaque ARGB int.
+   *
+   * @param r the red component.
+   * @param g the green component.
+   * @param b the blue component.
+   * @return the packed ARGB value.
+   */
+  public static int pack(int r, int g, int b) {
+    return pack(r, g, b, 255);
+  }
+
+  /**
+   * Return the red component of the given packed pixel.
+   *
+   * @param argb the packed pixel.
+   * @return the red component.
+   */
+  public static int red(int argb) {
+    return (argb >> 16) & 0xFF;
+  }
+
+  /**
+   * Return the green component of the given packed pixel.
+   *
+   * @param argb the packed pixel.
+   * @return the green component.
+   */
+  public static int green(int argb) {
+    return (argb >> 8) & 0xFF;
+  }
+
+  /**
+   * Return the blue component of the given packed pixel.
+   *
+   * @param argb the packed pixel.
+   * @return the blue component.
+   */
+  public static int blue(int argb) {
+    return argb & 0xFF;
+  }
+
+  /**
+   * Return the alpha component of the given packed pixel.
+   *
+   * @param argb the packed pixel.
+   * @return the alpha component.
+   */
+  public static int alpha(int argb) {
+    return argb >>> 24;
+  }
+
+  /**
+   * Return the greatest RGB channel value of the given packed pixel.
+   *
+   * @param argb the packed pixel.
+   * @return the greatest of the red, green, and blue components.
+   */
+  public static int value(int argb) {
+    return Math.max(red(argb), Math.max(green(argb), blue(argb)));
+  }
+
+  /**
+   * Return the luma value of the given packed pixel, computed the same way as
+   * {@link Pixel#getLuma()}.
+   *
+   * @param argb the packed pixel.
+   * @return the luma value.
+   */
+  public static int luma(int argb) {
+    return (int) Math.rint(LUMA_RED[red(argb)] + LUMA_GREEN[green(argb)] + LUMA_BLUE[blue(argb)]);
+  }
+
+  /**
+   * Return the intensity value of the given packed pixel, computed the same way as
+   * {@link Pixel#getIntensity()}.
+   *
+   * @param argb the packed pixel.
+   * @return the intensity value.
+   */
+  public static int intensity(int argb) {
+    return INTENSITY[red(argb) + green(argb) + blue(argb)];
+  }
+
+  /**
+   * Pack the channels of the given pixel. Pixels with three channels are treated as opaque.
+   *
+   * @param p the pixel to pack.
+   * @return the packed ARGB value.
+   * @throws IllegalArgumentException if the pixel does not have 3 or 4 channel values.
+   */
+  public static int fromPixel(Pixel p) throws IllegalArgumentException {
+    int[] channels = p.getChannels();
+    if (channels.length == 3) {
+      return pack(channels[0], channels[1], channels[2]);
+    } else if (channels.length == 4) {
+      return pack(channels[0], channels[1], channels[2], channels[3]);
+    }
+    throw new IllegalArgumentException("Pixel must have 3 or 4 channel values.");
+  }
+
+  /**
+   * Unpack the given value into a new pixel object, either an {@code RGBAPixel} if the alpha
+   * channel should be kept or an {@code RGBPixel} otherwise.
+   *
+   * @param argb      the packed pixel.
+   * @param withAlpha whether the resulting pixel should carry an alpha channel.
+   * @return the unpacked pixel.
+   */
+  public static Pixel toPixel(int argb, boolean withAlpha) {
+    if (withAlpha) {
+      return new RGBAPixel(red(argb), green(argb), blue(argb), alpha(argb));
+    }
+    return new RGBPixel(red(argb), green(argb), blue(argb));
+  }
+}
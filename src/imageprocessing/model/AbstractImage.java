@@ -0,0 +1,188 @@
+package imageprocessing.model;
+
+import java.awt.image.BufferedImage;
+import java.nio.IntBuffer;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Base class for manipulable images, which implements the whole-image operations in terms of the
+ * primitive accessors ({@link #getARGB(int, int)} and {@link #getRow(int)}), and keeps the
+ * statistics of the image once they are computed. Implementations only need to decide where
+ * pixels come from, and may override any of these methods with a faster version for their
+ * storage. Images which store their own pixels also implement {@link WritableImage}; the others
+ * (such as {@link OrientedImage}) read their pixels from other images.
+ */
+public abstract class AbstractImage implements ManipulableImage {
+
+  private ImageStatistics statistics; // the statistics of the pixels, or null if not yet known
+  volatile boolean adopted; // whether an ImagePool may keep this image (see ImagePool#adopt)
+
+  @Override
+  public ManipulableImage applyToAll(Function<Pixel, Pixel> operation) {
+    WritableImage result = createCompatibleImage(getWidth(), getHeight(), hasAlpha());
+    RowBands.forEach(getHeight(), getWidth(), (from, to) -> {
+      int[] out = new int[getWidth()];
+      for (int r = from; r < to; r++) {
+        IntBuffer row = getRow(r);
+        for (int c = 0; c < getWidth(); c++) {
+          out[c] = ARGB.fromPixel(operation.apply(ARGB.toPixel(row.get(c), hasAlpha())));
+        }
+        result.setRow(r, out);
+      }
+    });
+    return result;
+  }
+
+  @Override
+  public ManipulableImage mapARGB(IntUnaryOperator operation) {
+    WritableImage result = createCompatibleImage(getWidth(), getHeight(), hasAlpha());
+    RowBands.forEach(getHeight(), getWidth(), (from, to) -> {
+      int[] out = new int[getWidth()];
+      for (int r = from; r < to; r++) {
+        IntBuffer row = getRow(r);
+        for (int c = 0; c < getWidth(); c++) {
+          out[c] = operation.applyAsInt(row.get(c));
+        }
+        result.setRow(r, out);
+      }
+    });
+    return result;
+  }
+
+  @Override
+  public int getMaxValue() {
+    return getStatistics().getMaxValue();
+  }
+
+  /**
+   * Return the statistics of the pixels of this image, computing them the first time they are
+   * needed. Writing to the pixels of this image discards them, so they are computed again if they
+   * are needed after that.
+   *
+   * @return the statistics of this image.
+   */
+  @Override
+  public ImageStatistics getStatistics() {
+    ImageStatistics result = statistics;
+    if (result == null) {
+      result = ImageStatistics.of(this);
+      statistics = result;
+    }
+    return result;
+  }
+
+  @Override
+  public ImageStatistics getKnownStatistics() {
+    return statistics;
+  }
+
+  @Override
+  public void seedStatistics(ImageStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  /**
+   * Discard the statistics of this image, since its pixels have changed. Implementations must
+   * call this whenever they write to their pixels.
+   */
+  protected final void pixelsChanged() {
+    statistics = null;
+  }
+
+  @Override
+  public Pixel[][] getPixels() {
+    Pixel[][] result = new Pixel[getHeight()][getWidth()];
+    for (int r = 0; r < getHeight(); r++) {
+      IntBuffer row = getRow(r);
+      for (int c = 0; c < getWidth(); c++) {
+        result[r][c] = ARGB.toPixel(row.get(c), hasAlpha());
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Pixel createPixel(int... channels) throws IllegalArgumentException {
+    if (channels.length == 3) {
+      return new RGBPixel(channels[0], channels[1], channels[2]);
+    } else if (channels.length == 4) {
+      return new RGBAPixel(channels[0], channels[1], channels[2], channels[3]);
+    } else {
+      throw new IllegalArgumentException("Pixel must be created with 3 or 4 channel values.");
+    }
+  }
+
+  @Override
+  public BufferedImage toBufferedImage(int imgType) {
+    BufferedImage result = new BufferedImage(getWidth(), getHeight(), imgType);
+    int[] buffer = new int[getWidth()];
+    for (int r = 0; r < getHeight(); r++) {
+      getRow(r).get(buffer);
+      result.setRGB(0, r, getWidth(), 1, buffer, 0, getWidth());
+    }
+    return result;
+  }
+
+  @Override
+  public Histogram histogram(IntUnaryOperator data) throws IllegalArgumentException {
+    int[] counts = new int[Histogram.BINS];
+    int[] row = new int[getWidth()];
+    for (int r = 0; r < getHeight(); r++) {
+      getRow(r).get(row);
+      for (int c = 0; c < row.length; c++) {
+        int value = data.applyAsInt(row[c]);
+        if ((value & ~0xFF) != 0) {
+          throw new IllegalArgumentException("Histogram values must be between 0 and 255");
+        }
+        counts[value]++;
+      }
+    }
+    return new Histogram(counts);
+  }
+
+  /**
+   * Two images are equal if they have the same dimensions and the same RGB values at every
+   * position, no matter how they are stored. Alpha values are only compared if both images have
+   * an alpha channel.
+   *
+   * @param other the object to compare to.
+   * @return true if the images are equal, false otherwise.
+   */
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof ManipulableImage)) {
+      return false;
+    }
+    ManipulableImage o = (ManipulableImage) other;
+    if (this.getWidth() != o.getWidth() || this.getHeight() != o.getHeight()) {
+      return false;
+    }
+    int mask = this.hasAlpha() && o.hasAlpha() ? 0xFFFFFFFF : 0x00FFFFFF;
+    for (int r = 0; r < getHeight(); r++) {
+      IntBuffer thisRow = this.getRow(r);
+      IntBuffer otherRow = o.getRow(r);
+      for (int c = 0; c < getWidth(); c++) {
+        if ((thisRow.get(c) & mask) != (otherRow.get(c) & mask)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 31 * getWidth() + getHeight();
+    for (int r = 0; r < getHeight(); r++) {
+      IntBuffer row = getRow(r);
+      for (int c = 0; c < getWidth(); c++) {
+        result = 31 * result + (row.get(c) & 0x00FFFFFF);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,258 @@
+package imageprocessing.model;
+
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Represents the histograms of the red, green, blue, intensity, luma and value of the pixels of
+ * an image, which are all counted in a single pass over it. When this runs inside
+ * {@link RowBands#run(java.util.function.Supplier)} on a parallel instance, each band of rows is
+ * counted into its own partial histograms on its own thread, and the partial counts are added
+ * together at the end, so the result is the same however the image is split.
+ *
+ * <p>For very large images, the histograms can instead be estimated from a sample of the pixels
+ * ({@link #sample(ManipulableImage, int)}, or {@link ManipulableImage#estimateHistograms(int)}),
+ * which takes the same time however large the image is.
+ * Estimated histograms report a bound on how far any of their counts may be from the exact ones.
+ */
+public final class ChannelHistograms {
+
+  private static final int RED = 0;
+  private static final int GREEN = 1;
+  private static final int BLUE = 2;
+  private static final int INTENSITY = 3;
+  private static final int LUMA = 4;
+  private static final int VALUE = 5;
+
+  /**
+   * The probability that every count of a sampled histogram is within its error bound.
+   */
+  public static final double CONFIDENCE = 0.95;
+
+  private final Histogram[] histograms; // the histogram of each attribute
+  private final long errorBound; // how far any estimated count may be from the exact count
+
+  /**
+   * Construct the histograms from the counts of each attribute.
+   *
+   * @param counts     the 256 counts of each attribute, in the order of the constants above.
+   * @param errorBound how far any of the counts may be from the exact count, or 0 if they are
+   *                   exact.
+   */
+  private ChannelHistograms(int[][] counts, long errorBound) {
+    this.errorBound = errorBound;
+    this.histograms = new Histogram[counts.length];
+    for (int i = 0; i < counts.length; i++) {
+      histograms[i] = new Histogram(counts[i]);
+    }
+  }
+
+  /**
+   * Count the pixels of the given image with each value of each attribute.
+   *
+   * @param img the image to count the pixels of.
+   * @return the histograms of the image.
+   * @throws IllegalArgumentException if the image is null.
+   */
+  public static ChannelHistograms of(ManipulableImage img) throws IllegalArgumentException {
+    return of(img, () -> false);
+  }
+
+  /**
+   * Count the pixels of the given image with each value of each attribute, unless the counts stop
+   * being needed. The given condition is checked before each row is counted (in every band, if
+   * the rows are split into bands), so counting stops soon after it becomes true.
+   *
+   * @param img       the image to count the pixels of.
+   * @param cancelled whether the counts are no longer needed.
+   * @return the histograms of the image.
+   * @throws IllegalArgumentException if the image or the condition is null.
+   * @throws CancellationException    if the condition became true before every row was counted.
+   */
+  public static ChannelHistograms of(ManipulableImage img, BooleanSupplier cancelled)
+      throws IllegalArgumentException, CancellationException {
+    if (img == null) {
+      throw new IllegalArgumentException("Image can't be null");
+    }
+    if (cancelled == null) {
+      throw new IllegalArgumentException("Cancellation condition can't be null");
+    }
+    int width = img.getWidth();
+    int[][] totals = new int[VALUE + 1][Histogram.BINS];
+    RowBands.forEach(img.getHeight(), width, (from, to) -> {
+      int[] red = new int[Histogram.BINS];
+      int[] green = new int[Histogram.BINS];
+      int[] blue = new int[Histogram.BINS];
+      int[] intensity = new int[Histogram.BINS];
+      int[] luma = new int[Histogram.BINS];
+      int[] value = new int[Histogram.BINS];
+      int[] row = new int[width];
+      for (int r = from; r < to; r++) {
+        if (cancelled.getAsBoolean()) {
+          throw new CancellationException("Histograms are no longer needed");
+        }
+        img.getRow(r).get(row);
+        for (int c = 0; c < width; c++) {
+          int argb = row[c];
+          int cr = ARGB.red(argb);
+          int cg = ARGB.green(argb);
+          int cb = ARGB.blue(argb);
+          red[cr]++;
+          green[cg]++;
+          blue[cb]++;
+          intensity[ARGB.intensity(argb)]++;
+          luma[ARGB.luma(argb)]++;
+          value[Math.max(cr, Math.max(cg, cb))]++;
+        }
+      }
+      int[][] partial = new int[][]{red, green, blue, intensity, luma, value};
+      synchronized (totals) {
+        for (int i = 0; i < totals.length; i++) {
+          for (int v = 0; v < Histogram.BINS; v++) {
+            totals[i][v] += partial[i][v];
+          }
+        }
+      }
+    });
+    return new ChannelHistograms(totals, 0);
+  }
+
+  /**
+   * Estimate the histograms of the given image from about the given number of its pixels. The
+   * image is split into a grid of about that many cells, and one pixel is picked at random from
+   * each cell (stratified sampling), so every part of the image is represented. Each sampled pixel
+   * counts for every pixel of its cell, so the counts of each histogram add up to the number of
+   * pixels in the image. If the image has no more pixels than the number asked for, every pixel is
+   * counted exactly, as by {@link #of(ManipulableImage)}.
+   *
+   * <p>Since the sampled pixels are picked independently, Hoeffding's inequality bounds how far
+   * the estimated counts may be from the exact ones: with probability {@link #CONFIDENCE}, every
+   * count of every histogram is within {@link #getErrorBound()} of the exact count. Pixels are
+   * picked with a fixed seed, so sampling the same image twice gives the same estimate.
+   *
+   * @param img     the image to estimate the histograms of.
+   * @param samples the number of pixels to sample.
+   * @return the estimated histograms of the image.
+   * @throws IllegalArgumentException if the image is null, or the number of samples is not
+   *                                  positive.
+   */
+  public static ChannelHistograms sample(ManipulableImage img, int samples)
+      throws IllegalArgumentException {
+    if (img == null) {
+      throw new IllegalArgumentException("Image can't be null");
+    }
+    if (samples <= 0) {
+      throw new IllegalArgumentException("Number of samples must be positive");
+    }
+    int width = img.getWidth();
+    int height = img.getHeight();
+    if ((long) width * height <= samples) {
+      return of(img);
+    }
+    int down = (int) Math.max(1, Math.min(height, Math.round(
+        Math.sqrt((double) samples * height / width))));
+    int across = Math.max(1, Math.min(width, samples / down));
+    int[][] counts = new int[VALUE + 1][Histogram.BINS];
+    double squares = 0; // the sum of the squared weights of the samples
+    Random random = new Random(width * 31L + height);
+    for (int i = 0; i < down; i++) {
+      int top = (int) ((long) i * height / down);
+      int rows = (int) ((long) (i + 1) * height / down) - top;
+      for (int j = 0; j < across; j++) {
+        int left = (int) ((long) j * width / across);
+        int cols = (int) ((long) (j + 1) * width / across) - left;
+        int argb = img.getARGB(top + random.nextInt(rows), left + random.nextInt(cols));
+        int weight = rows * cols;
+        int cr = ARGB.red(argb);
+        int cg = ARGB.green(argb);
+        int cb = ARGB.blue(argb);
+        counts[RED][cr] += weight;
+        counts[GREEN][cg] += weight;
+        counts[BLUE][cb] += weight;
+        counts[INTENSITY][ARGB.intensity(argb)] += weight;
+        counts[LUMA][ARGB.luma(argb)] += weight;
+        counts[VALUE][Math.max(cr, Math.max(cg, cb))] += weight;
+        squares += (double) weight * weight;
+      }
+    }
+    // a two-sided bound for each of the counts, which all hold at once by the union bound
+    double union = 2.0 * counts.length * Histogram.BINS / (1 - CONFIDENCE);
+    return new ChannelHistograms(counts,
+        (long) Math.ceil(Math.sqrt(squares * Math.log(union) / 2)));
+  }
+
+  /**
+   * Return whether these histograms were counted from every pixel of the image, rather than
+   * estimated from a sample of them.
+   *
+   * @return true if the counts are exact, false if they are estimates.
+   */
+  public boolean isExact() {
+    return errorBound == 0;
+  }
+
+  /**
+   * Return how far any count of these histograms may be from the exact count, with probability
+   * {@link #CONFIDENCE}. This is 0 if the counts are exact.
+   *
+   * @return the bound on the error of every count, in pixels.
+   */
+  public long getErrorBound() {
+    return errorBound;
+  }
+
+  /**
+   * Return the histogram of the red channel.
+   *
+   * @return the red histogram.
+   */
+  public Histogram getRed() {
+    return histograms[RED];
+  }
+
+  /**
+   * Return the histogram of the green channel.
+   *
+   * @return the green histogram.
+   */
+  public Histogram getGreen() {
+    return histograms[GREEN];
+  }
+
+  /**
+   * Return the histogram of the blue channel.
+   *
+   * @return the blue histogram.
+   */
+  public Histogram getBlue() {
+    return histograms[BLUE];
+  }
+
+  /**
+   * Return the histogram of the intensity of each pixel (see {@link ARGB#intensity(int)}).
+   *
+   * @return the intensity histogram.
+   */
+  public Histogram getIntensity() {
+    return histograms[INTENSITY];
+  }
+
+  /**
+   * Return the histogram of the luma of each pixel (see {@link ARGB#luma(int)}).
+   *
+   * @return the luma histogram.
+   */
+  public Histogram getLuma() {
+    return histograms[LUMA];
+  }
+
+  /**
+   * Return the histogram of the value of each pixel (see {@link ARGB#value(int)}).
+   *
+   * @return the value histogram.
+   */
+  public Histogram getValue() {
+    return histograms[VALUE];
+  }
+}
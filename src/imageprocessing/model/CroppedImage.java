@@ -0,0 +1,168 @@
+package imageprocessing.model;
+
+import java.nio.IntBuffer;
+import java.util.List;
+
+/**
+ * Representation of a manipulable image as a rectangular region of a source image. No pixels are
+ * copied to create a cropped image: its rows are views of the parts of the rows of the source
+ * inside the region, so reading them does not copy anything either. Cropping a cropped image only
+ * narrows the region of the original source.
+ */
+public class CroppedImage extends ImageView {
+
+  private final ManipulableImage source; // the image the region is taken from
+  private final int top; // the row of the source the region starts at
+  private final int left; // the column of the source the region starts at
+  private final int width; // the width of the region
+  private final int height; // the height of the region
+
+  /**
+   * Construct an image which views the given region of the given source.
+   *
+   * @param source the image the region is taken from.
+   * @param top    the row of the source the region starts at.
+   * @param left   the column of the source the region starts at.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   */
+  private CroppedImage(ManipulableImage source, int top, int left, int width, int height) {
+    this.source = source;
+    this.top = top;
+    this.left = left;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Return the given region of the given image, without copying any pixels (see
+   * {@link ManipulableImage#crop(int, int, int, int)}). If the image is cropped already, the
+   * region is taken from its source instead.
+   *
+   * @param image  the image to crop.
+   * @param row    the top row of the region.
+   * @param col    the leftmost column of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @return the region of the image, or the image itself if the region covers all of it.
+   * @throws IllegalArgumentException if the image is null, or the region is empty or not entirely
+   *                                  inside the image.
+   */
+  public static ManipulableImage of(ManipulableImage image, int row, int col, int width,
+      int height) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Image can't be null");
+    }
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Region must have a positive width and height");
+    }
+    if (row < 0 || col < 0 || (long) row + height > image.getHeight()
+        || (long) col + width > image.getWidth()) {
+      throw new IllegalArgumentException("Region must be inside the image");
+    }
+    if (width == image.getWidth() && height == image.getHeight()) {
+      return image;
+    }
+    if (image instanceof CroppedImage) {
+      CroppedImage cropped = (CroppedImage) image;
+      return cropped.source.crop(cropped.top + row, cropped.left + col, width, height);
+    }
+    return new CroppedImage(image, row, col, width, height);
+  }
+
+  /**
+   * Return the image the region of this image is taken from. The source of a cropped image is
+   * never cropped itself.
+   *
+   * @return the source image.
+   */
+  public ManipulableImage getSource() {
+    return source;
+  }
+
+  /**
+   * Return the row of the source this image starts at.
+   *
+   * @return the top row of the region.
+   */
+  public int getTop() {
+    return top;
+  }
+
+  /**
+   * Return the column of the source this image starts at.
+   *
+   * @return the leftmost column of the region.
+   */
+  public int getLeft() {
+    return left;
+  }
+
+  @Override
+  public List<ManipulableImage> getSources() {
+    return List.of(source);
+  }
+
+  /**
+   * Return the region of this image taken from the only image in the given list instead.
+   *
+   * @param sources the list holding the new source.
+   * @return the region of the new source.
+   * @throws IllegalArgumentException if the list does not hold exactly one image, or the image is
+   *                                  null or a different size than the source of this image.
+   */
+  @Override
+  public ManipulableImage withSources(List<ManipulableImage> sources)
+      throws IllegalArgumentException {
+    if (sources == null || sources.size() != 1) {
+      throw new IllegalArgumentException("Expected 1 source image");
+    }
+    ManipulableImage replacement = sources.get(0);
+    if (replacement == null || replacement.getWidth() != source.getWidth()
+        || replacement.getHeight() != source.getHeight()) {
+      throw new IllegalArgumentException("Source must be the same size as the image");
+    }
+    return replacement.crop(top, left, width, height);
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    return source.hasAlpha();
+  }
+
+  @Override
+  public int getARGB(int row, int col) throws IndexOutOfBoundsException {
+    check(row, col);
+    return source.getARGB(top + row, left + col);
+  }
+
+  @Override
+  public IntBuffer getRow(int row) throws IndexOutOfBoundsException {
+    check(row, 0);
+    IntBuffer view = source.getRow(top + row).duplicate();
+    view.position(left);
+    view.limit(left + width);
+    return view.slice();
+  }
+
+  @Override
+  public WritableImage createCompatibleImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException {
+    return source.createCompatibleImage(width, height, alpha);
+  }
+
+  @Override
+  public Pixel createPixel(int... channels) throws IllegalArgumentException {
+    return source.createPixel(channels);
+  }
+}
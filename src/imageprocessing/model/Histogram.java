@@ -0,0 +1,110 @@
+package imageprocessing.model;
+
+import java.util.Arrays;
+
+/**
+ * Represents the histogram of some 8-bit attribute of an image (such as one channel, or the
+ * intensity of each pixel): the number of pixels with each value from 0 to 255. Histograms are
+ * immutable.
+ */
+public final class Histogram {
+
+  /**
+   * The number of values a histogram counts, from 0 to 255.
+   */
+  public static final int BINS = 256;
+
+  private final int[] counts; // the number of pixels with each value
+
+  /**
+   * Construct a histogram with the given number of pixels for each value.
+   *
+   * @param counts the number of pixels with each value from 0 to 255.
+   * @throws IllegalArgumentException if the counts are null, there are not 256 of them, or any of
+   *                                  them are negative.
+   */
+  public Histogram(int[] counts) throws IllegalArgumentException {
+    if (counts == null || counts.length != BINS) {
+      throw new IllegalArgumentException("Histograms must have 256 counts");
+    }
+    for (int count : counts) {
+      if (count < 0) {
+        throw new IllegalArgumentException("Histogram counts can't be negative");
+      }
+    }
+    this.counts = counts.clone();
+  }
+
+  /**
+   * Return the number of pixels with the given value.
+   *
+   * @param value the value, from 0 to 255.
+   * @return the number of pixels with that value.
+   * @throws IllegalArgumentException if the value is outside 0 to 255.
+   */
+  public int getCount(int value) throws IllegalArgumentException {
+    if (value < 0 || value >= BINS) {
+      throw new IllegalArgumentException("Histogram values must be between 0 and 255");
+    }
+    return counts[value];
+  }
+
+  /**
+   * Return the greatest number of pixels with any single value.
+   *
+   * @return the greatest count.
+   */
+  public int getMaxCount() {
+    int result = 0;
+    for (int count : counts) {
+      result = Math.max(result, count);
+    }
+    return result;
+  }
+
+  /**
+   * Return the number of pixels counted.
+   *
+   * @return the sum of all the counts.
+   */
+  public long getTotal() {
+    long result = 0;
+    for (int count : counts) {
+      result += count;
+    }
+    return result;
+  }
+
+  /**
+   * Return the number of pixels with each value, as a new array.
+   *
+   * @return the 256 counts, indexed by value.
+   */
+  public int[] toArray() {
+    return counts.clone();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof Histogram)) {
+      return false;
+    }
+    return Arrays.equals(counts, ((Histogram) o).counts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(counts);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("{");
+    for (int v = 0; v < BINS; v++) {
+      if (counts[v] != 0) {
+        result.append(result.length() == 1 ? "" : ", ").append(v).append('=').append(counts[v]);
+      }
+    }
+    return result.append('}').toString();
+  }
+}
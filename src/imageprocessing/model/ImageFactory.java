@@ -0,0 +1,166 @@
+package imageprocessing.model;
+
+/**
+ * Decides how new images are stored, based on their size. Images up to a threshold number of
+ * pixels are stored in a single block, in the {@link Storage} layout chosen for the factory, while
+ * larger ones are stored as a {@link TiledImage} whose tiles are kept in a shared
+ * {@link TileCache}, so that they do not need to fit in memory all at once.
+ */
+public class ImageFactory {
+
+  /**
+   * The ways an image small enough not to be tiled can be stored.
+   */
+  public enum Storage {
+    /**
+     * Packed ARGB values in a single array on the heap (see {@link PackedImage}).
+     */
+    PACKED,
+    /**
+     * One byte array per channel on the heap (see {@link PlanarImage}), which suits work that
+     * handles one channel at a time.
+     */
+    PLANAR,
+    /**
+     * Packed ARGB values in native memory outside the heap (see {@link OffHeapImage}).
+     */
+    OFF_HEAP
+  }
+
+  /**
+   * The default number of pixels above which images are tiled (64 megapixels, or 256 MB as a
+   * packed image).
+   */
+  public static final long DEFAULT_TILING_THRESHOLD = 64L * 1024 * 1024;
+
+  private final long tilingThreshold; // the number of pixels above which images are tiled
+  private final TileCache tileCache; // the cache shared by all tiled images from this factory
+  private final Storage storage; // how untiled images are stored
+
+  /**
+   * Construct an image factory which tiles images above the given number of pixels, keeping their
+   * tiles in the given cache, and stores smaller images in the given layout.
+   *
+   * @param tilingThreshold the number of pixels above which images are tiled.
+   * @param tileCache       the cache to keep tiles in.
+   * @param storage         how untiled images are stored.
+   * @throws IllegalArgumentException if the threshold is negative, or the cache or storage is
+   *                                  null.
+   */
+  public ImageFactory(long tilingThreshold, TileCache tileCache, Storage storage)
+      throws IllegalArgumentException {
+    if (tilingThreshold < 0) {
+      throw new IllegalArgumentException("Tiling threshold can't be negative");
+    }
+    if (tileCache == null) {
+      throw new IllegalArgumentException("Tile cache can't be null");
+    }
+    if (storage == null) {
+      throw new IllegalArgumentException("Storage can't be null");
+    }
+    this.tilingThreshold = tilingThreshold;
+    this.tileCache = tileCache;
+    this.storage = storage;
+  }
+
+  /**
+   * Construct an image factory which tiles images above the given number of pixels, keeping their
+   * tiles in the given cache, and stores smaller images as packed arrays on the heap.
+   *
+   * @param tilingThreshold the number of pixels above which images are tiled.
+   * @param tileCache       the cache to keep tiles in.
+   * @throws IllegalArgumentException if the threshold is negative or the cache is null.
+   */
+  public ImageFactory(long tilingThreshold, TileCache tileCache) throws IllegalArgumentException {
+    this(tilingThreshold, tileCache, Storage.PACKED);
+  }
+
+  /**
+   * Construct an image factory with the default tiling threshold, whose tile cache may use up to a
+   * quarter of the maximum heap size, and which stores smaller images in the given layout.
+   *
+   * @param storage how untiled images are stored.
+   * @throws IllegalArgumentException if the storage is null.
+   */
+  public ImageFactory(Storage storage) throws IllegalArgumentException {
+    this(DEFAULT_TILING_THRESHOLD, new TileCache(Runtime.getRuntime().maxMemory() / 4), storage);
+  }
+
+  /**
+   * Construct an image factory with the default tiling threshold, whose tile cache may use up to a
+   * quarter of the maximum heap size, and which stores smaller images as packed arrays on the
+   * heap.
+   */
+  public ImageFactory() {
+    this(Storage.PACKED);
+  }
+
+  /**
+   * Create a new, blank image of the given size, stored in the way that suits its size.
+   *
+   * @param width  the width of the new image.
+   * @param height the height of the new image.
+   * @param alpha  whether the new image should have an alpha channel.
+   * @return the blank, writable image.
+   * @throws IllegalArgumentException if the dimensions are not positive.
+   */
+  public WritableImage createImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException {
+    if (isTiled(width, height)) {
+      return new TiledImage(width, height, alpha, tileCache);
+    }
+    switch (storage) {
+      case PLANAR:
+        return new PlanarImage(width, height, alpha);
+      case OFF_HEAP:
+        return new OffHeapImage(width, height, alpha);
+      default:
+        return new PackedImage(width, height, alpha);
+    }
+  }
+
+  /**
+   * Create an image holding the given packed ARGB values, stored in the way that suits its size.
+   * Images stored on the heap use the array directly (it is not copied), so callers must not
+   * modify it afterwards.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param argb   the ARGB values of the image in row-major order.
+   * @param alpha  whether the image has a meaningful alpha channel.
+   * @return the image holding the given values.
+   * @throws IllegalArgumentException if the dimensions are not positive, or the array is null or
+   *                                  does not hold exactly width * height values.
+   */
+  public ManipulableImage createImage(int width, int height, int[] argb, boolean alpha)
+      throws IllegalArgumentException {
+    if (storage == Storage.PACKED && !isTiled(width, height)) {
+      return new PackedImage(width, height, argb, alpha);
+    }
+    if (argb == null) {
+      throw new IllegalArgumentException("Pixel data can't be null");
+    }
+    if ((long) width * height != argb.length) {
+      throw new IllegalArgumentException("Pixel data does not match the image dimensions");
+    }
+    WritableImage result = createImage(width, height, alpha);
+    int[] row = new int[width];
+    for (int r = 0; r < height; r++) {
+      System.arraycopy(argb, r * width, row, 0, width);
+      result.setRow(r, row);
+    }
+    return result;
+  }
+
+  /**
+   * Return whether an image of the given size would be tiled by this factory.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @return true if the image would be tiled, false if it would be packed into one array.
+   */
+  public boolean isTiled(int width, int height) {
+    long limit = storage == Storage.OFF_HEAP ? IntBufferImage.MAX_PIXELS : Integer.MAX_VALUE - 8;
+    return (long) width * height > Math.min(tilingThreshold, limit);
+  }
+}
@@ -0,0 +1,154 @@
+package imageprocessing.model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps images which are no longer in use, so that their storage can be written over by later
+ * results of the same size (see
+ * {@link imageprocessing.operations.Operation#modify(ManipulableImage, WritableImage)}) instead of
+ * allocating a new image every time. Pooled images are grouped by width, height and whether they
+ * have an alpha channel, and the pool holds at most a fixed number of bytes of them.
+ *
+ * <p>Only images stored in a single block of memory are pooled: packed images on the heap and
+ * off-heap images. Since a pooled image is written over, the pool only keeps images which their
+ * owner has adopted (see {@link #adopt(ManipulableImage)}), so it never keeps an image whose
+ * pixels someone else can still read or write. Other images are refused, and should be released
+ * as usual.
+ */
+public class ImagePool {
+
+  private final long capacity; // the number of bytes of images this pool may hold
+  private final Map<String, Deque<WritableImage>> free; // pooled images, by size
+  private long pooled; // the number of bytes of images this pool holds
+
+  /**
+   * Construct an empty pool which holds up to the given number of bytes of images.
+   *
+   * @param capacity the number of bytes of images the pool may hold.
+   * @throws IllegalArgumentException if the capacity is negative.
+   */
+  public ImagePool(long capacity) throws IllegalArgumentException {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Pool capacity can't be negative");
+    }
+    this.capacity = capacity;
+    this.free = new HashMap<>();
+  }
+
+  /**
+   * Mark the given image as one that may be pooled once it is no longer in use. Only the code
+   * which allocated the image (or got it fresh from a load or an operation) may adopt it, since
+   * that is the only code which knows that no other image shares its pixels, such as a packed
+   * image built on an array the caller keeps using. Packed images of any subclass are refused,
+   * since they may be used by other code in ways this pool cannot know about.
+   *
+   * @param img the image to adopt, or null.
+   * @return true if the image may be pooled, false if it is not a kind of image that can be.
+   */
+  public boolean adopt(ManipulableImage img) {
+    if (img == null) {
+      return false;
+    }
+    if (img.getClass() != PackedImage.class && !(img instanceof OffHeapImage)) {
+      return false;
+    }
+    if (img instanceof OffHeapImage && ((OffHeapImage) img).isClosed()) {
+      return false;
+    }
+    ((AbstractImage) img).adopted = true;
+    return true;
+  }
+
+  /**
+   * Hand the given image to this pool, which keeps it if it was adopted (see
+   * {@link #adopt(ManipulableImage)}) and there is room for it. The caller must not use the image
+   * again if it is kept, since its pixels will be written over.
+   *
+   * @param img the image which is no longer in use, or null.
+   * @return true if the pool kept the image, false otherwise.
+   */
+  public synchronized boolean offer(ManipulableImage img) {
+    if (!(img instanceof AbstractImage) || !((AbstractImage) img).adopted) {
+      return false;
+    }
+    if (img instanceof OffHeapImage && ((OffHeapImage) img).isClosed()) {
+      return false;
+    }
+    long bytes = bytes(img.getWidth(), img.getHeight());
+    if (pooled + bytes > capacity) {
+      return false;
+    }
+    free.computeIfAbsent(key(img.getWidth(), img.getHeight(), img.hasAlpha()),
+        k -> new ArrayDeque<>()).push((WritableImage) img);
+    pooled += bytes;
+    return true;
+  }
+
+  /**
+   * Take an image of the given size out of this pool, if it holds one. The pixels of the image are
+   * left over from its previous use, so they must all be written over.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param alpha  whether the image should have an alpha channel.
+   * @return the pooled image, or null if this pool holds none of that size.
+   */
+  public synchronized WritableImage poll(int width, int height, boolean alpha) {
+    Deque<WritableImage> images = free.get(key(width, height, alpha));
+    if (images == null || images.isEmpty()) {
+      return null;
+    }
+    pooled -= bytes(width, height);
+    return images.pop();
+  }
+
+  /**
+   * Return the number of bytes of images this pool holds.
+   *
+   * @return the size of the pooled images in bytes.
+   */
+  public synchronized long getPooledBytes() {
+    return pooled;
+  }
+
+  /**
+   * Drop every image this pool holds, freeing the storage of off-heap images right away.
+   */
+  public synchronized void clear() {
+    for (Deque<WritableImage> images : free.values()) {
+      for (WritableImage img : images) {
+        if (img instanceof OffHeapImage) {
+          ((OffHeapImage) img).close();
+        }
+      }
+    }
+    free.clear();
+    pooled = 0;
+  }
+
+  /**
+   * Return the key pooled images of the given size are grouped under.
+   *
+   * @param width  the width of the images.
+   * @param height the height of the images.
+   * @param alpha  whether the images have an alpha channel.
+   * @return the key of the group.
+   */
+  private static String key(int width, int height, boolean alpha) {
+    return width + "x" + height + (alpha ? "a" : "");
+  }
+
+  /**
+   * Return the number of bytes an image of the given size takes up.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @return the size of the image in bytes.
+   */
+  private static long bytes(int width, int height) {
+    return (long) width * height * 4;
+  }
+}
@@ -0,0 +1,233 @@
+package imageprocessing.model;
+
+/**
+ * Represents summary statistics of the pixel values of an image: the least, greatest and mean
+ * value of each channel, and whether the image is fully opaque or gray. They are computed in a
+ * single pass over the image (split into bands as in {@link ChannelHistograms}), and images keep
+ * them once they are computed (see {@link ManipulableImage#getStatistics()}). Statistics are
+ * immutable.
+ */
+public final class ImageStatistics {
+
+  private final int[] min; // the least value of each channel, indexed like PlanarImage.RED
+  private final int[] max; // the greatest value of each channel
+  private final double[] mean; // the mean value of each channel
+  private final boolean opaque; // whether every alpha value is 255
+  private final boolean grayscale; // whether every pixel has equal red, green and blue values
+
+  /**
+   * Construct statistics from the given values.
+   *
+   * @param min       the least value of each channel.
+   * @param max       the greatest value of each channel.
+   * @param mean      the mean value of each channel.
+   * @param opaque    whether every alpha value is 255.
+   * @param grayscale whether every pixel has equal red, green and blue values.
+   */
+  private ImageStatistics(int[] min, int[] max, double[] mean, boolean opaque,
+      boolean grayscale) {
+    this.min = min;
+    this.max = max;
+    this.mean = mean;
+    this.opaque = opaque;
+    this.grayscale = grayscale;
+  }
+
+  /**
+   * Compute the statistics of the given image. Images without an alpha channel count as having an
+   * alpha value of 255 everywhere.
+   *
+   * @param img the image to compute the statistics of.
+   * @return the statistics of the image.
+   * @throws IllegalArgumentException if the image is null.
+   */
+  public static ImageStatistics of(ManipulableImage img) throws IllegalArgumentException {
+    if (img == null) {
+      throw new IllegalArgumentException("Image can't be null");
+    }
+    int width = img.getWidth();
+    int[] min = new int[]{255, 255, 255, 255};
+    int[] max = new int[4];
+    long[] sums = new long[4];
+    boolean[] flags = new boolean[]{true, true}; // opaque, grayscale
+    RowBands.forEach(img.getHeight(), width, (from, to) -> {
+      int minR = 255;
+      int minG = 255;
+      int minB = 255;
+      int minA = 255;
+      int maxR = 0;
+      int maxG = 0;
+      int maxB = 0;
+      int maxA = 0;
+      long sumR = 0;
+      long sumG = 0;
+      long sumB = 0;
+      long sumA = 0;
+      boolean gray = true;
+      int[] row = new int[width];
+      for (int r = from; r < to; r++) {
+        img.getRow(r).get(row);
+        for (int c = 0; c < width; c++) {
+          int argb = row[c];
+          int red = ARGB.red(argb);
+          int green = ARGB.green(argb);
+          int blue = ARGB.blue(argb);
+          int alpha = ARGB.alpha(argb);
+          minR = Math.min(minR, red);
+          minG = Math.min(minG, green);
+          minB = Math.min(minB, blue);
+          minA = Math.min(minA, alpha);
+          maxR = Math.max(maxR, red);
+          maxG = Math.max(maxG, green);
+          maxB = Math.max(maxB, blue);
+          maxA = Math.max(maxA, alpha);
+          sumR += red;
+          sumG += green;
+          sumB += blue;
+          sumA += alpha;
+          gray &= red == green && green == blue;
+        }
+      }
+      int[] partialMin = new int[]{minR, minG, minB, minA};
+      int[] partialMax = new int[]{maxR, maxG, maxB, maxA};
+      long[] partialSums = new long[]{sumR, sumG, sumB, sumA};
+      synchronized (sums) {
+        for (int i = 0; i < 4; i++) {
+          min[i] = Math.min(min[i], partialMin[i]);
+          max[i] = Math.max(max[i], partialMax[i]);
+          sums[i] += partialSums[i];
+        }
+        flags[0] &= minA == 255;
+        flags[1] &= gray;
+      }
+    });
+    double pixels = (double) width * img.getHeight();
+    double[] mean = new double[4];
+    for (int i = 0; i < 4; i++) {
+      mean[i] = sums[i] / pixels;
+    }
+    return new ImageStatistics(min, max, mean, flags[0], flags[1]);
+  }
+
+  /**
+   * Return the least value of the given channel in the image.
+   *
+   * @param channel the channel ({@link PlanarImage#RED}, {@link PlanarImage#GREEN},
+   *                {@link PlanarImage#BLUE} or {@link PlanarImage#ALPHA}).
+   * @return the least value of the channel.
+   * @throws IllegalArgumentException if the channel is not one of these.
+   */
+  public int getMin(int channel) throws IllegalArgumentException {
+    return min[check(channel)];
+  }
+
+  /**
+   * Return the greatest value of the given channel in the image.
+   *
+   * @param channel the channel, as in {@link #getMin(int)}.
+   * @return the greatest value of the channel.
+   * @throws IllegalArgumentException if the channel is invalid.
+   */
+  public int getMax(int channel) throws IllegalArgumentException {
+    return max[check(channel)];
+  }
+
+  /**
+   * Return the mean value of the given channel in the image.
+   *
+   * @param channel the channel, as in {@link #getMin(int)}.
+   * @return the mean value of the channel.
+   * @throws IllegalArgumentException if the channel is invalid.
+   */
+  public double getMean(int channel) throws IllegalArgumentException {
+    return mean[check(channel)];
+  }
+
+  /**
+   * Return the greatest red, green or blue value in the image, as given by
+   * {@link ManipulableImage#getMaxValue()}.
+   *
+   * @return the greatest color channel value.
+   */
+  public int getMaxValue() {
+    return Math.max(max[PlanarImage.RED], Math.max(max[PlanarImage.GREEN],
+        max[PlanarImage.BLUE]));
+  }
+
+  /**
+   * Return whether every pixel of the image is fully opaque.
+   *
+   * @return true if every alpha value is 255, false otherwise.
+   */
+  public boolean isOpaque() {
+    return opaque;
+  }
+
+  /**
+   * Return whether every pixel of the image is a shade of gray.
+   *
+   * @return true if every pixel has equal red, green and blue values, false otherwise.
+   */
+  public boolean isGrayscale() {
+    return grayscale;
+  }
+
+  /**
+   * Return the statistics of the image made by copying the given channel of this image into its
+   * red, green and blue channels (such as {@link imageprocessing.operations.GrayscaleR}), keeping
+   * its alpha channel.
+   *
+   * @param channel the color channel to copy, as in {@link #getMin(int)}.
+   * @return the statistics of the gray image.
+   * @throws IllegalArgumentException if the channel is not a color channel.
+   */
+  public ImageStatistics selectChannel(int channel) throws IllegalArgumentException {
+    if (check(channel) == PlanarImage.ALPHA) {
+      throw new IllegalArgumentException("Invalid channel " + channel);
+    }
+    int a = PlanarImage.ALPHA;
+    return new ImageStatistics(new int[]{min[channel], min[channel], min[channel], min[a]},
+        new int[]{max[channel], max[channel], max[channel], max[a]},
+        new double[]{mean[channel], mean[channel], mean[channel], mean[a]}, opaque, true);
+  }
+
+  /**
+   * Return the statistics of the image made by adding the given amount to every color channel of
+   * every pixel of this image (as {@link imageprocessing.operations.Brighten} does), if no value
+   * leaves the range 0 to 255 and so none has to be clamped. Otherwise the statistics do not
+   * follow from these ones, since how much each pixel is clamped depends on the pixel.
+   *
+   * @param amount the amount to add to each color channel.
+   * @return the statistics of the brightened image, or null if some values would be clamped.
+   */
+  public ImageStatistics brighten(int amount) {
+    int least = Math.min(min[PlanarImage.RED], Math.min(min[PlanarImage.GREEN],
+        min[PlanarImage.BLUE]));
+    if ((long) least + amount < 0 || (long) getMaxValue() + amount > 255) {
+      return null;
+    }
+    int[] newMin = min.clone();
+    int[] newMax = max.clone();
+    double[] newMean = mean.clone();
+    for (int i = PlanarImage.RED; i <= PlanarImage.BLUE; i++) {
+      newMin[i] += amount;
+      newMax[i] += amount;
+      newMean[i] += amount;
+    }
+    return new ImageStatistics(newMin, newMax, newMean, opaque, grayscale);
+  }
+
+  /**
+   * Check that the given channel is a valid channel.
+   *
+   * @param channel the channel to check.
+   * @return the channel.
+   * @throws IllegalArgumentException if the channel is invalid.
+   */
+  private static int check(int channel) throws IllegalArgumentException {
+    if (channel < PlanarImage.RED || channel > PlanarImage.ALPHA) {
+      throw new IllegalArgumentException("Invalid channel " + channel);
+    }
+    return channel;
+  }
+}
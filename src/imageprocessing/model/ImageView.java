@@ -0,0 +1,48 @@
+package imageprocessing.model;
+
+/**
+ * Base class for images which read their pixels from other images instead of storing them (such
+ * as {@link OrientedImage}, {@link CroppedImage} and {@link PatchedImage}). The whole-image
+ * operations are those of {@link AbstractImage}, working row by row, and copies are stored the way
+ * the images they read from are stored (see {@link #createCompatibleImage(int, int, boolean)}).
+ * Views do not own the images they read from, so those must stay usable (not closed) and
+ * unchanged for as long as the view is used.
+ */
+abstract class ImageView extends AbstractImage {
+
+  /**
+   * Return a copy of this image, stored the way the images it reads from are stored, with its
+   * pixels laid out in rows in the usual way.
+   *
+   * @return a writable copy of this image.
+   */
+  @Override
+  public WritableImage copy() {
+    WritableImage result = createCompatibleImage(getWidth(), getHeight(), hasAlpha());
+    copyTo(result);
+    return result;
+  }
+
+  /**
+   * Return zero, since a view holds no pixels of its own.
+   *
+   * @return zero.
+   */
+  @Override
+  public long getResidentBytes() {
+    return 0;
+  }
+
+  /**
+   * Check that the given position is inside this image.
+   *
+   * @param row the row of the position.
+   * @param col the column of the position.
+   * @throws IndexOutOfBoundsException if the position is outside this image.
+   */
+  protected final void check(int row, int col) throws IndexOutOfBoundsException {
+    if (row < 0 || row >= getHeight() || col < 0 || col >= getWidth()) {
+      throw new IndexOutOfBoundsException("Pixel (" + row + ", " + col + ") is out of bounds");
+    }
+  }
+}
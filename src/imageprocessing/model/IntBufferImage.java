@@ -0,0 +1,208 @@
+package imageprocessing.model;
+
+import java.nio.IntBuffer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Base class for images whose packed ARGB values (see {@link ARGB}) are stored in a single
+ * {@link IntBuffer} in row-major order, outside of the Java heap. Implementations decide where the
+ * buffer lives and how it is let go of when the image is closed. A closed image can no longer be
+ * used: every access to its pixels throws an {@link IllegalStateException}. Row views obtained
+ * before it was closed keep its storage alive, so they can still be read safely.
+ */
+public abstract class IntBufferImage extends AbstractImage
+    implements WritableImage, AutoCloseable {
+
+  /**
+   * The largest number of pixels a buffer image can hold.
+   */
+  public static final int MAX_PIXELS = Integer.MAX_VALUE / 4;
+
+  private final int width;
+  private final int height;
+  private final boolean alpha; // whether the alpha channel of this image is meaningful
+
+  /**
+   * Construct a buffer image with the given dimensions. Implementations must fill in their buffer
+   * with {@link #clearPixels(IntBuffer, boolean)} (or with pixel data) before handing it out.
+   *
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param alpha  whether the image has a meaningful alpha channel.
+   * @throws IllegalArgumentException if the dimensions are not positive or too large to store.
+   */
+  protected IntBufferImage(int width, int height, boolean alpha) throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Image dimensions must be positive");
+    }
+    if ((long) width * height > MAX_PIXELS) {
+      throw new IllegalArgumentException("Image is too large to store in a single buffer");
+    }
+    this.width = width;
+    this.height = height;
+    this.alpha = alpha;
+  }
+
+  /**
+   * Return the pixels of this image, making sure it has not been closed.
+   *
+   * @return the buffer holding the pixels of this image, row by row.
+   * @throws IllegalStateException if this image has been closed.
+   */
+  protected abstract IntBuffer pixels() throws IllegalStateException;
+
+  /**
+   * Return whether this image has been closed.
+   *
+   * @return true if this image has been closed, false otherwise.
+   */
+  public abstract boolean isClosed();
+
+  /**
+   * Let go of the storage of this image, so that it is freed once no row view of it is used any
+   * more. Closing an image more than once has no effect.
+   */
+  @Override
+  public abstract void close();
+
+  @Override
+  public abstract IntBufferImage createCompatibleImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException;
+
+  /**
+   * Set every pixel of the given buffer to transparent black if the image has an alpha channel, or
+   * opaque black otherwise, assuming the buffer starts out zeroed.
+   *
+   * @param pixels the buffer to clear.
+   * @param alpha  whether the image has a meaningful alpha channel.
+   */
+  protected static void clearPixels(IntBuffer pixels, boolean alpha) {
+    if (!alpha) {
+      int black = ARGB.pack(0, 0, 0);
+      for (int i = 0; i < pixels.capacity(); i++) {
+        pixels.put(i, black);
+      }
+    }
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    return alpha;
+  }
+
+  @Override
+  public int getARGB(int row, int col) throws IndexOutOfBoundsException, IllegalStateException {
+    return pixels().get(indexOf(row, col));
+  }
+
+  @Override
+  public void setARGB(int row, int col, int argb)
+      throws IndexOutOfBoundsException, IllegalStateException {
+    pixelsChanged();
+    pixels().put(indexOf(row, col), alpha ? argb : argb | 0xFF000000);
+  }
+
+  /**
+   * Return a read-only view of the given row, backed directly by the buffer of this image. The
+   * view keeps the buffer alive, so it can be read even after this image has been closed.
+   *
+   * @param row the row to view.
+   * @return a read-only buffer of {@link #getWidth()} packed values.
+   * @throws IndexOutOfBoundsException if the row is outside this image.
+   * @throws IllegalStateException     if this image has been closed.
+   */
+  @Override
+  public IntBuffer getRow(int row) throws IndexOutOfBoundsException, IllegalStateException {
+    int start = indexOf(row, 0);
+    IntBuffer view = pixels().duplicate();
+    view.position(start).limit(start + width);
+    return view.slice().asReadOnlyBuffer();
+  }
+
+  @Override
+  public void setRow(int row, int[] src) throws IndexOutOfBoundsException, IllegalStateException {
+    pixelsChanged();
+    int start = indexOf(row, 0);
+    if (src.length < width) {
+      throw new IndexOutOfBoundsException("Row data is shorter than the image width");
+    }
+    IntBuffer pixels = pixels();
+    if (alpha) {
+      IntBuffer dest = pixels.duplicate();
+      dest.position(start);
+      dest.put(src, 0, width);
+    } else {
+      for (int c = 0; c < width; c++) {
+        pixels.put(start + c, src[c] | 0xFF000000);
+      }
+    }
+  }
+
+  @Override
+  public void setRow(int row, int col, int[] src, int length)
+      throws IndexOutOfBoundsException, IllegalStateException {
+    pixelsChanged();
+    int start = indexOf(row, col);
+    if (src.length < length || col + length > width) {
+      throw new IndexOutOfBoundsException("Row data does not fit in the image");
+    }
+    IntBuffer pixels = pixels();
+    if (alpha) {
+      IntBuffer dest = pixels.duplicate();
+      dest.position(start);
+      dest.put(src, 0, length);
+    } else {
+      for (int c = 0; c < length; c++) {
+        pixels.put(start + c, src[c] | 0xFF000000);
+      }
+    }
+  }
+
+  @Override
+  public ManipulableImage mapARGB(IntUnaryOperator operation) throws IllegalStateException {
+    IntBuffer pixels = pixels();
+    IntBufferImage result = createCompatibleImage(width, height, alpha);
+    IntBuffer dest = result.pixels();
+    int opaque = alpha ? 0 : 0xFF000000;
+    RowBands.forEach(height, width, (from, to) -> {
+      for (int i = from * width; i < to * width; i++) {
+        dest.put(i, operation.applyAsInt(pixels.get(i)) | opaque);
+      }
+    });
+    return result;
+  }
+
+  @Override
+  public WritableImage copy() throws IllegalStateException {
+    IntBuffer pixels = pixels();
+    IntBufferImage result = createCompatibleImage(width, height, alpha);
+    result.pixels().duplicate().put(pixels.duplicate().clear());
+    result.seedStatistics(getKnownStatistics());
+    return result;
+  }
+
+  /**
+   * Return the index in the pixel buffer of the given position.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the index of the pixel.
+   * @throws IndexOutOfBoundsException if the position is outside this image.
+   */
+  private int indexOf(int row, int col) throws IndexOutOfBoundsException {
+    if (row < 0 || col < 0 || row >= height || col >= width) {
+      throw new IndexOutOfBoundsException("Pixel (" + row + ", " + col + ") is out of bounds");
+    }
+    return row * width + col;
+  }
+}
@@ -0,0 +1,424 @@
+package imageprocessing.model;
+
+import java.awt.image.BufferedImage;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Representation of a manipulable image as a source image plus a pending per-pixel operation,
+ * which has not been applied yet. Applying further per-pixel operations to a lazy image (through
+ * {@link #mapARGB(IntUnaryOperator)} or {@link #applyToAll(Function)}) only records them, so a
+ * chain of such operations runs in a single pass over the source once the pixels are actually
+ * needed, instead of creating a full intermediate image for every step. Once the pixels of a lazy
+ * image have been computed, further operations start from them instead of from the source.
+ *
+ * <p>Single pixels are computed on the fly. Everything else that needs the pixels, such as row
+ * views, saving or histograms, materializes the whole image once and reuses it afterwards. A lazy
+ * image does not own its source, so the source must stay usable (not closed) for as long as the
+ * lazy image is used.
+ */
+public class LazyImage implements ManipulableImage, AutoCloseable {
+
+  private final ManipulableImage source; // the image the pending operation is applied to
+  private final IntUnaryOperator[] pending; // the pending steps, in the order they are applied
+  private final boolean alpha; // whether the alpha channel of this image is meaningful
+  private ManipulableImage materialized; // the result of the pending operation, once computed
+  private boolean shared; // whether a later lazy image reads from the materialized pixels
+  private ImageStatistics statistics; // the statistics of this image, once computed
+
+  /**
+   * Construct a lazy image which applies the given steps to the given source. The steps are kept
+   * in a flat array and applied in a loop, rather than composed into one operation, so that a
+   * long chain of them does not nest calls as deep as the chain is long.
+   *
+   * @param source  the image to apply the steps to.
+   * @param pending the steps to apply to each packed pixel value in order, which may be none.
+   * @param alpha   whether the result has a meaningful alpha channel.
+   */
+  private LazyImage(ManipulableImage source, IntUnaryOperator[] pending, boolean alpha) {
+    this.source = source;
+    this.pending = pending;
+    this.alpha = alpha;
+  }
+
+  /**
+   * Return the given image as a lazy image, so that per-pixel operations applied to it are
+   * deferred.
+   *
+   * @param image the image to wrap.
+   * @return the image itself if it is lazy already, or a lazy image with no pending operation
+   *         whose source is the given image.
+   * @throws IllegalArgumentException if the image is null.
+   */
+  public static LazyImage of(ManipulableImage image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Image can't be null");
+    }
+    if (image instanceof LazyImage) {
+      return (LazyImage) image;
+    }
+    return new LazyImage(image, new IntUnaryOperator[0], image.hasAlpha());
+  }
+
+  /**
+   * Return the image the pending operation of this image is applied to, which is the materialized
+   * result of an earlier lazy image if this one continues from it. The source of a lazy image is
+   * never lazy itself.
+   *
+   * @return the source image.
+   */
+  public ManipulableImage getSource() {
+    return source;
+  }
+
+  /**
+   * Return a lazy image with the same pending operation as this one, applied to the given source
+   * instead, for example because the source was moved to different storage.
+   *
+   * @param source the new source, which must hold the same pixels as the current one.
+   * @return the lazy image over the new source.
+   * @throws IllegalArgumentException if the source is null, lazy, or a different size.
+   */
+  public LazyImage withSource(ManipulableImage source) throws IllegalArgumentException {
+    if (source == null || source instanceof LazyImage) {
+      throw new IllegalArgumentException("Source must be a non-lazy image");
+    }
+    if (source.getWidth() != getWidth() || source.getHeight() != getHeight()) {
+      throw new IllegalArgumentException("Source must be the same size as the image");
+    }
+    LazyImage result = new LazyImage(source, pending, alpha);
+    result.statistics = statistics; // the pixels are the same
+    return result;
+  }
+
+  /**
+   * Return the source of this image, followed by its materialized pixels if a later lazy image
+   * reads from them (see {@link #mapARGB(IntUnaryOperator)}), since those must then stay usable
+   * for as long as either image is used.
+   *
+   * @return the images this image reads from.
+   */
+  @Override
+  public synchronized List<ManipulableImage> getSources() {
+    return shared ? List.of(source, materialized) : List.of(source);
+  }
+
+  /**
+   * Return a lazy image with the same pending operation as this one, applied to the first image in
+   * the given list (see {@link #withSource(ManipulableImage)}). The result is not materialized, so
+   * this also drops the materialized pixels of this image from the result.
+   *
+   * @param sources the list holding the new source, and the images replacing the other images
+   *                returned by {@link #getSources()}.
+   * @return the lazy image over the new source.
+   * @throws IllegalArgumentException if the list does not hold one image for each source, or the
+   *                                  new source is null, lazy, or a different size.
+   */
+  @Override
+  public LazyImage withSources(List<ManipulableImage> sources) throws IllegalArgumentException {
+    int expected = getSources().size();
+    if (sources == null || sources.size() != expected) {
+      throw new IllegalArgumentException(
+          "Expected " + expected + (expected == 1 ? " source image" : " source images"));
+    }
+    return withSource(sources.get(0));
+  }
+
+  /**
+   * Return the number of bytes held by the materialized pixels of this image (including any
+   * images they read from), which is zero until this image is materialized, and once a later lazy
+   * image reads from them, since they are then counted as one of the images this one reads from.
+   *
+   * @return the number of bytes held by this image.
+   */
+  @Override
+  public synchronized long getResidentBytes() {
+    return materialized == null || shared ? 0 : residentBytes(materialized);
+  }
+
+  /**
+   * Return the number of bytes held by the given image and all the images it reads from.
+   *
+   * @param image the image to count.
+   * @return the number of bytes held by the image and its sources.
+   */
+  private static long residentBytes(ManipulableImage image) {
+    long bytes = image.getResidentBytes();
+    for (ManipulableImage source : image.getSources()) {
+      bytes += residentBytes(source);
+    }
+    return bytes;
+  }
+
+  /**
+   * Return whether this image has an operation left to apply to its source. A lazy image without
+   * one holds the same pixels as its source.
+   *
+   * @return true if the pixels of this image differ from those of its source, false otherwise.
+   */
+  public boolean hasPendingOperation() {
+    return pending.length > 0;
+  }
+
+  /**
+   * Return whether this image holds a computed copy of its pixels. A lazy image with no pending
+   * operation never does, since its pixels are the pixels of its source.
+   *
+   * @return true if the pixels of this image have been computed and kept, false otherwise.
+   */
+  public synchronized boolean isMaterialized() {
+    return materialized != null;
+  }
+
+  /**
+   * Apply the pending operation to the source in a single pass, if it has not been applied
+   * already, and return the result.
+   *
+   * @return the image holding the pixels of this image.
+   */
+  public synchronized ManipulableImage materialize() {
+    if (pending.length == 0) {
+      return source;
+    }
+    if (materialized == null) {
+      if (alpha == source.hasAlpha()) {
+        materialized = source.mapARGB(this::applyPending);
+      } else {
+        WritableImage result = source.createCompatibleImage(getWidth(), getHeight(), alpha);
+        apply(result);
+        materialized = result;
+      }
+      materialized.seedStatistics(statistics); // known if an operation could tell what they are
+    }
+    return materialized;
+  }
+
+  /**
+   * Copy the pixels of this image into the given image of the same size. If they have not been
+   * computed yet, the pending operation is applied straight into the given image, without
+   * computing and keeping a copy of them here.
+   *
+   * @param dest the image to copy into.
+   * @throws IllegalArgumentException if the given image is null or a different size.
+   */
+  @Override
+  public synchronized void copyTo(WritableImage dest) throws IllegalArgumentException {
+    if (pending.length == 0 || materialized != null) {
+      materialize().copyTo(dest);
+      return;
+    }
+    if (dest == null || dest.getWidth() != getWidth() || dest.getHeight() != getHeight()) {
+      throw new IllegalArgumentException("Destination must be the same size as the image");
+    }
+    apply(dest);
+    if (!alpha || dest.hasAlpha()) { // the pixels are the same
+      dest.seedStatistics(statistics);
+    }
+  }
+
+  /**
+   * Apply the pending operation to the source one row at a time, writing the results into the
+   * given image.
+   *
+   * @param dest the image to write into, which is the same size as this one.
+   */
+  private void apply(WritableImage dest) {
+    RowBands.forEach(getHeight(), getWidth(), (from, to) -> {
+      int[] out = new int[getWidth()];
+      for (int r = from; r < to; r++) {
+        IntBuffer row = source.getRow(r);
+        for (int c = 0; c < getWidth(); c++) {
+          out[c] = applyPending(row.get(c));
+        }
+        dest.setRow(r, out);
+      }
+    });
+  }
+
+  /**
+   * Apply the pending steps to the given packed pixel value, one after another.
+   *
+   * @param argb the packed value of a pixel of the source.
+   * @return the packed value of the pixel of this image.
+   */
+  private int applyPending(int argb) {
+    for (IntUnaryOperator step : pending) {
+      argb = step.applyAsInt(argb);
+    }
+    return argb;
+  }
+
+  @Override
+  public ManipulableImage applyToAll(Function<Pixel, Pixel> operation) {
+    boolean alpha = this.alpha;
+    return then(p -> ARGB.fromPixel(operation.apply(ARGB.toPixel(p, alpha))), alpha);
+  }
+
+  @Override
+  public ManipulableImage mapARGB(IntUnaryOperator operation) {
+    return then(operation, alpha);
+  }
+
+  /**
+   * Return a lazy image which applies the given operation after the pending operation of this
+   * image. If the pixels of this image have been computed already, the result applies the
+   * operation to them instead of computing them again, and from then on they are also one of the
+   * images this image reads from (see {@link #getSources()}), so it no longer frees them when it
+   * is closed.
+   *
+   * @param operation   the operation to apply to each packed pixel value.
+   * @param resultAlpha whether the result has a meaningful alpha channel.
+   * @return the lazy result.
+   */
+  private synchronized LazyImage then(IntUnaryOperator operation, boolean resultAlpha) {
+    int opaque = resultAlpha ? 0 : 0xFF000000;
+    IntUnaryOperator step = p -> operation.applyAsInt(p) | opaque;
+    if (materialized != null) {
+      shared = true;
+      materialized.seedStatistics(statistics); // the pixels are the same
+      return new LazyImage(materialized, new IntUnaryOperator[]{step}, resultAlpha);
+    }
+    IntUnaryOperator[] steps = Arrays.copyOf(pending, pending.length + 1);
+    steps[pending.length] = step;
+    return new LazyImage(source, steps, resultAlpha);
+  }
+
+  @Override
+  public int getMaxValue() {
+    return getStatistics().getMaxValue();
+  }
+
+  /**
+   * Return the statistics of the pixels of this image, computing them the first time they are
+   * needed. They are kept even if the computed pixels are dropped (see {@link #close()}).
+   *
+   * @return the statistics of this image.
+   */
+  @Override
+  public ImageStatistics getStatistics() {
+    ImageStatistics result = statistics;
+    if (result == null) {
+      result = pending.length == 0 ? source.getStatistics() : materialize().getStatistics();
+      statistics = result;
+    }
+    return result;
+  }
+
+  @Override
+  public void seedStatistics(ImageStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  @Override
+  public ImageStatistics getKnownStatistics() {
+    if (statistics == null && pending.length == 0) {
+      return source.getKnownStatistics();
+    }
+    return statistics;
+  }
+
+  @Override
+  public int getWidth() {
+    return source.getWidth();
+  }
+
+  @Override
+  public int getHeight() {
+    return source.getHeight();
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    return alpha;
+  }
+
+  @Override
+  public int getARGB(int row, int col) throws IndexOutOfBoundsException {
+    synchronized (this) {
+      if (materialized != null) {
+        return materialized.getARGB(row, col);
+      }
+    }
+    return applyPending(source.getARGB(row, col));
+  }
+
+  @Override
+  public IntBuffer getRow(int row) throws IndexOutOfBoundsException {
+    return materialize().getRow(row);
+  }
+
+  @Override
+  public WritableImage copy() {
+    return materialize().copy();
+  }
+
+  @Override
+  public WritableImage createCompatibleImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException {
+    return source.createCompatibleImage(width, height, alpha);
+  }
+
+  @Override
+  public Pixel[][] getPixels() {
+    return materialize().getPixels();
+  }
+
+  @Override
+  public Pixel createPixel(int... channels) throws IllegalArgumentException {
+    return source.createPixel(channels);
+  }
+
+  @Override
+  public BufferedImage toBufferedImage(int imgType) {
+    return materialize().toBufferedImage(imgType);
+  }
+
+  @Override
+  public Histogram histogram(IntUnaryOperator data) throws IllegalArgumentException {
+    return materialize().histogram(data);
+  }
+
+  /**
+   * Drop the materialized pixels of this image, freeing their storage right away if it is outside
+   * the heap, unless a later lazy image reads from them. They are computed again if this image is
+   * used afterwards. The source is not closed, since it is not owned by this image.
+   */
+  @Override
+  public synchronized void close() {
+    if (!shared && materialized instanceof AutoCloseable) {
+      try {
+        ((AutoCloseable) materialized).close();
+      } catch (Exception e) {
+        // the pixels are unreachable either way, so they are freed once they are garbage collected
+      }
+    }
+    materialized = null;
+    shared = false;
+  }
+
+  /**
+   * Two images are equal if they have the same dimensions and the same RGB values at every
+   * position, no matter how they are stored (see {@link AbstractImage#equals(Object)}).
+   *
+   * @param other the object to compare to.
+   * @return true if the images are equal, false otherwise.
+   */
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (other instanceof LazyImage) {
+      other = ((LazyImage) other).materialize();
+    }
+    return materialize().equals(other);
+  }
+
+  @Override
+  public int hashCode() {
+    return materialize().hashCode();
+  }
+}
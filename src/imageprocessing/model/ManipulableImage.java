@@ -1,8 +1,10 @@
 package imageprocessing.model;
 
 import java.awt.image.BufferedImage;
-import java.util.Map;
+import java.nio.IntBuffer;
+import java.util.List;
 import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Represents the set of operations which should be offered by an image consisting of a series of
@@ -11,13 +13,25 @@ import java.util.function.Function;
 public interface ManipulableImage {
 
   /**
-   * Apply the given operation to each pixel in this image, and return the resulting image.
+   * Apply the given operation to each pixel in this image, and return the resulting image. The
+   * resulting image has an alpha channel if this image does, so if it does not, the pixels the
+   * operation returns are made opaque.
    *
    * @param operation the operation to apply to each pixel.
    * @return the resulting image after applying the operation to each pixel.
    */
   ManipulableImage applyToAll(Function<Pixel, Pixel> operation);
 
+  /**
+   * Apply the given operation to the packed ARGB value (see {@link ARGB}) of each pixel in this
+   * image, and return the resulting image. Unlike {@link #applyToAll(Function)}, no pixel objects
+   * are created along the way. The resulting image has an alpha channel if this image does.
+   *
+   * @param operation the operation to apply to each packed pixel value.
+   * @return the resulting image after applying the operation to each pixel.
+   */
+  ManipulableImage mapARGB(IntUnaryOperator operation);
+
   /**
    * Return the greatest RGB channel value of any pixel in this image.
    *
@@ -25,6 +39,38 @@ public interface ManipulableImage {
    */
   int getMaxValue();
 
+  /**
+   * Return statistics of the pixel values of this image: the range and mean of each channel, and
+   * whether it is opaque or gray. Since images do not change once they are handed out, images
+   * compute their statistics once and keep them, so asking again is free.
+   *
+   * @return the statistics of this image.
+   */
+  default ImageStatistics getStatistics() {
+    return ImageStatistics.of(this);
+  }
+
+  /**
+   * Return the statistics of this image if they are already known, without computing them. This
+   * lets operations whose results have the same statistics as their input (such as flips) pass
+   * them on without scanning either image.
+   *
+   * @return the statistics of this image, or null if they have not been computed.
+   */
+  default ImageStatistics getKnownStatistics() {
+    return null;
+  }
+
+  /**
+   * Give this image the statistics of its pixels, which the caller already knows (for example
+   * because they follow from the statistics of the image an operation was applied to), so they are
+   * not computed again when asked for. Images which do not keep statistics ignore this.
+   *
+   * @param statistics the statistics of the pixels of this image, or null if they are unknown.
+   */
+  default void seedStatistics(ImageStatistics statistics) {
+  }
+
   /**
    * Return the width of this image in pixels.
    *
@@ -39,10 +85,189 @@ public interface ManipulableImage {
    */
   int getHeight();
 
+  /**
+   * Return whether the pixels of this image carry a meaningful alpha (transparency) channel.
+   *
+   * @return true if this image has an alpha channel, false if it is fully opaque RGB.
+   */
+  boolean hasAlpha();
+
+  /**
+   * Return the packed ARGB value (see {@link ARGB}) of the pixel at the given position. Images
+   * without an alpha channel report their pixels as fully opaque.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the packed value of the pixel.
+   * @throws IndexOutOfBoundsException if the position is outside this image.
+   */
+  int getARGB(int row, int col) throws IndexOutOfBoundsException;
+
+  /**
+   * Return the red component of the pixel at the given position.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the red component, between 0 and 255.
+   * @throws IndexOutOfBoundsException if the position is outside this image.
+   */
+  default int getRed(int row, int col) throws IndexOutOfBoundsException {
+    return ARGB.red(getARGB(row, col));
+  }
+
+  /**
+   * Return the green component of the pixel at the given position.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the green component, between 0 and 255.
+   * @throws IndexOutOfBoundsException if the position is outside this image.
+   */
+  default int getGreen(int row, int col) throws IndexOutOfBoundsException {
+    return ARGB.green(getARGB(row, col));
+  }
+
+  /**
+   * Return the blue component of the pixel at the given position.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the blue component, between 0 and 255.
+   * @throws IndexOutOfBoundsException if the position is outside this image.
+   */
+  default int getBlue(int row, int col) throws IndexOutOfBoundsException {
+    return ARGB.blue(getARGB(row, col));
+  }
+
+  /**
+   * Return the alpha component of the pixel at the given position.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the alpha component, between 0 and 255 (always 255 if this image has no alpha).
+   * @throws IndexOutOfBoundsException if the position is outside this image.
+   */
+  default int getAlpha(int row, int col) throws IndexOutOfBoundsException {
+    return ARGB.alpha(getARGB(row, col));
+  }
+
+  /**
+   * Return a read-only view of the packed ARGB values (see {@link ARGB}) of the given row of this
+   * image, where index 0 of the view is the leftmost pixel of the row. Images which store their
+   * rows contiguously return a view of their own storage rather than a copy, so reading an image
+   * row by row does not allocate any per-pixel memory.
+   *
+   * @param row the row to view.
+   * @return a read-only buffer of {@link #getWidth()} packed values.
+   * @throws IndexOutOfBoundsException if the row is outside this image.
+   */
+  IntBuffer getRow(int row) throws IndexOutOfBoundsException;
+
+  /**
+   * Return the given rectangular region of this image as an image of its own, without copying any
+   * pixels (see {@link CroppedImage}). Rows of the region are views of the rows of this image.
+   *
+   * @param row    the top row of the region.
+   * @param col    the leftmost column of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @return the region of this image, or this image itself if the region covers all of it.
+   * @throws IllegalArgumentException if the region is empty or not entirely inside this image.
+   */
+  default ManipulableImage crop(int row, int col, int width, int height)
+      throws IllegalArgumentException {
+    return CroppedImage.of(this, row, col, width, height);
+  }
+
+  /**
+   * Return a mutable deep copy of this image, stored the same way as this one. This is the only
+   * way (besides {@link #getPixels()}) to get a copy of an image's pixel data; read-only access
+   * should go through {@link #getARGB(int, int)} or {@link #getRow(int)} instead.
+   *
+   * @return a writable copy of this image.
+   */
+  WritableImage copy();
+
+  /**
+   * Copy the pixels of this image into the given image of the same size, overwriting all of its
+   * pixels. If the given image has no alpha channel, the copied pixels are made opaque.
+   *
+   * @param dest the image to copy into.
+   * @throws IllegalArgumentException if the given image is null or a different size.
+   */
+  default void copyTo(WritableImage dest) throws IllegalArgumentException {
+    if (dest == null || dest.getWidth() != getWidth() || dest.getHeight() != getHeight()) {
+      throw new IllegalArgumentException("Destination must be the same size as the image");
+    }
+    RowBands.forEach(getHeight(), getWidth(), (from, to) -> {
+      int[] out = new int[getWidth()];
+      for (int r = from; r < to; r++) {
+        getRow(r).get(out);
+        dest.setRow(r, out);
+      }
+    });
+    if (!hasAlpha() || dest.hasAlpha()) { // the pixels are the same
+      dest.seedStatistics(getKnownStatistics());
+    }
+  }
+
+  /**
+   * Create a new, blank image of the given size which is stored the same way as this one. The
+   * new image can be written to with primitive values until it is handed out as a result.
+   *
+   * @param width  the width of the new image.
+   * @param height the height of the new image.
+   * @param alpha  whether the new image should have an alpha channel.
+   * @return the blank, writable image.
+   * @throws IllegalArgumentException if the dimensions are not positive.
+   */
+  WritableImage createCompatibleImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException;
+
+  /**
+   * Return the images this image reads its pixels from, which must stay usable for as long as this
+   * image is used. Images which store their own pixels read from no other images.
+   *
+   * @return the images this image reads from, in a fixed order.
+   */
+  default List<ManipulableImage> getSources() {
+    return List.of();
+  }
+
+  /**
+   * Return an image with the same pixels as this one which reads them from the given images
+   * instead, which must have the same pixels as the images returned by {@link #getSources()}, in
+   * the same order. Anything this image computed from its sources is not carried over.
+   *
+   * @param sources the images to read from.
+   * @return the image reading from the given images, or this image if it reads from none.
+   * @throws IllegalArgumentException if the number of images is not the number of sources, or an
+   *                                  image is not a suitable replacement for its source.
+   */
+  default ManipulableImage withSources(List<ManipulableImage> sources)
+      throws IllegalArgumentException {
+    if (sources == null || sources.size() != getSources().size()) {
+      throw new IllegalArgumentException("Expected " + getSources().size() + " source images");
+    }
+    return this;
+  }
+
+  /**
+   * Return the number of bytes of heap or native memory held by this image, not counting the
+   * memory of its sources or memory which the system can page out (such as mapped files).
+   *
+   * @return the number of bytes held by this image.
+   */
+  default long getResidentBytes() {
+    return (long) getWidth() * getHeight() * 4;
+  }
+
   /**
    * Return a deep copy of all the pixels in this image as a 2D array. The row and column number of
    * a pixel in the array should represent its actual position in the image (for example, the pixel
-   * returned by getPixels()[0][0] should be the top-leftmost pixel in the image).
+   * returned by getPixels()[0][0] should be the top-leftmost pixel in the image). This creates a
+   * new object for every pixel, so code that only needs to read the image should use
+   * {@link #getRow(int)} instead.
    *
    * @return a deep copy 2D array of the pixels in this image.
    */
@@ -67,12 +292,27 @@ public interface ManipulableImage {
   BufferedImage toBufferedImage(int imgType);
 
   /**
-   * Produces a Map of Integers to Integers representing the data for a histogram of this image
-   * for a given channel value or other image attribute.
+   * Count the pixels of this image with each value of some 8-bit attribute, such as one channel
+   * ({@link ARGB#red(int)}) or the intensity of each pixel ({@link ARGB#intensity(int)}).
+   *
+   * @param data the function from the packed ARGB value of a pixel to the value to count, which
+   *             must be between 0 and 255.
+   * @return the histogram of the values.
+   * @throws IllegalArgumentException if the function gives a value outside 0 to 255.
+   */
+  Histogram histogram(IntUnaryOperator data) throws IllegalArgumentException;
+
+  /**
+   * Estimate the histograms of every channel of this image from about the given number of its
+   * pixels (see {@link ChannelHistograms#sample(ManipulableImage, int)}), counting them exactly if
+   * this image has no more pixels than that. Only the sampled pixels are read, so images which
+   * compute their pixels (such as {@link LazyImage}) only compute those.
    *
-   * @param data the Function object from a Pixel to Integer that represents the data for
-   *             the histogram.
-   * @return the map of value, frequency data points for the histogram.
+   * @param samples the number of pixels to sample.
+   * @return the estimated histograms of this image.
+   * @throws IllegalArgumentException if the number of samples is not positive.
    */
-  Map<Integer, Integer> histogram(Function<Pixel, Integer> data);
+  default ChannelHistograms estimateHistograms(int samples) throws IllegalArgumentException {
+    return ChannelHistograms.sample(this, samples);
+  }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package imageprocessing.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Representation of a manipulable image whose packed ARGB values (see {@link ARGB}) are stored in
+ * a memory-mapped scratch file, in row-major order. The operating system pages the pixels in and
+ * out of memory as they are used, so any number of mapped images can be kept around even if they
+ * do not all fit in memory at once.
+ *
+ * <p>The scratch file is deleted as soon as the image is {@link #close() closed}, or otherwise
+ * once the image is garbage collected. Its mapping is only undone once nothing refers to it any
+ * more, including row views obtained from the image before it was closed, so such views stay
+ * valid instead of reading unmapped memory.
+ */
+public class MappedImage extends IntBufferImage {
+
+  private static final Cleaner CLEANER = Cleaner.create(); // deletes files of unused images
+
+  private volatile IntBuffer pixels; // the pixels of the image, row by row, or null once closed
+  private final Cleaner.Cleanable cleanable; // closes and deletes the scratch file
+
+  /**
+   * Construct a blank mapped image with the given dimensions, with every pixel set to transparent
+   * black if the image has an alpha channel, or opaque black otherwise.
+   *
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param alpha  whether the image has a meaningful alpha channel.
+   * @throws IllegalArgumentException if the dimensions are not positive or too large to store.
+   * @throws UncheckedIOException     if the scratch file could not be created or mapped.
+   */
+  public MappedImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException, UncheckedIOException {
+    super(width, height, alpha);
+    FileChannel channel = null;
+    MappedByteBuffer mapping;
+    try {
+      channel = FileChannel.open(Files.createTempFile("image", ".raw"),
+          StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+      mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, width * height * 4L);
+    } catch (IOException e) {
+      closeQuietly(channel);
+      throw new UncheckedIOException(e);
+    }
+    IntBuffer pixels = mapping.order(ByteOrder.nativeOrder()).asIntBuffer();
+    FileChannel scratch = channel;
+    this.cleanable = CLEANER.register(this, () -> closeQuietly(scratch));
+    clearPixels(pixels, alpha);
+    this.pixels = pixels;
+  }
+
+  /**
+   * Create a mapped image holding the same pixels as the given image, for example to move it out
+   * of memory.
+   *
+   * @param image the image to copy.
+   * @return the mapped copy of the image.
+   * @throws IllegalArgumentException if the image is too large to map.
+   * @throws UncheckedIOException     if the scratch file could not be created or mapped.
+   */
+  public static MappedImage copyOf(ManipulableImage image)
+      throws IllegalArgumentException, UncheckedIOException {
+    MappedImage result = new MappedImage(image.getWidth(), image.getHeight(), image.hasAlpha());
+    int[] row = new int[image.getWidth()];
+    for (int r = 0; r < image.getHeight(); r++) {
+      image.getRow(r).get(row);
+      result.setRow(r, row);
+    }
+    result.seedStatistics(image.getKnownStatistics());
+    return result;
+  }
+
+  @Override
+  protected IntBuffer pixels() throws IllegalStateException {
+    IntBuffer result = pixels;
+    if (result == null) {
+      throw new IllegalStateException("Image has already been closed");
+    }
+    return result;
+  }
+
+  @Override
+  public MappedImage createCompatibleImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException, UncheckedIOException {
+    return new MappedImage(width, height, alpha);
+  }
+
+  /**
+   * Return zero, since the pixels of this image are in a mapped file, which the system can page
+   * out whenever it needs the memory.
+   *
+   * @return zero.
+   */
+  @Override
+  public long getResidentBytes() {
+    return 0;
+  }
+
+  @Override
+  public boolean isClosed() {
+    return pixels == null;
+  }
+
+  /**
+   * Delete the scratch file of this image right away, instead of waiting for the garbage collector
+   * to do so, and let go of its mapping, so it is undone once no row view of it is used any more.
+   * Closing an image more than once has no effect.
+   */
+  @Override
+  public void close() {
+    pixels = null;
+    cleanable.clean();
+  }
+
+  /**
+   * Close the given scratch file, ignoring any errors.
+   *
+   * @param channel the scratch file to close, or null.
+   */
+  private static void closeQuietly(FileChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // the scratch file is only a cache, so there is nothing left to recover
+      }
+    }
+  }
+}
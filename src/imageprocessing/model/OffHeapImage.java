@@ -0,0 +1,69 @@
+package imageprocessing.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Representation of a manipulable image whose packed ARGB values (see {@link ARGB}) are stored in
+ * native memory, outside of the Java heap, in row-major order. The heap only holds this small
+ * handle, so keeping many large images loaded does not make garbage collection any slower.
+ *
+ * <p>The native memory is freed once nothing refers to it any more: neither the image, which
+ * lets go of it when it is {@link #close() closed}, nor any row view obtained from the image
+ * before that. It is never freed while something can still read it, so a row view which outlives
+ * the image stays valid instead of reading freed memory. The virtual machine collects unused
+ * native memory before it runs out of it, so images which have been closed do not use it up.
+ */
+public class OffHeapImage extends IntBufferImage {
+
+  private volatile IntBuffer pixels; // the pixels of the image, row by row, or null once closed
+
+  /**
+   * Construct a blank off-heap image with the given dimensions, with every pixel set to
+   * transparent black if the image has an alpha channel, or opaque black otherwise.
+   *
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param alpha  whether the image has a meaningful alpha channel.
+   * @throws IllegalArgumentException if the dimensions are not positive or too large to store.
+   * @throws OutOfMemoryError         if there is not enough native memory left for the image.
+   */
+  public OffHeapImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException, OutOfMemoryError {
+    super(width, height, alpha);
+    IntBuffer pixels =
+        ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    clearPixels(pixels, alpha);
+    this.pixels = pixels;
+  }
+
+  @Override
+  protected IntBuffer pixels() throws IllegalStateException {
+    IntBuffer result = pixels;
+    if (result == null) {
+      throw new IllegalStateException("Image has already been closed");
+    }
+    return result;
+  }
+
+  @Override
+  public OffHeapImage createCompatibleImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException {
+    return new OffHeapImage(width, height, alpha);
+  }
+
+  @Override
+  public boolean isClosed() {
+    return pixels == null;
+  }
+
+  /**
+   * Let go of the native memory of this image, so it is freed as soon as no row view of it is
+   * used any more either. Closing an image more than once has no effect.
+   */
+  @Override
+  public void close() {
+    pixels = null;
+  }
+}
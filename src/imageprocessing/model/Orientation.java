@@ -0,0 +1,125 @@
+package imageprocessing.model;
+
+/**
+ * The eight ways of laying out the pixels of an image by flipping it and rotating it by multiples
+ * of 90 degrees. Each orientation transposes the image (swaps its rows and columns) or not, and
+ * then flips the result horizontally, vertically, both or neither. Orientations only decide where
+ * each pixel is read from, so they can be combined (see {@link #then(Orientation)}) without
+ * touching any pixels.
+ */
+public enum Orientation {
+  /**
+   * The image as it is.
+   */
+  IDENTITY(false, false, false),
+  /**
+   * The image flipped horizontally (mirrored left to right).
+   */
+  FLIP_HORIZONTAL(false, true, false),
+  /**
+   * The image flipped vertically (mirrored top to bottom).
+   */
+  FLIP_VERTICAL(false, false, true),
+  /**
+   * The image rotated by 180 degrees.
+   */
+  ROTATE_180(false, true, true),
+  /**
+   * The image mirrored along its main diagonal, so its rows become its columns.
+   */
+  TRANSPOSE(true, false, false),
+  /**
+   * The image rotated by 90 degrees clockwise.
+   */
+  ROTATE_CLOCKWISE(true, true, false),
+  /**
+   * The image rotated by 90 degrees counterclockwise.
+   */
+  ROTATE_COUNTERCLOCKWISE(true, false, true),
+  /**
+   * The image mirrored along its other diagonal (from its top right to its bottom left).
+   */
+  TRANSVERSE(true, true, true);
+
+  private final boolean transposed; // whether rows and columns are swapped first
+  private final boolean horizontal; // whether the result is then flipped horizontally
+  private final boolean vertical; // whether the result is then flipped vertically
+
+  /**
+   * Construct an orientation from the steps it takes.
+   *
+   * @param transposed whether rows and columns are swapped first.
+   * @param horizontal whether the result is then flipped horizontally.
+   * @param vertical   whether the result is then flipped vertically.
+   */
+  Orientation(boolean transposed, boolean horizontal, boolean vertical) {
+    this.transposed = transposed;
+    this.horizontal = horizontal;
+    this.vertical = vertical;
+  }
+
+  /**
+   * Return whether this orientation swaps the rows and columns of an image, so that its width and
+   * height are swapped too.
+   *
+   * @return true for the rotations by 90 degrees and the transpositions, false otherwise.
+   */
+  public boolean isTransposed() {
+    return transposed;
+  }
+
+  /**
+   * Return whether this orientation flips an image horizontally, after transposing it if it does.
+   *
+   * @return true if the image is flipped horizontally.
+   */
+  public boolean isFlippedHorizontally() {
+    return horizontal;
+  }
+
+  /**
+   * Return whether this orientation flips an image vertically, after transposing it if it does.
+   *
+   * @return true if the image is flipped vertically.
+   */
+  public boolean isFlippedVertically() {
+    return vertical;
+  }
+
+  /**
+   * Return the orientation which lays out an image as this one does and then as the given one
+   * does. Transposing an image which was flipped horizontally is the same as flipping the
+   * transposed image vertically (and the other way around), so the flips of this orientation
+   * trade places if the given one transposes.
+   *
+   * @param next the orientation to apply after this one.
+   * @return the combined orientation.
+   * @throws IllegalArgumentException if the given orientation is null.
+   */
+  public Orientation then(Orientation next) throws IllegalArgumentException {
+    if (next == null) {
+      throw new IllegalArgumentException("Orientation can't be null");
+    }
+    boolean h = next.transposed ? vertical : horizontal;
+    boolean v = next.transposed ? horizontal : vertical;
+    return of(transposed ^ next.transposed, h ^ next.horizontal, v ^ next.vertical);
+  }
+
+  /**
+   * Return the orientation which takes the given steps.
+   *
+   * @param transposed whether rows and columns are swapped first.
+   * @param horizontal whether the result is then flipped horizontally.
+   * @param vertical   whether the result is then flipped vertically.
+   * @return the orientation.
+   */
+  private static Orientation of(boolean transposed, boolean horizontal, boolean vertical) {
+    for (Orientation orientation : values()) {
+      if (orientation.transposed == transposed && orientation.horizontal == horizontal
+          && orientation.vertical == vertical) {
+        return orientation;
+      }
+    }
+    throw new IllegalStateException("every combination of steps is an orientation");
+  }
+}
@@ -0,0 +1,211 @@
+package imageprocessing.model;
+
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Representation of a manipulable image as a source image read in a different
+ * {@link Orientation}: flipped, rotated by a multiple of 90 degrees, or transposed. No pixels are
+ * copied to create an oriented image; each pixel is read from the position of the source it came
+ * from. Orienting an oriented image only combines the two orientations, so a chain of flips and
+ * rotations is still a single view of the original pixels, and takes constant time however large
+ * the image is.
+ *
+ * <p>Rows of an image which is not transposed or flipped horizontally are views of the rows of
+ * the source, so reading them does not copy anything. Other rows are gathered from the source when
+ * they are read, which is slower for images which are transposed, since their rows are columns of
+ * the source. Operations which read the neighborhood of each pixel many times (such as filters)
+ * should copy the image into contiguous storage first (see {@link #copy()}, which stores the copy
+ * the way the source is stored). Per-pixel operations are applied to the source, and the result is
+ * oriented the same way, so the pixels are never rearranged. Statistics and histograms do not
+ * depend on where pixels are, so they are those of the source.
+ */
+public class OrientedImage extends ImageView {
+
+  private final ManipulableImage source; // the image whose pixels are read
+  private final Orientation orientation; // how the pixels of the source are laid out
+
+  /**
+   * Construct an image which reads the given source in the given orientation.
+   *
+   * @param source      the image whose pixels are read.
+   * @param orientation how the pixels of the source are laid out.
+   */
+  private OrientedImage(ManipulableImage source, Orientation orientation) {
+    this.source = source;
+    this.orientation = orientation;
+  }
+
+  /**
+   * Return the given image in the given orientation, without copying any pixels. If the image is
+   * oriented already (or is a {@link LazyImage} without a pending operation whose source is), the
+   * orientations are combined into one over the original source.
+   *
+   * @param image       the image to orient.
+   * @param orientation how to lay out the pixels of the image.
+   * @return the oriented image, or the original source if the combined orientation leaves it as
+   *         it is.
+   * @throws IllegalArgumentException if the image or the orientation is null.
+   */
+  public static ManipulableImage of(ManipulableImage image, Orientation orientation)
+      throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Image can't be null");
+    }
+    if (orientation == null) {
+      throw new IllegalArgumentException("Orientation can't be null");
+    }
+    if (image instanceof LazyImage && !((LazyImage) image).hasPendingOperation()) {
+      image = ((LazyImage) image).getSource(); // it only wraps its source
+    }
+    if (image instanceof OrientedImage) {
+      OrientedImage oriented = (OrientedImage) image;
+      image = oriented.source;
+      orientation = oriented.orientation.then(orientation);
+    }
+    if (orientation == Orientation.IDENTITY) {
+      return image;
+    }
+    return new OrientedImage(image, orientation);
+  }
+
+  /**
+   * Return the image whose pixels this image reads. The source of an oriented image is never
+   * oriented itself.
+   *
+   * @return the source image.
+   */
+  public ManipulableImage getSource() {
+    return source;
+  }
+
+  /**
+   * Return how the pixels of the source are laid out in this image.
+   *
+   * @return the orientation of this image.
+   */
+  public Orientation getOrientation() {
+    return orientation;
+  }
+
+  @Override
+  public List<ManipulableImage> getSources() {
+    return List.of(source);
+  }
+
+  /**
+   * Return the only image in the given list in the orientation of this image.
+   *
+   * @param sources the list holding the new source.
+   * @return the new source in the orientation of this image.
+   * @throws IllegalArgumentException if the list does not hold exactly one image, or the image is
+   *                                  null or a different size than the source of this image.
+   */
+  @Override
+  public ManipulableImage withSources(List<ManipulableImage> sources)
+      throws IllegalArgumentException {
+    if (sources == null || sources.size() != 1) {
+      throw new IllegalArgumentException("Expected 1 source image");
+    }
+    ManipulableImage replacement = sources.get(0);
+    if (replacement == null || replacement.getWidth() != source.getWidth()
+        || replacement.getHeight() != source.getHeight()) {
+      throw new IllegalArgumentException("Source must be the same size as the image");
+    }
+    return of(replacement, orientation);
+  }
+
+  @Override
+  public ManipulableImage applyToAll(Function<Pixel, Pixel> operation) {
+    return of(source.applyToAll(operation), orientation);
+  }
+
+  @Override
+  public ManipulableImage mapARGB(IntUnaryOperator operation) {
+    return of(source.mapARGB(operation), orientation);
+  }
+
+  @Override
+  public int getMaxValue() {
+    return source.getMaxValue();
+  }
+
+  @Override
+  public ImageStatistics getStatistics() {
+    return source.getStatistics();
+  }
+
+  @Override
+  public ImageStatistics getKnownStatistics() {
+    return source.getKnownStatistics();
+  }
+
+  @Override
+  public int getWidth() {
+    return orientation.isTransposed() ? source.getHeight() : source.getWidth();
+  }
+
+  @Override
+  public int getHeight() {
+    return orientation.isTransposed() ? source.getWidth() : source.getHeight();
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    return source.hasAlpha();
+  }
+
+  @Override
+  public int getARGB(int row, int col) throws IndexOutOfBoundsException {
+    check(row, col);
+    int r = orientation.isFlippedVertically() ? getHeight() - 1 - row : row;
+    int c = orientation.isFlippedHorizontally() ? getWidth() - 1 - col : col;
+    return orientation.isTransposed() ? source.getARGB(c, r) : source.getARGB(r, c);
+  }
+
+  @Override
+  public IntBuffer getRow(int row) throws IndexOutOfBoundsException {
+    check(row, 0);
+    int width = getWidth();
+    int r = orientation.isFlippedVertically() ? getHeight() - 1 - row : row;
+    if (orientation.isTransposed()) { // the row is a column of the source
+      int[] result = new int[width];
+      for (int c = 0; c < width; c++) {
+        result[orientation.isFlippedHorizontally() ? width - 1 - c : c] = source.getARGB(c, r);
+      }
+      return IntBuffer.wrap(result).asReadOnlyBuffer();
+    }
+    IntBuffer view = source.getRow(r);
+    if (!orientation.isFlippedHorizontally()) {
+      return view;
+    }
+    int[] result = new int[width];
+    for (int c = 0; c < width; c++) {
+      result[width - 1 - c] = view.get(c);
+    }
+    return IntBuffer.wrap(result).asReadOnlyBuffer();
+  }
+
+  @Override
+  public WritableImage createCompatibleImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException {
+    return source.createCompatibleImage(width, height, alpha);
+  }
+
+  @Override
+  public Pixel createPixel(int... channels) throws IllegalArgumentException {
+    return source.createPixel(channels);
+  }
+
+  @Override
+  public Histogram histogram(IntUnaryOperator data) throws IllegalArgumentException {
+    return source.histogram(data);
+  }
+
+  @Override
+  public ChannelHistograms estimateHistograms(int samples) throws IllegalArgumentException {
+    return source.estimateHistograms(samples);
+  }
+}
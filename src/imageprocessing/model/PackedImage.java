@@ -0,0 +1,219 @@
+package imageprocessing.model;
+
+import java.awt.image.BufferedImage;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Representation of a manipulable image as a single packed array of ARGB values, stored in
+ * row-major order. Each pixel takes up one int (see {@link ARGB}), so an image costs four bytes
+ * per pixel instead of a full pixel object, and full-image scans walk one contiguous array. Images
+ * without an alpha channel always store their pixels as fully opaque.
+ */
+public class PackedImage extends AbstractImage implements WritableImage {
+
+  private final int width;
+  private final int height;
+  private final int[] argb; // the pixels of the image, row by row
+  private final boolean alpha; // whether the alpha channel of this image is meaningful
+
+  /**
+   * Construct a packed image with the given dimensions from the given array of ARGB values. The
+   * array is used directly (not copied), so callers must not modify it afterwards.
+   *
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param argb   the ARGB values of the image in row-major order.
+   * @param alpha  whether the image has a meaningful alpha channel.
+   * @throws IllegalArgumentException if the dimensions are not positive, or the array is null or
+   *                                  does not hold exactly width * height values.
+   */
+  public PackedImage(int width, int height, int[] argb, boolean alpha)
+      throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Image dimensions must be positive");
+    }
+    if (argb == null) {
+      throw new IllegalArgumentException("Pixel data can't be null");
+    }
+    if ((long) width * height != argb.length) {
+      throw new IllegalArgumentException("Pixel data does not match the image dimensions");
+    }
+    this.width = width;
+    this.height = height;
+    this.argb = argb;
+    this.alpha = alpha;
+  }
+
+  /**
+   * Construct a blank packed image with the given dimensions, with every pixel set to transparent
+   * black if the image has an alpha channel, or opaque black otherwise.
+   *
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param alpha  whether the image has a meaningful alpha channel.
+   * @throws IllegalArgumentException if the dimensions are not positive or too large to store.
+   */
+  public PackedImage(int width, int height, boolean alpha) throws IllegalArgumentException {
+    this(width, height, blankPixels(width, height, alpha), alpha);
+  }
+
+  /**
+   * Create the pixel data for a blank image of the given size.
+   *
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param alpha  whether the image has a meaningful alpha channel.
+   * @return the blank pixel data.
+   * @throws IllegalArgumentException if the dimensions are not positive or too large to store.
+   */
+  private static int[] blankPixels(int width, int height, boolean alpha)
+      throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Image dimensions must be positive");
+    }
+    if ((long) width * height > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Image is too large to store in a single array");
+    }
+    int[] result = new int[width * height];
+    if (!alpha) {
+      Arrays.fill(result, ARGB.pack(0, 0, 0));
+    }
+    return result;
+  }
+
+  @Override
+  public ManipulableImage mapARGB(IntUnaryOperator operation) {
+    int[] result = new int[argb.length];
+    int opaque = alpha ? 0 : 0xFF000000;
+    RowBands.forEach(height, width, (from, to) -> {
+      for (int i = from * width; i < to * width; i++) {
+        result[i] = operation.applyAsInt(argb[i]) | opaque;
+      }
+    });
+    return new PackedImage(width, height, result, alpha);
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    return this.alpha;
+  }
+
+  @Override
+  public int getARGB(int row, int col) throws IndexOutOfBoundsException {
+    return argb[indexOf(row, col)];
+  }
+
+  @Override
+  public void setARGB(int row, int col, int argb) throws IndexOutOfBoundsException {
+    pixelsChanged();
+    this.argb[indexOf(row, col)] = alpha ? argb : argb | 0xFF000000;
+  }
+
+  @Override
+  public IntBuffer getRow(int row) throws IndexOutOfBoundsException {
+    return IntBuffer.wrap(argb, indexOf(row, 0), width).slice().asReadOnlyBuffer();
+  }
+
+  @Override
+  public void setRow(int row, int[] src) throws IndexOutOfBoundsException {
+    pixelsChanged();
+    int start = indexOf(row, 0);
+    if (alpha) {
+      System.arraycopy(src, 0, argb, start, width);
+    } else {
+      for (int c = 0; c < width; c++) {
+        argb[start + c] = src[c] | 0xFF000000;
+      }
+    }
+  }
+
+  @Override
+  public void setRow(int row, int col, int[] src, int length) throws IndexOutOfBoundsException {
+    pixelsChanged();
+    int start = indexOf(row, col);
+    if (src.length < length || col + length > width) {
+      throw new IndexOutOfBoundsException("Row data does not fit in the image");
+    }
+    if (alpha) {
+      System.arraycopy(src, 0, argb, start, length);
+    } else {
+      for (int c = 0; c < length; c++) {
+        argb[start + c] = src[c] | 0xFF000000;
+      }
+    }
+  }
+
+  @Override
+  public WritableImage copy() {
+    PackedImage result = new PackedImage(width, height, argb.clone(), alpha);
+    result.seedStatistics(getKnownStatistics());
+    return result;
+  }
+
+  @Override
+  public WritableImage createCompatibleImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException {
+    return new PackedImage(width, height, alpha);
+  }
+
+  /**
+   * Return the index in the pixel array of the given position.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the index of the pixel.
+   * @throws IndexOutOfBoundsException if the position is outside this image.
+   */
+  private int indexOf(int row, int col) throws IndexOutOfBoundsException {
+    if (row < 0 || col < 0 || row >= height || col >= width) {
+      throw new IndexOutOfBoundsException("Pixel (" + row + ", " + col + ") is out of bounds");
+    }
+    return row * width + col;
+  }
+
+  @Override
+  public BufferedImage toBufferedImage(int imgType) {
+    BufferedImage result = new BufferedImage(width, height, imgType);
+    result.setRGB(0, 0, width, height, argb, 0, width);
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof PackedImage)) {
+      return super.equals(other);
+    }
+    PackedImage o = (PackedImage) other;
+    if (this.width != o.width || this.height != o.height) {
+      return false;
+    }
+    int mask = this.alpha && o.alpha ? 0xFFFFFFFF : 0x00FFFFFF;
+    for (int i = 0; i < argb.length; i++) {
+      if ((this.argb[i] & mask) != (o.argb[i] & mask)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 31 * width + height;
+    for (int p : argb) {
+      result = 31 * result + (p & 0x00FFFFFF);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,221 @@
+package imageprocessing.model;
+
+import java.nio.IntBuffer;
+import java.util.List;
+
+/**
+ * Representation of a manipulable image as a source image with one rectangular region replaced by
+ * the pixels of another image (the patch), such as the result of applying an operation to that
+ * region only (see
+ * {@link imageprocessing.operations.Operation#modifyRegion(ManipulableImage, int, int, int, int)}).
+ * No pixels are copied to create a patched image: rows outside the patch are the rows of the
+ * source, and the pixels outside the patch in the other rows are read from the source when those
+ * rows are read. So the pixels outside the region are shared with the source, and only the region
+ * takes up any new memory.
+ */
+public class PatchedImage extends ImageView {
+
+  private final ManipulableImage source; // the image the pixels outside the patch are read from
+  private final ManipulableImage patch; // the image the pixels inside the patch are read from
+  private final int top; // the row of this image the patch starts at
+  private final int left; // the column of this image the patch starts at
+
+  /**
+   * Construct an image which reads the given patch at the given position, and the given source
+   * everywhere else.
+   *
+   * @param source the image the pixels outside the patch are read from.
+   * @param patch  the image the pixels inside the patch are read from.
+   * @param top    the row the patch starts at.
+   * @param left   the column the patch starts at.
+   */
+  private PatchedImage(ManipulableImage source, ManipulableImage patch, int top, int left) {
+    this.source = source;
+    this.patch = patch;
+    this.top = top;
+    this.left = left;
+  }
+
+  /**
+   * Return the given source with the region at the given position replaced by the given patch,
+   * without copying any pixels. The result has an alpha channel if the source does; if it does
+   * not, the pixels of the patch are made opaque.
+   *
+   * @param source the image to patch.
+   * @param patch  the pixels to put in the region.
+   * @param row    the top row of the region.
+   * @param col    the leftmost column of the region.
+   * @return the patched image, or the patch itself if it covers the whole source and has an alpha
+   *         channel exactly when the source does.
+   * @throws IllegalArgumentException if either image is null, or the patch does not fit inside
+   *                                  the source at the given position.
+   */
+  public static ManipulableImage of(ManipulableImage source, ManipulableImage patch, int row,
+      int col) throws IllegalArgumentException {
+    if (source == null || patch == null) {
+      throw new IllegalArgumentException("Image can't be null");
+    }
+    if (row < 0 || col < 0 || (long) row + patch.getHeight() > source.getHeight()
+        || (long) col + patch.getWidth() > source.getWidth()) {
+      throw new IllegalArgumentException("Patch must fit inside the image");
+    }
+    if (patch.getWidth() == source.getWidth() && patch.getHeight() == source.getHeight()
+        && patch.hasAlpha() == source.hasAlpha()) {
+      return patch;
+    }
+    return new PatchedImage(source, patch, row, col);
+  }
+
+  /**
+   * Return the image the pixels outside the patch are read from.
+   *
+   * @return the source image.
+   */
+  public ManipulableImage getSource() {
+    return source;
+  }
+
+  /**
+   * Return the image the pixels inside the patch are read from.
+   *
+   * @return the patch.
+   */
+  public ManipulableImage getPatch() {
+    return patch;
+  }
+
+  /**
+   * Return the row of this image the patch starts at.
+   *
+   * @return the top row of the patch.
+   */
+  public int getTop() {
+    return top;
+  }
+
+  /**
+   * Return the column of this image the patch starts at.
+   *
+   * @return the leftmost column of the patch.
+   */
+  public int getLeft() {
+    return left;
+  }
+
+  /**
+   * Return the source of this image followed by its patch.
+   *
+   * @return the source and the patch of this image.
+   */
+  @Override
+  public List<ManipulableImage> getSources() {
+    return List.of(source, patch);
+  }
+
+  /**
+   * Return the first image in the given list with the second one patched in where the patch of
+   * this image is.
+   *
+   * @param sources the list holding the new source followed by the new patch.
+   * @return the patched image.
+   * @throws IllegalArgumentException if the list does not hold exactly two images, or either is
+   *                                  null or a different size than the image it replaces.
+   */
+  @Override
+  public ManipulableImage withSources(List<ManipulableImage> sources)
+      throws IllegalArgumentException {
+    if (sources == null || sources.size() != 2) {
+      throw new IllegalArgumentException("Expected 2 source images");
+    }
+    ManipulableImage newSource = sources.get(0);
+    ManipulableImage newPatch = sources.get(1);
+    if (newSource == null || newPatch == null || newSource.getWidth() != source.getWidth()
+        || newSource.getHeight() != source.getHeight() || newPatch.getWidth() != patch.getWidth()
+        || newPatch.getHeight() != patch.getHeight()) {
+      throw new IllegalArgumentException("Source must be the same size as the image");
+    }
+    return of(newSource, newPatch, top, left);
+  }
+
+  /**
+   * Return the given region of this image without copying any pixels. If it lies entirely inside
+   * or entirely outside the patch, it is taken straight from the image this image reads those
+   * pixels from.
+   *
+   * @param row    the top row of the region.
+   * @param col    the leftmost column of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @return the region of this image.
+   * @throws IllegalArgumentException if the region is empty or not entirely inside this image.
+   */
+  @Override
+  public ManipulableImage crop(int row, int col, int width, int height)
+      throws IllegalArgumentException {
+    ManipulableImage result = CroppedImage.of(this, row, col, width, height);
+    int bottom = top + patch.getHeight();
+    int right = left + patch.getWidth();
+    if (row >= top && col >= left && row + height <= bottom && col + width <= right
+        && patch.hasAlpha() == source.hasAlpha()) {
+      return patch.crop(row - top, col - left, width, height);
+    }
+    if (row >= bottom || col >= right || row + height <= top || col + width <= left) {
+      return source.crop(row, col, width, height);
+    }
+    return result;
+  }
+
+  @Override
+  public int getWidth() {
+    return source.getWidth();
+  }
+
+  @Override
+  public int getHeight() {
+    return source.getHeight();
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    return source.hasAlpha();
+  }
+
+  @Override
+  public int getARGB(int row, int col) throws IndexOutOfBoundsException {
+    check(row, col);
+    int r = row - top;
+    int c = col - left;
+    if (r >= 0 && r < patch.getHeight() && c >= 0 && c < patch.getWidth()) {
+      return patch.getARGB(r, c) | (hasAlpha() ? 0 : 0xFF000000);
+    }
+    return source.getARGB(row, col);
+  }
+
+  @Override
+  public IntBuffer getRow(int row) throws IndexOutOfBoundsException {
+    check(row, 0);
+    if (row < top || row >= top + patch.getHeight()) {
+      return source.getRow(row);
+    }
+    int[] result = new int[getWidth()];
+    source.getRow(row).get(result);
+    patch.getRow(row - top).get(result, left, patch.getWidth());
+    if (!hasAlpha()) {
+      for (int c = left; c < left + patch.getWidth(); c++) {
+        result[c] |= 0xFF000000;
+      }
+    }
+    return IntBuffer.wrap(result).asReadOnlyBuffer();
+  }
+
+  @Override
+  public WritableImage createCompatibleImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException {
+    return source.createCompatibleImage(width, height, alpha);
+  }
+
+  @Override
+  public Pixel createPixel(int... channels) throws IllegalArgumentException {
+    return source.createPixel(channels);
+  }
+}
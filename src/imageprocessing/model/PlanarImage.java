@@ -0,0 +1,352 @@
+package imageprocessing.model;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Representation of a manipulable image as one plane of bytes per channel, each stored in
+ * row-major order, with an alpha plane only if the image has an alpha channel. Work that handles
+ * one channel at a time (such as extracting a component or convolving each channel) can walk a
+ * single contiguous plane, using a quarter of the memory bandwidth of a packed image, and planes
+ * can be shared between images instead of being copied.
+ */
+public class PlanarImage extends AbstractImage implements WritableImage {
+
+  /**
+   * The index of the red plane.
+   */
+  public static final int RED = 0;
+
+  /**
+   * The index of the green plane.
+   */
+  public static final int GREEN = 1;
+
+  /**
+   * The index of the blue plane.
+   */
+  public static final int BLUE = 2;
+
+  /**
+   * The index of the alpha plane.
+   */
+  public static final int ALPHA = 3;
+
+  private final int width;
+  private final int height;
+  private final byte[][] planes; // the red, green, blue and (possibly null) alpha planes
+
+  /**
+   * Construct a planar image with the given dimensions from the given planes. The planes are used
+   * directly (not copied), and may be shared with other planar images, so callers must not modify
+   * them afterwards.
+   *
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param red    the red values of the image in row-major order.
+   * @param green  the green values of the image in row-major order.
+   * @param blue   the blue values of the image in row-major order.
+   * @param alpha  the alpha values of the image in row-major order, or null if the image has no
+   *               alpha channel.
+   * @throws IllegalArgumentException if the dimensions are not positive, or a color plane is null,
+   *                                  or a plane does not hold exactly width * height values.
+   */
+  public PlanarImage(int width, int height, byte[] red, byte[] green, byte[] blue, byte[] alpha)
+      throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Image dimensions must be positive");
+    }
+    if (red == null || green == null || blue == null) {
+      throw new IllegalArgumentException("Pixel data can't be null");
+    }
+    long length = (long) width * height;
+    if (red.length != length || green.length != length || blue.length != length
+        || (alpha != null && alpha.length != length)) {
+      throw new IllegalArgumentException("Pixel data does not match the image dimensions");
+    }
+    this.width = width;
+    this.height = height;
+    this.planes = new byte[][]{red, green, blue, alpha};
+  }
+
+  /**
+   * Construct a blank planar image with the given dimensions, with every pixel set to transparent
+   * black if the image has an alpha channel, or opaque black otherwise.
+   *
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param alpha  whether the image has a meaningful alpha channel.
+   * @throws IllegalArgumentException if the dimensions are not positive or too large to store.
+   */
+  public PlanarImage(int width, int height, boolean alpha) throws IllegalArgumentException {
+    this(width, height, blankPlane(width, height), blankPlane(width, height),
+        blankPlane(width, height), alpha ? blankPlane(width, height) : null);
+  }
+
+  /**
+   * Create a blank plane for an image of the given size.
+   *
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @return the blank plane.
+   * @throws IllegalArgumentException if the dimensions are not positive or too large to store.
+   */
+  private static byte[] blankPlane(int width, int height) throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Image dimensions must be positive");
+    }
+    if ((long) width * height > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Image is too large to store in a single array");
+    }
+    return new byte[width * height];
+  }
+
+  /**
+   * Return the given image as a planar image, converting it if it is not one already.
+   *
+   * @param image the image to convert.
+   * @return the image itself if it is planar, or a planar copy of it otherwise.
+   * @throws IllegalArgumentException if the image is too large to store as planes.
+   */
+  public static PlanarImage of(ManipulableImage image) throws IllegalArgumentException {
+    if (image instanceof PlanarImage) {
+      return (PlanarImage) image;
+    }
+    PlanarImage result = new PlanarImage(image.getWidth(), image.getHeight(), image.hasAlpha());
+    int[] row = new int[image.getWidth()];
+    for (int r = 0; r < image.getHeight(); r++) {
+      image.getRow(r).get(row);
+      result.setRow(r, row);
+    }
+    return result;
+  }
+
+  /**
+   * Return a packed copy of this image.
+   *
+   * @return this image, stored as a packed image.
+   */
+  public PackedImage toPacked() {
+    int[] argb = new int[width * height];
+    for (int i = 0; i < argb.length; i++) {
+      argb[i] = pixel(i);
+    }
+    return new PackedImage(width, height, argb, hasAlpha());
+  }
+
+  /**
+   * Return a read-only view of the given plane of this image, which holds one unsigned byte per
+   * pixel in row-major order.
+   *
+   * @param channel the plane to view: {@link #RED}, {@link #GREEN}, {@link #BLUE} or
+   *                {@link #ALPHA}.
+   * @return a read-only buffer of the values in the plane.
+   * @throws IllegalArgumentException if there is no such plane in this image.
+   */
+  public ByteBuffer getPlane(int channel) throws IllegalArgumentException {
+    return ByteBuffer.wrap(plane(channel)).asReadOnlyBuffer();
+  }
+
+  /**
+   * Return an image whose red, green and blue planes are the given planes of this image, and
+   * whose alpha plane is the alpha plane of this image. No pixel data is copied.
+   *
+   * @param red   the plane of this image to use as the red plane of the result.
+   * @param green the plane of this image to use as the green plane of the result.
+   * @param blue  the plane of this image to use as the blue plane of the result.
+   * @return the image with its planes rearranged.
+   * @throws IllegalArgumentException if any of the planes are not a color plane.
+   */
+  public PlanarImage selectPlanes(int red, int green, int blue) throws IllegalArgumentException {
+    return withColorPlanes(colorPlane(red), colorPlane(green), colorPlane(blue));
+  }
+
+  /**
+   * Return an image with the given red, green and blue planes, and the alpha plane of this image.
+   * The planes are used directly (not copied), so callers must not modify them afterwards.
+   *
+   * @param red   the red values of the result in row-major order.
+   * @param green the green values of the result in row-major order.
+   * @param blue  the blue values of the result in row-major order.
+   * @return the image with the given color planes.
+   * @throws IllegalArgumentException if a plane is null or does not match this image's size.
+   */
+  public PlanarImage withColorPlanes(byte[] red, byte[] green, byte[] blue)
+      throws IllegalArgumentException {
+    return new PlanarImage(width, height, red, green, blue, planes[ALPHA]);
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    return planes[ALPHA] != null;
+  }
+
+  @Override
+  public int getARGB(int row, int col) throws IndexOutOfBoundsException {
+    return pixel(indexOf(row, col));
+  }
+
+  @Override
+  public void setARGB(int row, int col, int argb) throws IndexOutOfBoundsException {
+    pixelsChanged();
+    setPixel(indexOf(row, col), argb);
+  }
+
+  /**
+   * Return a read-only view of the given row. Rows of a planar image are not stored as packed
+   * values, so the view is backed by a packed copy of the row.
+   *
+   * @param row the row to view.
+   * @return a read-only buffer of {@link #getWidth()} packed values.
+   * @throws IndexOutOfBoundsException if the row is outside this image.
+   */
+  @Override
+  public IntBuffer getRow(int row) throws IndexOutOfBoundsException {
+    int start = indexOf(row, 0);
+    int[] result = new int[width];
+    for (int c = 0; c < width; c++) {
+      result[c] = pixel(start + c);
+    }
+    return IntBuffer.wrap(result).asReadOnlyBuffer();
+  }
+
+  @Override
+  public void setRow(int row, int[] src) throws IndexOutOfBoundsException {
+    pixelsChanged();
+    int start = indexOf(row, 0);
+    if (src.length < width) {
+      throw new IndexOutOfBoundsException("Row data is shorter than the image width");
+    }
+    for (int c = 0; c < width; c++) {
+      setPixel(start + c, src[c]);
+    }
+  }
+
+  @Override
+  public WritableImage copy() {
+    byte[] alpha = planes[ALPHA] == null ? null : planes[ALPHA].clone();
+    PlanarImage result = new PlanarImage(width, height, planes[RED].clone(),
+        planes[GREEN].clone(), planes[BLUE].clone(), alpha);
+    result.seedStatistics(getKnownStatistics());
+    return result;
+  }
+
+  @Override
+  public WritableImage createCompatibleImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException {
+    return new PlanarImage(width, height, alpha);
+  }
+
+  @Override
+  public long getResidentBytes() {
+    return (long) width * height * (planes[ALPHA] == null ? 3 : 4);
+  }
+
+  /**
+   * Return the packed value of the pixel at the given index of the planes.
+   *
+   * @param index the index of the pixel.
+   * @return the packed value of the pixel.
+   */
+  private int pixel(int index) {
+    int alpha = planes[ALPHA] == null ? 255 : planes[ALPHA][index] & 0xFF;
+    return ARGB.pack(planes[RED][index] & 0xFF, planes[GREEN][index] & 0xFF,
+        planes[BLUE][index] & 0xFF, alpha);
+  }
+
+  /**
+   * Set the pixel at the given index of the planes to the given packed value.
+   *
+   * @param index the index of the pixel.
+   * @param argb  the packed value of the pixel.
+   */
+  private void setPixel(int index, int argb) {
+    planes[RED][index] = (byte) ARGB.red(argb);
+    planes[GREEN][index] = (byte) ARGB.green(argb);
+    planes[BLUE][index] = (byte) ARGB.blue(argb);
+    if (planes[ALPHA] != null) {
+      planes[ALPHA][index] = (byte) ARGB.alpha(argb);
+    }
+  }
+
+  /**
+   * Return the given plane, making sure this image has it.
+   *
+   * @param channel the index of the plane.
+   * @return the plane.
+   * @throws IllegalArgumentException if there is no such plane in this image.
+   */
+  private byte[] plane(int channel) throws IllegalArgumentException {
+    if (channel < RED || channel > ALPHA || planes[channel] == null) {
+      throw new IllegalArgumentException("Image has no plane " + channel);
+    }
+    return planes[channel];
+  }
+
+  /**
+   * Return the given color plane.
+   *
+   * @param channel the index of the plane.
+   * @return the plane.
+   * @throws IllegalArgumentException if the index is not {@link #RED}, {@link #GREEN} or
+   *                                  {@link #BLUE}.
+   */
+  private byte[] colorPlane(int channel) throws IllegalArgumentException {
+    if (channel < RED || channel > BLUE) {
+      throw new IllegalArgumentException("Image has no color plane " + channel);
+    }
+    return planes[channel];
+  }
+
+  /**
+   * Return the index in the planes of the given position.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the index of the pixel.
+   * @throws IndexOutOfBoundsException if the position is outside this image.
+   */
+  private int indexOf(int row, int col) throws IndexOutOfBoundsException {
+    if (row < 0 || col < 0 || row >= height || col >= width) {
+      throw new IndexOutOfBoundsException("Pixel (" + row + ", " + col + ") is out of bounds");
+    }
+    return row * width + col;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof PlanarImage)) {
+      return super.equals(other);
+    }
+    PlanarImage o = (PlanarImage) other;
+    if (this.width != o.width || this.height != o.height) {
+      return false;
+    }
+    for (int channel = RED; channel <= BLUE; channel++) {
+      if (!Arrays.equals(this.planes[channel], o.planes[channel])) {
+        return false;
+      }
+    }
+    return !this.hasAlpha() || !o.hasAlpha() || Arrays.equals(planes[ALPHA], o.planes[ALPHA]);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 31 * width + height;
+    for (int i = 0; i < width * height; i++) {
+      result = 31 * result + (pixel(i) & 0x00FFFFFF);
+    }
+    return result;
+  }
+}
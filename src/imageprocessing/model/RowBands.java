@@ -0,0 +1,198 @@
+package imageprocessing.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether row-by-row work on images runs on one thread, or is split into bands of rows
+ * which run in parallel on a {@link ForkJoinPool}. Work started through {@link #run(Supplier)} of
+ * a parallel instance splits every image loop written with {@link #forEach(int, int, Band)} into
+ * bands, as long as the image has at least the threshold number of pixels. Everywhere else
+ * (including work started from {@link #SEQUENTIAL}), those loops run on the calling thread.
+ *
+ * <p>Each row is always computed in the same way, no matter which band it ends up in, so parallel
+ * results are identical to sequential ones.
+ */
+public final class RowBands {
+
+  /**
+   * Runs all work on the calling thread.
+   */
+  public static final RowBands SEQUENTIAL = new RowBands();
+
+  /**
+   * The default number of pixels below which work stays on one thread (64 kilopixels).
+   */
+  public static final int DEFAULT_THRESHOLD = 64 * 1024;
+
+  private final BandPool pool; // the pool to run work on, or null to run it on the calling thread
+
+  /**
+   * Construct a sequential instance.
+   */
+  private RowBands() {
+    this.pool = null;
+  }
+
+  /**
+   * Construct an instance which runs work on the given number of threads, splitting images with at
+   * least the given number of pixels into bands of about that many pixels.
+   *
+   * @param parallelism the number of threads to use.
+   * @param threshold   the number of pixels below which work is not split any further.
+   * @throws IllegalArgumentException if either argument is not positive.
+   */
+  public RowBands(int parallelism, int threshold) throws IllegalArgumentException {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive");
+    }
+    if (threshold <= 0) {
+      throw new IllegalArgumentException("Threshold must be positive");
+    }
+    this.pool = new BandPool(parallelism, threshold);
+  }
+
+  /**
+   * Construct an instance which runs work on the given number of threads, splitting images into
+   * bands of about {@link #DEFAULT_THRESHOLD} pixels.
+   *
+   * @param parallelism the number of threads to use.
+   * @throws IllegalArgumentException if the parallelism is not positive.
+   */
+  public RowBands(int parallelism) throws IllegalArgumentException {
+    this(parallelism, DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Return the number of threads work is run on.
+   *
+   * @return the parallelism of this instance, which is 1 if it is sequential.
+   */
+  public int getParallelism() {
+    return pool == null ? 1 : pool.getParallelism();
+  }
+
+  /**
+   * Perform the given work, splitting any image loops in it into parallel bands if this instance
+   * is parallel, and return its result. Exceptions thrown by the work are rethrown as they are.
+   *
+   * @param work the work to perform.
+   * @param <T>  the type of the result.
+   * @return the result of the work.
+   */
+  public <T> T run(Supplier<T> work) {
+    if (pool == null || ForkJoinTask.getPool() == pool) {
+      return work.get();
+    }
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    T result = pool.invoke(ForkJoinTask.adapt(() -> {
+      try {
+        return work.get();
+      } catch (RuntimeException e) { // rethrown below, so callers see the original exception
+        failure.set(e);
+        return null;
+      }
+    }));
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+    return result;
+  }
+
+  /**
+   * Run the given band over every row of an image with the given dimensions. If this is called
+   * from work started by a parallel instance and the image is large enough, the rows are split
+   * into bands which may run at the same time on different threads, so the band must only write
+   * to the rows it is given. Otherwise the band runs once over all the rows, on this thread.
+   *
+   * @param height the number of rows in the image.
+   * @param width  the number of pixels in each row.
+   * @param band   the work to do on each band of rows.
+   */
+  public static void forEach(int height, int width, Band band) {
+    ForkJoinPool current = ForkJoinTask.getPool();
+    if (!(current instanceof BandPool)
+        || (long) height * width < ((BandPool) current).threshold || height < 2) {
+      band.run(0, height);
+      return;
+    }
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    new BandTask(band, 0, height, width, ((BandPool) current).threshold, failure).invoke();
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  /**
+   * Represents work done on a band of consecutive rows of an image.
+   */
+  public interface Band {
+
+    /**
+     * Do the work on the given rows.
+     *
+     * @param from the first row of the band.
+     * @param to   the row after the last row of the band.
+     */
+    void run(int from, int to);
+  }
+
+  /**
+   * A fork/join pool which remembers how finely its work should be split.
+   */
+  private static final class BandPool extends ForkJoinPool {
+
+    private final int threshold; // the number of pixels below which bands are not split
+
+    private BandPool(int parallelism, int threshold) {
+      super(parallelism);
+      this.threshold = threshold;
+    }
+  }
+
+  /**
+   * Runs a band of rows, splitting it in half until each half is below the threshold.
+   */
+  private static final class BandTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Band band;
+    private final int from;
+    private final int to;
+    private final int width;
+    private final int threshold;
+    private final AtomicReference<RuntimeException> failure; // the first exception thrown
+
+    private BandTask(Band band, int from, int to, int width, int threshold,
+        AtomicReference<RuntimeException> failure) {
+      this.band = band;
+      this.from = from;
+      this.to = to;
+      this.width = width;
+      this.threshold = threshold;
+      this.failure = failure;
+    }
+
+    @Override
+    protected void compute() {
+      if (failure.get() != null) {
+        return;
+      }
+      if (to - from < 2 || (long) (to - from) * width <= threshold) {
+        try {
+          band.run(from, to);
+        } catch (RuntimeException e) {
+          failure.compareAndSet(null, e);
+        }
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new BandTask(band, from, middle, width, threshold, failure),
+          new BandTask(band, middle, to, width, threshold, failure));
+    }
+  }
+}
@@ -0,0 +1,250 @@
+package imageprocessing.model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least-recently-used cache of the tiles of {@link TiledImage}s, bounded by a memory budget.
+ * When loading a tile would go over the budget, the least recently used tiles are evicted first,
+ * and written to their image's scratch file if they were changed. A single cache can be shared by
+ * any number of tiled images, in which case the budget bounds all of them together.
+ */
+public class TileCache {
+
+  private final long budget; // the maximum number of bytes of tiles kept in memory
+  private final Map<Key, Tile> tiles; // the resident tiles, least recently used first
+  private long used; // the number of bytes of tiles currently kept in memory
+
+  /**
+   * Construct a tile cache which keeps at most the given number of bytes of tiles in memory. At
+   * least one tile is always kept, even if it is larger than the budget.
+   *
+   * @param budget the memory budget in bytes.
+   * @throws IllegalArgumentException if the budget is not positive.
+   */
+  public TileCache(long budget) throws IllegalArgumentException {
+    if (budget <= 0) {
+      throw new IllegalArgumentException("Tile cache budget must be positive");
+    }
+    this.budget = budget;
+    this.tiles = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Return the memory budget of this cache in bytes.
+   *
+   * @return the memory budget.
+   */
+  public long getBudget() {
+    return budget;
+  }
+
+  /**
+   * Return the number of bytes of tiles currently kept in memory by this cache.
+   *
+   * @return the current memory usage.
+   */
+  public synchronized long getUsage() {
+    return used;
+  }
+
+  /**
+   * Return the given tile, loading it if it is not resident, so that single pixels of it can be
+   * read and written without going through this cache (see {@link Tile}). The tile can be used
+   * until it is evicted.
+   *
+   * @param store the store the tile belongs to.
+   * @param index the index of the tile.
+   * @return the resident tile.
+   */
+  synchronized Tile pin(TileStore store, int index) {
+    return tile(store, index);
+  }
+
+  /**
+   * Copy a run of pixels out of the given tile.
+   *
+   * @param store   the store the tile belongs to.
+   * @param index   the index of the tile.
+   * @param offset  the offset of the first pixel within the tile.
+   * @param dest    the array to copy into.
+   * @param destPos the position in the array to start copying to.
+   * @param length  the number of pixels to copy.
+   */
+  synchronized void read(TileStore store, int index, int offset, int[] dest, int destPos,
+      int length) {
+    System.arraycopy(tile(store, index).data, offset, dest, destPos, length);
+  }
+
+  /**
+   * Copy a run of pixels into the given tile.
+   *
+   * @param store  the store the tile belongs to.
+   * @param index  the index of the tile.
+   * @param offset the offset of the first pixel within the tile.
+   * @param src    the array to copy from.
+   * @param srcPos the position in the array to start copying from.
+   * @param length the number of pixels to copy.
+   */
+  synchronized void write(TileStore store, int index, int offset, int[] src, int srcPos,
+      int length) {
+    Tile tile = tile(store, index);
+    System.arraycopy(src, srcPos, tile.data, offset, length);
+    tile.dirty = true;
+  }
+
+  /**
+   * Drop every tile of the given store without writing it back, for example because the image it
+   * belongs to is no longer used.
+   *
+   * @param store the store whose tiles to drop.
+   */
+  synchronized void invalidate(TileStore store) {
+    Iterator<Map.Entry<Key, Tile>> it = tiles.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Key, Tile> entry = it.next();
+      if (entry.getKey().store == store) {
+        used -= entry.getValue().data.length * 4L;
+        entry.getValue().evicted = true;
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Return the given tile, loading it (and evicting others to make room) if it is not resident.
+   *
+   * @param store the store the tile belongs to.
+   * @param index the index of the tile.
+   * @return the resident tile.
+   */
+  private Tile tile(TileStore store, int index) {
+    Key key = new Key(store, index);
+    Tile tile = tiles.get(key);
+    if (tile == null) {
+      long bytes = store.getTileLength() * 4L;
+      evict(bytes);
+      tile = new Tile(index, new int[store.getTileLength()]);
+      if (!store.read(index, tile.data)) {
+        Arrays.fill(tile.data, store.getBlank());
+      }
+      tiles.put(key, tile);
+      used += bytes;
+    }
+    return tile;
+  }
+
+  /**
+   * Evict least recently used tiles until the given number of bytes fits in the budget, writing
+   * changed tiles back to their store.
+   *
+   * @param bytes the number of bytes that need to fit.
+   */
+  private void evict(long bytes) {
+    Iterator<Map.Entry<Key, Tile>> it = tiles.entrySet().iterator();
+    while (used + bytes > budget && it.hasNext()) {
+      Map.Entry<Key, Tile> eldest = it.next();
+      Tile tile = eldest.getValue();
+      synchronized (tile) { // no single pixel may be written once the tile is written back
+        if (tile.dirty) {
+          eldest.getKey().store.write(eldest.getKey().index, tile.data);
+        }
+        tile.evicted = true;
+      }
+      used -= tile.data.length * 4L;
+      it.remove();
+    }
+  }
+
+  /**
+   * A resident tile and whether it has changed since it was loaded. An image may keep using a tile
+   * it pinned (see {@link #pin(TileStore, int)}) to read and write single pixels without taking
+   * the lock of the cache, until the tile is evicted.
+   */
+  static class Tile {
+
+    private final int index; // the index of the tile in its store
+    private final int[] data;
+    private boolean dirty;
+    private volatile boolean evicted; // whether the tile has left the cache
+
+    private Tile(int index, int[] data) {
+      this.index = index;
+      this.data = data;
+    }
+
+    /**
+     * Return the index of this tile in its store.
+     *
+     * @return the index of this tile.
+     */
+    int getIndex() {
+      return index;
+    }
+
+    /**
+     * Return whether this tile has left the cache, so it must be pinned again to be used.
+     *
+     * @return true if this tile has been evicted, false otherwise.
+     */
+    boolean isEvicted() {
+      return evicted;
+    }
+
+    /**
+     * Read one pixel of this tile.
+     *
+     * @param offset the offset of the pixel within the tile.
+     * @return the packed value of the pixel.
+     */
+    int read(int offset) {
+      return data[offset];
+    }
+
+    /**
+     * Write one pixel of this tile, unless it has been evicted in the meantime.
+     *
+     * @param offset the offset of the pixel within the tile.
+     * @param argb   the packed value to write.
+     * @return true if the pixel was written, false if the tile has been evicted.
+     */
+    synchronized boolean write(int offset, int argb) {
+      if (evicted) {
+        return false;
+      }
+      data[offset] = argb;
+      dirty = true;
+      return true;
+    }
+  }
+
+  /**
+   * Identifies a tile by the store it belongs to and its index.
+   */
+  private static class Key {
+
+    private final TileStore store;
+    private final int index;
+
+    private Key(TileStore store, int index) {
+      this.store = store;
+      this.index = index;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return other.store == this.store && other.index == this.index;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(store) + index;
+    }
+  }
+}
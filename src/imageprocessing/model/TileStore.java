@@ -0,0 +1,129 @@
+package imageprocessing.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * The on-disk home of the tiles of one {@link TiledImage}. Tiles are written to a scratch file
+ * when the {@link TileCache} evicts them, each at a fixed slot, and read back when they are needed
+ * again. The scratch file is only created once the first tile is written, and is deleted when the
+ * store is closed.
+ */
+class TileStore {
+
+  private final int tileLength; // the number of pixels in one tile
+  private final int blank; // the packed value of pixels in tiles which were never written
+  private final BitSet written; // which tiles have been written to the scratch file
+  private FileChannel channel; // the scratch file, or null if nothing has been written yet
+  private boolean closed;
+
+  /**
+   * Construct a tile store for tiles of the given number of pixels.
+   *
+   * @param tileLength the number of pixels in one tile.
+   * @param blank      the packed value of pixels in tiles which were never written.
+   */
+  TileStore(int tileLength, int blank) {
+    this.tileLength = tileLength;
+    this.blank = blank;
+    this.written = new BitSet();
+  }
+
+  /**
+   * Return the number of pixels in one tile.
+   *
+   * @return the number of pixels in one tile.
+   */
+  int getTileLength() {
+    return tileLength;
+  }
+
+  /**
+   * Return the packed value of pixels in tiles which were never written.
+   *
+   * @return the packed value of a blank pixel.
+   */
+  int getBlank() {
+    return blank;
+  }
+
+  /**
+   * Read the given tile into the given array, if it has been written before.
+   *
+   * @param index the index of the tile.
+   * @param dest  the array to read the tile into.
+   * @return true if the tile was read, false if it has never been written.
+   * @throws UncheckedIOException if the scratch file could not be read.
+   */
+  synchronized boolean read(int index, int[] dest) throws UncheckedIOException {
+    if (closed || !written.get(index)) {
+      return false;
+    }
+    ByteBuffer bytes = ByteBuffer.allocate(tileLength * 4).order(ByteOrder.nativeOrder());
+    try {
+      long position = (long) index * tileLength * 4;
+      while (bytes.hasRemaining()) {
+        if (channel.read(bytes, position + bytes.position()) < 0) {
+          throw new IOException("Unexpected end of tile scratch file");
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    bytes.flip();
+    bytes.asIntBuffer().get(dest, 0, tileLength);
+    return true;
+  }
+
+  /**
+   * Write the given tile to the scratch file, creating the file if needed. Writes to a closed
+   * store are ignored.
+   *
+   * @param index the index of the tile.
+   * @param src   the pixels of the tile.
+   * @throws UncheckedIOException if the scratch file could not be created or written.
+   */
+  synchronized void write(int index, int[] src) throws UncheckedIOException {
+    if (closed) {
+      return;
+    }
+    ByteBuffer bytes = ByteBuffer.allocate(tileLength * 4).order(ByteOrder.nativeOrder());
+    bytes.asIntBuffer().put(src, 0, tileLength);
+    try {
+      if (channel == null) {
+        Path scratch = Files.createTempFile("tiles", ".raw");
+        channel = FileChannel.open(scratch, StandardOpenOption.READ, StandardOpenOption.WRITE,
+            StandardOpenOption.DELETE_ON_CLOSE);
+      }
+      long position = (long) index * tileLength * 4;
+      while (bytes.hasRemaining()) {
+        channel.write(bytes, position + bytes.position());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    written.set(index);
+  }
+
+  /**
+   * Close this store, deleting its scratch file. Closing a store more than once has no effect.
+   */
+  synchronized void close() {
+    closed = true;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // the scratch file is only a cache, so there is nothing left to recover
+      }
+      channel = null;
+    }
+  }
+}
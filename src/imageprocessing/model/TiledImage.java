@@ -0,0 +1,338 @@
+package imageprocessing.model;
+
+import java.lang.ref.Cleaner;
+import java.nio.IntBuffer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Representation of a manipulable image as a grid of fixed-size square tiles. Tiles are kept in
+ * memory by a {@link TileCache}, which evicts the least recently used ones to a scratch file once
+ * its memory budget is reached, so the image itself can be much larger than the heap (and larger
+ * than the 2^31 pixels a single array can hold). Tiles which have never been written take up no
+ * space at all.
+ *
+ * <p>Whole-image work should go through {@link #getRow(int)}, {@link #setRow(int, int[])} or
+ * {@link #mapARGB(IntUnaryOperator)}, which touch each tile once per run instead of looking up a
+ * tile for every single pixel. Single pixels are read and written through the tile used last, so
+ * reading pixels which are close together (such as a column) does not take the lock of the cache
+ * for every pixel either.
+ *
+ * <p>The tiles and scratch file of an image are freed as soon as it is {@link #close() closed}, or
+ * otherwise once the image is garbage collected. A closed image can no longer be used.
+ */
+public class TiledImage extends AbstractImage implements WritableImage, AutoCloseable {
+
+  /**
+   * The default side length of a tile, in pixels.
+   */
+  public static final int DEFAULT_TILE_SIZE = 256;
+
+  private static final Cleaner CLEANER = Cleaner.create(); // frees tiles of unused images
+
+  private final int width;
+  private final int height;
+  private final boolean alpha;
+  private final int tileSize; // the side length of a tile, in pixels
+  private final int tilesAcross; // the number of tiles in one row of tiles
+  private final TileCache cache;
+  private final TileStore store;
+  private final Cleaner.Cleanable cleanable; // drops the tiles of this image from the cache
+  private volatile TileCache.Tile last; // the tile a single pixel was last read from or written to
+  private volatile boolean closed;
+
+  /**
+   * Construct a blank tiled image with the given dimensions, with every pixel set to transparent
+   * black if the image has an alpha channel, or opaque black otherwise.
+   *
+   * @param width    the width of the image in pixels.
+   * @param height   the height of the image in pixels.
+   * @param alpha    whether the image has a meaningful alpha channel.
+   * @param tileSize the side length of a tile, in pixels.
+   * @param cache    the cache to keep the tiles of this image in.
+   * @throws IllegalArgumentException if the dimensions or tile size are not positive, or the
+   *                                  cache is null.
+   */
+  public TiledImage(int width, int height, boolean alpha, int tileSize, TileCache cache)
+      throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Image dimensions must be positive");
+    }
+    if (tileSize <= 0 || tileSize > 4096) {
+      throw new IllegalArgumentException("Tile size must be between 1 and 4096");
+    }
+    if (cache == null) {
+      throw new IllegalArgumentException("Tile cache can't be null");
+    }
+    long tilesDown = (height + tileSize - 1) / tileSize;
+    if (tilesDown * ((width + tileSize - 1) / tileSize) > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image has too many tiles, use a larger tile size");
+    }
+    this.width = width;
+    this.height = height;
+    this.alpha = alpha;
+    this.tileSize = tileSize;
+    this.tilesAcross = (width + tileSize - 1) / tileSize;
+    this.cache = cache;
+    this.store = new TileStore(tileSize * tileSize, alpha ? 0 : ARGB.pack(0, 0, 0));
+    TileStore store = this.store;
+    this.cleanable = CLEANER.register(this, () -> {
+      cache.invalidate(store);
+      store.close();
+    });
+  }
+
+  /**
+   * Construct a blank tiled image with the given dimensions and the default tile size.
+   *
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param alpha  whether the image has a meaningful alpha channel.
+   * @param cache  the cache to keep the tiles of this image in.
+   * @throws IllegalArgumentException if the dimensions are not positive, or the cache is null.
+   */
+  public TiledImage(int width, int height, boolean alpha, TileCache cache)
+      throws IllegalArgumentException {
+    this(width, height, alpha, DEFAULT_TILE_SIZE, cache);
+  }
+
+  /**
+   * Return the side length of the tiles of this image, in pixels.
+   *
+   * @return the tile size.
+   */
+  public int getTileSize() {
+    return tileSize;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    return alpha;
+  }
+
+  @Override
+  public int getARGB(int row, int col) throws IndexOutOfBoundsException, IllegalStateException {
+    checkBounds(row, col);
+    return tile(tileIndex(row, col)).read(tileOffset(row, col));
+  }
+
+  @Override
+  public void setARGB(int row, int col, int argb)
+      throws IndexOutOfBoundsException, IllegalStateException {
+    pixelsChanged();
+    checkBounds(row, col);
+    int index = tileIndex(row, col);
+    int value = alpha ? argb : argb | 0xFF000000;
+    while (!tile(index).write(tileOffset(row, col), value)) {
+      last = null; // it was evicted before the pixel could be written, so load it again
+    }
+  }
+
+  /**
+   * Return the given tile of this image, reusing the tile used last if it is the same one and it
+   * is still in the cache.
+   *
+   * @param index the index of the tile.
+   * @return the resident tile.
+   */
+  private TileCache.Tile tile(int index) {
+    TileCache.Tile tile = last;
+    if (tile == null || tile.getIndex() != index || tile.isEvicted()) {
+      tile = cache.pin(store, index);
+      last = tile;
+    }
+    return tile;
+  }
+
+  /**
+   * Return a read-only view of the given row. Rows of a tiled image are not stored contiguously,
+   * so the view is backed by a copy of the row.
+   *
+   * @param row the row to view.
+   * @return a read-only buffer of {@link #getWidth()} packed values.
+   * @throws IndexOutOfBoundsException if the row is outside this image.
+   * @throws IllegalStateException     if this image has been closed.
+   */
+  @Override
+  public IntBuffer getRow(int row) throws IndexOutOfBoundsException, IllegalStateException {
+    int[] result = new int[width];
+    readRow(row, result);
+    return IntBuffer.wrap(result).asReadOnlyBuffer();
+  }
+
+  /**
+   * Copy the given row of this image into the given array.
+   *
+   * @param row  the row to copy.
+   * @param dest the array to copy into, holding at least {@link #getWidth()} values.
+   * @throws IndexOutOfBoundsException if the row is outside this image.
+   */
+  private void readRow(int row, int[] dest) throws IndexOutOfBoundsException {
+    checkBounds(row, 0);
+    for (int col = 0; col < width; col += tileSize) {
+      cache.read(store, tileIndex(row, col), tileOffset(row, col), dest, col,
+          Math.min(tileSize, width - col));
+    }
+  }
+
+  @Override
+  public void setRow(int row, int[] src)
+      throws IndexOutOfBoundsException, IllegalStateException {
+    pixelsChanged();
+    checkBounds(row, 0);
+    if (src.length < width) {
+      throw new IndexOutOfBoundsException("Row data is shorter than the image width");
+    }
+    int[] values = src;
+    if (!alpha) {
+      values = new int[width];
+      for (int c = 0; c < width; c++) {
+        values[c] = src[c] | 0xFF000000;
+      }
+    }
+    for (int col = 0; col < width; col += tileSize) {
+      cache.write(store, tileIndex(row, col), tileOffset(row, col), values, col,
+          Math.min(tileSize, width - col));
+    }
+  }
+
+  /**
+   * Apply the given operation to each pixel of this image one tile at a time, so that only one
+   * tile of this image and one tile of the result need to be resident at once.
+   *
+   * @param operation the operation to apply to each packed pixel value.
+   * @return the resulting image, which shares this image's tile cache.
+   * @throws IllegalStateException if this image has been closed.
+   */
+  @Override
+  public ManipulableImage mapARGB(IntUnaryOperator operation) throws IllegalStateException {
+    checkOpen();
+    TiledImage result = new TiledImage(width, height, alpha, tileSize, cache);
+    int opaque = alpha ? 0 : 0xFF000000;
+    int[] buffer = new int[tileSize];
+    for (int tileRow = 0; tileRow < height; tileRow += tileSize) {
+      for (int tileCol = 0; tileCol < width; tileCol += tileSize) {
+        int length = Math.min(tileSize, width - tileCol);
+        for (int row = tileRow; row < Math.min(tileRow + tileSize, height); row++) {
+          int index = tileIndex(row, tileCol);
+          int offset = tileOffset(row, tileCol);
+          cache.read(store, index, offset, buffer, 0, length);
+          for (int i = 0; i < length; i++) {
+            buffer[i] = operation.applyAsInt(buffer[i]) | opaque;
+          }
+          cache.write(result.store, index, offset, buffer, 0, length);
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public WritableImage copy() throws IllegalStateException {
+    checkOpen();
+    TiledImage result = new TiledImage(width, height, alpha, tileSize, cache);
+    int[] buffer = new int[width];
+    for (int row = 0; row < height; row++) {
+      readRow(row, buffer);
+      result.setRow(row, buffer);
+    }
+    result.seedStatistics(getKnownStatistics());
+    return result;
+  }
+
+  @Override
+  public WritableImage createCompatibleImage(int width, int height, boolean alpha)
+      throws IllegalArgumentException {
+    return new TiledImage(width, height, alpha, tileSize, cache);
+  }
+
+  /**
+   * Return zero, since the tiles of this image are held by its cache, which keeps them within its
+   * own budget by writing them back to the scratch file.
+   *
+   * @return zero.
+   */
+  @Override
+  public long getResidentBytes() {
+    return 0;
+  }
+
+  /**
+   * Drop the tiles of this image from its cache and delete its scratch file right away, instead of
+   * waiting for the garbage collector to do so. A closed image can no longer be used. Closing an
+   * image more than once has no effect.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    last = null;
+    cleanable.clean();
+  }
+
+  /**
+   * Return whether this image has been closed.
+   *
+   * @return true if this image has been closed, false otherwise.
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Return the index of the tile holding the given position.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the index of the tile.
+   */
+  private int tileIndex(int row, int col) {
+    return (row / tileSize) * tilesAcross + col / tileSize;
+  }
+
+  /**
+   * Return the offset of the given position within its tile.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the offset within the tile.
+   */
+  private int tileOffset(int row, int col) {
+    return (row % tileSize) * tileSize + col % tileSize;
+  }
+
+  /**
+   * Ensure this image has not been closed.
+   *
+   * @throws IllegalStateException if this image has been closed.
+   */
+  private void checkOpen() throws IllegalStateException {
+    if (closed) {
+      throw new IllegalStateException("Image has already been closed");
+    }
+  }
+
+  /**
+   * Ensure this image has not been closed and the given position is inside it.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @throws IndexOutOfBoundsException if the position is outside this image.
+   * @throws IllegalStateException     if this image has been closed.
+   */
+  private void checkBounds(int row, int col)
+      throws IndexOutOfBoundsException, IllegalStateException {
+    checkOpen();
+    if (row < 0 || col < 0 || row >= height || col >= width) {
+      throw new IndexOutOfBoundsException("Pixel (" + row + ", " + col + ") is out of bounds");
+    }
+  }
+}
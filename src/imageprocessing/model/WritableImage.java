@@ -0,0 +1,79 @@
+package imageprocessing.model;
+
+/**
+ * Represents an image whose pixels can be written to with primitive values. Writable images are
+ * meant to be filled in by whoever creates them (usually through
+ * {@link ManipulableImage#createCompatibleImage(int, int, boolean)}), and are treated as
+ * immutable once they have been handed out as a {@link ManipulableImage}.
+ */
+public interface WritableImage extends ManipulableImage {
+
+  /**
+   * Set the pixel at the given position to the given packed ARGB value (see {@link ARGB}).
+   *
+   * @param row  the row of the pixel.
+   * @param col  the column of the pixel.
+   * @param argb the packed value of the pixel.
+   * @throws IndexOutOfBoundsException if the position is outside this image.
+   */
+  void setARGB(int row, int col, int argb) throws IndexOutOfBoundsException;
+
+  /**
+   * Set the pixel at the given position to the given channel values, which are assumed to
+   * already be between 0 and 255, inclusive.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @param r   the red component.
+   * @param g   the green component.
+   * @param b   the blue component.
+   * @param a   the alpha component.
+   * @throws IndexOutOfBoundsException if the position is outside this image.
+   */
+  default void setRGBA(int row, int col, int r, int g, int b, int a)
+      throws IndexOutOfBoundsException {
+    setARGB(row, col, ARGB.pack(r, g, b, a));
+  }
+
+  /**
+   * Set the given row of this image to the given packed ARGB values, where index 0 of the array
+   * is the leftmost pixel of the row. Only the first {@link #getWidth()} values are used.
+   *
+   * @param row the row to set.
+   * @param src the packed values to set the row to.
+   * @throws IndexOutOfBoundsException if the row is outside this image, or the array holds fewer
+   *                                   than {@link #getWidth()} values.
+   */
+  void setRow(int row, int[] src) throws IndexOutOfBoundsException;
+
+  /**
+   * Set part of the given row of this image, starting at the given column, to the first values of
+   * the given array.
+   *
+   * @param row    the row to set.
+   * @param col    the column of the first pixel to set.
+   * @param src    the packed values to set the pixels to.
+   * @param length the number of pixels to set.
+   * @throws IndexOutOfBoundsException if any of the pixels are outside this image, or the array
+   *                                   holds fewer than the given number of values.
+   */
+  default void setRow(int row, int col, int[] src, int length) throws IndexOutOfBoundsException {
+    if (src.length < length) {
+      throw new IndexOutOfBoundsException("Row data is shorter than the given length");
+    }
+    for (int c = 0; c < length; c++) {
+      setARGB(row, col + c, src[c]);
+    }
+  }
+
+  /**
+   * Give this image the statistics of its pixels, which the caller already knows (see
+   * {@link ManipulableImage#seedStatistics(ImageStatistics)}). This must be called after the
+   * pixels have been written, since writing to them discards any statistics.
+   *
+   * @param statistics the statistics of the pixels of this image, or null if they are unknown.
+   */
+  @Override
+  default void seedStatistics(ImageStatistics statistics) {
+  }
+}
@@ -14,4 +14,38 @@ public class Blur extends Filter {
         new double[]{1 / 8d, 1 / 4d, 1 / 8d},
         new double[]{1 / 16d, 1 / 8d, 1 / 16d}});
   }
-}
\ No newline at end of file
+
+  /**
+   * Creates a Blur filter which blurs each pixel with the pixels up to the given distance away,
+   * weighted by the binomial coefficients (which approximate a Gaussian). A radius of 1 is the
+   * same as {@link #Blur()}. Since this kernel is separable, larger radii only cost linearly more.
+   *
+   * @param radius the radius of the blur in pixels.
+   * @throws IllegalArgumentException if the radius is not positive.
+   */
+  public Blur(int radius) throws IllegalArgumentException {
+    super(binomial(radius), binomial(radius));
+  }
+
+  /**
+   * Return the normalized binomial coefficients of degree 2 * radius.
+   *
+   * @param radius the radius of the blur.
+   * @return the 2 * radius + 1 weights, which add up to 1.
+   * @throws IllegalArgumentException if the radius is not positive.
+   */
+  private static double[] binomial(int radius) throws IllegalArgumentException {
+    if (radius <= 0 || radius > 100) {
+      throw new IllegalArgumentException("Blur radius must be between 1 and 100");
+    }
+    double[] weights = new double[2 * radius + 1];
+    weights[0] = 1;
+    for (int n = 1; n < weights.length; n++) { // build each row of Pascal's triangle, halved
+      for (int k = n; k > 0; k--) {
+        weights[k] = (weights[k] + weights[k - 1]) / 2;
+      }
+      weights[0] /= 2;
+    }
+    return weights;
+  }
+}
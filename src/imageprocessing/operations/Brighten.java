@@ -1,5 +1,7 @@
 package imageprocessing.operations;
 
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ImageStatistics;
 import imageprocessing.model.ManipulableImage;
 
 /**
@@ -21,30 +23,40 @@ public class Brighten implements Operation {
 
   @Override
   public ManipulableImage modify(ManipulableImage img) {
-    return img.applyToAll(p -> {
-      int[] channels = p.getChannels();
-      channels[0] = smartClamp(p.getChannels(), factor)[0];
-      channels[1] = smartClamp(p.getChannels(), factor)[1];
-      channels[2] = smartClamp(p.getChannels(), factor)[2];
-      return img.createPixel(channels);
+    ManipulableImage result = img.mapARGB(p -> {
+      int r = ARGB.red(p);
+      int g = ARGB.green(p);
+      int b = ARGB.blue(p);
+      int newFactor = smartClamp(r, g, b, factor);
+      return ARGB.pack(r + newFactor, g + newFactor, b + newFactor, ARGB.alpha(p));
     });
+    ImageStatistics known = img.getKnownStatistics();
+    if (known != null) { // unless some pixel is clamped, every value moves by the factor
+      ImageStatistics brightened = known.brighten(factor);
+      if (brightened != null) {
+        result.seedStatistics(brightened);
+      }
+    }
+    return result;
   }
 
   /**
-   * Returns the new RGB values for a pixel after being brightened by the given factor. This
+   * Returns the factor a pixel with the given RGB values can actually be brightened by. This
    * brightening method clamps the RGB values to be between 0 and 255, and stops
    * brightening/darkening as soon as one of the channels goes below 0 or exceeds 255, preserving
    * the hue of the pixel.
    *
-   * @param channels the RBG values of the pixel being modified.
-   * @param factor   the desired factor that the image currently being modified should be brightened
-   *                 by.
-   * @return an int array of the new RBG values for the pixel after being brightened.
+   * @param r      the red value of the pixel being modified.
+   * @param g      the green value of the pixel being modified.
+   * @param b      the blue value of the pixel being modified.
+   * @param factor the desired factor that the image currently being modified should be brightened
+   *               by.
+   * @return the factor to add to each of the RGB values of the pixel.
    */
-  private int[] smartClamp(int[] channels, int factor) {
-    int rWithFactor = channels[0] + factor;
-    int gWithFactor = channels[1] + factor;
-    int bWithFactor = channels[2] + factor;
+  private int smartClamp(int r, int g, int b, int factor) {
+    int rWithFactor = r + factor;
+    int gWithFactor = g + factor;
+    int bWithFactor = b + factor;
     int newFactor = factor;
     if (rWithFactor > 255 || gWithFactor > 255 || bWithFactor > 255) {
       int maxOver255 = Math.max(rWithFactor - 255, Math.max(gWithFactor - 255,
@@ -54,6 +66,6 @@ public class Brighten implements Operation {
       int maxUnder0 = Math.max(0 - rWithFactor, Math.max(0 - gWithFactor, 0 - bWithFactor));
       newFactor = factor + maxUnder0;
     }
-    return new int[]{channels[0] + newFactor, channels[1] + newFactor, channels[2] + newFactor};
+    return newFactor;
   }
 }
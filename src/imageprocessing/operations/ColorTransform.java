@@ -1,15 +1,39 @@
 package imageprocessing.operations;
 
+import imageprocessing.model.ARGB;
+import imageprocessing.model.LazyImage;
 import imageprocessing.model.ManipulableImage;
-import imageprocessing.model.Pixel;
-import imageprocessing.model.PixelGridImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.model.RowBands;
+import imageprocessing.model.WritableImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Represents a color transformation operation with a given matrix.
+ * Represents a color transformation operation with a given matrix. Each channel of the result is
+ * the dot product of a row of the matrix with the red, green and blue values of the pixel, rounded
+ * and clamped between 0 and 255.
+ *
+ * <p>Consecutive color transforms can be fused into one (see {@link #then(ColorTransform)} and
+ * {@link #fuse(ColorTransform...)}), so that an N-step color pipeline costs a single pass. Fusing
+ * skips the rounding and clamping between the steps. Skipping the clamping is only safe if the
+ * earlier step is clamp-free (see {@link #isClampFree()}): every row of its matrix has
+ * non-negative coefficients adding up to at most 1, so it never produces a value outside 0 to 255
+ * in the first place. Skipping the rounding means a fused transform may differ slightly from
+ * applying the steps one at a time: each value in between would have been rounded by at most 0.5,
+ * and the next matrix scales that difference by the sum of its row (so by at most 1 for
+ * clamp-free transforms like {@link Grayscale}, and at most 1 in total for {@link Sepia}).
+ *
+ * <p>Transforms can also run in fixed-point arithmetic (see {@link #withPrecision(Precision)}).
  */
 public class ColorTransform implements Operation {
 
   protected final double[][] matrix; // the matrix to apply to the image
+  private final Precision precision; // the arithmetic used to apply the matrix
+  private final double[][][] products; // each matrix coefficient times each channel value
+  private final int[][] fixedMatrix; // the matrix in fixed point, for FIXED_POINT
+  private final int fixedScale; // the number of fixed-point units in 1
 
   /**
    * Construct a color transform with the given 2D array matrix.
@@ -18,42 +42,324 @@ public class ColorTransform implements Operation {
    * @throws IllegalArgumentException if the matrix is null.
    */
   protected ColorTransform(double[][] matrix) throws IllegalArgumentException {
+    this(matrix, Precision.DOUBLE);
+  }
+
+  /**
+   * Construct a color transform with the given 2D array matrix, applied with the given precision.
+   *
+   * @param matrix    the matrix to modify images with.
+   * @param precision the arithmetic to apply the matrix with.
+   * @throws IllegalArgumentException if the matrix or precision is null, or the matrix is too
+   *                                  large for fixed-point arithmetic.
+   */
+  protected ColorTransform(double[][] matrix, Precision precision)
+      throws IllegalArgumentException {
     if (matrix == null) {
       throw new IllegalArgumentException("matrix cannot be null");
     }
+    if (precision == null) {
+      throw new IllegalArgumentException("precision cannot be null");
+    }
     this.matrix = matrix;
+    this.precision = precision;
+    if (precision == Precision.FIXED_POINT) {
+      this.products = null;
+      this.fixedMatrix = new int[3][3];
+      // matrices written in decimal (like those of Grayscale and Sepia) are represented exactly
+      this.fixedScale = FixedPoint.scaleFor(matrix);
+      for (int row = 0; row < 3; row++) {
+        FixedPoint.checkRange(matrix[row], "matrix");
+        for (int col = 0; col < 3; col++) {
+          fixedMatrix[row][col] = FixedPoint.quantize(matrix[row][col], fixedScale);
+        }
+      }
+    } else {
+      this.products = new double[3][3][256];
+      this.fixedMatrix = null;
+      this.fixedScale = 0;
+      for (int row = 0; row < 3; row++) {
+        for (int col = 0; col < 3; col++) {
+          for (int v = 0; v < 256; v++) {
+            products[row][col][v] = v * matrix[row][col];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Return a transform with the same matrix as this one, applied with the given precision.
+   *
+   * @param precision the arithmetic to apply the matrix with.
+   * @return this transform if it already uses the given precision, or a new transform otherwise.
+   * @throws IllegalArgumentException if the precision is null, or the matrix is too large for
+   *                                  fixed-point arithmetic.
+   */
+  public ColorTransform withPrecision(Precision precision) throws IllegalArgumentException {
+    if (precision == this.precision) {
+      return this;
+    }
+    return new ColorTransform(matrix, precision);
+  }
+
+  /**
+   * Return the arithmetic this transform is applied with.
+   *
+   * @return the precision of this transform.
+   */
+  public Precision getPrecision() {
+    return precision;
   }
 
+  /**
+   * Apply this transform to the given image. Lazy images are transformed one pixel at a time, so
+   * that the transform can be deferred along with the rest of their pending work (see
+   * {@link LazyImage}). Other images are transformed a row at a time, by a single loop over the
+   * packed values of the row which only does arithmetic on local values (no table lookups or
+   * branches), so that the JIT compiler can vectorize it. Both ways give exactly the same result.
+   *
+   * @param img the image to transform.
+   * @return the transformed image.
+   */
   @Override
   public ManipulableImage modify(ManipulableImage img) {
-    Pixel[][] result = new Pixel[img.getHeight()][img.getWidth()];
-    Pixel[][] origPixels = img.getPixels();
+    if (img instanceof LazyImage) {
+      return img.mapARGB(this::transform);
+    }
+    int width = img.getWidth();
+    if (img instanceof PlanarImage) {
+      PlanarImage planar = (PlanarImage) img;
+      ByteBuffer red = planar.getPlane(PlanarImage.RED);
+      ByteBuffer green = planar.getPlane(PlanarImage.GREEN);
+      ByteBuffer blue = planar.getPlane(PlanarImage.BLUE);
+      byte[][] result = new byte[3][width * img.getHeight()];
+      RowBands.forEach(img.getHeight(), width, (from, to) -> {
+        int[] row = new int[width];
+        for (int r = from; r < to; r++) {
+          int start = r * width;
+          for (int c = 0; c < width; c++) {
+            row[c] = ARGB.pack(red.get(start + c) & 0xFF, green.get(start + c) & 0xFF,
+                blue.get(start + c) & 0xFF);
+          }
+          transformRow(row, width);
+          for (int c = 0; c < width; c++) {
+            result[0][start + c] = (byte) ARGB.red(row[c]);
+            result[1][start + c] = (byte) ARGB.green(row[c]);
+            result[2][start + c] = (byte) ARGB.blue(row[c]);
+          }
+        }
+      });
+      return planar.withColorPlanes(result[0], result[1], result[2]);
+    }
+    WritableImage result = img.createCompatibleImage(width, img.getHeight(), img.hasAlpha());
+    modify(img, result);
+    return result;
+  }
+
+  /**
+   * Write the result of applying this transform to the given image into the given destination.
+   * Lazy images are transformed one pixel at a time, straight into the destination, and other
+   * images a row at a time, as in {@link #modify(ManipulableImage)}.
+   *
+   * @param img  the image to transform.
+   * @param dest the image to write the transformed image into.
+   * @throws IllegalArgumentException if the destination is null, the given image, or a different
+   *                                  size.
+   */
+  @Override
+  public void modify(ManipulableImage img, WritableImage dest) throws IllegalArgumentException {
+    Destination.check(img, dest);
+    if (img instanceof LazyImage) {
+      img.mapARGB(this::transform).copyTo(dest);
+      return;
+    }
+    int width = img.getWidth();
+    RowBands.forEach(img.getHeight(), width, (from, to) -> {
+      int[] row = new int[width];
+      for (int r = from; r < to; r++) {
+        img.getRow(r).get(row);
+        transformRow(row, width);
+        dest.setRow(r, row);
+      }
+    });
+  }
+
+  /**
+   * Apply this transform to a row of packed pixels in place. This computes exactly the same
+   * values as {@link #computeChannelVal(int, int)}: the products are the same as those in the
+   * tables it uses, and they are added up in the same order.
+   *
+   * @param row    the packed values of the row.
+   * @param length the number of pixels in the row.
+   */
+  private void transformRow(int[] row, int length) {
+    if (fixedMatrix != null) {
+      int m00 = fixedMatrix[0][0];
+      int m01 = fixedMatrix[0][1];
+      int m02 = fixedMatrix[0][2];
+      int m10 = fixedMatrix[1][0];
+      int m11 = fixedMatrix[1][1];
+      int m12 = fixedMatrix[1][2];
+      int m20 = fixedMatrix[2][0];
+      int m21 = fixedMatrix[2][1];
+      int m22 = fixedMatrix[2][2];
+      int scale = fixedScale;
+      for (int i = 0; i < length; i++) {
+        int p = row[i];
+        int red = (p >>> 16) & 0xFF;
+        int green = (p >>> 8) & 0xFF;
+        int blue = p & 0xFF;
+        row[i] = (p & 0xFF000000)
+            | FixedPoint.toChannel(m00 * red + m01 * green + m02 * blue, scale) << 16
+            | FixedPoint.toChannel(m10 * red + m11 * green + m12 * blue, scale) << 8
+            | FixedPoint.toChannel(m20 * red + m21 * green + m22 * blue, scale);
+      }
+    } else {
+      double m00 = matrix[0][0];
+      double m01 = matrix[0][1];
+      double m02 = matrix[0][2];
+      double m10 = matrix[1][0];
+      double m11 = matrix[1][1];
+      double m12 = matrix[1][2];
+      double m20 = matrix[2][0];
+      double m21 = matrix[2][1];
+      double m22 = matrix[2][2];
+      for (int i = 0; i < length; i++) {
+        int p = row[i];
+        double red = (p >>> 16) & 0xFF;
+        double green = (p >>> 8) & 0xFF;
+        double blue = p & 0xFF;
+        row[i] = (p & 0xFF000000)
+            | Math.max(0, Math.min((int) Math.rint(red * m00 + green * m01 + blue * m02), 255))
+            << 16
+            | Math.max(0, Math.min((int) Math.rint(red * m10 + green * m11 + blue * m12), 255))
+            << 8
+            | Math.max(0, Math.min((int) Math.rint(red * m20 + green * m21 + blue * m22), 255));
+      }
+    }
+  }
+
+  /**
+   * Return whether this transform maps every pixel to channel values between 0 and 255 without
+   * needing to clamp them, which is the case if every row of its matrix has non-negative
+   * coefficients which add up to at most 1 (after rounding). Only clamp-free transforms can be
+   * fused with the transform after them.
+   *
+   * @return true if this transform never needs to clamp, false otherwise.
+   */
+  public boolean isClampFree() {
+    for (double[] row : matrix) {
+      double sum = 0;
+      for (double coefficient : row) {
+        if (coefficient < 0) {
+          return false;
+        }
+        sum += coefficient;
+      }
+      if (Math.rint(255 * sum) > 255) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Return a single transform which applies this transform and then the given one, by multiplying
+   * their matrices. Since the value in between is no longer rounded, each channel of the result may
+   * differ from applying the two one at a time by up to half the sum of the corresponding row of
+   * the given transform's matrix.
+   *
+   * @param next the transform to apply after this one.
+   * @return the fused transform.
+   * @throws IllegalArgumentException if the given transform is null, or this transform is not
+   *                                  clamp-free, since skipping its clamping would change the
+   *                                  result.
+   */
+  public ColorTransform then(ColorTransform next) throws IllegalArgumentException {
+    if (next == null) {
+      throw new IllegalArgumentException("transform cannot be null");
+    }
+    if (!isClampFree()) {
+      throw new IllegalArgumentException("transform needs clamping, so it cannot be fused");
+    }
+    double[][] fused = new double[3][3];
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        for (int k = 0; k < 3; k++) {
+          fused[i][j] += next.matrix[i][k] * matrix[k][j];
+        }
+      }
+    }
+    return new ColorTransform(fused, precision);
+  }
 
-    for (int r = 0; r < img.getHeight(); r++) {
-      for (int c = 0; c < img.getWidth(); c++) {
-        int[] rgb = origPixels[r][c].getChannels();
-        int red = computeChannelVal(0, rgb);
-        int green = computeChannelVal(1, rgb);
-        int blue = computeChannelVal(2, rgb);
-        rgb[0] = red;
-        rgb[1] = green;
-        rgb[2] = blue;
-        result[r][c] = img.createPixel(rgb);
+  /**
+   * Return a single operation which applies the given transforms in order, in one pass over the
+   * image. Each transform is fused into the next one wherever that is safe (see
+   * {@link #then(ColorTransform)}), and the remaining transforms are applied to each pixel one
+   * after another.
+   *
+   * @param steps the transforms to apply, in order.
+   * @return the operation applying all of the transforms.
+   * @throws IllegalArgumentException if there are no transforms, or any of them are null.
+   */
+  public static Operation fuse(ColorTransform... steps) throws IllegalArgumentException {
+    if (steps == null || steps.length == 0) {
+      throw new IllegalArgumentException("there must be at least one transform to fuse");
+    }
+    List<ColorTransform> fused = new ArrayList<>();
+    for (ColorTransform step : steps) {
+      if (step == null) {
+        throw new IllegalArgumentException("transform cannot be null");
       }
+      ColorTransform last = fused.isEmpty() ? null : fused.get(fused.size() - 1);
+      if (last != null && last.isClampFree()) {
+        fused.set(fused.size() - 1, last.then(step));
+      } else {
+        fused.add(step);
+      }
+    }
+    if (fused.size() == 1) {
+      return fused.get(0);
     }
-    return new PixelGridImage(result);
+    return img -> img.mapARGB(argb -> {
+      for (ColorTransform step : fused) {
+        argb = step.transform(argb);
+      }
+      return argb;
+    });
   }
 
   /**
-   * Compute a channel value from the given channels and a given row in the color transform matrix.
+   * Apply this transform to a single pixel.
    *
-   * @param mRow     the row of the matrix to use.
-   * @param channels the channels of the pixel to use in the transformation.
+   * @param argb the packed value of the pixel.
+   * @return the packed value of the transformed pixel, with the same alpha value.
+   */
+  int transform(int argb) {
+    int red = computeChannelVal(0, argb);
+    int green = computeChannelVal(1, argb);
+    int blue = computeChannelVal(2, argb);
+    return ARGB.pack(red, green, blue, ARGB.alpha(argb));
+  }
+
+  /**
+   * Compute a channel value from the given pixel and a given row in the color transform matrix.
+   *
+   * @param mRow the row of the matrix to use.
+   * @param argb the packed value of the pixel to use in the transformation.
    * @return the resulting channel value.
    */
-  private int computeChannelVal(int mRow, int[] channels) {
-    int value = (int) Math.rint(channels[0] * matrix[mRow][0] + channels[1] * matrix[mRow][1]
-        + channels[2] * matrix[mRow][2]);
+  private int computeChannelVal(int mRow, int argb) {
+    if (fixedMatrix != null) {
+      int[] row = fixedMatrix[mRow];
+      return FixedPoint.toChannel(row[0] * ARGB.red(argb) + row[1] * ARGB.green(argb)
+          + row[2] * ARGB.blue(argb), fixedScale);
+    }
+    double[][] row = products[mRow];
+    int value = (int) Math.rint(row[0][ARGB.red(argb)] + row[1][ARGB.green(argb)]
+        + row[2][ARGB.blue(argb)]);
     return Math.max(0, Math.min(value, 255));
   }
 }
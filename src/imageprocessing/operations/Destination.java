@@ -0,0 +1,53 @@
+package imageprocessing.operations;
+
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.WritableImage;
+
+/**
+ * Checks the destinations operations write their results into (see
+ * {@link Operation#modify(ManipulableImage, WritableImage)}).
+ */
+final class Destination {
+
+  private Destination() {
+  }
+
+  /**
+   * Make sure the given destination can hold the result of an operation which keeps the size of
+   * the given image.
+   *
+   * @param img  the image the operation is applied to.
+   * @param dest the image to write the result into.
+   * @throws IllegalArgumentException if the destination is null, the given image, or a different
+   *                                  size.
+   */
+  static void check(ManipulableImage img, WritableImage dest) throws IllegalArgumentException {
+    if (dest == null || dest == img) {
+      throw new IllegalArgumentException("Destination must be a different image");
+    }
+    if (dest.getWidth() != img.getWidth() || dest.getHeight() != img.getHeight()) {
+      throw new IllegalArgumentException("Destination must be the same size as the image");
+    }
+  }
+
+  /**
+   * Make sure the given destination can hold the result of an operation which gives an image of
+   * the given size, such as a rotation.
+   *
+   * @param img    the image the operation is applied to.
+   * @param dest   the image to write the result into.
+   * @param width  the width of the result.
+   * @param height the height of the result.
+   * @throws IllegalArgumentException if the destination is null, the given image, or a different
+   *                                  size than the result.
+   */
+  static void check(ManipulableImage img, WritableImage dest, int width, int height)
+      throws IllegalArgumentException {
+    if (dest == null || dest == img) {
+      throw new IllegalArgumentException("Destination must be a different image");
+    }
+    if (dest.getWidth() != width || dest.getHeight() != height) {
+      throw new IllegalArgumentException("Destination must be the same size as the result");
+    }
+  }
+}
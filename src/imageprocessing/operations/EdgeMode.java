@@ -0,0 +1,57 @@
+package imageprocessing.operations;
+
+/**
+ * The values a {@link Filter} uses for the pixels its kernel reaches outside the image.
+ */
+public enum EdgeMode {
+  /**
+   * Pixels outside the image count as zero (black), so the edges of the result darken for kernels
+   * whose weights add up to 1.
+   */
+  ZERO {
+    @Override
+    int map(int index, int size) {
+      return index >= 0 && index < size ? index : -1;
+    }
+  },
+  /**
+   * Pixels outside the image take the value of the nearest pixel on the edge of the image.
+   */
+  CLAMP {
+    @Override
+    int map(int index, int size) {
+      return Math.max(0, Math.min(index, size - 1));
+    }
+  },
+  /**
+   * The image is reflected at its edges, including the edge pixels themselves, so the pixel just
+   * outside an edge takes the value of the pixel on that edge.
+   */
+  MIRROR {
+    @Override
+    int map(int index, int size) {
+      int position = Math.floorMod(index, 2 * size);
+      return position < size ? position : 2 * size - 1 - position;
+    }
+  },
+  /**
+   * The image repeats in every direction, so pixels past one edge take the values of the pixels
+   * inside the opposite edge.
+   */
+  WRAP {
+    @Override
+    int map(int index, int size) {
+      return Math.floorMod(index, size);
+    }
+  };
+
+  /**
+   * Return the position inside a row or column of the given size whose value is used at the given
+   * position, which may be outside it.
+   *
+   * @param index the position, which may be negative or past the end.
+   * @param size  the number of positions in the row or column.
+   * @return the position to use, or -1 if the value there is zero.
+   */
+  abstract int map(int index, int size);
+}
@@ -0,0 +1,311 @@
+package imageprocessing.operations;
+
+import imageprocessing.model.RowBands;
+import java.util.Arrays;
+
+/**
+ * Applies a kernel to the channels of an image using fast Fourier transforms, which takes the same
+ * O(log n) work per pixel however large the kernel is, instead of the O(k * k) of applying it
+ * directly. The image is cut into tiles, each tile is transformed, multiplied by the transform of
+ * the kernel and transformed back, and the overlapping results are added together (overlap-add).
+ * Only one row of tiles is held in memory at a time, and finished rows are handed back as soon as
+ * no later tile can add to them. Pixels outside the image count as zero, as they do when the
+ * kernel is applied directly.
+ *
+ * <p>The channels are real, so the red and green channels share one complex transform (as its
+ * real and imaginary parts), and the blue channel takes another. The results are not rounded, and
+ * match applying the kernel directly up to floating-point error.
+ */
+final class FftConvolution {
+
+  /**
+   * Reads the channel values of the rows of an image.
+   */
+  interface RowSource {
+
+    /**
+     * Copy the red, green and blue values of the given row into the given arrays.
+     *
+     * @param row      the row to read.
+     * @param channels the red, green and blue arrays to copy into.
+     * @param offset   the position in each array to start copying to.
+     */
+    void read(int row, double[][] channels, int offset);
+  }
+
+  /**
+   * Receives the filtered channel values of the rows of an image, in order.
+   */
+  interface RowSink {
+
+    /**
+     * Accept the filtered red, green and blue values of the given row.
+     *
+     * @param row      the row which was filtered.
+     * @param channels the red, green and blue arrays holding the filtered values.
+     * @param offset   the position in each array the row starts at.
+     */
+    void write(int row, double[][] channels, int offset);
+  }
+
+  private final double[][] kernel;
+
+  /**
+   * Construct an FFT convolution with the given kernel, which is applied in the same way as
+   * {@link Filter} applies it: centered on each pixel, without being flipped.
+   *
+   * @param kernel the rectangular kernel to apply.
+   */
+  FftConvolution(double[][] kernel) {
+    this.kernel = kernel;
+  }
+
+  /**
+   * Apply the kernel to an image with the given dimensions.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param source reads the rows of the image.
+   * @param sink   receives the filtered rows, from top to bottom.
+   */
+  void convolve(int width, int height, RowSource source, RowSink sink) {
+    int kernelHeight = kernel.length;
+    int kernelWidth = kernel[0].length;
+    int fftHeight = transformSize(kernelHeight, height);
+    int fftWidth = transformSize(kernelWidth, width);
+    int tileHeight = fftHeight - kernelHeight + 1;
+    int tileWidth = fftWidth - kernelWidth + 1;
+    Fft rows = new Fft(fftWidth);
+    Fft columns = new Fft(fftHeight);
+    double[][] spectrum = spectrum(rows, columns);
+    int tilesAcross = (width + tileWidth - 1) / tileWidth;
+    double[][] input = new double[3][tileHeight * width]; // the source rows of the tile row
+    double[][] sums = new double[3][(tileHeight + kernelHeight - 1) * width];
+    double[][][] results = new double[tilesAcross][][]; // the filtered tiles of the tile row
+    int top = kernelHeight / 2;
+    int tileTop = 0;
+    for (; tileTop < height; tileTop += tileHeight) {
+      int tileRows = Math.min(tileHeight, height - tileTop);
+      for (int r = 0; r < tileRows; r++) {
+        source.read(tileTop + r, input, r * width);
+      }
+      // transform the tiles in parallel, but add them up in order so results never vary
+      RowBands.forEach(tilesAcross, fftHeight * fftWidth, (from, to) -> {
+        for (int t = from; t < to; t++) {
+          results[t] = filterTile(input, width, tileRows, t * tileWidth,
+              Math.min(tileWidth, width - t * tileWidth), rows, columns, spectrum);
+        }
+      });
+      for (int t = 0; t < tilesAcross; t++) {
+        addTile(results[t], sums, width, tileRows + kernelHeight - 1,
+            Math.min(tileWidth, width - t * tileWidth) + kernelWidth - 1,
+            t * tileWidth - kernelWidth / 2, fftWidth);
+        results[t] = null;
+      }
+      for (int r = 0; r < tileHeight; r++) { // no later tile reaches these rows
+        if (tileTop - top + r >= 0 && tileTop - top + r < height) {
+          sink.write(tileTop - top + r, sums, r * width);
+        }
+      }
+      for (double[] channel : sums) { // move the unfinished rows to the top
+        System.arraycopy(channel, tileHeight * width, channel, 0, (kernelHeight - 1) * width);
+        Arrays.fill(channel, (kernelHeight - 1) * width, channel.length, 0);
+      }
+    }
+    for (int r = 0; tileTop - top + r < height; r++) {
+      if (tileTop - top + r >= 0) {
+        sink.write(tileTop - top + r, sums, r * width);
+      }
+    }
+  }
+
+  /**
+   * Filter one tile of the current row of tiles.
+   *
+   * @param input    the source rows of the current row of tiles.
+   * @param width    the width of the image.
+   * @param tileRows the number of rows in the tile.
+   * @param left     the column of the image the tile starts at.
+   * @param tileCols the number of columns in the tile.
+   * @param rows     the transform along each row.
+   * @param columns  the transform along each column.
+   * @param spectrum the transform of the kernel.
+   * @return the red, green and blue values of the filtered tile, which is as large as the
+   *         transforms.
+   */
+  private static double[][] filterTile(double[][] input, int width, int tileRows, int left,
+      int tileCols, Fft rows, Fft columns, double[][] spectrum) {
+    int size = rows.size * columns.size;
+    double[] redGreenRe = new double[size];
+    double[] redGreenIm = new double[size];
+    double[] blueRe = new double[size];
+    double[] blueIm = new double[size];
+    for (int r = 0; r < tileRows; r++) {
+      for (int c = 0; c < tileCols; c++) {
+        int from = r * width + left + c;
+        int to = r * rows.size + c;
+        redGreenRe[to] = input[0][from];
+        redGreenIm[to] = input[1][from];
+        blueRe[to] = input[2][from];
+      }
+    }
+    for (double[][] parts : new double[][][]{{redGreenRe, redGreenIm}, {blueRe, blueIm}}) {
+      transform(parts[0], parts[1], tileRows, rows, columns, false);
+      for (int i = 0; i < size; i++) {
+        double re = parts[0][i] * spectrum[0][i] - parts[1][i] * spectrum[1][i];
+        parts[1][i] = parts[0][i] * spectrum[1][i] + parts[1][i] * spectrum[0][i];
+        parts[0][i] = re;
+      }
+      transform(parts[0], parts[1], columns.size, rows, columns, true);
+    }
+    return new double[][]{redGreenRe, redGreenIm, blueRe};
+  }
+
+  /**
+   * Add a filtered tile into the running sums of the current row of tiles.
+   *
+   * @param tile      the red, green and blue values of the filtered tile.
+   * @param sums      the running sums, whose first row is the first row the tile reaches.
+   * @param width     the width of the image.
+   * @param tileRows  the number of rows of the filtered tile which hold values.
+   * @param tileCols  the number of columns of the filtered tile which hold values.
+   * @param left      the column of the image the first column of the filtered tile belongs in.
+   * @param tileWidth the width of the filtered tile.
+   */
+  private static void addTile(double[][] tile, double[][] sums, int width, int tileRows,
+      int tileCols, int left, int tileWidth) {
+    int first = Math.max(0, -left);
+    int last = Math.min(tileCols, width - left);
+    for (int channel = 0; channel < 3; channel++) {
+      for (int r = 0; r < tileRows; r++) {
+        for (int c = first; c < last; c++) {
+          sums[channel][r * width + left + c] += tile[channel][r * tileWidth + c];
+        }
+      }
+    }
+  }
+
+  /**
+   * Compute the transform of the kernel, flipped so that multiplying by it applies the kernel the
+   * same way {@link Filter} does, and scaled so that inverse transforms need no scaling.
+   *
+   * @param rows    the transform along each row.
+   * @param columns the transform along each column.
+   * @return the real and imaginary parts of the transform.
+   */
+  private double[][] spectrum(Fft rows, Fft columns) {
+    int size = rows.size * columns.size;
+    double[] re = new double[size];
+    double[] im = new double[size];
+    for (int i = 0; i < kernel.length; i++) {
+      for (int j = 0; j < kernel[0].length; j++) {
+        re[i * rows.size + j] =
+            kernel[kernel.length - 1 - i][kernel[0].length - 1 - j] / size;
+      }
+    }
+    transform(re, im, kernel.length, rows, columns, false);
+    return new double[][]{re, im};
+  }
+
+  /**
+   * Transform the given 2D array of complex values in place.
+   *
+   * @param re       the real parts, row by row.
+   * @param im       the imaginary parts, row by row.
+   * @param nonzero  the number of leading rows which may hold nonzero values.
+   * @param rows     the transform along each row.
+   * @param columns  the transform along each column.
+   * @param inverse  whether to apply the inverse transform (without scaling).
+   */
+  private static void transform(double[] re, double[] im, int nonzero, Fft rows, Fft columns,
+      boolean inverse) {
+    for (int r = 0; r < nonzero; r++) { // the transform of a row of zeros is zero
+      rows.transform(re, im, r * rows.size, 1, inverse);
+    }
+    for (int c = 0; c < rows.size; c++) {
+      columns.transform(re, im, c, rows.size, inverse);
+    }
+  }
+
+  /**
+   * Return the size of the transforms along one dimension: a power of two which fits a tile of at
+   * least the kernel size (or the whole image, if it is smaller) plus the kernel around it.
+   *
+   * @param kernelSize the size of the kernel along the dimension.
+   * @param imageSize  the size of the image along the dimension.
+   * @return the transform size.
+   */
+  private static int transformSize(int kernelSize, int imageSize) {
+    int needed = kernelSize - 1 + Math.min(imageSize, Math.max(kernelSize, 32));
+    return needed <= 1 ? 1 : Integer.highestOneBit(needed - 1) << 1;
+  }
+
+  /**
+   * An in-place radix-2 fast Fourier transform of a fixed power-of-two size.
+   */
+  private static final class Fft {
+
+    private final int size;
+    private final int[] reversed; // the bit-reversed index of each index
+    private final double[] cos; // cos(2 pi k / size), for k below size / 2
+    private final double[] sin; // sin(2 pi k / size), for k below size / 2
+
+    private Fft(int size) {
+      this.size = size;
+      this.reversed = new int[size];
+      int bits = Integer.numberOfTrailingZeros(size);
+      for (int i = 0; i < size; i++) {
+        reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+      }
+      this.cos = new double[size / 2];
+      this.sin = new double[size / 2];
+      for (int k = 0; k < size / 2; k++) {
+        cos[k] = Math.cos(2 * Math.PI * k / size);
+        sin[k] = Math.sin(2 * Math.PI * k / size);
+      }
+    }
+
+    /**
+     * Transform the complex values at the given positions in place.
+     *
+     * @param re      the real parts.
+     * @param im      the imaginary parts.
+     * @param offset  the position of the first value.
+     * @param stride  the distance between consecutive values.
+     * @param inverse whether to apply the inverse transform (without scaling).
+     */
+    private void transform(double[] re, double[] im, int offset, int stride, boolean inverse) {
+      for (int i = 0; i < size; i++) {
+        int j = reversed[i];
+        if (i < j) {
+          int a = offset + i * stride;
+          int b = offset + j * stride;
+          double t = re[a];
+          re[a] = re[b];
+          re[b] = t;
+          t = im[a];
+          im[a] = im[b];
+          im[b] = t;
+        }
+      }
+      for (int length = 2; length <= size; length <<= 1) {
+        int half = length / 2;
+        int step = size / length;
+        for (int start = 0; start < size; start += length) {
+          for (int k = 0; k < half; k++) {
+            double wr = cos[k * step];
+            double wi = inverse ? sin[k * step] : -sin[k * step];
+            int a = offset + (start + k) * stride;
+            int b = a + half * stride;
+            double xr = re[b] * wr - im[b] * wi;
+            double xi = re[b] * wi + im[b] * wr;
+            re[b] = re[a] - xr;
+            im[b] = im[a] - xi;
+            re[a] += xr;
+            im[a] += xi;
+          }
+        }
+      }
+    }
+  }
+}
@@ -1,18 +1,75 @@
 package imageprocessing.operations;
 
+import imageprocessing.model.ARGB;
+import imageprocessing.model.IntBufferImage;
+import imageprocessing.model.LazyImage;
 import imageprocessing.model.ManipulableImage;
-import imageprocessing.model.Pixel;
-import imageprocessing.model.PixelGridImage;
+import imageprocessing.model.OrientedImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.PatchedImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.model.RowBands;
+import imageprocessing.model.WritableImage;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 
 /**
  * Represents a filter with a kernel that can be applied to an image.
+ *
+ * <p>If the kernel is separable (the outer product of a column and a row, like most blurs), it is
+ * applied as a horizontal pass over each row followed by a vertical pass over the results, which
+ * takes k + k multiplications per pixel instead of k * k. The results are only rounded once, at
+ * the end, so they match a full 2D pass up to floating-point error in the sums (exactly, for
+ * kernels made of powers of two such as {@link Blur}).
+ *
+ * <p>Other kernels with more than {@link #FFT_THRESHOLD} entries are applied with fast Fourier
+ * transforms instead (see {@link FftConvolution}), whose cost per pixel hardly grows with the
+ * kernel size. Their results match applying the kernel directly up to rounding (each channel value
+ * may differ by 1).
+ *
+ * <p>Kernels applied directly or as two 1D passes work on a whole row of output pixels at a time:
+ * each weight is multiplied into every pixel of the row it reaches in one tight loop (see
+ * {@link RowConvolution}), which the JIT compiler can vectorize.
+ *
+ * <p>Wide images are filtered in tiles of columns (see {@link #getTileWidth()}), so the rows the
+ * kernel is reusing stay in the cache, and bands of rows are filtered in parallel (see
+ * {@link RowBands}).
+ *
+ * <p>Pixels the kernel reaches outside the image count as zero, unless another
+ * {@link EdgeMode} is chosen with {@link #withEdgeMode(EdgeMode)}. Edges are handled by padding
+ * each source row before the kernel is applied, so applying it never checks bounds.
+ *
+ * <p>Filters can also run in fixed-point arithmetic (see {@link #withPrecision(Precision)}), in
+ * which case the kernel is always applied directly or as two 1D passes, never with transforms.
  */
 public class Filter implements Operation {
 
+  /**
+   * The number of kernel entries above which kernels which are not separable are applied with fast
+   * Fourier transforms (a 15 by 15 kernel).
+   */
+  public static final int FFT_THRESHOLD = 15 * 15;
+
+  /**
+   * The number of bytes of working data each tile of a filtered image may use (256 kilobytes, the
+   * size of a typical L2 cache). See {@link #getTileWidth()}.
+   */
+  public static final int TILE_BYTES = 256 * 1024;
+
+  private static final double TOLERANCE = 1e-12; // relative error allowed when factoring kernels
+
   protected final double[][] kernel;
+  private final double[] vertical; // the column factor of the kernel, or null if not separable
+  private final double[] horizontal; // the row factor of the kernel, or null if not separable
+  private final Precision precision; // the arithmetic used to apply the kernel
+  private final EdgeMode edgeMode; // the values of pixels outside the image
+  private final int[][] fixedKernel; // the kernel in fixed point, for FIXED_POINT
+  private final int[] fixedVertical; // the column factor in fixed point, if separable
+  private final int[] fixedHorizontal; // the row factor in fixed point, if separable
 
   /**
-   * Construct a filter with the given kernel.
+   * Construct a filter with the given kernel. If the kernel is separable, this is detected here.
    *
    * @param kernel the kernel to apply to the image.
    * @throws IllegalArgumentException if the given kernel is null.
@@ -22,6 +79,165 @@ public class Filter implements Operation {
       throw new IllegalArgumentException("kernel cannot be null");
     }
     this.kernel = kernel;
+    double[][] factors = factor(kernel);
+    this.vertical = factors == null ? null : factors[0];
+    this.horizontal = factors == null ? null : factors[1];
+    this.precision = Precision.DOUBLE;
+    this.edgeMode = EdgeMode.ZERO;
+    this.fixedKernel = null;
+    this.fixedVertical = null;
+    this.fixedHorizontal = null;
+  }
+
+  /**
+   * Construct a separable filter, whose kernel is the outer product of the given column and row.
+   *
+   * @param vertical   the column of the kernel, applied down each column of the image.
+   * @param horizontal the row of the kernel, applied along each row of the image.
+   * @throws IllegalArgumentException if either factor is null or empty.
+   */
+  protected Filter(double[] vertical, double[] horizontal) throws IllegalArgumentException {
+    if (vertical == null || horizontal == null || vertical.length == 0
+        || horizontal.length == 0) {
+      throw new IllegalArgumentException("kernel cannot be null");
+    }
+    this.vertical = vertical.clone();
+    this.horizontal = horizontal.clone();
+    this.kernel = new double[vertical.length][horizontal.length];
+    for (int i = 0; i < vertical.length; i++) {
+      for (int j = 0; j < horizontal.length; j++) {
+        kernel[i][j] = vertical[i] * horizontal[j];
+      }
+    }
+    this.precision = Precision.DOUBLE;
+    this.edgeMode = EdgeMode.ZERO;
+    this.fixedKernel = null;
+    this.fixedVertical = null;
+    this.fixedHorizontal = null;
+  }
+
+  /**
+   * Construct a filter with the same kernel as the given one, applied with the given precision.
+   *
+   * @param filter    the filter whose kernel to use.
+   * @param precision the arithmetic to apply the kernel with.
+   * @throws IllegalArgumentException if the precision is null, or the kernel is too large for
+   *                                  fixed-point arithmetic.
+   */
+  protected Filter(Filter filter, Precision precision) throws IllegalArgumentException {
+    this(filter, precision, filter.edgeMode);
+  }
+
+  /**
+   * Construct a filter with the same kernel as the given one, applied with the given precision and
+   * edge mode.
+   *
+   * @param filter    the filter whose kernel to use.
+   * @param precision the arithmetic to apply the kernel with.
+   * @param edgeMode  the values to use for pixels outside the image.
+   * @throws IllegalArgumentException if the precision or edge mode is null, or the kernel is too
+   *                                  large for fixed-point arithmetic.
+   */
+  protected Filter(Filter filter, Precision precision, EdgeMode edgeMode)
+      throws IllegalArgumentException {
+    if (precision == null) {
+      throw new IllegalArgumentException("precision cannot be null");
+    }
+    if (edgeMode == null) {
+      throw new IllegalArgumentException("edge mode cannot be null");
+    }
+    this.kernel = filter.kernel;
+    this.vertical = filter.vertical;
+    this.horizontal = filter.horizontal;
+    this.precision = precision;
+    this.edgeMode = edgeMode;
+    if (precision == Precision.FIXED_POINT) {
+      this.fixedKernel = new int[kernel.length][];
+      double[] all = new double[kernel.length * kernel[0].length];
+      for (int i = 0; i < kernel.length; i++) {
+        System.arraycopy(kernel[i], 0, all, i * kernel[0].length, kernel[0].length);
+        fixedKernel[i] = quantize(kernel[i]);
+      }
+      FixedPoint.checkRange(all, "kernel");
+      if (horizontal != null) {
+        FixedPoint.checkRange(vertical, "kernel");
+        FixedPoint.checkRange(horizontal, "kernel");
+      }
+      this.fixedVertical = vertical == null ? null : quantize(vertical);
+      this.fixedHorizontal = horizontal == null ? null : quantize(horizontal);
+    } else {
+      this.fixedKernel = null;
+      this.fixedVertical = null;
+      this.fixedHorizontal = null;
+    }
+  }
+
+  /**
+   * Return a filter with the same kernel as this one, applied with the given precision.
+   *
+   * @param precision the arithmetic to apply the kernel with.
+   * @return this filter if it already uses the given precision, or a new filter otherwise.
+   * @throws IllegalArgumentException if the precision is null, or the kernel is too large for
+   *                                  fixed-point arithmetic.
+   */
+  public Filter withPrecision(Precision precision) throws IllegalArgumentException {
+    if (precision == this.precision) {
+      return this;
+    }
+    return new Filter(this, precision);
+  }
+
+  /**
+   * Return the arithmetic this filter's kernel is applied with.
+   *
+   * @return the precision of this filter.
+   */
+  public Precision getPrecision() {
+    return precision;
+  }
+
+  /**
+   * Return a filter with the same kernel and precision as this one, which uses the given values
+   * for pixels outside the image.
+   *
+   * @param edgeMode the values to use for pixels outside the image.
+   * @return this filter if it already uses the given edge mode, or a new filter otherwise.
+   * @throws IllegalArgumentException if the edge mode is null.
+   */
+  public Filter withEdgeMode(EdgeMode edgeMode) throws IllegalArgumentException {
+    if (edgeMode == this.edgeMode) {
+      return this;
+    }
+    return new Filter(this, precision, edgeMode);
+  }
+
+  /**
+   * Return the values this filter uses for pixels outside the image.
+   *
+   * @return the edge mode of this filter.
+   */
+  public EdgeMode getEdgeMode() {
+    return edgeMode;
+  }
+
+  /**
+   * Return whether this filter's kernel is separable, so that it is applied as two 1D passes.
+   *
+   * @return true if the kernel is separable, false otherwise.
+   */
+  public boolean isSeparable() {
+    return vertical != null;
+  }
+
+  /**
+   * Return whether this filter's kernel is applied with fast Fourier transforms, because it is too
+   * large to apply directly and is not separable.
+   *
+   * @return true if the kernel is applied with fast Fourier transforms, false otherwise.
+   */
+  public boolean usesFft() {
+    return precision == Precision.DOUBLE && !isSeparable()
+        && (long) kernel.length * kernel[0].length > FFT_THRESHOLD;
   }
 
   /**
@@ -32,37 +248,699 @@ public class Filter implements Operation {
    */
   @Override
   public ManipulableImage modify(ManipulableImage img) {
-    Pixel[][] result = new Pixel[img.getHeight()][img.getWidth()];
-    Pixel[][] origPixels = img.getPixels();
-
-    for (int r = 0; r < img.getHeight(); r++) { // loop through the pixels of the image
-      for (int c = 0; c < img.getWidth(); c++) {
-
-        int[] channels = origPixels[r][c].getChannels();
-        double red = 0;
-        double green = 0;
-        double blue = 0;
-
-        // overlay the kernel and calculate the channel values for red, green, and blue
-        for (int i = r - this.kernel.length / 2; i <= r + this.kernel.length / 2; i += 1) {
-          for (int j = c - this.kernel[0].length / 2; j <= c + this.kernel[0].length / 2; j += 1) {
-            if (i >= 0 && j >= 0 && i < img.getHeight() && j < img.getWidth()) {
-              int[] rgb = origPixels[i][j].getChannels();
-              double kernelValue = // get the appropriate kernel value
-                  kernel[i - (r - kernel.length / 2)][j - (c - kernel[0].length / 2)];
-              red += kernelValue * rgb[0]; // compute and add to the rgb values
-              green += kernelValue * rgb[1];
-              blue += kernelValue * rgb[2];
+    if (img instanceof LazyImage) { // the whole neighborhood is needed, so compute it once
+      img = ((LazyImage) img).materialize();
+    }
+    // rows are read many times, so lay them out once
+    if (img instanceof OrientedImage || img instanceof PatchedImage) {
+      img = img.copy();
+    }
+    if (img instanceof PlanarImage && precision == Precision.DOUBLE) { // filter plane by plane
+      PlanarImage planar = (PlanarImage) img;
+      if (usesFft()) {
+        return convolveFft(planar);
+      }
+      if (isSeparable()) {
+        return planar.withColorPlanes(convolveSeparable(planar, PlanarImage.RED),
+            convolveSeparable(planar, PlanarImage.GREEN),
+            convolveSeparable(planar, PlanarImage.BLUE));
+      }
+      return planar.withColorPlanes(convolve(planar, PlanarImage.RED),
+          convolve(planar, PlanarImage.GREEN), convolve(planar, PlanarImage.BLUE));
+    }
+    WritableImage result =
+        img.createCompatibleImage(img.getWidth(), img.getHeight(), img.hasAlpha());
+    modify(img, result);
+    return result;
+  }
+
+  /**
+   * Returns the given image with this filter's kernel applied to the given region only. The
+   * region is filtered together with the pixels around it which the kernel reaches, so the
+   * filtered pixels are exactly the pixels of the whole filtered image there, rather than treating
+   * the edges of the region as edges of the image. Only the pixels around the region are read,
+   * and the rest of the image is shared with the given one (see
+   * {@link Operation#modifyRegion(ManipulableImage, int, int, int, int)}).
+   *
+   * @param img    the image to create the modified image from.
+   * @param row    the top row of the region.
+   * @param col    the leftmost column of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @return the given image with the region filtered.
+   * @throws IllegalArgumentException if the region is empty or not entirely inside the image.
+   */
+  @Override
+  public ManipulableImage modifyRegion(ManipulableImage img, int row, int col, int width,
+      int height) throws IllegalArgumentException {
+    img.crop(row, col, width, height); // make sure the region is inside the image
+    int top = Math.max(0, row - kernel.length / 2);
+    int left = Math.max(0, col - kernel[0].length / 2);
+    int bottom = Math.min(img.getHeight(), row + height + (kernel.length - 1) / 2);
+    int right = Math.min(img.getWidth(), col + width + (kernel[0].length - 1) / 2);
+    if (edgeMode == EdgeMode.WRAP) { // pixels past an edge come from the opposite edge
+      if (top == 0 || bottom == img.getHeight()) {
+        top = 0;
+        bottom = img.getHeight();
+      }
+      if (left == 0 || right == img.getWidth()) {
+        left = 0;
+        right = img.getWidth();
+      }
+    }
+    ManipulableImage around = modify(img.crop(top, left, right - left, bottom - top));
+    return PatchedImage.of(img, around.crop(row - top, col - left, width, height), row, col);
+  }
+
+  /**
+   * Writes the result of applying this filter's kernel to the given image into the given
+   * destination, row by row.
+   *
+   * @param img  the image to create the modified image from.
+   * @param dest the image to write the filtered image into.
+   * @throws IllegalArgumentException if the destination is null, the given image, or a different
+   *                                  size.
+   */
+  @Override
+  public void modify(ManipulableImage img, WritableImage dest) throws IllegalArgumentException {
+    Destination.check(img, dest);
+    if (img instanceof LazyImage) {
+      img = ((LazyImage) img).materialize();
+    }
+    if (img instanceof OrientedImage || img instanceof PatchedImage) {
+      img = img.copy();
+    }
+    if (precision == Precision.FIXED_POINT) { // the row-by-row paths work for any image
+      if (isSeparable()) {
+        convolveSeparableFixed(img, dest);
+      } else {
+        convolveFixed(img, dest);
+      }
+    } else if (usesFft()) {
+      convolveFft(img, dest);
+    } else if (isSeparable()) {
+      convolveSeparable(img, dest);
+    } else {
+      convolve(img, dest);
+    }
+  }
+
+  /**
+   * Apply this filter's kernel to the given image, one band of rows at a time (see
+   * {@link RowBands}), and one tile of columns at a time within each band (see
+   * {@link #getTileWidth()}). For each tile, the band keeps the padded channel values of the rows
+   * under the kernel in a ring of kernel-height rows, and applies each row of the kernel to a whole
+   * row of the tile at once (see {@link RowConvolution}). Rows under the kernel which are outside
+   * the image are looked up with the edge mode, and skipped if it treats them as zero.
+   *
+   * @param img    the image to filter.
+   * @param result the image to write the filtered image into.
+   */
+  private void convolve(ManipulableImage img, WritableImage result) {
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int top = kernel.length / 2;
+    int tile = tileWidth(img);
+    RowBands.forEach(height, width, (from, to) -> {
+      double[][][] window = new double[kernel.length][3][tile + kernel[0].length - 1];
+      int[] sources = new int[kernel.length]; // the image row in each slot of the window
+      double[][] sums = new double[3][tile];
+      int[] out = new int[tile];
+      for (int first = 0; first < width; first += tile) { // loop through the tiles of the band
+        int cols = Math.min(tile, width - first);
+        int[] columns = sourceColumns(first, cols, width);
+        int next = from - top; // the next row under the kernel, which may be outside the image
+        for (int r = from; r < to; r++) {
+          for (; next < r - top + kernel.length; next++) {
+            int slot = Math.floorMod(next, kernel.length);
+            sources[slot] = edgeMode.map(next, height);
+            if (sources[slot] >= 0) {
+              unpack(img.getRow(sources[slot]), columns, window[slot]);
+            }
+          }
+          for (int channel = 0; channel < 3; channel++) {
+            Arrays.fill(sums[channel], 0);
+            for (int k = 0; k < kernel.length; k++) {
+              int slot = Math.floorMod(r - top + k, kernel.length);
+              if (sources[slot] >= 0) {
+                RowConvolution.accumulate(kernel[k], window[slot][channel], sums[channel], cols);
+              }
+            }
+          }
+          IntBuffer center = img.getRow(r);
+          for (int c = 0; c < cols; c++) {
+            out[c] = ARGB.pack(clamp(sums[0][c]), clamp(sums[1][c]), clamp(sums[2][c]),
+                ARGB.alpha(center.get(first + c)));
+          }
+          result.setRow(r, first, out, cols);
+        }
+      }
+    });
+  }
+
+  /**
+   * Apply this filter's kernel to one plane of the given planar image, one contiguous plane at a
+   * time, in the same tiles as {@link #convolve(ManipulableImage, WritableImage)}. The channel
+   * values are summed in the same order as for packed images, so both give exactly the same
+   * result.
+   *
+   * @param img     the image to filter.
+   * @param channel the plane of the image to filter.
+   * @return the filtered plane.
+   */
+  private byte[] convolve(PlanarImage img, int channel) {
+    ByteBuffer plane = img.getPlane(channel);
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int top = kernel.length / 2;
+    int tile = tileWidth(width);
+    byte[] result = new byte[width * height];
+    RowBands.forEach(height, width, (from, to) -> {
+      double[][] window = new double[kernel.length][tile + kernel[0].length - 1];
+      int[] sources = new int[kernel.length]; // the image row in each slot of the window
+      double[] sums = new double[tile];
+      for (int first = 0; first < width; first += tile) {
+        int cols = Math.min(tile, width - first);
+        int[] columns = sourceColumns(first, cols, width);
+        int next = from - top; // the next row under the kernel, which may be outside the image
+        for (int r = from; r < to; r++) {
+          for (; next < r - top + kernel.length; next++) {
+            int slot = Math.floorMod(next, kernel.length);
+            sources[slot] = edgeMode.map(next, height);
+            if (sources[slot] >= 0) {
+              unpack(plane, sources[slot] * width, columns, window[slot]);
+            }
+          }
+          Arrays.fill(sums, 0);
+          for (int k = 0; k < kernel.length; k++) {
+            int slot = Math.floorMod(r - top + k, kernel.length);
+            if (sources[slot] >= 0) {
+              RowConvolution.accumulate(kernel[k], window[slot], sums, cols);
             }
           }
+          for (int c = 0; c < cols; c++) {
+            result[r * width + first + c] = (byte) clamp(sums[c]);
+          }
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Apply this filter's kernel to the given image in fixed-point arithmetic, in the same way as
+   * {@link #convolve(ManipulableImage, WritableImage)}.
+   *
+   * @param img    the image to filter.
+   * @param result the image to write the filtered image into.
+   */
+  private void convolveFixed(ManipulableImage img, WritableImage result) {
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int top = kernel.length / 2;
+    int tile = tileWidth(img);
+    RowBands.forEach(height, width, (from, to) -> {
+      int[][][] window = new int[kernel.length][3][tile + kernel[0].length - 1];
+      int[] sources = new int[kernel.length]; // the image row in each slot of the window
+      int[][] sums = new int[3][tile];
+      int[] out = new int[tile];
+      for (int first = 0; first < width; first += tile) {
+        int cols = Math.min(tile, width - first);
+        int[] columns = sourceColumns(first, cols, width);
+        int next = from - top; // the next row under the kernel, which may be outside the image
+        for (int r = from; r < to; r++) {
+          for (; next < r - top + kernel.length; next++) {
+            int slot = Math.floorMod(next, kernel.length);
+            sources[slot] = edgeMode.map(next, height);
+            if (sources[slot] >= 0) {
+              unpack(img.getRow(sources[slot]), columns, window[slot]);
+            }
+          }
+          for (int channel = 0; channel < 3; channel++) {
+            Arrays.fill(sums[channel], 0);
+            for (int k = 0; k < kernel.length; k++) {
+              int slot = Math.floorMod(r - top + k, kernel.length);
+              if (sources[slot] >= 0) {
+                RowConvolution.accumulate(fixedKernel[k], window[slot][channel], sums[channel],
+                    cols);
+              }
+            }
+          }
+          IntBuffer center = img.getRow(r);
+          for (int c = 0; c < cols; c++) {
+            out[c] = ARGB.pack(FixedPoint.toChannel(sums[0][c]),
+                FixedPoint.toChannel(sums[1][c]), FixedPoint.toChannel(sums[2][c]),
+                ARGB.alpha(center.get(first + c)));
+          }
+          result.setRow(r, first, out, cols);
+        }
+      }
+    });
+  }
+
+  /**
+   * Apply this filter's separable kernel to the given image in fixed-point arithmetic, in the same
+   * way as {@link #convolveSeparable(ManipulableImage, WritableImage)}. The horizontal pass sums
+   * in an int, and the vertical pass sums its products with the column factor in a long, with
+   * twice as many fractional bits.
+   *
+   * @param img    the image to filter.
+   * @param result the image to write the filtered image into.
+   */
+  private void convolveSeparableFixed(ManipulableImage img, WritableImage result) {
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int half = fixedVertical.length / 2;
+    int tile = tileWidth(img);
+    RowBands.forEach(height, width, (from, to) -> {
+      int[][][] window = new int[fixedVertical.length][3][tile]; // filtered rows, by row % k
+      int[] sources = new int[fixedVertical.length]; // the image row in each slot of the window
+      int[][] channels = new int[3][tile + fixedHorizontal.length - 1];
+      long[][] sums = new long[3][tile];
+      int[] out = new int[tile];
+      for (int first = 0; first < width; first += tile) {
+        int cols = Math.min(tile, width - first);
+        int[] columns = sourceColumns(first, cols, width);
+        int next = from - half; // the next row under the kernel, which may be outside the image
+        for (int r = from; r < to; r++) {
+          for (; next < r - half + fixedVertical.length; next++) {
+            int slot = Math.floorMod(next, fixedVertical.length);
+            sources[slot] = edgeMode.map(next, height);
+            if (sources[slot] >= 0) {
+              unpack(img.getRow(sources[slot]), columns, channels);
+              for (int channel = 0; channel < 3; channel++) {
+                Arrays.fill(window[slot][channel], 0);
+                RowConvolution.accumulate(fixedHorizontal, channels[channel],
+                    window[slot][channel], cols);
+              }
+            }
+          }
+          for (int channel = 0; channel < 3; channel++) {
+            Arrays.fill(sums[channel], 0);
+            for (int k = 0; k < fixedVertical.length; k++) {
+              int slot = Math.floorMod(r - half + k, fixedVertical.length);
+              if (sources[slot] >= 0) {
+                RowConvolution.accumulate((long) fixedVertical[k], window[slot][channel],
+                    sums[channel], cols);
+              }
+            }
+          }
+          IntBuffer center = img.getRow(r);
+          for (int c = 0; c < cols; c++) {
+            out[c] = ARGB.pack(FixedPoint.toChannel(sums[0][c], 2 * FixedPoint.BITS),
+                FixedPoint.toChannel(sums[1][c], 2 * FixedPoint.BITS),
+                FixedPoint.toChannel(sums[2][c], 2 * FixedPoint.BITS),
+                ARGB.alpha(center.get(first + c)));
+          }
+          result.setRow(r, first, out, cols);
+        }
+      }
+    });
+  }
+
+  /**
+   * Apply this filter's kernel to the given planar image with fast Fourier transforms, reading and
+   * writing it one plane at a time. Unless the edge mode treats pixels outside the image as zero,
+   * the transforms are applied to the image extended by the kernel on every side, with the
+   * extension looked up by the edge mode.
+   *
+   * @param img the image to filter.
+   * @return the filtered image.
+   */
+  private ManipulableImage convolveFft(PlanarImage img) {
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int top = margin(kernel.length);
+    int left = margin(kernel[0].length);
+    int[] columns = extendedColumns(width);
+    ByteBuffer[] planes = {img.getPlane(PlanarImage.RED), img.getPlane(PlanarImage.GREEN),
+        img.getPlane(PlanarImage.BLUE)};
+    byte[][] result = new byte[3][width * height];
+    int rows = edgeMode == EdgeMode.ZERO ? height : height + kernel.length - 1;
+    new FftConvolution(kernel).convolve(columns.length, rows, (row, channels, offset) -> {
+      int source = edgeMode.map(row - top, height);
+      for (int channel = 0; channel < 3; channel++) {
+        for (int c = 0; c < columns.length; c++) {
+          channels[channel][offset + c] = planes[channel].get(source * width + columns[c]) & 0xFF;
+        }
+      }
+    }, (row, channels, offset) -> {
+      if (row < top || row >= top + height) {
+        return;
+      }
+      for (int channel = 0; channel < 3; channel++) {
+        for (int c = 0; c < width; c++) {
+          result[channel][(row - top) * width + c] =
+              (byte) clamp(channels[channel][offset + left + c]);
+        }
+      }
+    });
+    return img.withColorPlanes(result[0], result[1], result[2]);
+  }
+
+  /**
+   * Apply this filter's kernel to the given image with fast Fourier transforms, reading and
+   * writing it one row at a time, in the same way as {@link #convolveFft(PlanarImage)}.
+   *
+   * @param img    the image to filter.
+   * @param result the image to write the filtered image into.
+   */
+  private void convolveFft(ManipulableImage img, WritableImage result) {
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int top = margin(kernel.length);
+    int left = margin(kernel[0].length);
+    int[] columns = extendedColumns(width);
+    int[] out = new int[width];
+    int rows = edgeMode == EdgeMode.ZERO ? height : height + kernel.length - 1;
+    new FftConvolution(kernel).convolve(columns.length, rows, (row, channels, offset) -> {
+      IntBuffer values = img.getRow(edgeMode.map(row - top, height));
+      for (int c = 0; c < columns.length; c++) {
+        int argb = values.get(columns[c]);
+        channels[0][offset + c] = ARGB.red(argb);
+        channels[1][offset + c] = ARGB.green(argb);
+        channels[2][offset + c] = ARGB.blue(argb);
+      }
+    }, (row, channels, offset) -> {
+      if (row < top || row >= top + height) {
+        return;
+      }
+      IntBuffer values = img.getRow(row - top);
+      for (int c = 0; c < width; c++) {
+        out[c] = ARGB.pack(clamp(channels[0][offset + left + c]),
+            clamp(channels[1][offset + left + c]), clamp(channels[2][offset + left + c]),
+            ARGB.alpha(values.get(c)));
+      }
+      result.setRow(row - top, out);
+    });
+  }
+
+  /**
+   * Return the number of rows or columns added on each side of an image filtered with fast
+   * Fourier transforms: none if pixels outside the image count as zero, or half the kernel
+   * otherwise.
+   *
+   * @param kernelSize the size of the kernel along the rows or columns.
+   * @return the number of rows or columns to add before the image.
+   */
+  private int margin(int kernelSize) {
+    return edgeMode == EdgeMode.ZERO ? 0 : kernelSize / 2;
+  }
+
+  /**
+   * Return the image column each column of an image extended for fast Fourier transforms takes
+   * its values from (see {@link #margin(int)}).
+   *
+   * @param width the width of the image.
+   * @return the image column of each extended column.
+   */
+  private int[] extendedColumns(int width) {
+    int left = margin(kernel[0].length);
+    int[] columns = new int[edgeMode == EdgeMode.ZERO ? width : width + kernel[0].length - 1];
+    for (int c = 0; c < columns.length; c++) {
+      columns[c] = edgeMode.map(c - left, width);
+    }
+    return columns;
+  }
+
+  /**
+   * Apply this filter's separable kernel to the given image, in the same tiles as
+   * {@link #convolve(ManipulableImage, WritableImage)}. For each tile, the band keeps the
+   * horizontally filtered rows under the kernel in a ring of kernel-height rows, so every source
+   * row is filtered horizontally about once per tile. Both passes work on whole rows of the tile
+   * at once (see {@link RowConvolution}), and rows outside the image are handled in the same
+   * way.
+   *
+   * @param img    the image to filter.
+   * @param result the image to write the filtered image into.
+   */
+  private void convolveSeparable(ManipulableImage img, WritableImage result) {
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int half = vertical.length / 2;
+    int tile = tileWidth(img);
+    RowBands.forEach(height, width, (from, to) -> {
+      double[][][] window = new double[vertical.length][3][tile]; // filtered rows, by row % k
+      int[] sources = new int[vertical.length]; // the image row in each slot of the window
+      double[][] channels = new double[3][tile + horizontal.length - 1];
+      double[][] sums = new double[3][tile];
+      int[] out = new int[tile];
+      for (int first = 0; first < width; first += tile) {
+        int cols = Math.min(tile, width - first);
+        int[] columns = sourceColumns(first, cols, width);
+        int next = from - half; // the next row under the kernel, which may be outside the image
+        for (int r = from; r < to; r++) {
+          for (; next < r - half + vertical.length; next++) {
+            int slot = Math.floorMod(next, vertical.length);
+            sources[slot] = edgeMode.map(next, height);
+            if (sources[slot] >= 0) {
+              unpack(img.getRow(sources[slot]), columns, channels);
+              for (int channel = 0; channel < 3; channel++) {
+                Arrays.fill(window[slot][channel], 0);
+                RowConvolution.accumulate(horizontal, channels[channel], window[slot][channel],
+                    cols);
+              }
+            }
+          }
+          for (int channel = 0; channel < 3; channel++) {
+            filterVertically(window, sources, r, channel, sums[channel], cols);
+          }
+          IntBuffer center = img.getRow(r);
+          for (int c = 0; c < cols; c++) {
+            out[c] = ARGB.pack(clamp(sums[0][c]), clamp(sums[1][c]), clamp(sums[2][c]),
+                ARGB.alpha(center.get(first + c)));
+          }
+          result.setRow(r, first, out, cols);
+        }
+      }
+    });
+  }
+
+  /**
+   * Apply this filter's separable kernel to one plane of the given planar image, in the same way
+   * as {@link #convolveSeparable(ManipulableImage, WritableImage)}, so both give exactly the same
+   * result.
+   *
+   * @param img     the image to filter.
+   * @param channel the plane of the image to filter.
+   * @return the filtered plane.
+   */
+  private byte[] convolveSeparable(PlanarImage img, int channel) {
+    ByteBuffer plane = img.getPlane(channel);
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int half = vertical.length / 2;
+    int tile = tileWidth(width);
+    byte[] result = new byte[width * height];
+    RowBands.forEach(height, width, (from, to) -> {
+      double[][][] window = new double[vertical.length][1][tile]; // filtered rows, by row % k
+      int[] sources = new int[vertical.length]; // the image row in each slot of the window
+      double[] values = new double[tile + horizontal.length - 1];
+      double[] sums = new double[tile];
+      for (int first = 0; first < width; first += tile) {
+        int cols = Math.min(tile, width - first);
+        int[] columns = sourceColumns(first, cols, width);
+        int next = from - half; // the next row under the kernel, which may be outside the image
+        for (int r = from; r < to; r++) {
+          for (; next < r - half + vertical.length; next++) {
+            int slot = Math.floorMod(next, vertical.length);
+            sources[slot] = edgeMode.map(next, height);
+            if (sources[slot] >= 0) {
+              unpack(plane, sources[slot] * width, columns, values);
+              Arrays.fill(window[slot][0], 0);
+              RowConvolution.accumulate(horizontal, values, window[slot][0], cols);
+            }
+          }
+          filterVertically(window, sources, r, 0, sums, cols);
+          for (int c = 0; c < cols; c++) {
+            result[r * width + first + c] = (byte) clamp(sums[c]);
+          }
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Apply the column factor of this filter's kernel to one channel of the horizontally filtered
+   * rows around the given row.
+   *
+   * @param window  the horizontally filtered rows under the kernel, by row modulo the kernel
+   *                height.
+   * @param sources the image row in each slot of the window, or -1 if it counts as zero.
+   * @param r       the row to filter.
+   * @param channel the channel of the filtered rows to use.
+   * @param sums    the array to write the filtered values into.
+   * @param width   the number of values in the row.
+   */
+  private void filterVertically(double[][][] window, int[] sources, int r, int channel,
+      double[] sums, int width) {
+    Arrays.fill(sums, 0);
+    for (int k = 0; k < vertical.length; k++) {
+      int slot = Math.floorMod(r - vertical.length / 2 + k, vertical.length);
+      if (sources[slot] >= 0) {
+        RowConvolution.accumulate(vertical[k], window[slot][channel], sums, width);
+      }
+    }
+  }
+
+  /**
+   * Return the number of columns in each tile this filter's kernel is applied to. Each band of rows
+   * is filtered one tile at a time, so that the rows under the kernel (and the sums of the row
+   * being filtered) only span the width of a tile and stay in the cache while they are reused,
+   * however wide the image is. Tiles are sized so that this working set fits in
+   * {@link #TILE_BYTES}.
+   *
+   * @return the width of a tile, in pixels.
+   */
+  public int getTileWidth() {
+    long perColumn = (kernel.length + 2L) * 3 * Double.BYTES;
+    return (int) Math.max(kernel[0].length, TILE_BYTES / perColumn);
+  }
+
+  /**
+   * Return the width of the tiles to filter the rows of the given image in. Images whose rows are
+   * views onto their pixels are split into tiles of {@link #getTileWidth()} columns. Other images
+   * copy a whole row every time one is read, so they are filtered as a single tile, to read each
+   * row only once per band.
+   *
+   * @param img the image to filter.
+   * @return the width of a tile, in pixels.
+   */
+  private int tileWidth(ManipulableImage img) {
+    if (img instanceof PackedImage || img instanceof IntBufferImage) {
+      return tileWidth(img.getWidth());
+    }
+    return img.getWidth();
+  }
+
+  /**
+   * Return the width of the tiles to filter an image of the given width in.
+   *
+   * @param width the width of the image.
+   * @return the width of a tile, in pixels.
+   */
+  private int tileWidth(int width) {
+    return Math.max(1, Math.min(getTileWidth(), width));
+  }
+
+  /**
+   * Return the image column whose values each position of a padded tile row takes: the columns of
+   * the tile, with the columns the kernel reaches on either side looked up with the edge mode.
+   *
+   * @param first the first column of the tile.
+   * @param cols  the number of columns in the tile.
+   * @param width the width of the image.
+   * @return the image column of each position, or -1 if its values are zero.
+   */
+  private int[] sourceColumns(int first, int cols, int width) {
+    int[] columns = new int[cols + kernel[0].length - 1];
+    for (int q = 0; q < columns.length; q++) {
+      columns[q] = edgeMode.map(first - kernel[0].length / 2 + q, width);
+    }
+    return columns;
+  }
+
+  /**
+   * Copy the red, green and blue values of the given columns of a row into the given arrays.
+   *
+   * @param row      the packed values of the row.
+   * @param columns  the columns to copy, where -1 stands for a pixel whose values are zero.
+   * @param channels the red, green and blue arrays to copy into.
+   */
+  private static void unpack(IntBuffer row, int[] columns, double[][] channels) {
+    for (int q = 0; q < columns.length; q++) {
+      int argb = columns[q] < 0 ? 0 : row.get(columns[q]);
+      channels[0][q] = ARGB.red(argb);
+      channels[1][q] = ARGB.green(argb);
+      channels[2][q] = ARGB.blue(argb);
+    }
+  }
+
+  /**
+   * Copy the red, green and blue values of the given columns of a row into the given arrays.
+   *
+   * @param row      the packed values of the row.
+   * @param columns  the columns to copy, where -1 stands for a pixel whose values are zero.
+   * @param channels the red, green and blue arrays to copy into.
+   */
+  private static void unpack(IntBuffer row, int[] columns, int[][] channels) {
+    for (int q = 0; q < columns.length; q++) {
+      int argb = columns[q] < 0 ? 0 : row.get(columns[q]);
+      channels[0][q] = ARGB.red(argb);
+      channels[1][q] = ARGB.green(argb);
+      channels[2][q] = ARGB.blue(argb);
+    }
+  }
+
+  /**
+   * Copy the values of the given columns of one row of a plane into the given array.
+   *
+   * @param plane   the plane to copy from.
+   * @param start   the position of the row in the plane.
+   * @param columns the columns to copy, where -1 stands for a zero value.
+   * @param values  the array to copy into.
+   */
+  private static void unpack(ByteBuffer plane, int start, int[] columns, double[] values) {
+    for (int q = 0; q < columns.length; q++) {
+      values[q] = columns[q] < 0 ? 0 : plane.get(start + columns[q]) & 0xFF;
+    }
+  }
+
+  /**
+   * Round the given coefficients to fixed point.
+   *
+   * @param coefficients the coefficients to round.
+   * @return the coefficients in fixed point.
+   */
+  private static int[] quantize(double[] coefficients) {
+    int[] result = new int[coefficients.length];
+    for (int i = 0; i < coefficients.length; i++) {
+      result[i] = FixedPoint.quantize(coefficients[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Factor the given kernel into a column and a row whose outer product is the kernel, if it has
+   * one. The row is the row of the kernel holding its largest value, so kernels made of powers of
+   * two factor exactly.
+   *
+   * @param kernel the kernel to factor.
+   * @return the column and the row of the kernel, or null if it is not separable.
+   */
+  private static double[][] factor(double[][] kernel) {
+    if (kernel.length == 0 || kernel[0] == null || kernel[0].length == 0) {
+      return null;
+    }
+    int pivotRow = 0;
+    int pivotCol = 0;
+    for (int i = 0; i < kernel.length; i++) {
+      if (kernel[i] == null || kernel[i].length != kernel[0].length) {
+        return null;
+      }
+      for (int j = 0; j < kernel[i].length; j++) {
+        if (Math.abs(kernel[i][j]) > Math.abs(kernel[pivotRow][pivotCol])) {
+          pivotRow = i;
+          pivotCol = j;
+        }
+      }
+    }
+    double pivot = kernel[pivotRow][pivotCol];
+    if (pivot == 0) {
+      return null;
+    }
+    double[] column = new double[kernel.length];
+    double[] row = kernel[pivotRow].clone();
+    for (int i = 0; i < kernel.length; i++) {
+      column[i] = kernel[i][pivotCol] / pivot;
+      for (int j = 0; j < row.length; j++) {
+        if (Math.abs(column[i] * row[j] - kernel[i][j]) > TOLERANCE * Math.abs(pivot)) {
+          return null;
         }
-        channels[0] = clamp(red);
-        channels[1] = clamp(green);
-        channels[2] = clamp(blue);
-        result[r][c] = img.createPixel(channels);
       }
     }
-    return new PixelGridImage(result);
+    return new double[][]{column, row};
   }
 
   /**
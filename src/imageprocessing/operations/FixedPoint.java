@@ -0,0 +1,146 @@
+package imageprocessing.operations;
+
+/**
+ * Helpers for the 16.16 fixed-point arithmetic of {@link Precision#FIXED_POINT}. Color transforms
+ * whose coefficients are written with at most four decimal places are instead scaled by
+ * {@link #DECIMAL_SCALE}, so that those coefficients are represented exactly.
+ */
+final class FixedPoint {
+
+  /**
+   * The number of fractional bits of a fixed-point coefficient.
+   */
+  static final int BITS = 16;
+
+  /**
+   * The scale of fixed-point coefficients with at most four decimal places.
+   */
+  static final int DECIMAL_SCALE = 10000;
+
+  private FixedPoint() {
+  }
+
+  /**
+   * Round the given coefficient to the nearest fixed-point value.
+   *
+   * @param coefficient the coefficient to round.
+   * @return the coefficient in fixed point.
+   */
+  static int quantize(double coefficient) {
+    return quantize(coefficient, 1 << BITS);
+  }
+
+  /**
+   * Round the given coefficient to the nearest multiple of one over the given scale.
+   *
+   * @param coefficient the coefficient to round.
+   * @param scale       the number of fixed-point units in 1.
+   * @return the coefficient in units of one over the scale.
+   */
+  static int quantize(double coefficient, int scale) {
+    return (int) Math.round(coefficient * scale);
+  }
+
+  /**
+   * Return the scale at which all the given coefficients are whole numbers: 2^{@link #BITS} if
+   * they are all multiples of 1/65536, or else {@link #DECIMAL_SCALE} if they all have at most
+   * four decimal places (such as the matrices of {@link Grayscale} and {@link Sepia}). Coefficients
+   * which are whole at neither scale are rounded to multiples of 1/65536.
+   *
+   * @param coefficients the coefficients to scale.
+   * @return the scale to use for the coefficients.
+   */
+  static int scaleFor(double[]... coefficients) {
+    if (isWhole(coefficients, 1 << BITS) || !isWhole(coefficients, DECIMAL_SCALE)) {
+      return 1 << BITS;
+    }
+    return DECIMAL_SCALE;
+  }
+
+  /**
+   * Return whether all the given coefficients are whole numbers at the given scale, allowing for
+   * the error of writing decimal coefficients as doubles.
+   *
+   * @param coefficients the coefficients to check.
+   * @param scale        the number of fixed-point units in 1.
+   * @return true if every coefficient is a multiple of one over the scale.
+   */
+  private static boolean isWhole(double[][] coefficients, int scale) {
+    for (double[] row : coefficients) {
+      for (double coefficient : row) {
+        double scaled = coefficient * scale;
+        if (!(Math.abs(scaled - Math.rint(scaled)) < 1e-6)) { // also catches NaN
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check that summing the products of the given coefficients with channel values, in fixed point,
+   * cannot overflow an int, leaving room for the error of rounding each coefficient and for
+   * rounding the sum.
+   *
+   * @param coefficients the coefficients which are summed together.
+   * @param what         what the coefficients belong to, for the exception message.
+   * @throws IllegalArgumentException if the sum could overflow.
+   */
+  static void checkRange(double[] coefficients, String what) throws IllegalArgumentException {
+    double total = 0;
+    for (double coefficient : coefficients) {
+      total += Math.abs(coefficient) * 255 * (1 << BITS);
+    }
+    if (!(total < Integer.MAX_VALUE / 2)) { // also catches NaN
+      throw new IllegalArgumentException(what + " is too large for fixed-point arithmetic");
+    }
+  }
+
+  /**
+   * Round the given fixed-point value with {@link #BITS} fractional bits to the nearest integer,
+   * with halves rounded to the even integer like {@link Math#rint(double)}, and clamp it between
+   * 0 and 255. This has no branches, so loops calling it can be vectorized.
+   *
+   * @param value the value to round.
+   * @return the rounded and clamped channel value.
+   */
+  static int toChannel(int value) {
+    // adding just under a half, plus one if the whole part is odd, carries exactly when rint would
+    int whole = (value + (1 << (BITS - 1)) - 1 + ((value >> BITS) & 1)) >> BITS;
+    return Math.max(0, Math.min(whole, 255));
+  }
+
+  /**
+   * Round the given value in units of one over the given scale to the nearest integer, with
+   * halves rounded to the even integer like {@link Math#rint(double)}, and clamp it between 0 and
+   * 255. This is {@link #toChannel(int)} for values scaled by 2^{@link #BITS}, and exact integer
+   * division otherwise.
+   *
+   * @param value the value to round.
+   * @param scale the number of fixed-point units in 1, which must be even.
+   * @return the rounded and clamped channel value.
+   */
+  static int toChannel(int value, int scale) {
+    if (scale == 1 << BITS) {
+      return toChannel(value);
+    }
+    int half = scale >> 1;
+    int whole = Math.floorDiv(value + half, scale); // rounds halves up
+    // a half rounded up to an odd integer goes to the even integer below it instead
+    whole -= (Math.floorMod(value + half, scale) == 0 ? 1 : 0) & whole;
+    return Math.max(0, Math.min(whole, 255));
+  }
+
+  /**
+   * Round the given fixed-point value to the nearest integer, with halves rounded to the even
+   * integer like {@link Math#rint(double)}, and clamp it between 0 and 255.
+   *
+   * @param value the value to round.
+   * @param bits  the number of fractional bits of the value.
+   * @return the rounded and clamped channel value.
+   */
+  static int toChannel(long value, int bits) {
+    long whole = (value + (1L << (bits - 1)) - 1 + ((value >> bits) & 1)) >> bits;
+    return (int) Math.max(0, Math.min(whole, 255));
+  }
+}
@@ -1,21 +1,16 @@
 package imageprocessing.operations;
 
-import imageprocessing.model.ManipulableImage;
-import imageprocessing.model.Pixel;
-import imageprocessing.model.PixelGridImage;
+import imageprocessing.model.Orientation;
 
 /**
  * Represents an {@code Operation} that vertically flips an image.
  */
-public class FlipVertical implements Operation {
+public class FlipVertical extends Reorientation {
 
-  @Override
-  public ManipulableImage modify(ManipulableImage img) {
-    Pixel[][] origPixels = img.getPixels();
-    Pixel[][] newPixels = new Pixel[img.getHeight()][img.getWidth()];
-    for (int r = 0; r < img.getHeight(); r++) {
-      newPixels[r] = origPixels[img.getHeight() - 1 - r];
-    }
-    return new PixelGridImage(newPixels);
+  /**
+   * Creates a FlipVertical operation.
+   */
+  public FlipVertical() {
+    super(Orientation.FLIP_VERTICAL);
   }
 }
@@ -1,20 +1,48 @@
 package imageprocessing.operations;
 
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ImageStatistics;
 import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PlanarImage;
 
 /**
  * Constructs a grayscale version of an image from the blue components of its pixels.
  */
-public class GrayscaleB implements Operation {
+public class GrayscaleB extends ColorTransform implements TableOperation {
+
+  /**
+   * Construct an operation copying the blue component into every channel. It is also a color
+   * transform, so it can be fused with the color transforms around it.
+   */
+  public GrayscaleB() {
+    super(new double[][]{
+        new double[]{0, 0, 1},
+        new double[]{0, 0, 1},
+        new double[]{0, 0, 1},
+    });
+  }
+
+  @Override
+  public LookupTable toLookupTable() {
+    return LookupTable.select(PlanarImage.BLUE, PlanarImage.BLUE, PlanarImage.BLUE);
+  }
 
   @Override
   public ManipulableImage modify(ManipulableImage img) {
-    return img.applyToAll(
-        p -> {
-          int[] channels = p.getChannels();
-          channels[0] = channels[2];
-          channels[1] = channels[2];
-          return img.createPixel(channels);
-        });
+    ManipulableImage result;
+    if (img instanceof PlanarImage) { // share the blue plane instead of copying it
+      int plane = PlanarImage.BLUE;
+      result = ((PlanarImage) img).selectPlanes(plane, plane, plane);
+    } else {
+      result = img.mapARGB(p -> {
+        int gray = ARGB.blue(p);
+        return ARGB.pack(gray, gray, gray, ARGB.alpha(p));
+      });
+    }
+    ImageStatistics known = img.getKnownStatistics();
+    if (known != null) { // every channel of the result has the values of the blue channel
+      result.seedStatistics(known.selectChannel(PlanarImage.BLUE));
+    }
+    return result;
   }
 }
@@ -1,5 +1,6 @@
 package imageprocessing.operations;
 
+import imageprocessing.model.ARGB;
 import imageprocessing.model.ManipulableImage;
 
 /**
@@ -9,12 +10,9 @@ public class GrayscaleIntensity implements Operation {
 
   @Override
   public ManipulableImage modify(ManipulableImage img) {
-    return img.applyToAll(p -> {
-      int[] channels = p.getChannels();
-      channels[0] = p.getIntensity();
-      channels[1] = p.getIntensity();
-      channels[2] = p.getIntensity();
-      return img.createPixel(channels);
+    return img.mapARGB(p -> {
+      int gray = ARGB.intensity(p);
+      return ARGB.pack(gray, gray, gray, ARGB.alpha(p));
     });
   }
 }
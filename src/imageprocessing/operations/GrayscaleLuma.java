@@ -1,5 +1,6 @@
 package imageprocessing.operations;
 
+import imageprocessing.model.ARGB;
 import imageprocessing.model.ManipulableImage;
 
 /**
@@ -9,12 +10,9 @@ public class GrayscaleLuma implements Operation {
 
   @Override
   public ManipulableImage modify(ManipulableImage img) {
-    return img.applyToAll(p -> {
-      int[] channels = p.getChannels();
-      channels[0] = p.getLuma();
-      channels[1] = p.getLuma();
-      channels[2] = p.getLuma();
-      return img.createPixel(channels);
+    return img.mapARGB(p -> {
+      int gray = ARGB.luma(p);
+      return ARGB.pack(gray, gray, gray, ARGB.alpha(p));
     });
   }
 }
@@ -1,20 +1,48 @@
 package imageprocessing.operations;
 
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ImageStatistics;
 import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PlanarImage;
 
 /**
  * Constructs a grayscale version of an image from the red components of its pixels.
  */
-public class GrayscaleR implements Operation {
+public class GrayscaleR extends ColorTransform implements TableOperation {
+
+  /**
+   * Construct an operation copying the red component into every channel. It is also a color
+   * transform, so it can be fused with the color transforms around it.
+   */
+  public GrayscaleR() {
+    super(new double[][]{
+        new double[]{1, 0, 0},
+        new double[]{1, 0, 0},
+        new double[]{1, 0, 0},
+    });
+  }
+
+  @Override
+  public LookupTable toLookupTable() {
+    return LookupTable.select(PlanarImage.RED, PlanarImage.RED, PlanarImage.RED);
+  }
 
   @Override
   public ManipulableImage modify(ManipulableImage img) {
-    return img.applyToAll(
-        p -> {
-          int[] channels = p.getChannels();
-          channels[1] = channels[0];
-          channels[2] = channels[0];
-          return img.createPixel(channels);
-        });
+    ManipulableImage result;
+    if (img instanceof PlanarImage) { // share the red plane instead of copying it
+      int plane = PlanarImage.RED;
+      result = ((PlanarImage) img).selectPlanes(plane, plane, plane);
+    } else {
+      result = img.mapARGB(p -> {
+        int gray = ARGB.red(p);
+        return ARGB.pack(gray, gray, gray, ARGB.alpha(p));
+      });
+    }
+    ImageStatistics known = img.getKnownStatistics();
+    if (known != null) { // every channel of the result has the values of the red channel
+      result.seedStatistics(known.selectChannel(PlanarImage.RED));
+    }
+    return result;
   }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package imageprocessing.operations;
 
+import imageprocessing.model.ARGB;
 import imageprocessing.model.ManipulableImage;
 
 /**
@@ -9,12 +10,9 @@ public class GrayscaleValue implements Operation {
 
   @Override
   public ManipulableImage modify(ManipulableImage img) {
-    return img.applyToAll(p -> {
-      int[] channels = p.getChannels();
-      channels[0] = p.getValue();
-      channels[1] = p.getValue();
-      channels[2] = p.getValue();
-      return img.createPixel(channels);
+    return img.mapARGB(p -> {
+      int gray = ARGB.value(p);
+      return ARGB.pack(gray, gray, gray, ARGB.alpha(p));
     });
   }
 }
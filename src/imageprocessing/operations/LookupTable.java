@@ -0,0 +1,229 @@
+package imageprocessing.operations;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.model.RowBands;
+import java.nio.ByteBuffer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents a point operation compiled into lookup tables. Each channel of the result is looked
+ * up in a 256-entry table, indexed by one channel of the original pixel (usually the same
+ * channel), so applying it to an image costs one table lookup per channel instead of any
+ * arithmetic. Alpha values are left as they are.
+ *
+ * <p>Lookup tables can be built from any function of a single 8-bit value (such as levels or gamma
+ * curves), and chains of them can be compiled into one with {@link #then(LookupTable)}, without
+ * any loss of precision.
+ */
+public class LookupTable implements TableOperation {
+
+  private static final int[] IDENTITY = table(v -> v);
+
+  private final int[][] tables; // the red, green and blue tables
+  private final int[] sources; // the channel of the original pixel each table is indexed by
+  private final int[] shifts; // where each of those channels sits in a packed value
+
+  /**
+   * Construct a lookup table from the given tables and the channels they are indexed by.
+   *
+   * @param tables  the red, green and blue tables.
+   * @param sources the channel each table is indexed by.
+   */
+  private LookupTable(int[][] tables, int[] sources) {
+    this.tables = tables;
+    this.sources = sources;
+    this.shifts = new int[3];
+    for (int c = 0; c < 3; c++) {
+      shifts[c] = 16 - 8 * sources[c];
+    }
+  }
+
+  /**
+   * Construct a lookup table which maps each channel through its own table.
+   *
+   * @param red   the 256 new values of the red channel, indexed by the old value.
+   * @param green the 256 new values of the green channel, indexed by the old value.
+   * @param blue  the 256 new values of the blue channel, indexed by the old value.
+   * @throws IllegalArgumentException if any table is null, does not have 256 entries, or has a
+   *                                  value outside 0 to 255.
+   */
+  public LookupTable(int[] red, int[] green, int[] blue) throws IllegalArgumentException {
+    this(new int[][]{check(red), check(green), check(blue)},
+        new int[]{PlanarImage.RED, PlanarImage.GREEN, PlanarImage.BLUE});
+  }
+
+  /**
+   * Construct a lookup table which maps every channel through the given function, which is
+   * evaluated once for each of the 256 channel values. Results are clamped between 0 and 255.
+   *
+   * @param function the function to apply to each channel value.
+   * @throws IllegalArgumentException if the function is null.
+   */
+  public LookupTable(IntUnaryOperator function) throws IllegalArgumentException {
+    this(sameTable(function), sameTable(function), sameTable(function));
+  }
+
+  /**
+   * Return a lookup table which copies the given channels of each pixel into its red, green and
+   * blue channels, without changing their values.
+   *
+   * @param red   the channel to copy into the red channel ({@link PlanarImage#RED},
+   *              {@link PlanarImage#GREEN} or {@link PlanarImage#BLUE}).
+   * @param green the channel to copy into the green channel.
+   * @param blue  the channel to copy into the blue channel.
+   * @return the lookup table selecting the given channels.
+   * @throws IllegalArgumentException if any of the channels are not a color channel.
+   */
+  public static LookupTable select(int red, int green, int blue) throws IllegalArgumentException {
+    for (int channel : new int[]{red, green, blue}) {
+      if (channel < PlanarImage.RED || channel > PlanarImage.BLUE) {
+        throw new IllegalArgumentException("Invalid color channel " + channel);
+      }
+    }
+    return new LookupTable(new int[][]{IDENTITY, IDENTITY, IDENTITY},
+        new int[]{red, green, blue});
+  }
+
+  /**
+   * Return a single lookup table which applies this table and then the given one.
+   *
+   * @param next the table to apply after this one.
+   * @return the compiled table.
+   * @throws IllegalArgumentException if the given table is null.
+   */
+  public LookupTable then(LookupTable next) throws IllegalArgumentException {
+    if (next == null) {
+      throw new IllegalArgumentException("Lookup table can't be null");
+    }
+    int[][] compiled = new int[3][256];
+    int[] compiledSources = new int[3];
+    for (int c = 0; c < 3; c++) {
+      int middle = next.sources[c]; // the channel of this table's result that next looks up
+      compiledSources[c] = sources[middle];
+      for (int v = 0; v < 256; v++) {
+        compiled[c][v] = next.tables[c][tables[middle][v]];
+      }
+    }
+    return new LookupTable(compiled, compiledSources);
+  }
+
+  /**
+   * Compile the given operations into a single lookup table, which applies them in order.
+   *
+   * @param operations the operations to compile, in the order they are applied.
+   * @return the compiled table.
+   * @throws IllegalArgumentException if there are no operations, or any of them are null.
+   */
+  public static LookupTable compile(TableOperation... operations)
+      throws IllegalArgumentException {
+    if (operations == null || operations.length == 0) {
+      throw new IllegalArgumentException("There must be at least one operation to compile");
+    }
+    LookupTable result = null;
+    for (TableOperation operation : operations) {
+      if (operation == null) {
+        throw new IllegalArgumentException("Operation can't be null");
+      }
+      LookupTable table = operation.toLookupTable();
+      result = result == null ? table : result.then(table);
+    }
+    return result;
+  }
+
+  @Override
+  public LookupTable toLookupTable() {
+    return this;
+  }
+
+  @Override
+  public ManipulableImage modify(ManipulableImage img) {
+    if (img instanceof PlanarImage) {
+      PlanarImage planar = (PlanarImage) img;
+      return planar.withColorPlanes(lookUp(planar, PlanarImage.RED),
+          lookUp(planar, PlanarImage.GREEN), lookUp(planar, PlanarImage.BLUE));
+    }
+    return img.mapARGB(this::apply);
+  }
+
+  /**
+   * Apply this lookup table to a single pixel.
+   *
+   * @param argb the packed value of the pixel.
+   * @return the packed value of the resulting pixel, with the same alpha value.
+   */
+  public int apply(int argb) {
+    return ARGB.pack(tables[0][(argb >>> shifts[0]) & 0xFF],
+        tables[1][(argb >>> shifts[1]) & 0xFF], tables[2][(argb >>> shifts[2]) & 0xFF],
+        ARGB.alpha(argb));
+  }
+
+  /**
+   * Compute one plane of the result of applying this table to the given planar image.
+   *
+   * @param img     the image to apply this table to.
+   * @param channel the channel of the result to compute.
+   * @return the plane of the result.
+   */
+  private byte[] lookUp(PlanarImage img, int channel) {
+    ByteBuffer source = img.getPlane(sources[channel]);
+    int[] table = tables[channel];
+    byte[] result = new byte[source.remaining()];
+    int width = img.getWidth();
+    RowBands.forEach(img.getHeight(), width, (from, to) -> {
+      for (int i = from * width; i < to * width; i++) {
+        result[i] = (byte) table[source.get(i) & 0xFF];
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Build a table by applying the given function to each channel value, clamping the results.
+   *
+   * @param function the function to tabulate.
+   * @return the table.
+   */
+  private static int[] table(IntUnaryOperator function) {
+    int[] result = new int[256];
+    for (int v = 0; v < 256; v++) {
+      result[v] = Math.max(0, Math.min(function.applyAsInt(v), 255));
+    }
+    return result;
+  }
+
+  /**
+   * Build a table from the given function for the function constructor, checking it is not null.
+   *
+   * @param function the function to tabulate.
+   * @return the table.
+   * @throws IllegalArgumentException if the function is null.
+   */
+  private static int[] sameTable(IntUnaryOperator function) throws IllegalArgumentException {
+    if (function == null) {
+      throw new IllegalArgumentException("Function can't be null");
+    }
+    return table(function);
+  }
+
+  /**
+   * Copy the given table, making sure it is valid.
+   *
+   * @param table the table to check.
+   * @return a copy of the table.
+   * @throws IllegalArgumentException if the table is null, does not have 256 entries, or has a
+   *                                  value outside 0 to 255.
+   */
+  private static int[] check(int[] table) throws IllegalArgumentException {
+    if (table == null || table.length != 256) {
+      throw new IllegalArgumentException("Lookup tables must have 256 entries");
+    }
+    for (int value : table) {
+      if (value < 0 || value > 255) {
+        throw new IllegalArgumentException("Lookup table values must be between 0 and 255");
+      }
+    }
+    return table.clone();
+  }
+}
@@ -1,6 +1,8 @@
 package imageprocessing.operations;
 
 import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PatchedImage;
+import imageprocessing.model.WritableImage;
 
 /**
  * Represents an operation that can be applied to an image to change its appearance in some way.
@@ -15,4 +17,54 @@ public interface Operation {
    * @return a modified version of the given image.
    */
   ManipulableImage modify(ManipulableImage img);
+
+  /**
+   * Write the result of applying this operation to the given image into the given destination,
+   * instead of creating a new image for it, so that the storage of images which are no longer
+   * needed can be reused. Every pixel of the destination is overwritten; if it has no alpha
+   * channel, the result is made opaque. NOTE: This method does NOT mutate the given image.
+   *
+   * <p>By default this computes {@link #modify(ManipulableImage)} and copies it into the
+   * destination (per-pixel operations on a {@link imageprocessing.model.LazyImage} are applied
+   * straight into it). Operations which create their result row by row write it into the
+   * destination directly.
+   *
+   * @param img  the image to create the modified image from.
+   * @param dest the image to write the modified image into, which must be the same size as the
+   *             modified image (the size of the given image, unless it is rotated) and must not
+   *             be the given image.
+   * @throws IllegalArgumentException if the destination is null, the given image, or a different
+   *                                  size.
+   */
+  default void modify(ManipulableImage img, WritableImage dest) throws IllegalArgumentException {
+    Destination.check(img, dest);
+    modify(img).copyTo(dest);
+  }
+
+  /**
+   * Return a version of the given image with this operation applied to the given rectangular
+   * region only. The region is cropped out of the image (see
+   * {@link ManipulableImage#crop(int, int, int, int)}), modified, and put back in its place as a
+   * patch over the image (see {@link PatchedImage}), so only the pixels of the region are
+   * processed, and the pixels outside it are shared with the given image rather than copied. The
+   * result has an alpha channel if the given image does. NOTE: This method does NOT mutate the
+   * given image.
+   *
+   * @param img    the image to create the modified image from.
+   * @param row    the top row of the region.
+   * @param col    the leftmost column of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @return the given image with the region modified.
+   * @throws IllegalArgumentException if the region is empty or not entirely inside the image, or
+   *                                  this operation changes the size of the region.
+   */
+  default ManipulableImage modifyRegion(ManipulableImage img, int row, int col, int width,
+      int height) throws IllegalArgumentException {
+    ManipulableImage region = modify(img.crop(row, col, width, height));
+    if (region.getWidth() != width || region.getHeight() != height) {
+      throw new IllegalArgumentException("Operation must keep the size of the region");
+    }
+    return PatchedImage.of(img, region, row, col);
+  }
 }
@@ -0,0 +1,25 @@
+package imageprocessing.operations;
+
+/**
+ * The arithmetic used to apply the coefficients of a {@link Filter} or {@link ColorTransform}.
+ */
+public enum Precision {
+  /**
+   * Coefficients are applied in double precision, and each channel value is rounded at the end.
+   */
+  DOUBLE,
+  /**
+   * Coefficients (or, where they are tabulated, their products with each channel value) are
+   * rounded once to fixed-point integers with 16 fractional bits, and each channel value is summed
+   * in integer arithmetic, then rounded in the same way as {@link Math#rint(double)}. Results do
+   * not depend on floating-point behavior at all, and are identical to {@link #DOUBLE} for
+   * coefficients which are multiples of 1/65536 (such as those of {@link Blur} and
+   * {@link Sharpen}). Color transform coefficients with at most four decimal places (such as those
+   * of {@link Grayscale} and {@link Sepia}) are instead kept in units of 1/10000, so they are
+   * exact, and each channel value is the exact value rounded half to even. {@link #DOUBLE} may
+   * differ from that by 1 where the exact value is exactly halfway between two integers, since
+   * floating-point error decides which way it rounds. Otherwise, each channel value may differ
+   * from {@link #DOUBLE} by 1.
+   */
+  FIXED_POINT
+}
@@ -0,0 +1,68 @@
+package imageprocessing.operations;
+
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.Orientation;
+import imageprocessing.model.OrientedImage;
+import imageprocessing.model.WritableImage;
+
+/**
+ * Represents an {@code Operation} that flips or rotates an image. Since these only move pixels
+ * around, the result is a view which reads the pixels of the given image in a different
+ * {@link Orientation} (see {@link OrientedImage}), so no pixels are copied and applying one takes
+ * constant time. Reorienting an image which was reoriented already combines the two orientations.
+ */
+public abstract class Reorientation implements Operation {
+
+  private final Orientation orientation; // how this operation lays out the pixels of an image
+
+  /**
+   * Construct an operation which lays out the pixels of an image in the given orientation.
+   *
+   * @param orientation the orientation of the result.
+   */
+  protected Reorientation(Orientation orientation) {
+    this.orientation = orientation;
+  }
+
+  /**
+   * Return how this operation lays out the pixels of an image.
+   *
+   * @return the orientation of the result.
+   */
+  public Orientation getOrientation() {
+    return orientation;
+  }
+
+  /**
+   * Return a view of the given image in the orientation of this operation, without copying any
+   * pixels.
+   *
+   * @param img the image to reorient.
+   * @return the reoriented image.
+   * @throws IllegalArgumentException if the image is null.
+   */
+  @Override
+  public ManipulableImage modify(ManipulableImage img) throws IllegalArgumentException {
+    return OrientedImage.of(img, orientation);
+  }
+
+  /**
+   * Copy the pixels of the given image into the given destination, in the orientation of this
+   * operation. The destination must have the size of the result, which is the size of the given
+   * image with its width and height swapped if this operation transposes it.
+   *
+   * @param img  the image to reorient.
+   * @param dest the image to write the reoriented image into.
+   * @throws IllegalArgumentException if the destination is null, the given image, or a different
+   *                                  size than the result.
+   */
+  @Override
+  public void modify(ManipulableImage img, WritableImage dest) throws IllegalArgumentException {
+    if (orientation.isTransposed()) {
+      Destination.check(img, dest, img.getHeight(), img.getWidth());
+    } else {
+      Destination.check(img, dest);
+    }
+    modify(img).copyTo(dest);
+  }
+}
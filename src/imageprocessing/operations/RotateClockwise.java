@@ -0,0 +1,16 @@
+package imageprocessing.operations;
+
+import imageprocessing.model.Orientation;
+
+/**
+ * Represents an {@code Operation} that rotates an image by 90 degrees clockwise.
+ */
+public class RotateClockwise extends Reorientation {
+
+  /**
+   * Creates a RotateClockwise operation.
+   */
+  public RotateClockwise() {
+    super(Orientation.ROTATE_CLOCKWISE);
+  }
+}
@@ -0,0 +1,16 @@
+package imageprocessing.operations;
+
+import imageprocessing.model.Orientation;
+
+/**
+ * Represents an {@code Operation} that rotates an image by 90 degrees counterclockwise.
+ */
+public class RotateCounterclockwise extends Reorientation {
+
+  /**
+   * Creates a RotateCounterclockwise operation.
+   */
+  public RotateCounterclockwise() {
+    super(Orientation.ROTATE_COUNTERCLOCKWISE);
+  }
+}
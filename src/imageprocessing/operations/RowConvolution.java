@@ -0,0 +1,87 @@
+package imageprocessing.operations;
+
+/**
+ * Applies the rows of a kernel to whole rows of channel values at once. Instead of summing the
+ * neighborhood of one output pixel at a time, each weight of the kernel row is multiplied into the
+ * running sums of every output pixel it reaches, in one loop over contiguous arrays.
+ *
+ * <p>Source rows are padded beforehand with the values the kernel reaches past their ends (looked
+ * up with an {@link EdgeMode}), so these loops run over the whole row without any bounds checks or
+ * branches, and the JIT compiler can turn them into SIMD instructions. Only the few padding values
+ * depend on how the edges are handled.
+ *
+ * <p>Each output pixel still receives its products in the same order as summing its neighborhood
+ * one weight at a time (left to right), so the results are exactly the same.
+ */
+final class RowConvolution {
+
+  private RowConvolution() {
+  }
+
+  /**
+   * Add the given row of weights, centered on each position, times the given values into the
+   * running sums of every position.
+   *
+   * @param weights the row of the kernel.
+   * @param values  the values of the source row, padded with weights.length / 2 values before it
+   *                and the rest of the kernel after it.
+   * @param sums    the running sums of the output row.
+   * @param width   the number of positions in the row.
+   */
+  static void accumulate(double[] weights, double[] values, double[] sums, int width) {
+    for (int j = 0; j < weights.length; j++) {
+      double weight = weights[j];
+      for (int c = 0; c < width; c++) {
+        sums[c] += weight * values[c + j];
+      }
+    }
+  }
+
+  /**
+   * Add the given weight times the given values into the running sums of the same positions.
+   *
+   * @param weight the weight to apply.
+   * @param values the values of the source row.
+   * @param sums   the running sums of the output row.
+   * @param width  the number of positions in the row.
+   */
+  static void accumulate(double weight, double[] values, double[] sums, int width) {
+    for (int c = 0; c < width; c++) {
+      sums[c] += weight * values[c];
+    }
+  }
+
+  /**
+   * Add the given row of fixed-point weights, centered on each position, times the given values
+   * into the running sums of every position.
+   *
+   * @param weights the row of the kernel, in fixed point.
+   * @param values  the values of the source row, padded in the same way as for
+   *                {@link #accumulate(double[], double[], double[], int)}.
+   * @param sums    the running sums of the output row.
+   * @param width   the number of positions in the row.
+   */
+  static void accumulate(int[] weights, int[] values, int[] sums, int width) {
+    for (int j = 0; j < weights.length; j++) {
+      int weight = weights[j];
+      for (int c = 0; c < width; c++) {
+        sums[c] += weight * values[c + j];
+      }
+    }
+  }
+
+  /**
+   * Add the given fixed-point weight times the given values into the running sums of the same
+   * positions, keeping the sums in longs.
+   *
+   * @param weight the weight to apply, in fixed point.
+   * @param values the values of the source row.
+   * @param sums   the running sums of the output row.
+   * @param width  the number of positions in the row.
+   */
+  static void accumulate(long weight, int[] values, long[] sums, int width) {
+    for (int c = 0; c < width; c++) {
+      sums[c] += weight * values[c];
+    }
+  }
+}
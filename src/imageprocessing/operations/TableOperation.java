@@ -0,0 +1,16 @@
+package imageprocessing.operations;
+
+/**
+ * Represents an operation which can describe itself as a {@link LookupTable}, because each channel
+ * of its result only depends on a single channel of the original pixel. Chains of such operations
+ * can be compiled into a single table (see {@link LookupTable#compile(TableOperation...)}).
+ */
+public interface TableOperation extends Operation {
+
+  /**
+   * Return the lookup table which has the same effect as this operation.
+   *
+   * @return the equivalent lookup table.
+   */
+  LookupTable toLookupTable();
+}
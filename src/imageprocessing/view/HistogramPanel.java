@@ -3,84 +3,84 @@ package imageprocessing.view;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Color;
-import java.util.Map;
 
 import javax.swing.JPanel;
 
-import imageprocessing.model.ManipulableImage;
-import imageprocessing.model.Pixel;
+import imageprocessing.model.ChannelHistograms;
+import imageprocessing.model.Histogram;
 
 /**
  * Represents a custom JPanel class that displays data about a ManipulableImage dynamically
- * through a histogram.
+ * through a histogram. The histograms of an image are computed once, in a single pass, and shared
+ * by every panel showing them, so repainting a panel never scans the image again.
  */
 public class HistogramPanel extends JPanel {
-  private ManipulableImage img;
+  private ChannelHistograms histograms;
   private final String type;
 
   /**
-   * Creates a Histogram panel for a specific image, displaying information about a specific
-   * attribute of the image.
+   * Creates a Histogram panel for the histograms of a specific image, displaying information
+   * about a specific attribute of the image.
    *
-   * @param img the current image.
+   * @param histograms the histograms of the current image, or null if there is none.
    * @param type the attribute this histogram will display.
    */
-  public HistogramPanel(ManipulableImage img, String type) {
+  public HistogramPanel(ChannelHistograms histograms, String type) {
     super();
-    this.img = img;
+    this.histograms = histograms;
     this.type = type;
     this.setPreferredSize(new Dimension(266, 200));
   }
 
   /**
-   * Sets the current image this histogram is displaying information about to the given image.
+   * Sets the histograms this panel is displaying to those of a new image.
    *
-   * @param img the image to be set.
+   * @param histograms the histograms of the current image.
    */
-  public void setImage(ManipulableImage img) {
-    this.img = img;
+  public void setHistograms(ChannelHistograms histograms) {
+    this.histograms = histograms;
   }
 
   @Override
   protected void paintComponent(Graphics g) {
     super.paintComponent(g);
-    if (this.img != null) {
+    if (this.histograms != null) {
       if (this.type.equalsIgnoreCase("red")) {
         g.setColor(new Color(237, 15, 15));
-        drawHistogram(img.histogram(pixel -> pixel.getChannels()[0]), g);
+        drawHistogram(histograms.getRed(), g);
       }
       else if (this.type.equalsIgnoreCase("green")) {
         g.setColor(new Color(17, 234, 49));
-        drawHistogram(img.histogram(pixel -> pixel.getChannels()[1]), g);
+        drawHistogram(histograms.getGreen(), g);
       }
       else if (this.type.equalsIgnoreCase("blue")) {
         g.setColor(new Color(12, 54, 220));
-        drawHistogram(img.histogram(pixel -> pixel.getChannels()[2]), g);
+        drawHistogram(histograms.getBlue(), g);
       }
       else if (this.type.equalsIgnoreCase("intensity")) {
         g.setColor(new Color(117, 85, 20));
-        drawHistogram(img.histogram(Pixel::getIntensity), g);
+        drawHistogram(histograms.getIntensity(), g);
+      }
+      if (!histograms.isExact()) { // the exact counts are still being computed
+        g.setColor(Color.GRAY);
+        g.drawString("estimate", getWidth() - 64, 16);
       }
     }
   }
 
   /**
-   * Draws the histogram representation from a given map of data.
+   * Draws the histogram representation from a given histogram.
    *
    * @param histogram the given data.
    * @param g the Graphics object for drawing.
    */
-  private void drawHistogram(Map<Integer, Integer> histogram, Graphics g) {
-    double maxFreq = 0;
+  private void drawHistogram(Histogram histogram, Graphics g) {
     // find the maximum frequency for a single value for this image
-    for (int i = 0; i < 256; i += 1) {
-      double freq = histogram.getOrDefault(i, 0);
-      maxFreq = Math.max(freq, maxFreq);
-    }
+    double maxFreq = histogram.getMaxCount();
     // draw the histogram
     for (int i = 10; i < 266; i += 1) {
       // get the frequency for each value from 0 to 255
-      double freq = histogram.getOrDefault(i - 10, 0);
+      double freq = histogram.getCount(i - 10);
       // start drawing at i - 5 to give some buffer area for the histogram
       // to make ends of histogram visible
       g.drawLine(i - 5, getHeight() - (int) (getHeight() * (freq / (maxFreq * 1.2))),
@@ -5,8 +5,11 @@ import java.awt.Font;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 import javax.swing.JFrame;
 import javax.swing.JMenu;
@@ -20,11 +23,14 @@ import javax.swing.ImageIcon;
 import javax.swing.BoxLayout;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
 import javax.swing.border.Border;
 
 import imageprocessing.controller.ImageProcessingGuiController;
 import imageprocessing.controller.SimpleIPGuiController;
+import imageprocessing.model.ChannelHistograms;
 import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.RowBands;
 import imageprocessing.operations.Blur;
 import imageprocessing.operations.Brighten;
 import imageprocessing.operations.FlipHorizontal;
@@ -36,6 +42,9 @@ import imageprocessing.operations.GrayscaleIntensity;
 import imageprocessing.operations.GrayscaleLuma;
 import imageprocessing.operations.GrayscaleR;
 import imageprocessing.operations.GrayscaleValue;
+import imageprocessing.operations.Operation;
+import imageprocessing.operations.RotateClockwise;
+import imageprocessing.operations.RotateCounterclockwise;
 import imageprocessing.operations.Sepia;
 import imageprocessing.operations.Sharpen;
 
@@ -44,9 +53,20 @@ import imageprocessing.operations.Sharpen;
  */
 public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
 
+  /**
+   * The default number of pixels above which histograms are estimated before they are counted
+   * exactly (4 megapixels).
+   */
+  public static final long DEFAULT_SAMPLE_THRESHOLD = 4L * 1024 * 1024;
+
+  private static final int SAMPLES = 64 * 1024; // the number of pixels estimates are made from
+
   private final ImageProcessingGuiController controller;
+  private final RowBands bands; // decides whether histograms are counted on several threads
+  private final long sampleThreshold; // the number of pixels above which histograms are estimated
 
   private final Map<String, JMenuItem> menuItems; // the menu items representing operations
+  private final Map<String, Supplier<Operation>> regionOperations; // operations for regions
   private final JMenuBar menuBar; // the menu bar
   private final JMenu file; // the 'file' menu
   private final JMenu edit; // the 'edit' menu
@@ -55,6 +75,7 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
   private final JMenu color; // the Color Transform submenu
   private final JMenu component; // the Component Visualization submenu
   private final JMenu flip; // the Flips submenu
+  private final JMenu rotate; // the Rotations submenu
   private final JMenu other; // submenu for miscellaneous operations (i.e. brighten)
 
   private final JScrollPane imagePane; // the scrollable pane for displaying the loaded image
@@ -64,17 +85,31 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
   private final HistogramPanel intensityHistogram; // the intensity component histogram
   private final JLabel messageLabel; // the label for displaying messages to the user
   private ManipulableImage currentImage; // the currently loaded image
+  private SwingWorker<ChannelHistograms, Void> refinement; // counts the exact histograms
 
   /**
-   * Construct a graphical image processing view.
+   * Construct a graphical image processing view, whose controller applies operations and whose
+   * histograms are counted as decided by the given row bands, so that work on large images can be
+   * split across several threads. The histograms of images with more than the given number of
+   * pixels are estimated from a sample of their pixels and shown right away, then counted exactly
+   * in the background and shown again once they are done.
+   *
+   * @param bands           decides whether work runs on one thread or several.
+   * @param sampleThreshold the number of pixels above which histograms are estimated first.
+   * @throws IllegalArgumentException if the row bands are null, or the threshold is negative.
    */
-  public SimpleIPGuiView() {
+  public SimpleIPGuiView(RowBands bands, long sampleThreshold) throws IllegalArgumentException {
     // set up the window
     super("MikMike BogoPhotoShop");
     this.setExtendedState(JFrame.MAXIMIZED_BOTH);
     this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-    this.controller = new SimpleIPGuiController(this); // make the controller
+    this.controller = new SimpleIPGuiController(this, bands); // make the controller
+    if (sampleThreshold < 0) {
+      throw new IllegalArgumentException("Sample threshold cannot be negative");
+    }
+    this.bands = bands;
+    this.sampleThreshold = sampleThreshold;
 
     Font defaultFont = new Font("plain", Font.PLAIN, 16);
     Border defaultBorder = BorderFactory.createLineBorder(Color.LIGHT_GRAY, 2, false);
@@ -83,6 +118,7 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
 
     // create the menu at the top of the screen
     this.menuItems = new HashMap<>();
+    this.regionOperations = createRegionOperations();
     this.menuBar = new JMenuBar();
     this.file = new JMenu("File");
     this.edit = new JMenu("Edit");
@@ -91,6 +127,7 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
     this.color = new JMenu("Color Transform");
     this.component = new JMenu("Component Visualization");
     this.flip = new JMenu("Flip");
+    this.rotate = new JMenu("Rotate");
     this.other = new JMenu("Other");
     this.initializeMenuItems();
     content.add(this.createMenuBar(), BorderLayout.PAGE_START);
@@ -104,7 +141,7 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
     JPanel histogramPanel = new JPanel();
     histogramPanel.setLayout(new BoxLayout(histogramPanel, BoxLayout.PAGE_AXIS));
 
-    this.redHistogram = new HistogramPanel(currentImage, "red");
+    this.redHistogram = new HistogramPanel(null, "red");
     redHistogram.setBackground(new Color(255, 239, 239));
     redHistogram.setBorder(defaultBorder);
     JLabel redHistogramLabel = new JLabel("RED");
@@ -112,7 +149,7 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
     redHistogram.add(redHistogramLabel);
     histogramPanel.add(redHistogram);
 
-    this.greenHistogram = new HistogramPanel(currentImage, "green");
+    this.greenHistogram = new HistogramPanel(null, "green");
     greenHistogram.setBackground(new Color(240, 255, 240));
     greenHistogram.setBorder(defaultBorder);
     JLabel greenHistogramLabel = new JLabel("GREEN");
@@ -120,7 +157,7 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
     greenHistogram.add(greenHistogramLabel);
     histogramPanel.add(greenHistogram);
 
-    this.blueHistogram = new HistogramPanel(currentImage, "blue");
+    this.blueHistogram = new HistogramPanel(null, "blue");
     blueHistogram.setBackground(new Color(238, 241, 255));
     blueHistogram.setBorder(defaultBorder);
     JLabel blueHistogramLabel = new JLabel("BLUE");
@@ -128,7 +165,7 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
     blueHistogram.add(blueHistogramLabel);
     histogramPanel.add(blueHistogram);
 
-    this.intensityHistogram = new HistogramPanel(currentImage, "intensity");
+    this.intensityHistogram = new HistogramPanel(null, "intensity");
     intensityHistogram.setBackground(new Color(255, 250, 240));
     intensityHistogram.setBorder(defaultBorder);
     JLabel intensityHistogramLabel = new JLabel("INTENSITY");
@@ -147,18 +184,59 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
     this.setVisible(true);
   }
 
+  /**
+   * Construct a graphical image processing view which runs work as decided by the given row bands,
+   * and estimates histograms first above {@link #DEFAULT_SAMPLE_THRESHOLD} pixels.
+   *
+   * @param bands decides whether work runs on one thread or several.
+   * @throws IllegalArgumentException if the row bands are null.
+   */
+  public SimpleIPGuiView(RowBands bands) throws IllegalArgumentException {
+    this(bands, DEFAULT_SAMPLE_THRESHOLD);
+  }
+
+  /**
+   * Construct a graphical image processing view which runs all work on a single thread.
+   */
+  public SimpleIPGuiView() {
+    this(RowBands.SEQUENTIAL);
+  }
+
   @Override
   public void setImage(ManipulableImage img) {
     Objects.requireNonNull(img, "Provided image cannot be null");
     this.currentImage = img;
-    this.redHistogram.setImage(img);
-    this.redHistogram.repaint();
-    this.greenHistogram.setImage(img);
-    this.greenHistogram.repaint();
-    this.blueHistogram.setImage(img);
-    this.blueHistogram.repaint();
-    this.intensityHistogram.setImage(img);
-    this.intensityHistogram.repaint();
+    if (refinement != null) { // the histograms it is counting are no longer needed
+      refinement.cancel(true);
+      refinement = null;
+    }
+    if ((long) img.getWidth() * img.getHeight() <= sampleThreshold) {
+      // count every histogram in one pass, shared by all the panels
+      showHistograms(bands.run(() -> ChannelHistograms.of(img)));
+    } else {
+      // show an estimate right away, and the exact histograms once they have been counted
+      showHistograms(img.estimateHistograms(SAMPLES));
+      refinement = new SwingWorker<>() {
+        @Override
+        protected ChannelHistograms doInBackground() {
+          // stop counting as soon as another image replaces this one
+          return bands.run(() -> ChannelHistograms.of(img, this::isCancelled));
+        }
+
+        @Override
+        protected void done() {
+          if (isCancelled() || currentImage != img) {
+            return;
+          }
+          try {
+            showHistograms(get());
+          } catch (InterruptedException | ExecutionException e) {
+            // keep showing the estimate
+          }
+        }
+      };
+      refinement.execute();
+    }
     if (currentImage != null) {
       imagePane.setViewportView(new JLabel(new ImageIcon(currentImage.toBufferedImage(2)
               .getScaledInstance(imagePane.getWidth(), -1, 0))));
@@ -166,6 +244,22 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
     this.repaint();
   }
 
+  /**
+   * Show the given histograms in every histogram panel.
+   *
+   * @param histograms the histograms of the current image.
+   */
+  private void showHistograms(ChannelHistograms histograms) {
+    this.redHistogram.setHistograms(histograms);
+    this.redHistogram.repaint();
+    this.greenHistogram.setHistograms(histograms);
+    this.greenHistogram.repaint();
+    this.blueHistogram.setHistograms(histograms);
+    this.blueHistogram.repaint();
+    this.intensityHistogram.setHistograms(histograms);
+    this.intensityHistogram.repaint();
+  }
+
   @Override
   public void renderMessage(String message) {
     this.messageLabel.setText(" " + message);
@@ -255,6 +349,15 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
     item.addActionListener(e -> controller.applyOperation(currentImage, new FlipHorizontal()));
     menuItems.put("horizontal-flip", item);
 
+    item = new JMenuItem("Rotate clockwise");
+    item.addActionListener(e -> controller.applyOperation(currentImage, new RotateClockwise()));
+    menuItems.put("rotate-clockwise", item);
+
+    item = new JMenuItem("Rotate counterclockwise");
+    item.addActionListener(
+        e -> controller.applyOperation(currentImage, new RotateCounterclockwise()));
+    menuItems.put("rotate-counterclockwise", item);
+
     item = new JMenuItem("Brighten");
     item.addActionListener(e -> {
       String input = JOptionPane.showInputDialog(this, "Enter a brightening value");
@@ -266,6 +369,82 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
       }
     });
     menuItems.put("brighten", item);
+
+    item = new JMenuItem("Crop");
+    item.addActionListener(e -> {
+      String input = JOptionPane.showInputDialog(this,
+          "Enter the region to crop to: row, column, width and height");
+      try {
+        String[] values = input.trim().split("[\\s,]+");
+        if (values.length != 4) {
+          throw new NumberFormatException();
+        }
+        controller.crop(currentImage, Integer.parseInt(values[0]), Integer.parseInt(values[1]),
+            Integer.parseInt(values[2]), Integer.parseInt(values[3]));
+      } catch (NumberFormatException | NullPointerException ex) {
+        this.renderMessage("Invalid region provided. Please provide four integer values.");
+      }
+    });
+    menuItems.put("crop", item);
+
+    item = new JMenuItem("Apply to region");
+    item.addActionListener(e -> {
+      Object choice = JOptionPane.showInputDialog(this, "Choose an operation to apply",
+          "Apply to region", JOptionPane.QUESTION_MESSAGE, null,
+          regionOperations.keySet().toArray(), null);
+      if (choice == null) {
+        return;
+      }
+      String input = JOptionPane.showInputDialog(this,
+          "Enter the region to apply it to: row, column, width and height");
+      try {
+        String[] values = input.trim().split("[\\s,]+");
+        if (values.length != 4) {
+          throw new NumberFormatException();
+        }
+        int row = Integer.parseInt(values[0]);
+        int col = Integer.parseInt(values[1]);
+        int width = Integer.parseInt(values[2]);
+        int height = Integer.parseInt(values[3]);
+        Operation op = regionOperations.get(choice).get();
+        if (op != null) {
+          controller.applyOperation(currentImage, op, row, col, width, height);
+        }
+      } catch (NumberFormatException | NullPointerException ex) {
+        this.renderMessage("Invalid region provided. Please provide four integer values.");
+      }
+    });
+    menuItems.put("apply-region", item);
+  }
+
+  /**
+   * Return the operations which can be applied to a region of an image, by the name shown for
+   * them. Flips and rotations are left out, since they move pixels across the whole image.
+   *
+   * @return the operations, in the order they are shown.
+   */
+  private Map<String, Supplier<Operation>> createRegionOperations() {
+    Map<String, Supplier<Operation>> operations = new LinkedHashMap<>();
+    operations.put("Blur", Blur::new);
+    operations.put("Sharpen", Sharpen::new);
+    operations.put("Grayscale", Grayscale::new);
+    operations.put("Sepia", Sepia::new);
+    operations.put("Red component", GrayscaleR::new);
+    operations.put("Green component", GrayscaleG::new);
+    operations.put("Blue component", GrayscaleB::new);
+    operations.put("Value component", GrayscaleValue::new);
+    operations.put("Luma component", GrayscaleLuma::new);
+    operations.put("Intensity component", GrayscaleIntensity::new);
+    operations.put("Brighten", () -> {
+      String input = JOptionPane.showInputDialog(this, "Enter a brightening value");
+      try {
+        return new Brighten(Integer.parseInt(input));
+      } catch (NumberFormatException nfe) {
+        this.renderMessage("Invalid brightening value provided. Please provide an integer value.");
+        return null;
+      }
+    });
+    return operations;
   }
 
   /**
@@ -303,8 +482,15 @@ public class SimpleIPGuiView extends JFrame implements ImageProcessingGuiView {
     flip.add(menuItems.get("horizontal-flip"));
     edit.add(flip);
 
+    // rotations
+    rotate.add(menuItems.get("rotate-clockwise"));
+    rotate.add(menuItems.get("rotate-counterclockwise"));
+    edit.add(rotate);
+
     // miscellaneous
     other.add(menuItems.get("brighten"));
+    other.add(menuItems.get("crop"));
+    other.add(menuItems.get("apply-region"));
     edit.add(other);
 
     // help menu
@@ -0,0 +1,157 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ChannelHistograms;
+import imageprocessing.model.Histogram;
+import imageprocessing.model.LazyImage;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.RowBands;
+import imageprocessing.operations.Brighten;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the ChannelHistograms class.
+ */
+public class ChannelHistogramsTest {
+
+  private PackedImage img;
+
+  @Before
+  public void init() {
+    Random random = new Random(11);
+    int[] argb = new int[57 * 43];
+    for (int i = 0; i < argb.length; i++) {
+      argb[i] = random.nextInt();
+    }
+    img = new PackedImage(57, 43, argb, true);
+  }
+
+  @Test
+  public void testNullImage() {
+    try {
+      ChannelHistograms.of(null);
+      fail("did not throw exception when given a null image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image can't be null", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testMatchesSingleHistograms() {
+    ChannelHistograms histograms = ChannelHistograms.of(img);
+    assertEquals(img.histogram(ARGB::red), histograms.getRed());
+    assertEquals(img.histogram(ARGB::green), histograms.getGreen());
+    assertEquals(img.histogram(ARGB::blue), histograms.getBlue());
+    assertEquals(img.histogram(ARGB::intensity), histograms.getIntensity());
+    assertEquals(img.histogram(ARGB::luma), histograms.getLuma());
+    assertEquals(img.histogram(ARGB::value), histograms.getValue());
+    assertEquals(57 * 43, histograms.getRed().getTotal());
+  }
+
+  @Test
+  public void testParallelMatchesSequential() {
+    ChannelHistograms expected = ChannelHistograms.of(img);
+    ChannelHistograms actual = new RowBands(4, 100).run(() -> ChannelHistograms.of(img));
+    assertEquals(expected.getRed(), actual.getRed());
+    assertEquals(expected.getGreen(), actual.getGreen());
+    assertEquals(expected.getBlue(), actual.getBlue());
+    assertEquals(expected.getIntensity(), actual.getIntensity());
+    assertEquals(expected.getLuma(), actual.getLuma());
+    assertEquals(expected.getValue(), actual.getValue());
+  }
+
+  @Test
+  public void testLazyImage() {
+    ChannelHistograms lazy =
+        ChannelHistograms.of(new Brighten(20).modify(LazyImage.of(img)));
+    assertEquals(new Brighten(20).modify(img).histogram(ARGB::intensity), lazy.getIntensity());
+  }
+
+  @Test
+  public void testInvalidSamples() {
+    try {
+      ChannelHistograms.sample(img, 0);
+      fail("did not throw exception when given no samples");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Number of samples must be positive", e.getMessage());
+    }
+    try {
+      ChannelHistograms.sample(null, 10);
+      fail("did not throw exception when given a null image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image can't be null", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testSampleSmallImage() {
+    ChannelHistograms sampled = ChannelHistograms.sample(img, 57 * 43);
+    assertTrue(sampled.isExact());
+    assertEquals(0, sampled.getErrorBound());
+    assertEquals(ChannelHistograms.of(img).getLuma(), sampled.getLuma());
+  }
+
+  @Test
+  public void testSampleWithinErrorBound() {
+    Random random = new Random(3);
+    int[] argb = new int[640 * 480];
+    for (int i = 0; i < argb.length; i++) { // a gradient with some noise
+      int v = Math.min(255, (i % 640) * 200 / 640 + random.nextInt(56));
+      argb[i] = ARGB.pack(v, 255 - v, v / 2);
+    }
+    PackedImage large = new PackedImage(640, 480, argb, false);
+    ChannelHistograms exact = ChannelHistograms.of(large);
+    ChannelHistograms sampled = ChannelHistograms.sample(large, 4000);
+    assertFalse(sampled.isExact());
+    assertTrue(sampled.getErrorBound() > 0);
+    assertTrue(sampled.getErrorBound() < 640 * 480 / 10);
+    assertEquals(640 * 480, sampled.getRed().getTotal());
+    Histogram[][] pairs = new Histogram[][]{{exact.getRed(), sampled.getRed()},
+        {exact.getGreen(), sampled.getGreen()}, {exact.getBlue(), sampled.getBlue()},
+        {exact.getIntensity(), sampled.getIntensity()}, {exact.getLuma(), sampled.getLuma()},
+        {exact.getValue(), sampled.getValue()}};
+    for (Histogram[] pair : pairs) {
+      for (int v = 0; v < Histogram.BINS; v++) {
+        assertTrue(Math.abs(pair[0].getCount(v) - pair[1].getCount(v))
+            <= sampled.getErrorBound());
+      }
+    }
+    assertEquals(sampled.getRed(), ChannelHistograms.sample(large, 4000).getRed());
+  }
+
+  @Test
+  public void testCancel() {
+    try {
+      ChannelHistograms.of(img, () -> true);
+      fail("did not stop counting when cancelled");
+    } catch (CancellationException e) {
+      assertEquals("Histograms are no longer needed", e.getMessage());
+    }
+    AtomicInteger rows = new AtomicInteger();
+    try {
+      new RowBands(4, 57).run(() -> ChannelHistograms.of(img, () -> rows.incrementAndGet() > 5));
+      fail("did not stop counting parallel bands when cancelled");
+    } catch (CancellationException e) {
+      assertTrue(rows.get() < 43);
+    }
+    assertEquals(ChannelHistograms.of(img).getRed(),
+        ChannelHistograms.of(img, () -> false).getRed());
+  }
+
+  @Test
+  public void testEstimateHistograms() {
+    assertEquals(ChannelHistograms.sample(img, 100).getRed(), img.estimateHistograms(100).getRed());
+    ManipulableImage lazy = new Brighten(20).modify(LazyImage.of(img));
+    assertEquals(ChannelHistograms.sample(new Brighten(20).modify(img), 100).getBlue(),
+        lazy.estimateHistograms(100).getBlue());
+    assertFalse(((LazyImage) lazy).isMaterialized()); // only the sampled pixels were computed
+  }
+}
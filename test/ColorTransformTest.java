@@ -0,0 +1,112 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.LazyImage;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.operations.ColorTransform;
+import imageprocessing.operations.Grayscale;
+import imageprocessing.operations.GrayscaleB;
+import imageprocessing.operations.GrayscaleR;
+import imageprocessing.operations.Operation;
+import imageprocessing.operations.Precision;
+import imageprocessing.operations.Sepia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for fusing color transforms.
+ */
+public class ColorTransformTest {
+
+  private ManipulableImage img;
+
+  @Before
+  public void init() {
+    Random random = new Random(42);
+    int[] argb = new int[64 * 64];
+    for (int i = 0; i < argb.length; i++) {
+      argb[i] = ARGB.pack(random.nextInt(256), random.nextInt(256), random.nextInt(256),
+          random.nextInt(256));
+    }
+    img = new PackedImage(64, 64, argb, true);
+  }
+
+  @Test
+  public void testClampFree() {
+    assertTrue(new Grayscale().isClampFree());
+    assertTrue(new GrayscaleR().isClampFree());
+    assertFalse(new Sepia().isClampFree());
+  }
+
+  @Test
+  public void testUnsafeFusion() {
+    try {
+      new Sepia().then(new Grayscale());
+      fail("did not throw exception when fusing a transform which needs clamping");
+    } catch (IllegalArgumentException e) {
+      assertEquals("transform needs clamping, so it cannot be fused", e.getMessage());
+    }
+    try {
+      ColorTransform.fuse();
+      fail("did not throw exception when fusing no transforms");
+    } catch (IllegalArgumentException e) {
+      assertEquals("there must be at least one transform to fuse", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testChannelCopiesFuseExactly() {
+    ManipulableImage stepByStep = new Sepia().modify(new GrayscaleR().modify(img));
+    assertEquals(stepByStep, new GrayscaleR().then(new Sepia()).modify(img));
+    stepByStep = new Grayscale().modify(new GrayscaleB().modify(img));
+    assertEquals(stepByStep, ColorTransform.fuse(new GrayscaleB(), new Grayscale()).modify(img));
+  }
+
+  @Test
+  public void testFusionWithinRoundingBound() {
+    ManipulableImage stepByStep = new Sepia().modify(new Grayscale().modify(img));
+    ManipulableImage fused = new Grayscale().then(new Sepia()).modify(img);
+    for (int r = 0; r < img.getHeight(); r++) {
+      for (int c = 0; c < img.getWidth(); c++) {
+        assertEquals(stepByStep.getAlpha(r, c), fused.getAlpha(r, c));
+        assertTrue(Math.abs(stepByStep.getRed(r, c) - fused.getRed(r, c)) <= 1);
+        assertTrue(Math.abs(stepByStep.getGreen(r, c) - fused.getGreen(r, c)) <= 1);
+        assertTrue(Math.abs(stepByStep.getBlue(r, c) - fused.getBlue(r, c)) <= 1);
+      }
+    }
+  }
+
+  @Test
+  public void testFuseKeepsClampingSteps() {
+    Operation fused = ColorTransform.fuse(new Sepia(), new Sepia(), new GrayscaleR());
+    ManipulableImage stepByStep =
+        new GrayscaleR().modify(new Sepia().modify(new Sepia().modify(img)));
+    assertEquals(stepByStep, fused.modify(img));
+  }
+
+  @Test
+  public void testRowPathMatchesPixelPath() {
+    ManipulableImage opaque = new PackedImage(64, 64, false).mapARGB(p -> p ^ 0x00A5C3E1);
+    for (ColorTransform transform : new ColorTransform[]{new Sepia(), new Grayscale(),
+        new Sepia().withPrecision(Precision.FIXED_POINT),
+        new Grayscale().withPrecision(Precision.FIXED_POINT)}) {
+      for (ManipulableImage image : new ManipulableImage[]{img, opaque}) {
+        ManipulableImage pixelByPixel =
+            ((LazyImage) transform.modify(LazyImage.of(image))).materialize();
+        ManipulableImage rowByRow = transform.modify(image);
+        assertEquals(pixelByPixel, rowByRow);
+        assertEquals(image.hasAlpha(), rowByRow.hasAlpha());
+        assertEquals(img.getAlpha(5, 7), transform.modify(img).getAlpha(5, 7));
+        assertEquals(pixelByPixel, transform.modify(PlanarImage.of(image)));
+      }
+    }
+  }
+}
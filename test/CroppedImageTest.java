@@ -0,0 +1,161 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.CroppedImage;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.model.WritableImage;
+import imageprocessing.operations.Blur;
+import imageprocessing.operations.Brighten;
+import java.nio.IntBuffer;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the CroppedImage class, and cropping images.
+ */
+public class CroppedImageTest {
+
+  private WritableImage img;
+
+  @Before
+  public void init() {
+    img = new PackedImage(5, 4, false);
+    for (int r = 0; r < img.getHeight(); r++) {
+      for (int c = 0; c < img.getWidth(); c++) {
+        img.setARGB(r, c, ARGB.pack(r * 40, c * 50, r * 10 + c));
+      }
+    }
+  }
+
+  /**
+   * Return a copy of the given region of the given image, computed pixel by pixel.
+   *
+   * @param image  the image to crop.
+   * @param row    the top row of the region.
+   * @param col    the leftmost column of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @return the copy of the region.
+   */
+  private static WritableImage region(ManipulableImage image, int row, int col, int width,
+      int height) {
+    WritableImage result = new PackedImage(width, height, image.hasAlpha());
+    for (int r = 0; r < height; r++) {
+      for (int c = 0; c < width; c++) {
+        result.setARGB(r, c, image.getARGB(row + r, col + c));
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testOf() {
+    try {
+      CroppedImage.of(null, 0, 0, 1, 1);
+      fail("did not throw exception when given a null image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image can't be null", e.getMessage());
+    }
+    try {
+      img.crop(0, 0, 0, 1);
+      fail("did not throw exception when given an empty region");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Region must have a positive width and height", e.getMessage());
+    }
+    try {
+      img.crop(1, 3, 3, 1);
+      fail("did not throw exception when given a region outside the image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Region must be inside the image", e.getMessage());
+    }
+    try {
+      img.crop(-1, 0, 1, 1);
+      fail("did not throw exception when given a negative position");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Region must be inside the image", e.getMessage());
+    }
+    assertSame(img, img.crop(0, 0, 5, 4));
+    ManipulableImage cropped = img.crop(1, 2, 3, 2);
+    assertTrue(cropped instanceof CroppedImage);
+    assertSame(img, ((CroppedImage) cropped).getSource());
+    assertEquals(1, ((CroppedImage) cropped).getTop());
+    assertEquals(2, ((CroppedImage) cropped).getLeft());
+    assertEquals(3, cropped.getWidth());
+    assertEquals(2, cropped.getHeight());
+    assertFalse(cropped.hasAlpha());
+  }
+
+  @Test
+  public void testMatchesPixels() {
+    ManipulableImage cropped = img.crop(1, 2, 3, 2);
+    WritableImage expected = region(img, 1, 2, 3, 2);
+    assertEquals(expected, cropped);
+    assertEquals(cropped, expected);
+    assertEquals(expected.hashCode(), cropped.hashCode());
+    assertEquals(expected, cropped.copy());
+    assertTrue(cropped.copy() instanceof PackedImage);
+    try {
+      cropped.getARGB(2, 0);
+      fail("did not throw exception when given a row outside the image");
+    } catch (IndexOutOfBoundsException e) {
+      assertEquals("Pixel (2, 0) is out of bounds", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testRowViews() {
+    ManipulableImage cropped = img.crop(1, 2, 3, 2);
+    IntBuffer row = cropped.getRow(1);
+    assertTrue(row.isReadOnly());
+    assertEquals(3, row.remaining());
+    assertEquals(0, row.position());
+    img.setARGB(2, 3, ARGB.pack(1, 2, 3));
+    assertEquals(img.getARGB(2, 3), row.get(1)); // the row is a view, not a copy
+  }
+
+  @Test
+  public void testComposition() {
+    ManipulableImage twice = img.crop(1, 1, 4, 3).crop(1, 1, 2, 2);
+    assertSame(img, ((CroppedImage) twice).getSource());
+    assertEquals(2, ((CroppedImage) twice).getTop());
+    assertEquals(2, ((CroppedImage) twice).getLeft());
+    assertEquals(region(img, 2, 2, 2, 2), twice);
+  }
+
+  @Test
+  public void testOperationsOnViews() {
+    ManipulableImage cropped = img.crop(0, 1, 3, 3);
+    WritableImage eager = region(img, 0, 1, 3, 3);
+    assertEquals(new Brighten(30).modify(eager), new Brighten(30).modify(cropped));
+    assertEquals(new Blur().modify(eager), new Blur().modify(cropped));
+    assertEquals(eager.histogram(ARGB::green), cropped.histogram(ARGB::green));
+    assertEquals(eager.getMaxValue(), cropped.getMaxValue());
+    PlanarImage planar = PlanarImage.of(img);
+    assertTrue(planar.crop(0, 1, 3, 3).copy() instanceof PlanarImage);
+    assertEquals(eager, planar.crop(0, 1, 3, 3));
+  }
+
+  @Test
+  public void testSources() {
+    ManipulableImage cropped = img.crop(1, 2, 3, 2);
+    assertEquals(List.of(img), cropped.getSources());
+    assertEquals(0, cropped.getResidentBytes());
+    WritableImage moved = img.copy();
+    ManipulableImage recropped = cropped.withSources(List.of(moved));
+    assertSame(moved, recropped.getSources().get(0));
+    assertEquals(cropped, recropped);
+    try {
+      cropped.withSources(List.of(cropped));
+      fail("did not throw exception when given a source of the wrong size");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Source must be the same size as the image", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,351 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.model.RowBands;
+import imageprocessing.operations.Blur;
+import imageprocessing.operations.EdgeMode;
+import imageprocessing.operations.Filter;
+import imageprocessing.operations.Precision;
+import imageprocessing.operations.Sharpen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the separable filter path.
+ */
+public class FilterTest {
+
+  private PackedImage img;
+
+  /**
+   * A filter which always takes the full 2D path, to compare the separable path against.
+   */
+  private static class FullFilter extends Filter {
+
+    private FullFilter(double[][] kernel) {
+      super(kernel);
+    }
+
+    @Override
+    public boolean isSeparable() {
+      return false;
+    }
+
+    @Override
+    public boolean usesFft() {
+      return false;
+    }
+  }
+
+  /**
+   * A filter with any kernel, which picks how to apply it as usual.
+   */
+  private static class KernelFilter extends Filter {
+
+    private KernelFilter(double[][] kernel) {
+      super(kernel);
+    }
+  }
+
+  /**
+   * A filter with a kernel given as two factors.
+   */
+  private static class SeparableFilter extends Filter {
+
+    private SeparableFilter(double[] vertical, double[] horizontal) {
+      super(vertical, horizontal);
+    }
+
+    private double[][] getKernel() {
+      return kernel;
+    }
+  }
+
+  /**
+   * A filter which uses the kernel and precision of another, in very narrow tiles.
+   */
+  private static class NarrowTileFilter extends Filter {
+
+    private NarrowTileFilter(Filter filter, EdgeMode edgeMode) {
+      super(filter, filter.getPrecision(), edgeMode);
+    }
+
+    @Override
+    public int getTileWidth() {
+      return 4;
+    }
+  }
+
+  @Before
+  public void init() {
+    Random random = new Random(3);
+    int[] argb = new int[37 * 29];
+    for (int i = 0; i < argb.length; i++) {
+      argb[i] = random.nextInt();
+    }
+    img = new PackedImage(37, 29, argb, true);
+  }
+
+  @Test
+  public void testDetection() {
+    assertTrue(new Blur().isSeparable());
+    assertTrue(new Blur(4).isSeparable());
+    assertFalse(new Sharpen().isSeparable());
+  }
+
+  @Test
+  public void testInvalidRadius() {
+    try {
+      new Blur(0);
+      fail("did not throw exception when given a radius of 0");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Blur radius must be between 1 and 100", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testBlurMatchesFullKernel() {
+    Blur blur = new Blur();
+    ManipulableImage expected = new FullFilter(new double[][]{
+        {1 / 16d, 1 / 8d, 1 / 16d}, {1 / 8d, 1 / 4d, 1 / 8d}, {1 / 16d, 1 / 8d, 1 / 16d}})
+        .modify(img);
+    assertEquals(expected, blur.modify(img));
+    assertEquals(expected, new Blur(1).modify(img));
+    assertEquals(expected, blur.modify(PlanarImage.of(img)));
+  }
+
+  @Test
+  public void testLargerRadiusMatchesFullKernel() {
+    SeparableFilter separable = new SeparableFilter(new double[]{0.1, 0.2, 0.4, 0.2, 0.1},
+        new double[]{0.3, 0.4, 0.3});
+    ManipulableImage expected = new FullFilter(separable.getKernel()).modify(img);
+    ManipulableImage actual = separable.modify(img);
+    for (int r = 0; r < img.getHeight(); r++) {
+      for (int c = 0; c < img.getWidth(); c++) {
+        assertTrue(Math.abs(expected.getRed(r, c) - actual.getRed(r, c)) <= 1);
+        assertTrue(Math.abs(expected.getGreen(r, c) - actual.getGreen(r, c)) <= 1);
+        assertTrue(Math.abs(expected.getBlue(r, c) - actual.getBlue(r, c)) <= 1);
+        assertEquals(img.getAlpha(r, c), actual.getAlpha(r, c));
+      }
+    }
+    assertEquals(actual, separable.modify(PlanarImage.of(img)));
+    Blur wide = new Blur(3);
+    assertEquals(wide.modify(img), wide.modify(PlanarImage.of(img)));
+  }
+
+  @Test
+  public void testFftMatchesDirect() {
+    Random random = new Random(11);
+    int[] argb = new int[150 * 90];
+    for (int i = 0; i < argb.length; i++) {
+      argb[i] = random.nextInt();
+    }
+    PackedImage large = new PackedImage(150, 90, argb, true);
+    for (int[] size : new int[][]{{17, 17}, {21, 11}, {3, 81}}) {
+      double[][] kernel = new double[size[0]][size[1]];
+      for (double[] row : kernel) {
+        for (int j = 0; j < row.length; j++) {
+          row[j] = (random.nextDouble() - 0.3) * 4 / (size[0] * size[1]);
+        }
+      }
+      KernelFilter fft = new KernelFilter(kernel);
+      assertTrue(fft.usesFft());
+      ManipulableImage expected = new FullFilter(kernel).modify(large);
+      ManipulableImage actual = fft.modify(large);
+      for (int r = 0; r < large.getHeight(); r++) {
+        for (int c = 0; c < large.getWidth(); c++) {
+          assertTrue(Math.abs(expected.getRed(r, c) - actual.getRed(r, c)) <= 1);
+          assertTrue(Math.abs(expected.getGreen(r, c) - actual.getGreen(r, c)) <= 1);
+          assertTrue(Math.abs(expected.getBlue(r, c) - actual.getBlue(r, c)) <= 1);
+          assertEquals(large.getAlpha(r, c), actual.getAlpha(r, c));
+        }
+      }
+      assertEquals(actual, fft.modify(PlanarImage.of(large)));
+      assertEquals(actual, new RowBands(3, 1).run(() -> fft.modify(large)));
+    }
+    assertFalse(new KernelFilter(new double[15][15]).usesFft());
+  }
+
+  @Test
+  public void testRowPathMatchesPerPixelSums() {
+    double[][] sharpen = {{-0.125, -0.125, -0.125, -0.125, -0.125}, {-0.125, 0.25, 0.25, 0.25,
+        -0.125}, {-0.125, 0.25, 1, 0.25, -0.125}, {-0.125, 0.25, 0.25, 0.25, -0.125}, {-0.125,
+        -0.125, -0.125, -0.125, -0.125}};
+    Random random = new Random(11);
+    double[][] uneven = new double[3][7];
+    for (double[] row : uneven) {
+      for (int j = 0; j < row.length; j++) {
+        row[j] = random.nextDouble() - 0.4;
+      }
+    }
+    PackedImage narrow = new PackedImage(3, 4, new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12},
+        false);
+    for (double[][] kernel : new double[][][]{sharpen, uneven}) {
+      Filter filter = new FullFilter(kernel);
+      for (PackedImage image : new PackedImage[]{img, narrow}) {
+        ManipulableImage actual = filter.modify(image);
+        for (int r = 0; r < image.getHeight(); r++) {
+          for (int c = 0; c < image.getWidth(); c++) {
+            double red = 0;
+            double green = 0;
+            double blue = 0;
+            for (int i = 0; i < kernel.length; i++) {
+              for (int j = 0; j < kernel[0].length; j++) {
+                int y = r - kernel.length / 2 + i;
+                int x = c - kernel[0].length / 2 + j;
+                if (y >= 0 && x >= 0 && y < image.getHeight() && x < image.getWidth()) {
+                  red += kernel[i][j] * image.getRed(y, x);
+                  green += kernel[i][j] * image.getGreen(y, x);
+                  blue += kernel[i][j] * image.getBlue(y, x);
+                }
+              }
+            }
+            assertEquals(Math.max(0, Math.min((int) Math.rint(red), 255)), actual.getRed(r, c));
+            assertEquals(Math.max(0, Math.min((int) Math.rint(green), 255)),
+                actual.getGreen(r, c));
+            assertEquals(Math.max(0, Math.min((int) Math.rint(blue), 255)), actual.getBlue(r, c));
+          }
+        }
+        assertEquals(actual, filter.modify(PlanarImage.of(image)));
+      }
+    }
+  }
+
+  @Test
+  public void testEdgeModes() {
+    double[][] sharpen = {{-0.125, -0.125, -0.125, -0.125, -0.125}, {-0.125, 0.25, 0.25, 0.25,
+        -0.125}, {-0.125, 0.25, 1, 0.25, -0.125}, {-0.125, 0.25, 0.25, 0.25, -0.125}, {-0.125,
+        -0.125, -0.125, -0.125, -0.125}};
+    SeparableFilter blur = new SeparableFilter(new double[]{0.25, 0.5, 0.25},
+        new double[]{1 / 16d, 4 / 16d, 6 / 16d, 4 / 16d, 1 / 16d});
+    PackedImage narrow = new PackedImage(2, 4, new int[]{10, 200, 30, 40, 250, 60, 70, 80},
+        true);
+    for (EdgeMode mode : EdgeMode.values()) {
+      for (PackedImage image : new PackedImage[]{img, narrow}) {
+        Filter sharp = new FullFilter(sharpen).withEdgeMode(mode);
+        assertEquals(mode, sharp.getEdgeMode());
+        assertEquals(sharp, sharp.withEdgeMode(mode));
+        ManipulableImage expected = applyDirectly(sharpen, image, mode);
+        assertEquals(expected, sharp.modify(image));
+        assertEquals(expected, sharp.modify(PlanarImage.of(image)));
+        assertEquals(expected, sharp.withPrecision(Precision.FIXED_POINT).modify(image));
+        Filter separable = blur.withEdgeMode(mode);
+        assertTrue(separable.isSeparable());
+        expected = applyDirectly(blur.getKernel(), image, mode);
+        assertEquals(expected, separable.modify(image));
+        assertEquals(expected, separable.modify(PlanarImage.of(image)));
+        assertEquals(expected, separable.withPrecision(Precision.FIXED_POINT).modify(image));
+      }
+      Random random = new Random(5);
+      double[][] kernel = new double[17][17];
+      for (double[] row : kernel) {
+        for (int j = 0; j < row.length; j++) {
+          row[j] = random.nextDouble() / (17 * 17 / 2);
+        }
+      }
+      Filter fft = new KernelFilter(kernel).withEdgeMode(mode);
+      assertTrue(fft.usesFft());
+      ManipulableImage expected = applyDirectly(kernel, img, mode);
+      ManipulableImage actual = fft.modify(img);
+      for (int r = 0; r < img.getHeight(); r++) {
+        for (int c = 0; c < img.getWidth(); c++) {
+          assertTrue(Math.abs(expected.getRed(r, c) - actual.getRed(r, c)) <= 1);
+          assertTrue(Math.abs(expected.getGreen(r, c) - actual.getGreen(r, c)) <= 1);
+          assertTrue(Math.abs(expected.getBlue(r, c) - actual.getBlue(r, c)) <= 1);
+          assertEquals(img.getAlpha(r, c), actual.getAlpha(r, c));
+        }
+      }
+      assertEquals(actual, fft.modify(PlanarImage.of(img)));
+    }
+    assertEquals(EdgeMode.ZERO, new Sharpen().getEdgeMode());
+    try {
+      new Sharpen().withEdgeMode(null);
+      fail("did not throw exception when given a null edge mode");
+    } catch (IllegalArgumentException e) {
+      assertEquals("edge mode cannot be null", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testTilesMatchWholeRows() {
+    assertTrue(new Sharpen().getTileWidth() >= 1000);
+    assertTrue(new Blur(100).getTileWidth() >= 201);
+    Filter[] filters = {new Sharpen(), new Blur(2), new Sharpen().withPrecision(
+        Precision.FIXED_POINT), new Blur(2).withPrecision(Precision.FIXED_POINT)};
+    for (Filter filter : filters) {
+      for (EdgeMode mode : EdgeMode.values()) {
+        Filter whole = filter.withEdgeMode(mode);
+        Filter tiled = new NarrowTileFilter(filter, mode);
+        assertEquals(whole.isSeparable(), tiled.isSeparable());
+        ManipulableImage expected = whole.modify(img);
+        assertEquals(expected, tiled.modify(img));
+        assertEquals(expected, tiled.modify(PlanarImage.of(img)));
+        assertEquals(expected, new RowBands(3, 1).run(() -> tiled.modify(img)));
+      }
+    }
+  }
+
+  /**
+   * Apply the given kernel one pixel and one weight at a time, looking up pixels outside the image
+   * with the given edge mode.
+   */
+  private static ManipulableImage applyDirectly(double[][] kernel, PackedImage image,
+      EdgeMode mode) {
+    int height = image.getHeight();
+    int width = image.getWidth();
+    PackedImage result = new PackedImage(width, height, image.hasAlpha());
+    for (int r = 0; r < height; r++) {
+      for (int c = 0; c < width; c++) {
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+        for (int i = 0; i < kernel.length; i++) {
+          for (int j = 0; j < kernel[0].length; j++) {
+            int y = edge(r - kernel.length / 2 + i, height, mode);
+            int x = edge(c - kernel[0].length / 2 + j, width, mode);
+            if (y >= 0 && x >= 0) {
+              red += kernel[i][j] * image.getRed(y, x);
+              green += kernel[i][j] * image.getGreen(y, x);
+              blue += kernel[i][j] * image.getBlue(y, x);
+            }
+          }
+        }
+        result.setARGB(r, c, ARGB.pack(channel(red), channel(green), channel(blue),
+            image.getAlpha(r, c)));
+      }
+    }
+    return result;
+  }
+
+  private static int edge(int index, int size, EdgeMode mode) {
+    if (index >= 0 && index < size) {
+      return index;
+    }
+    switch (mode) {
+      case ZERO:
+        return -1;
+      case CLAMP:
+        return index < 0 ? 0 : size - 1;
+      case WRAP:
+        return ((index % size) + size) % size;
+      default:
+        while (index < 0 || index >= size) { // reflect until inside
+          index = index < 0 ? -index - 1 : 2 * size - 1 - index;
+        }
+        return index;
+    }
+  }
+
+  private static int channel(double value) {
+    return Math.max(0, Math.min((int) Math.rint(value), 255));
+  }
+}
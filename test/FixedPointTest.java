@@ -0,0 +1,175 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.operations.Blur;
+import imageprocessing.operations.ColorTransform;
+import imageprocessing.operations.Filter;
+import imageprocessing.operations.Grayscale;
+import imageprocessing.operations.GrayscaleR;
+import imageprocessing.operations.Precision;
+import imageprocessing.operations.Sepia;
+import imageprocessing.operations.Sharpen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the fixed-point precision of filters and color transforms.
+ */
+public class FixedPointTest {
+
+  private PackedImage img;
+
+  /**
+   * A filter with any kernel.
+   */
+  private static class KernelFilter extends Filter {
+
+    private KernelFilter(double[][] kernel) {
+      super(kernel);
+    }
+  }
+
+  @Before
+  public void init() {
+    Random random = new Random(5);
+    int[] argb = new int[61 * 47];
+    for (int i = 0; i < argb.length; i++) {
+      argb[i] = random.nextInt();
+    }
+    img = new PackedImage(61, 47, argb, true);
+  }
+
+  /**
+   * Return the largest difference between any channel of the two images.
+   */
+  private static int maxDeviation(ManipulableImage expected, ManipulableImage actual) {
+    int result = 0;
+    for (int r = 0; r < expected.getHeight(); r++) {
+      for (int c = 0; c < expected.getWidth(); c++) {
+        result = Math.max(result, Math.abs(expected.getRed(r, c) - actual.getRed(r, c)));
+        result = Math.max(result, Math.abs(expected.getGreen(r, c) - actual.getGreen(r, c)));
+        result = Math.max(result, Math.abs(expected.getBlue(r, c) - actual.getBlue(r, c)));
+        assertEquals(expected.getAlpha(r, c), actual.getAlpha(r, c));
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testPrecisionSwitch() {
+    Blur blur = new Blur();
+    assertEquals(Precision.DOUBLE, blur.getPrecision());
+    assertSame(blur, blur.withPrecision(Precision.DOUBLE));
+    Filter fixed = blur.withPrecision(Precision.FIXED_POINT);
+    assertEquals(Precision.FIXED_POINT, fixed.getPrecision());
+    assertTrue(fixed.isSeparable());
+    assertFalse(new KernelFilter(new double[17][17]).withPrecision(Precision.FIXED_POINT)
+        .usesFft());
+    assertEquals(Precision.FIXED_POINT,
+        new Sepia().withPrecision(Precision.FIXED_POINT).getPrecision());
+    try {
+      blur.withPrecision(null);
+      fail("did not throw exception when given a null precision");
+    } catch (IllegalArgumentException e) {
+      assertEquals("precision cannot be null", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testTooLargeForFixedPoint() {
+    try {
+      new KernelFilter(new double[][]{{1000, 0, 0}, {0, 1000, 0}, {0, 0, -1000}})
+          .withPrecision(Precision.FIXED_POINT);
+      fail("did not throw exception when given a kernel which could overflow");
+    } catch (IllegalArgumentException e) {
+      assertEquals("kernel is too large for fixed-point arithmetic", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testBuiltInFiltersMatchExactly() {
+    for (Filter filter : new Filter[]{new Blur(), new Sharpen(), new Blur(3), new Blur(8)}) {
+      Filter fixed = filter.withPrecision(Precision.FIXED_POINT);
+      assertEquals(0, maxDeviation(filter.modify(img), fixed.modify(img)));
+      assertEquals(0, maxDeviation(filter.modify(img), fixed.modify(PlanarImage.of(img))));
+    }
+  }
+
+  @Test
+  public void testOtherKernelsWithinOne() {
+    Random random = new Random(9);
+    for (int size : new int[]{3, 5, 17}) {
+      double[][] kernel = new double[size][size];
+      for (double[] row : kernel) {
+        for (int j = 0; j < size; j++) {
+          row[j] = (random.nextDouble() - 0.25) * 3 / (size * size);
+        }
+      }
+      Filter filter = new KernelFilter(kernel);
+      Filter fixed = filter.withPrecision(Precision.FIXED_POINT);
+      assertTrue(maxDeviation(filter.modify(img), fixed.modify(img)) <= 1);
+    }
+    Filter separable = new KernelFilter(new double[][]{{0.01, 0.02, 0.01}, {0.1, 0.2, 0.1},
+        {0.03, 0.06, 0.03}});
+    assertTrue(separable.isSeparable());
+    assertTrue(maxDeviation(separable.modify(img),
+        separable.withPrecision(Precision.FIXED_POINT).modify(img)) <= 1);
+  }
+
+  /**
+   * Fixed point computes the decimal matrices of Grayscale and Sepia exactly (in units of 1/10000),
+   * so every channel is the exact value rounded half to even. Double precision may round the other
+   * way only where the exact value is halfway between two integers.
+   */
+  @Test
+  public void testColorTransformsExactForEveryColor() {
+    int[][] grayscale = {{2126, 7152, 722}, {2126, 7152, 722}, {2126, 7152, 722}};
+    int[][] sepia = {{3930, 7690, 1890}, {3490, 6860, 1680}, {2720, 5340, 1310}};
+    int[][] grayscaleR = {{10000, 0, 0}, {10000, 0, 0}, {10000, 0, 0}};
+    ColorTransform[] transforms = {new Grayscale(), new Sepia(), new GrayscaleR()};
+    int[][][] matrices = {grayscale, sepia, grayscaleR};
+    int[] colors = new int[256 * 256];
+    for (int t = 0; t < transforms.length; t++) {
+      ColorTransform fixed = transforms[t].withPrecision(Precision.FIXED_POINT);
+      int ties = 0;
+      for (int red = 0; red < 256; red++) {
+        for (int i = 0; i < colors.length; i++) {
+          colors[i] = ARGB.pack(red, i >> 8, i & 0xFF, 77);
+        }
+        PackedImage all = new PackedImage(256, 256, colors, true);
+        ManipulableImage exact = fixed.modify(all);
+        ManipulableImage approximate = transforms[t].modify(all);
+        for (int i = 0; i < colors.length; i++) {
+          int argb = exact.getARGB(i >> 8, i & 0xFF);
+          int other = approximate.getARGB(i >> 8, i & 0xFF);
+          int[] channels = {ARGB.red(argb), ARGB.green(argb), ARGB.blue(argb)};
+          int[] others = {ARGB.red(other), ARGB.green(other), ARGB.blue(other)};
+          for (int c = 0; c < 3; c++) {
+            int[] row = matrices[t][c];
+            int sum = row[0] * red + row[1] * (i >> 8) + row[2] * (i & 0xFF);
+            boolean tie = sum % 10000 == 5000;
+            assertEquals(Math.min(255, (int) Math.rint(sum / 10000.0)), channels[c]);
+            if (channels[c] != others[c]) {
+              assertTrue(tie);
+              ties++;
+            }
+          }
+          assertEquals(77, ARGB.alpha(argb));
+        }
+      }
+      if (transforms[t] instanceof GrayscaleR) {
+        assertEquals(0, ties);
+      }
+    }
+  }
+}
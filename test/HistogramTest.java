@@ -0,0 +1,82 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import imageprocessing.model.Histogram;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the Histogram class.
+ */
+public class HistogramTest {
+
+  private int[] counts;
+  private Histogram histogram;
+
+  @Before
+  public void init() {
+    counts = new int[256];
+    counts[0] = 3;
+    counts[17] = 5;
+    counts[255] = 1;
+    histogram = new Histogram(counts);
+  }
+
+  @Test
+  public void testInvalidConstructor() {
+    try {
+      new Histogram(null);
+      fail("did not throw exception when given null counts");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Histograms must have 256 counts", e.getMessage());
+    }
+    try {
+      new Histogram(new int[255]);
+      fail("did not throw exception when given too few counts");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Histograms must have 256 counts", e.getMessage());
+    }
+    counts[4] = -1;
+    try {
+      new Histogram(counts);
+      fail("did not throw exception when given a negative count");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Histogram counts can't be negative", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testCounts() {
+    assertEquals(3, histogram.getCount(0));
+    assertEquals(0, histogram.getCount(1));
+    assertEquals(5, histogram.getCount(17));
+    assertEquals(5, histogram.getMaxCount());
+    assertEquals(9, histogram.getTotal());
+    try {
+      histogram.getCount(256);
+      fail("did not throw exception when given a value above 255");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Histogram values must be between 0 and 255", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testImmutable() {
+    counts[0] = 100;
+    assertEquals(3, histogram.getCount(0));
+    histogram.toArray()[0] = 100;
+    assertEquals(3, histogram.getCount(0));
+    counts[0] = 3;
+    assertArrayEquals(counts, histogram.toArray());
+  }
+
+  @Test
+  public void testEqualsAndToString() {
+    assertEquals(new Histogram(counts), histogram);
+    assertEquals(new Histogram(counts).hashCode(), histogram.hashCode());
+    assertNotEquals(new Histogram(new int[256]), histogram);
+    assertEquals("{0=3, 17=5, 255=1}", histogram.toString());
+  }
+}
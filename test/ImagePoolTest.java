@@ -0,0 +1,104 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import imageprocessing.model.ImagePool;
+import imageprocessing.model.LazyImage;
+import imageprocessing.model.OffHeapImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.Pixel;
+import imageprocessing.model.PixelGridImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.model.RGBPixel;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the ImagePool class.
+ */
+public class ImagePoolTest {
+
+  private ImagePool pool;
+  private PackedImage packed;
+
+  @Before
+  public void init() {
+    pool = new ImagePool(100);
+    packed = new PackedImage(3, 2, false);
+    pool.adopt(packed);
+  }
+
+  @Test
+  public void testInvalidConstructor() {
+    try {
+      new ImagePool(-1);
+      fail("did not throw exception when given a negative capacity");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Pool capacity can't be negative", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testOfferAndPoll() {
+    assertNull(pool.poll(3, 2, false));
+    assertTrue(pool.offer(packed));
+    assertEquals(24, pool.getPooledBytes());
+    assertNull(pool.poll(2, 3, false));
+    assertNull(pool.poll(3, 2, true));
+    assertSame(packed, pool.poll(3, 2, false));
+    assertEquals(0, pool.getPooledBytes());
+    assertNull(pool.poll(3, 2, false));
+  }
+
+  @Test
+  public void testRefusedImages() {
+    assertFalse(pool.offer(null));
+    assertFalse(pool.offer(new PackedImage(3, 2, false))); // not adopted
+    assertFalse(pool.adopt(null));
+    PlanarImage planar = new PlanarImage(3, 2, false);
+    assertFalse(pool.adopt(planar));
+    assertFalse(pool.offer(planar));
+    PixelGridImage grid = new PixelGridImage(new Pixel[][]{{new RGBPixel(1, 2, 3)}});
+    assertFalse(pool.adopt(grid));
+    assertFalse(pool.offer(grid));
+    assertFalse(pool.adopt(LazyImage.of(packed)));
+    assertFalse(pool.offer(LazyImage.of(packed)));
+    OffHeapImage closed = new OffHeapImage(3, 2, false);
+    assertTrue(pool.adopt(closed));
+    closed.close();
+    assertFalse(pool.adopt(closed));
+    assertFalse(pool.offer(closed));
+    PackedImage large = new PackedImage(6, 5, false);
+    assertTrue(pool.adopt(large));
+    assertFalse(pool.offer(large));
+    assertEquals(0, pool.getPooledBytes());
+  }
+
+  @Test
+  public void testCapacity() {
+    for (int i = 0; i < 4; i++) {
+      PackedImage img = new PackedImage(3, 2, false);
+      pool.adopt(img);
+      assertTrue(pool.offer(img));
+    }
+    assertFalse(pool.offer(packed));
+    assertEquals(96, pool.getPooledBytes());
+    pool.poll(3, 2, false);
+    assertTrue(pool.offer(packed));
+  }
+
+  @Test
+  public void testClear() {
+    OffHeapImage offHeap = new OffHeapImage(3, 2, true);
+    pool.adopt(offHeap);
+    assertTrue(pool.offer(offHeap));
+    assertTrue(pool.offer(packed));
+    pool.clear();
+    assertEquals(0, pool.getPooledBytes());
+    assertTrue(offHeap.isClosed());
+    assertNull(pool.poll(3, 2, true));
+  }
+}
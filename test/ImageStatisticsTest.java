@@ -0,0 +1,190 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ImageStatistics;
+import imageprocessing.model.LazyImage;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.OffHeapImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.model.RowBands;
+import imageprocessing.model.WritableImage;
+import imageprocessing.operations.Brighten;
+import imageprocessing.operations.FlipHorizontal;
+import imageprocessing.operations.GrayscaleB;
+import imageprocessing.operations.GrayscaleLuma;
+import imageprocessing.operations.GrayscaleR;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the ImageStatistics class, and how images keep their statistics.
+ */
+public class ImageStatisticsTest {
+
+  private WritableImage img;
+
+  @Before
+  public void init() {
+    img = new PackedImage(2, 2, true);
+    img.setARGB(0, 0, ARGB.pack(10, 20, 30, 255));
+    img.setARGB(0, 1, ARGB.pack(50, 60, 70, 100));
+    img.setARGB(1, 0, ARGB.pack(90, 0, 110, 255));
+    img.setARGB(1, 1, ARGB.pack(2, 200, 6, 255));
+  }
+
+  @Test
+  public void testValues() {
+    ImageStatistics stats = img.getStatistics();
+    assertEquals(2, stats.getMin(PlanarImage.RED));
+    assertEquals(90, stats.getMax(PlanarImage.RED));
+    assertEquals(38, stats.getMean(PlanarImage.RED), 1e-9);
+    assertEquals(0, stats.getMin(PlanarImage.GREEN));
+    assertEquals(200, stats.getMax(PlanarImage.GREEN));
+    assertEquals(6, stats.getMin(PlanarImage.BLUE));
+    assertEquals(110, stats.getMax(PlanarImage.BLUE));
+    assertEquals(100, stats.getMin(PlanarImage.ALPHA));
+    assertEquals(216.25, stats.getMean(PlanarImage.ALPHA), 1e-9);
+    assertEquals(200, stats.getMaxValue());
+    assertEquals(200, img.getMaxValue());
+    assertFalse(stats.isOpaque());
+    assertFalse(stats.isGrayscale());
+    ImageStatistics gray = new GrayscaleLuma().modify(new PackedImage(2, 2, false))
+        .getStatistics();
+    assertTrue(gray.isOpaque());
+    assertTrue(gray.isGrayscale());
+    try {
+      stats.getMin(4);
+      fail("did not throw exception when given an invalid channel");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid channel 4", e.getMessage());
+    }
+    try {
+      ImageStatistics.of(null);
+      fail("did not throw exception when given a null image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image can't be null", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testKeptUntilWritten() {
+    assertNull(img.getKnownStatistics());
+    ImageStatistics stats = img.getStatistics();
+    assertSame(stats, img.getStatistics());
+    assertSame(stats, img.getKnownStatistics());
+    img.setARGB(1, 1, ARGB.pack(2, 250, 6, 255));
+    assertNull(img.getKnownStatistics());
+    assertEquals(250, img.getMaxValue());
+    img.getStatistics();
+    img.setRow(0, new int[]{0, 0});
+    assertNull(img.getKnownStatistics());
+    img.getStatistics();
+    img.setRow(1, 1, new int[]{0}, 1);
+    assertNull(img.getKnownStatistics());
+    assertEquals(110, img.getMaxValue());
+  }
+
+  @Test
+  public void testSeededStatistics() {
+    ImageStatistics stats = img.getStatistics();
+    assertSame(stats, img.copy().getKnownStatistics());
+    assertSame(stats, new FlipHorizontal().modify(img).getKnownStatistics());
+    OffHeapImage offHeap = new OffHeapImage(2, 2, true);
+    img.copyTo(offHeap);
+    assertSame(stats, offHeap.getKnownStatistics());
+    offHeap.close();
+    // the copy is made opaque, so it has different statistics
+    WritableImage opaque = new PackedImage(2, 2, false);
+    img.copyTo(opaque);
+    assertNull(opaque.getKnownStatistics());
+    assertTrue(opaque.getStatistics().isOpaque());
+    // operations which change the pixels in ways that do not follow from the statistics do not
+    // pass any statistics on
+    assertNull(new Brighten(100).modify(img).getKnownStatistics());
+    assertNull(new GrayscaleLuma().modify(img).getKnownStatistics());
+  }
+
+  @Test
+  public void testDerivedStatistics() {
+    ImageStatistics stats = img.getStatistics();
+    ManipulableImage red = new GrayscaleR().modify(img);
+    assertStatistics(ImageStatistics.of(red), red.getKnownStatistics());
+    assertEquals(90, red.getKnownStatistics().getMax(PlanarImage.BLUE));
+    assertTrue(red.getKnownStatistics().isGrayscale());
+    ManipulableImage blue = new GrayscaleB().modify(PlanarImage.of(img));
+    assertNull(blue.getKnownStatistics()); // the planar copy has no statistics yet
+    ManipulableImage brighter = new Brighten(20).modify(img);
+    assertStatistics(ImageStatistics.of(brighter), brighter.getKnownStatistics());
+    assertEquals(stats.getMean(PlanarImage.GREEN) + 20,
+        brighter.getKnownStatistics().getMean(PlanarImage.GREEN), 1e-9);
+    assertNull(new Brighten(56).modify(img).getKnownStatistics()); // a value is clamped at 255
+    assertNull(new Brighten(-1).modify(img).getKnownStatistics()); // a value is clamped at 0
+    try {
+      stats.selectChannel(PlanarImage.ALPHA);
+      fail("did not throw exception when given the alpha channel");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid channel 3", e.getMessage());
+    }
+  }
+
+  /**
+   * Check that the given statistics have the expected values.
+   *
+   * @param expected the statistics computed from the pixels.
+   * @param actual   the statistics to check.
+   */
+  private static void assertStatistics(ImageStatistics expected, ImageStatistics actual) {
+    for (int channel = PlanarImage.RED; channel <= PlanarImage.ALPHA; channel++) {
+      assertEquals(expected.getMin(channel), actual.getMin(channel));
+      assertEquals(expected.getMax(channel), actual.getMax(channel));
+      assertEquals(expected.getMean(channel), actual.getMean(channel), 1e-9);
+    }
+    assertEquals(expected.isOpaque(), actual.isOpaque());
+    assertEquals(expected.isGrayscale(), actual.isGrayscale());
+  }
+
+  @Test
+  public void testLazyImage() {
+    ImageStatistics stats = img.getStatistics();
+    assertSame(stats, LazyImage.of(img).getKnownStatistics());
+    ManipulableImage brighter = new Brighten(100).modify(LazyImage.of(img));
+    assertNull(brighter.getKnownStatistics()); // some values are clamped
+    assertEquals(255, brighter.getMaxValue());
+    assertNotSame(stats, brighter.getStatistics());
+    assertSame(brighter.getStatistics(), brighter.getKnownStatistics());
+    // statistics which follow from those of the source are known without computing anything
+    LazyImage shifted = (LazyImage) new Brighten(10).modify(LazyImage.of(img));
+    assertEquals(210, shifted.getMaxValue());
+    assertFalse(shifted.isMaterialized());
+    WritableImage dest = new PackedImage(2, 2, true);
+    shifted.copyTo(dest);
+    assertSame(shifted.getKnownStatistics(), dest.getKnownStatistics());
+  }
+
+  @Test
+  public void testParallelMatchesSequential() {
+    Random random = new Random(5);
+    int[] argb = new int[61 * 37];
+    for (int i = 0; i < argb.length; i++) {
+      argb[i] = random.nextInt();
+    }
+    PackedImage large = new PackedImage(61, 37, argb, true);
+    ImageStatistics expected = ImageStatistics.of(large);
+    ImageStatistics actual = new RowBands(4, 100).run(() -> ImageStatistics.of(large));
+    for (int channel = PlanarImage.RED; channel <= PlanarImage.ALPHA; channel++) {
+      assertEquals(expected.getMin(channel), actual.getMin(channel));
+      assertEquals(expected.getMax(channel), actual.getMax(channel));
+      assertEquals(expected.getMean(channel), actual.getMean(channel), 1e-9);
+    }
+    assertEquals(expected.isOpaque(), actual.isOpaque());
+    assertEquals(expected.isGrayscale(), actual.isGrayscale());
+  }
+}
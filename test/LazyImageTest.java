@@ -0,0 +1,173 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.LazyImage;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.RGBAPixel;
+import imageprocessing.model.WritableImage;
+import imageprocessing.operations.Blur;
+import imageprocessing.operations.Brighten;
+import imageprocessing.operations.FlipHorizontal;
+import imageprocessing.operations.GrayscaleLuma;
+import imageprocessing.operations.Sepia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the LazyImage class.
+ */
+public class LazyImageTest {
+
+  private WritableImage packed;
+
+  @Before
+  public void init() {
+    packed = new PackedImage(4, 3, false);
+    for (int r = 0; r < 3; r++) {
+      for (int c = 0; c < 4; c++) {
+        packed.setARGB(r, c, ARGB.pack(r * 100, c * 80, (r * c * 40) % 256));
+      }
+    }
+  }
+
+  @Test
+  public void testOf() {
+    try {
+      LazyImage.of(null);
+      fail("did not throw exception when given a null image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image can't be null", e.getMessage());
+    }
+    LazyImage lazy = LazyImage.of(packed);
+    assertSame(lazy, LazyImage.of(lazy));
+    assertSame(packed, lazy.getSource());
+    assertFalse(lazy.hasPendingOperation());
+    assertSame(packed, lazy.materialize());
+    assertFalse(lazy.isMaterialized());
+    assertEquals(packed, lazy);
+  }
+
+  @Test
+  public void testChainMatchesEager() {
+    ManipulableImage eager = new Sepia().modify(
+        new GrayscaleLuma().modify(new Brighten(40).modify(packed)));
+    ManipulableImage lazy = new Sepia().modify(
+        new GrayscaleLuma().modify(new Brighten(40).modify(LazyImage.of(packed))));
+    assertTrue(lazy instanceof LazyImage);
+    assertSame(packed, ((LazyImage) lazy).getSource());
+    assertTrue(((LazyImage) lazy).hasPendingOperation());
+    assertEquals(eager.getARGB(2, 3), lazy.getARGB(2, 3));
+    assertFalse(((LazyImage) lazy).isMaterialized());
+    assertEquals(eager, lazy);
+    assertEquals(lazy, eager);
+    assertEquals(eager.hashCode(), lazy.hashCode());
+    assertEquals(new Blur().modify(eager), new Blur().modify(lazy));
+    assertEquals(new FlipHorizontal().modify(eager), new FlipHorizontal().modify(lazy));
+  }
+
+  @Test
+  public void testSinglePass() {
+    AtomicInteger calls = new AtomicInteger();
+    ManipulableImage lazy = LazyImage.of(packed);
+    for (int i = 0; i < 3; i++) {
+      lazy = lazy.mapARGB(p -> {
+        calls.incrementAndGet();
+        return p + 1;
+      });
+    }
+    assertEquals(0, calls.get());
+    assertEquals(packed.getARGB(1, 1) + 3, lazy.getRow(1).get(1));
+    assertEquals(3 * 12, calls.get());
+    lazy.getRow(2);
+    lazy.getMaxValue();
+    assertEquals(3 * 12, calls.get());
+    assertTrue(((LazyImage) lazy).isMaterialized());
+    ((LazyImage) lazy).close();
+    assertFalse(((LazyImage) lazy).isMaterialized());
+    assertEquals(packed.getARGB(0, 0) + 3, lazy.getARGB(0, 0));
+  }
+
+  @Test
+  public void testApplyToAllKeepsAlpha() {
+    int[] calls = new int[1];
+    ManipulableImage lazy = LazyImage.of(packed).applyToAll(p -> {
+      calls[0]++;
+      return new RGBAPixel(p.getChannels()[0], p.getChannels()[1], p.getChannels()[2], 100);
+    });
+    assertEquals(0, calls[0]); // nothing is applied until the pixels are needed
+    assertFalse(lazy.hasAlpha());
+    assertEquals(ARGB.pack(200, 240, 240), lazy.getARGB(2, 3));
+    assertEquals(ARGB.pack(200, 240, 240), lazy.getRow(2).get(3));
+    assertEquals(packed.applyToAll(p -> new RGBAPixel(
+        p.getChannels()[0], p.getChannels()[1], p.getChannels()[2], 100)), lazy);
+  }
+
+  @Test
+  public void testSources() {
+    LazyImage lazy = (LazyImage) LazyImage.of(packed).mapARGB(p -> p + 1);
+    assertEquals(List.of(packed), lazy.getSources());
+    assertEquals(0, lazy.getResidentBytes());
+    lazy.materialize();
+    assertEquals(4 * 3 * 4, lazy.getResidentBytes());
+    ManipulableImage moved = lazy.withSources(List.of(packed.copy()));
+    assertFalse(((LazyImage) moved).isMaterialized());
+    assertEquals(lazy, moved);
+    try {
+      lazy.withSources(List.of(packed, packed));
+      fail("did not throw exception when given two sources");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Expected 1 source image", e.getMessage());
+    }
+    assertEquals(List.of(), packed.getSources());
+    assertSame(packed, packed.withSources(List.of()));
+  }
+
+  @Test
+  public void testLongChain() {
+    ManipulableImage lazy = LazyImage.of(packed);
+    for (int i = 0; i < 20000; i++) {
+      lazy = new Brighten(i % 2 == 0 ? 1 : -1).modify(lazy);
+    }
+    assertTrue(lazy instanceof LazyImage);
+    assertSame(packed, ((LazyImage) lazy).getSource());
+    assertEquals(packed.getARGB(2, 3), lazy.getARGB(2, 3));
+    assertEquals(packed, lazy); // computes the pixels through the whole chain
+  }
+
+  @Test
+  public void testContinuesFromMaterialized() {
+    AtomicInteger calls = new AtomicInteger();
+    LazyImage first = (LazyImage) LazyImage.of(packed).mapARGB(p -> {
+      calls.incrementAndGet();
+      return p + 1;
+    });
+    ManipulableImage pixels = first.materialize();
+    assertEquals(12, calls.get());
+    LazyImage second = (LazyImage) first.mapARGB(p -> p + 2);
+    assertSame(pixels, second.getSource());
+    assertEquals(List.of(packed, pixels), first.getSources());
+    assertEquals(0, first.getResidentBytes()); // counted as one of its sources instead
+    assertEquals(packed.getARGB(1, 2) + 3, second.getARGB(1, 2));
+    second.materialize();
+    assertEquals(12, calls.get()); // the first step is not applied again
+    first.close();
+    assertEquals(packed.getARGB(2, 3) + 3, second.getRow(2).get(3));
+    assertEquals(List.of(packed), first.getSources());
+    second.mapARGB(p -> p);
+    try {
+      second.withSources(List.of(second.getSource()));
+      fail("did not throw exception when given one of two sources");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Expected 2 source images", e.getMessage());
+    }
+  }
+}
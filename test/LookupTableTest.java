@@ -0,0 +1,106 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.model.RGBPixel;
+import imageprocessing.model.WritableImage;
+import imageprocessing.operations.GrayscaleB;
+import imageprocessing.operations.GrayscaleG;
+import imageprocessing.operations.GrayscaleR;
+import imageprocessing.operations.LookupTable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the LookupTable class and the table-driven pixel helpers.
+ */
+public class LookupTableTest {
+
+  private WritableImage img;
+
+  @Before
+  public void init() {
+    img = new PackedImage(5, 4, true);
+    for (int r = 0; r < 4; r++) {
+      for (int c = 0; c < 5; c++) {
+        img.setARGB(r, c, ARGB.pack(r * 70, c * 60, (r * 5 + c * 3) * 12, 200 - r * 40));
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidTables() {
+    try {
+      new LookupTable(new int[256], new int[255], new int[256]);
+      fail("did not throw exception when given a short table");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Lookup tables must have 256 entries", e.getMessage());
+    }
+    int[] bad = new int[256];
+    bad[3] = 256;
+    try {
+      new LookupTable(new int[256], new int[256], bad);
+      fail("did not throw exception when given an out of range value");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Lookup table values must be between 0 and 255", e.getMessage());
+    }
+    try {
+      LookupTable.select(0, 3, 1);
+      fail("did not throw exception when given an invalid channel");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid color channel 3", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testFunctionTable() {
+    LookupTable invert = new LookupTable(v -> 255 - v);
+    ManipulableImage expected = img.mapARGB(p -> ARGB.pack(255 - ARGB.red(p),
+        255 - ARGB.green(p), 255 - ARGB.blue(p), ARGB.alpha(p)));
+    assertEquals(expected, invert.modify(img));
+    assertEquals(img, invert.then(invert).modify(img));
+    assertEquals(ARGB.pack(255, 255, 255, 7), new LookupTable(v -> v + 300).apply(ARGB.pack(
+        1, 2, 3, 7)));
+  }
+
+  @Test
+  public void testCompileMatchesStepByStep() {
+    LookupTable gamma = new LookupTable(v -> (int) Math.rint(255 * Math.pow(v / 255.0, 0.5)));
+    LookupTable compiled = LookupTable.compile(gamma, new GrayscaleG(), new LookupTable(
+        v -> v / 2));
+    ManipulableImage stepByStep = new LookupTable(v -> v / 2).modify(
+        new GrayscaleG().modify(gamma.modify(img)));
+    assertEquals(stepByStep, compiled.modify(img));
+    LookupTable swap = LookupTable.select(PlanarImage.BLUE, PlanarImage.RED, PlanarImage.GREEN);
+    assertEquals(new GrayscaleR().modify(swap.modify(img)),
+        swap.then(new GrayscaleR().toLookupTable()).modify(img));
+    assertEquals(new GrayscaleB().modify(img), new GrayscaleB().toLookupTable().modify(img));
+  }
+
+  @Test
+  public void testPlanarMatchesPacked() {
+    LookupTable table = LookupTable.compile(new LookupTable(v -> v * 2),
+        LookupTable.select(PlanarImage.GREEN, PlanarImage.GREEN, PlanarImage.RED));
+    ManipulableImage planar = table.modify(PlanarImage.of(img));
+    assertTrue(planar instanceof PlanarImage);
+    assertEquals(table.modify(img), planar);
+  }
+
+  @Test
+  public void testTabulatedHelpers() {
+    for (int r = 0; r < 256; r += 5) {
+      for (int g = 0; g < 256; g += 3) {
+        for (int b = 0; b < 256; b += 7) {
+          RGBPixel p = new RGBPixel(r, g, b);
+          assertEquals(p.getLuma(), ARGB.luma(ARGB.pack(r, g, b)));
+          assertEquals(p.getIntensity(), ARGB.intensity(ARGB.pack(r, g, b)));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.IntBuffer;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.MappedImage;
+import imageprocessing.model.OrientedImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.WritableImage;
+import imageprocessing.operations.Blur;
+import imageprocessing.operations.FlipVertical;
+import imageprocessing.operations.GrayscaleLuma;
+import imageprocessing.operations.Operation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the MappedImage class.
+ */
+public class MappedImageTest {
+
+  private WritableImage packed;
+
+  @Before
+  public void init() {
+    packed = new PackedImage(4, 3, true);
+    for (int r = 0; r < 3; r++) {
+      for (int c = 0; c < 4; c++) {
+        packed.setARGB(r, c, ARGB.pack(r * 90, c * 70, (r + c) * 40, 255 - c * 50));
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidConstructor() {
+    try {
+      new MappedImage(3, -1, false);
+      fail("did not throw exception when given negative dimensions");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image dimensions must be positive", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testBlank() {
+    assertEquals(ARGB.pack(0, 0, 0), new MappedImage(2, 2, false).getARGB(1, 1));
+    assertEquals(0, new MappedImage(2, 2, true).getARGB(1, 1));
+  }
+
+  @Test
+  public void testCopyOf() {
+    MappedImage mapped = MappedImage.copyOf(packed);
+    assertTrue(mapped.hasAlpha());
+    assertEquals(packed, mapped);
+    assertEquals(mapped, packed);
+    assertEquals(packed.getARGB(2, 3), mapped.getARGB(2, 3));
+    WritableImage copy = mapped.copy();
+    copy.setARGB(0, 0, 0);
+    assertEquals(packed, mapped);
+  }
+
+  @Test
+  public void testOperationsMatchPacked() {
+    MappedImage mapped = MappedImage.copyOf(packed);
+    Operation[] ops = new Operation[]{new Blur(), new GrayscaleLuma(), new FlipVertical()};
+    for (Operation op : ops) {
+      ManipulableImage result = op.modify(mapped);
+      if (result instanceof OrientedImage) { // flips only view the image
+        assertSame(mapped, ((OrientedImage) result).getSource());
+        result = result.copy();
+      }
+      assertTrue(result instanceof MappedImage);
+      assertEquals(op.modify(packed), result);
+    }
+  }
+
+  @Test
+  public void testClose() {
+    MappedImage mapped = MappedImage.copyOf(packed);
+    IntBuffer row = mapped.getRow(1);
+    ManipulableImage flipped = new FlipVertical().modify(mapped);
+    assertFalse(mapped.isClosed());
+    mapped.close();
+    mapped.close();
+    assertTrue(mapped.isClosed());
+    try {
+      mapped.getRow(0);
+      fail("did not throw exception when reading a closed image");
+    } catch (IllegalStateException e) {
+      assertEquals("Image has already been closed", e.getMessage());
+    }
+    try {
+      flipped.getARGB(0, 0);
+      fail("did not throw exception when reading a view of a closed image");
+    } catch (IllegalStateException e) {
+      assertEquals("Image has already been closed", e.getMessage());
+    }
+    // a row view taken before closing keeps the mapping alive
+    System.gc();
+    assertEquals(packed.getRow(1), row);
+  }
+}
@@ -0,0 +1,138 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.IntBuffer;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ImageFactory;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.OffHeapImage;
+import imageprocessing.model.OrientedImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.WritableImage;
+import imageprocessing.operations.Blur;
+import imageprocessing.operations.Brighten;
+import imageprocessing.operations.FlipHorizontal;
+import imageprocessing.operations.Operation;
+import imageprocessing.operations.Sepia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the OffHeapImage class.
+ */
+public class OffHeapImageTest {
+
+  private OffHeapImage offHeap;
+  private WritableImage packed;
+
+  @Before
+  public void init() {
+    offHeap = new OffHeapImage(5, 3, false);
+    packed = new PackedImage(5, 3, false);
+    for (int r = 0; r < 3; r++) {
+      for (int c = 0; c < 5; c++) {
+        int argb = ARGB.pack(r * 80, c * 60, (r + c) * 30);
+        offHeap.setARGB(r, c, argb);
+        packed.setARGB(r, c, argb);
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidConstructor() {
+    try {
+      new OffHeapImage(0, 3, false);
+      fail("did not throw exception when given empty dimensions");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image dimensions must be positive", e.getMessage());
+    }
+    try {
+      new OffHeapImage(65536, 65536, false);
+      fail("did not throw exception when given huge dimensions");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image is too large to store in a single buffer", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testBlank() {
+    assertEquals(ARGB.pack(0, 0, 0), new OffHeapImage(2, 2, false).getARGB(1, 1));
+    assertEquals(0, new OffHeapImage(2, 2, true).getARGB(1, 1));
+  }
+
+  @Test
+  public void testAccessors() {
+    assertEquals(packed, offHeap);
+    assertEquals(offHeap, packed);
+    assertEquals(packed.hashCode(), offHeap.hashCode());
+    assertEquals(packed.getMaxValue(), offHeap.getMaxValue());
+    IntBuffer row = offHeap.getRow(2);
+    assertEquals(5, row.remaining());
+    assertEquals(ARGB.pack(160, 240, 180), row.get(4));
+    assertTrue(row.isReadOnly());
+  }
+
+  @Test
+  public void testOperationsMatchPacked() {
+    Operation[] ops = new Operation[]{new Blur(), new Sepia(), new Brighten(-20),
+        new FlipHorizontal()};
+    for (Operation op : ops) {
+      ManipulableImage result = op.modify(offHeap);
+      if (result instanceof OrientedImage) { // flips only view the image
+        assertSame(offHeap, ((OrientedImage) result).getSource());
+        result = result.copy();
+      }
+      assertTrue(result instanceof OffHeapImage);
+      assertEquals(op.modify(packed), result);
+    }
+  }
+
+  @Test
+  public void testCopy() {
+    WritableImage copy = offHeap.copy();
+    copy.setARGB(0, 0, ARGB.pack(1, 2, 3));
+    assertEquals(packed, offHeap);
+    assertEquals(ARGB.pack(1, 2, 3), copy.getARGB(0, 0));
+  }
+
+  @Test
+  public void testClose() {
+    IntBuffer row = offHeap.getRow(1);
+    ManipulableImage cropped = offHeap.crop(0, 1, 2, 2);
+    assertFalse(offHeap.isClosed());
+    offHeap.close();
+    offHeap.close();
+    assertTrue(offHeap.isClosed());
+    try {
+      offHeap.getARGB(0, 0);
+      fail("did not throw exception when reading a closed image");
+    } catch (IllegalStateException e) {
+      assertEquals("Image has already been closed", e.getMessage());
+    }
+    try {
+      cropped.getRow(0);
+      fail("did not throw exception when reading a view of a closed image");
+    } catch (IllegalStateException e) {
+      assertEquals("Image has already been closed", e.getMessage());
+    }
+    // a row view taken before closing keeps the memory alive
+    System.gc();
+    assertEquals(packed.getRow(1), row);
+  }
+
+  @Test
+  public void testFactory() {
+    ImageFactory factory = new ImageFactory(ImageFactory.Storage.OFF_HEAP);
+    assertTrue(factory.createImage(4, 4, false) instanceof OffHeapImage);
+    ManipulableImage wrapped = factory.createImage(2, 1,
+        new int[]{ARGB.pack(1, 2, 3), ARGB.pack(4, 5, 6)}, false);
+    assertTrue(wrapped instanceof OffHeapImage);
+    assertEquals(ARGB.pack(4, 5, 6), wrapped.getARGB(0, 1));
+    assertTrue(new ImageFactory().createImage(4, 4, false) instanceof PackedImage);
+  }
+}
@@ -1,9 +1,13 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
+import imageprocessing.model.LazyImage;
 import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PackedImage;
 import imageprocessing.model.Pixel;
 import imageprocessing.model.PixelGridImage;
 import imageprocessing.model.RGBPixel;
+import imageprocessing.model.WritableImage;
 import imageprocessing.operations.Blur;
 import imageprocessing.operations.Brighten;
 import imageprocessing.operations.FlipHorizontal;
@@ -16,6 +20,8 @@ import imageprocessing.operations.GrayscaleLuma;
 import imageprocessing.operations.GrayscaleR;
 import imageprocessing.operations.GrayscaleValue;
 import imageprocessing.operations.Operation;
+import imageprocessing.operations.RotateClockwise;
+import imageprocessing.operations.RotateCounterclockwise;
 import imageprocessing.operations.Sepia;
 import imageprocessing.operations.Sharpen;
 import org.junit.Before;
@@ -147,6 +153,22 @@ public class OperationsTest {
     assertEquals(new PixelGridImage(flipHorizPixels), flipHoriz.modify(twoX2));
   }
 
+  @Test
+  public void testRotate() {
+    Pixel[] clockwiseRow1 = new Pixel[]{new RGBPixel(16, 234, 227),
+        new RGBPixel(255, 0, 0)};
+    Pixel[] clockwiseRow2 = new Pixel[]{new RGBPixel(234, 85, 16),
+        new RGBPixel(150, 255, 80)};
+    Pixel[][] clockwisePixels = new Pixel[][]{clockwiseRow1, clockwiseRow2};
+    assertEquals(new PixelGridImage(clockwisePixels), new RotateClockwise().modify(twoX2));
+    Pixel[] counterRow1 = new Pixel[]{new RGBPixel(150, 255, 80),
+        new RGBPixel(234, 85, 16)};
+    Pixel[] counterRow2 = new Pixel[]{new RGBPixel(255, 0, 0),
+        new RGBPixel(16, 234, 227)};
+    Pixel[][] counterPixels = new Pixel[][]{counterRow1, counterRow2};
+    assertEquals(new PixelGridImage(counterPixels), new RotateCounterclockwise().modify(twoX2));
+  }
+
   @Test
   public void testBrighten() {
     Pixel[] brighten40Row1 = new Pixel[]{new RGBPixel(255, 0, 0),
@@ -334,4 +356,52 @@ public class OperationsTest {
 
     assertEquals(new PixelGridImage(sepiaPixels), sepia.modify(threeX3));
   }
+
+  @Test
+  public void testModifyIntoDestination() {
+    Operation[] operations = new Operation[]{redComp, luma, flipVert, flipHoriz,
+        new RotateClockwise(), brighten40, blur, sharpen, grayscale, sepia};
+    for (Operation operation : operations) {
+      WritableImage dest = new PackedImage(2, 2, false);
+      dest.setARGB(0, 0, 0xFF123456); // left over from a previous use
+      operation.modify(twoX2, dest);
+      assertEquals(operation.modify(twoX2), dest);
+      dest = new PackedImage(2, 2, false);
+      operation.modify(LazyImage.of(twoX2), dest);
+      assertEquals(operation.modify(twoX2), dest);
+    }
+  }
+
+  @Test
+  public void testInvalidDestination() {
+    try {
+      blur.modify(twoX2, null);
+      fail("did not throw exception when given a null destination");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Destination must be a different image", e.getMessage());
+    }
+    WritableImage image = new PackedImage(2, 2, false);
+    try {
+      sepia.modify(image, image);
+      fail("did not throw exception when given the image as its own destination");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Destination must be a different image", e.getMessage());
+    }
+    try {
+      flipHoriz.modify(twoX2, new PackedImage(3, 2, false));
+      fail("did not throw exception when given a destination of a different size");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Destination must be the same size as the image", e.getMessage());
+    }
+    WritableImage wide = new PackedImage(3, 2, false);
+    try {
+      new RotateClockwise().modify(wide, new PackedImage(3, 2, false));
+      fail("did not throw exception when given a destination which is not rotated");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Destination must be the same size as the result", e.getMessage());
+    }
+    WritableImage tall = new PackedImage(2, 3, false);
+    new RotateClockwise().modify(wide, tall);
+    assertEquals(new RotateClockwise().modify(wide), tall);
+  }
 }
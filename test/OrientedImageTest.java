@@ -0,0 +1,206 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.LazyImage;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.Orientation;
+import imageprocessing.model.OrientedImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.model.WritableImage;
+import imageprocessing.operations.Blur;
+import imageprocessing.operations.Brighten;
+import imageprocessing.operations.FlipHorizontal;
+import imageprocessing.operations.FlipVertical;
+import imageprocessing.operations.RotateClockwise;
+import imageprocessing.operations.RotateCounterclockwise;
+import java.nio.IntBuffer;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the Orientation and OrientedImage classes, and the flips and rotations which create
+ * oriented images.
+ */
+public class OrientedImageTest {
+
+  private WritableImage img;
+
+  @Before
+  public void init() {
+    img = new PackedImage(5, 3, false);
+    for (int r = 0; r < img.getHeight(); r++) {
+      for (int c = 0; c < img.getWidth(); c++) {
+        img.setARGB(r, c, ARGB.pack(r * 40, c * 50, r * 10 + c));
+      }
+    }
+  }
+
+  /**
+   * Return a copy of the given image in the given orientation, computed pixel by pixel.
+   *
+   * @param image       the image to orient.
+   * @param orientation the orientation.
+   * @return the oriented copy.
+   */
+  private static WritableImage orient(ManipulableImage image, Orientation orientation) {
+    boolean transposed = orientation.isTransposed();
+    int width = transposed ? image.getHeight() : image.getWidth();
+    int height = transposed ? image.getWidth() : image.getHeight();
+    WritableImage result = new PackedImage(width, height, image.hasAlpha());
+    for (int r = 0; r < height; r++) {
+      for (int c = 0; c < width; c++) {
+        int row = orientation.isFlippedVertically() ? height - 1 - r : r;
+        int col = orientation.isFlippedHorizontally() ? width - 1 - c : c;
+        result.setARGB(r, c, transposed ? image.getARGB(col, row) : image.getARGB(row, col));
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testOf() {
+    try {
+      OrientedImage.of(null, Orientation.ROTATE_180);
+      fail("did not throw exception when given a null image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image can't be null", e.getMessage());
+    }
+    try {
+      OrientedImage.of(img, null);
+      fail("did not throw exception when given a null orientation");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Orientation can't be null", e.getMessage());
+    }
+    assertSame(img, OrientedImage.of(img, Orientation.IDENTITY));
+    ManipulableImage rotated = OrientedImage.of(img, Orientation.ROTATE_CLOCKWISE);
+    assertTrue(rotated instanceof OrientedImage);
+    assertSame(img, ((OrientedImage) rotated).getSource());
+    assertEquals(Orientation.ROTATE_CLOCKWISE, ((OrientedImage) rotated).getOrientation());
+    assertEquals(3, rotated.getWidth());
+    assertEquals(5, rotated.getHeight());
+    assertSame(img, ((OrientedImage) OrientedImage.of(LazyImage.of(img),
+        Orientation.TRANSPOSE)).getSource());
+  }
+
+  @Test
+  public void testMatchesPixels() {
+    for (Orientation orientation : Orientation.values()) {
+      ManipulableImage oriented = OrientedImage.of(img, orientation);
+      WritableImage expected = orient(img, orientation);
+      assertEquals(expected, oriented);
+      assertEquals(oriented, expected);
+      assertEquals(expected.hashCode(), oriented.hashCode());
+      for (int r = 0; r < expected.getHeight(); r++) {
+        for (int c = 0; c < expected.getWidth(); c++) {
+          assertEquals(expected.getARGB(r, c), oriented.getARGB(r, c));
+        }
+      }
+      assertEquals(expected, oriented.copy());
+      assertTrue(oriented.copy() instanceof PackedImage);
+    }
+  }
+
+  @Test
+  public void testComposition() {
+    for (Orientation first : Orientation.values()) {
+      for (Orientation second : Orientation.values()) {
+        ManipulableImage combined = OrientedImage.of(OrientedImage.of(img, first), second);
+        assertEquals(orient(orient(img, first), second), combined);
+        assertEquals(first.then(second), combined instanceof OrientedImage
+            ? ((OrientedImage) combined).getOrientation() : Orientation.IDENTITY);
+        if (combined instanceof OrientedImage) {
+          assertSame(img, ((OrientedImage) combined).getSource());
+        }
+      }
+    }
+    ManipulableImage turned = new RotateClockwise().modify(new RotateClockwise().modify(img));
+    assertEquals(Orientation.ROTATE_180, ((OrientedImage) turned).getOrientation());
+    assertSame(img, new RotateCounterclockwise().modify(new RotateClockwise().modify(img)));
+    assertSame(img, new FlipVertical().modify(new FlipHorizontal().modify(
+        new RotateClockwise().modify(new RotateClockwise().modify(img)))));
+  }
+
+  @Test
+  public void testRowViews() {
+    ManipulableImage flipped = new FlipVertical().modify(img);
+    IntBuffer row = flipped.getRow(0);
+    assertTrue(row.isReadOnly());
+    assertEquals(img.getRow(2), row);
+    ManipulableImage rotated = new RotateCounterclockwise().modify(img);
+    row = rotated.getRow(1);
+    assertTrue(row.isReadOnly());
+    assertEquals(3, row.remaining());
+    for (int c = 0; c < 3; c++) {
+      assertEquals(img.getARGB(c, 3), row.get(c));
+    }
+    try {
+      rotated.getRow(5);
+      fail("did not throw exception when given a row outside the image");
+    } catch (IndexOutOfBoundsException e) {
+      assertEquals("Pixel (5, 0) is out of bounds", e.getMessage());
+    }
+    try {
+      rotated.getARGB(0, 3);
+      fail("did not throw exception when given a column outside the image");
+    } catch (IndexOutOfBoundsException e) {
+      assertEquals("Pixel (0, 3) is out of bounds", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testOperationsOnViews() {
+    ManipulableImage rotated = new RotateClockwise().modify(img);
+    WritableImage eager = orient(img, Orientation.ROTATE_CLOCKWISE);
+    ManipulableImage brighter = new Brighten(30).modify(rotated);
+    assertTrue(brighter instanceof OrientedImage);
+    assertEquals(new Brighten(30).modify(eager), brighter);
+    assertEquals(new Blur().modify(eager), new Blur().modify(rotated));
+    assertEquals(new FlipHorizontal().modify(new Blur().modify(img)),
+        new Blur().modify(new FlipHorizontal().modify(img)));
+    ManipulableImage lazy = new Brighten(30).modify(LazyImage.of(rotated));
+    assertEquals(new Brighten(30).modify(eager), lazy);
+    assertEquals(new Brighten(30).modify(eager),
+        new FlipVertical().modify(new FlipVertical().modify(lazy)));
+  }
+
+  @Test
+  public void testStatisticsAndHistograms() {
+    ManipulableImage rotated = new RotateClockwise().modify(img);
+    assertEquals(img.histogram(ARGB::red), rotated.histogram(ARGB::red));
+    assertSame(img.getStatistics(), rotated.getStatistics());
+    assertSame(img.getStatistics(), rotated.getKnownStatistics());
+    assertEquals(img.getMaxValue(), rotated.getMaxValue());
+  }
+
+  @Test
+  public void testPlanarSource() {
+    PlanarImage planar = PlanarImage.of(img);
+    ManipulableImage rotated = new RotateCounterclockwise().modify(planar);
+    assertEquals(orient(img, Orientation.ROTATE_COUNTERCLOCKWISE), rotated);
+    assertTrue(rotated.copy() instanceof PlanarImage);
+    assertFalse(rotated.hasAlpha());
+  }
+
+  @Test
+  public void testSources() {
+    ManipulableImage rotated = OrientedImage.of(img, Orientation.ROTATE_CLOCKWISE);
+    assertEquals(List.of(img), rotated.getSources());
+    assertEquals(0, rotated.getResidentBytes());
+    ManipulableImage moved = rotated.withSources(List.of(img.copy()));
+    assertEquals(List.of(img), moved.getSources());
+    assertEquals(Orientation.ROTATE_CLOCKWISE, ((OrientedImage) moved).getOrientation());
+    assertEquals(rotated, moved);
+    try {
+      rotated.withSources(List.of(rotated));
+      fail("did not throw exception when given a source of the wrong size");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Source must be the same size as the image", e.getMessage());
+    }
+  }
+}
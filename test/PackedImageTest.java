@@ -0,0 +1,202 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.nio.IntBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.Pixel;
+import imageprocessing.model.PixelGridImage;
+import imageprocessing.model.RGBAPixel;
+import imageprocessing.model.RGBPixel;
+import imageprocessing.model.WritableImage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the PackedImage class.
+ */
+public class PackedImageTest {
+
+  private ManipulableImage twoX2;
+  private ManipulableImage transparent;
+
+  @Before
+  public void init() {
+    twoX2 = new PackedImage(2, 2, new int[]{
+        ARGB.pack(255, 0, 0), ARGB.pack(255, 255, 80),
+        ARGB.pack(16, 234, 227), ARGB.pack(234, 85, 16)}, false);
+    transparent = new PackedImage(2, 1, new int[]{
+        ARGB.pack(1, 2, 3, 0), ARGB.pack(4, 5, 6, 128)}, true);
+  }
+
+  @Test
+  public void testInvalidConstructor() {
+    try {
+      new PackedImage(2, 2, null, false);
+      fail("did not throw exception when given null data");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Pixel data can't be null", e.getMessage());
+    }
+    try {
+      new PackedImage(0, 2, new int[0], false);
+      fail("did not throw exception when given empty dimensions");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image dimensions must be positive", e.getMessage());
+    }
+    try {
+      new PackedImage(2, 2, new int[3], false);
+      fail("did not throw exception when given mismatched data");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Pixel data does not match the image dimensions", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testDimensionsAndAlpha() {
+    assertEquals(2, twoX2.getWidth());
+    assertEquals(2, twoX2.getHeight());
+    assertFalse(twoX2.hasAlpha());
+    assertEquals(2, transparent.getWidth());
+    assertEquals(1, transparent.getHeight());
+    assertTrue(transparent.hasAlpha());
+  }
+
+  @Test
+  public void testGetPixels() {
+    assertArrayEquals(new Pixel[][]{
+        new Pixel[]{new RGBPixel(255, 0, 0), new RGBPixel(255, 255, 80)},
+        new Pixel[]{new RGBPixel(16, 234, 227), new RGBPixel(234, 85, 16)}},
+        twoX2.getPixels());
+    assertArrayEquals(new Pixel[][]{
+        new Pixel[]{new RGBAPixel(1, 2, 3, 0), new RGBAPixel(4, 5, 6, 128)}},
+        transparent.getPixels());
+  }
+
+  @Test
+  public void testGetMaxValue() {
+    assertEquals(255, twoX2.getMaxValue());
+    assertEquals(6, transparent.getMaxValue());
+  }
+
+  @Test
+  public void testApplyToAllKeepsAlpha() {
+    ManipulableImage result = transparent.applyToAll(
+        p -> new RGBAPixel(0, 0, 0, p.getChannels()[3]));
+    assertTrue(result.hasAlpha());
+    assertArrayEquals(new Pixel[][]{
+        new Pixel[]{new RGBAPixel(0, 0, 0, 0), new RGBAPixel(0, 0, 0, 128)}},
+        result.getPixels());
+  }
+
+  @Test
+  public void testApplyToAllOncePerPixel() {
+    int[] calls = new int[1];
+    ManipulableImage result = twoX2.applyToAll(p -> {
+      calls[0]++;
+      return new RGBAPixel(1, 2, 3, 4);
+    });
+    assertEquals(4, calls[0]);
+    assertFalse(result.hasAlpha());
+    assertEquals(ARGB.pack(1, 2, 3), result.getARGB(1, 1));
+  }
+
+  @Test
+  public void testToBufferedImage() {
+    BufferedImage actual = transparent.toBufferedImage(BufferedImage.TYPE_INT_ARGB);
+    assertEquals(ARGB.pack(1, 2, 3, 0), actual.getRGB(0, 0));
+    assertEquals(ARGB.pack(4, 5, 6, 128), actual.getRGB(1, 0));
+  }
+
+  @Test
+  public void testEqualsAcrossAdapter() {
+    ManipulableImage grid = new PixelGridImage(new Pixel[][]{
+        new Pixel[]{new RGBPixel(255, 0, 0), new RGBPixel(255, 255, 80)},
+        new Pixel[]{new RGBPixel(16, 234, 227), new RGBPixel(234, 85, 16)}});
+    assertEquals(grid, twoX2);
+    assertEquals(twoX2, grid);
+    assertEquals(grid.hashCode(), twoX2.hashCode());
+
+    // alpha is only compared when both images have it
+    ManipulableImage opaque = new PackedImage(2, 1, new int[]{
+        ARGB.pack(1, 2, 3), ARGB.pack(4, 5, 6)}, false);
+    ManipulableImage otherAlpha = new PackedImage(2, 1, new int[]{
+        ARGB.pack(1, 2, 3, 10), ARGB.pack(4, 5, 6, 128)}, true);
+    assertEquals(opaque, transparent);
+    assertNotEquals(otherAlpha, transparent);
+  }
+
+  @Test
+  public void testPrimitiveAccessors() {
+    assertEquals(ARGB.pack(255, 255, 80), twoX2.getARGB(0, 1));
+    assertEquals(16, twoX2.getRed(1, 0));
+    assertEquals(234, twoX2.getGreen(1, 0));
+    assertEquals(227, twoX2.getBlue(1, 0));
+    assertEquals(255, twoX2.getAlpha(1, 0));
+    assertEquals(128, transparent.getAlpha(0, 1));
+    try {
+      twoX2.getARGB(0, 2);
+      fail("did not throw exception when reading out of bounds");
+    } catch (IndexOutOfBoundsException e) {
+      assertEquals("Pixel (0, 2) is out of bounds", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testCreateCompatibleImage() {
+    WritableImage blank = twoX2.createCompatibleImage(3, 1, false);
+    assertEquals(3, blank.getWidth());
+    assertEquals(1, blank.getHeight());
+    assertEquals(ARGB.pack(0, 0, 0), blank.getARGB(0, 2));
+
+    // images without alpha stay opaque when written to
+    blank.setRGBA(0, 1, 10, 20, 30, 0);
+    assertEquals(ARGB.pack(10, 20, 30), blank.getARGB(0, 1));
+
+    WritableImage blankAlpha = twoX2.createCompatibleImage(1, 1, true);
+    assertEquals(0, blankAlpha.getARGB(0, 0));
+    blankAlpha.setARGB(0, 0, ARGB.pack(10, 20, 30, 40));
+    assertEquals(40, blankAlpha.getAlpha(0, 0));
+  }
+
+  @Test
+  public void testMapARGB() {
+    ManipulableImage result = transparent.mapARGB(p -> ARGB.pack(ARGB.blue(p), ARGB.green(p),
+        ARGB.red(p), ARGB.alpha(p)));
+    assertTrue(result.hasAlpha());
+    assertEquals(ARGB.pack(3, 2, 1, 0), result.getARGB(0, 0));
+    assertEquals(ARGB.pack(6, 5, 4, 128), result.getARGB(0, 1));
+  }
+
+  @Test
+  public void testGetRowIsReadOnlyView() {
+    IntBuffer row = twoX2.getRow(1);
+    assertTrue(row.isReadOnly());
+    assertEquals(2, row.remaining());
+    assertEquals(ARGB.pack(16, 234, 227), row.get(0));
+    assertEquals(ARGB.pack(234, 85, 16), row.get(1));
+    try {
+      row.put(0, 0);
+      fail("did not throw exception when writing to a read-only row");
+    } catch (ReadOnlyBufferException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCopyIsIndependent() {
+    WritableImage copy = twoX2.copy();
+    assertEquals(twoX2, copy);
+    copy.setARGB(0, 0, ARGB.pack(1, 1, 1));
+    assertEquals(ARGB.pack(255, 0, 0), twoX2.getARGB(0, 0));
+    assertEquals(ARGB.pack(1, 1, 1), copy.getARGB(0, 0));
+  }
+}
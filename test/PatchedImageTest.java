@@ -0,0 +1,183 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.CroppedImage;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.PatchedImage;
+import imageprocessing.model.WritableImage;
+import imageprocessing.operations.Blur;
+import imageprocessing.operations.Brighten;
+import imageprocessing.operations.EdgeMode;
+import imageprocessing.operations.Filter;
+import imageprocessing.operations.RotateClockwise;
+import imageprocessing.operations.Sepia;
+import java.nio.IntBuffer;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the PatchedImage class, and applying operations to regions of images.
+ */
+public class PatchedImageTest {
+
+  private WritableImage img;
+  private WritableImage patch;
+
+  @Before
+  public void init() {
+    img = new PackedImage(6, 5, false);
+    for (int r = 0; r < img.getHeight(); r++) {
+      for (int c = 0; c < img.getWidth(); c++) {
+        img.setARGB(r, c, ARGB.pack(r * 40, c * 40, r * 10 + c));
+      }
+    }
+    patch = new PackedImage(2, 3, true);
+    for (int r = 0; r < patch.getHeight(); r++) {
+      for (int c = 0; c < patch.getWidth(); c++) {
+        patch.setARGB(r, c, 0x10000000 | ARGB.pack(200, r, c));
+      }
+    }
+  }
+
+  @Test
+  public void testOf() {
+    try {
+      PatchedImage.of(null, patch, 0, 0);
+      fail("did not throw exception when given a null image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image can't be null", e.getMessage());
+    }
+    try {
+      PatchedImage.of(img, patch, 3, 0);
+      fail("did not throw exception when given a patch which does not fit");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Patch must fit inside the image", e.getMessage());
+    }
+    WritableImage whole = new PackedImage(6, 5, false);
+    assertSame(whole, PatchedImage.of(img, whole, 0, 0));
+    ManipulableImage patched = PatchedImage.of(img, patch, 1, 2);
+    assertTrue(patched instanceof PatchedImage);
+    assertSame(img, ((PatchedImage) patched).getSource());
+    assertSame(patch, ((PatchedImage) patched).getPatch());
+    assertEquals(1, ((PatchedImage) patched).getTop());
+    assertEquals(2, ((PatchedImage) patched).getLeft());
+  }
+
+  @Test
+  public void testMatchesPixels() {
+    ManipulableImage patched = PatchedImage.of(img, patch, 1, 2);
+    WritableImage expected = img.copy();
+    for (int r = 0; r < 3; r++) {
+      for (int c = 0; c < 2; c++) {
+        expected.setARGB(1 + r, 2 + c, patch.getARGB(r, c) | 0xFF000000);
+      }
+    }
+    assertEquals(expected, patched);
+    assertEquals(expected.hashCode(), patched.hashCode());
+    for (int r = 0; r < img.getHeight(); r++) {
+      assertEquals(expected.getRow(r), patched.getRow(r));
+      for (int c = 0; c < img.getWidth(); c++) {
+        assertEquals(expected.getARGB(r, c), patched.getARGB(r, c));
+      }
+    }
+    IntBuffer row = patched.getRow(0);
+    img.setARGB(0, 1, ARGB.pack(1, 2, 3));
+    assertEquals(img.getARGB(0, 1), row.get(1)); // rows outside the patch are not copied
+    expected.setARGB(0, 1, ARGB.pack(1, 2, 3));
+    assertEquals(expected, patched.copy());
+  }
+
+  @Test
+  public void testCrop() {
+    ManipulableImage patched = PatchedImage.of(img, patch, 1, 2);
+    assertSame(img, ((CroppedImage) patched.crop(0, 0, 2, 5)).getSource());
+    assertSame(img, ((CroppedImage) patched.crop(4, 0, 6, 1)).getSource());
+    assertSame(patched, ((CroppedImage) patched.crop(1, 1, 2, 2)).getSource());
+    assertEquals(patched.copy().crop(1, 1, 2, 2), patched.crop(1, 1, 2, 2));
+    ManipulableImage opaque = PatchedImage.of(img, patch.crop(0, 0, 2, 2).copy(), 1, 2);
+    assertEquals(patched.copy().crop(1, 2, 2, 2), opaque.crop(1, 2, 2, 2));
+    WritableImage opaquePatch = new PackedImage(2, 2, false);
+    ManipulableImage plain = PatchedImage.of(img, opaquePatch, 1, 2);
+    assertSame(opaquePatch, plain.crop(1, 2, 2, 2));
+  }
+
+  @Test
+  public void testModifyRegion() {
+    ManipulableImage brighter = new Brighten(40).modifyRegion(img, 1, 1, 3, 2);
+    ManipulableImage full = new Brighten(40).modify(img);
+    for (int r = 0; r < img.getHeight(); r++) {
+      for (int c = 0; c < img.getWidth(); c++) {
+        boolean inside = r >= 1 && r < 3 && c >= 1 && c < 4;
+        assertEquals(inside ? full.getARGB(r, c) : img.getARGB(r, c), brighter.getARGB(r, c));
+      }
+    }
+    assertEquals(new Sepia().modify(img), new Sepia().modifyRegion(img, 0, 0, 6, 5));
+    try {
+      new Sepia().modifyRegion(img, 4, 0, 1, 2);
+      fail("did not throw exception when given a region outside the image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Region must be inside the image", e.getMessage());
+    }
+    try {
+      new RotateClockwise().modifyRegion(img, 0, 0, 2, 3);
+      fail("did not throw exception when an operation changed the size of the region");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Operation must keep the size of the region", e.getMessage());
+    }
+    ManipulableImage square = new RotateClockwise().modifyRegion(img, 0, 0, 2, 2);
+    assertEquals(img.getARGB(1, 0), square.getARGB(0, 0));
+    assertEquals(img.getARGB(2, 2), square.getARGB(2, 2));
+  }
+
+  @Test
+  public void testFilterRegion() {
+    Filter[] filters = {new Blur(), new Blur().withEdgeMode(EdgeMode.WRAP),
+        new Blur(2).withEdgeMode(EdgeMode.CLAMP)};
+    for (Filter blur : filters) {
+      ManipulableImage full = blur.modify(img);
+      int[][] regions = {{1, 1, 3, 2}, {0, 0, 2, 2}, {2, 3, 3, 3}, {0, 2, 1, 5}};
+      for (int[] region : regions) {
+        ManipulableImage blurred = blur.modifyRegion(img, region[0], region[1], region[2],
+            region[3]);
+        for (int r = 0; r < img.getHeight(); r++) {
+          for (int c = 0; c < img.getWidth(); c++) {
+            boolean inside = r >= region[0] && r < region[0] + region[3] && c >= region[1]
+                && c < region[1] + region[2];
+            assertEquals(inside ? full.getARGB(r, c) : img.getARGB(r, c),
+                blurred.getARGB(r, c));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSources() {
+    ManipulableImage patched = PatchedImage.of(img, patch, 1, 2);
+    assertEquals(List.of(img, patch), patched.getSources());
+    assertEquals(0, patched.getResidentBytes());
+    WritableImage movedImg = img.copy();
+    WritableImage movedPatch = patch.copy();
+    ManipulableImage moved = patched.withSources(List.of(movedImg, movedPatch));
+    assertSame(movedImg, moved.getSources().get(0));
+    assertSame(movedPatch, moved.getSources().get(1));
+    assertEquals(patched, moved);
+    try {
+      patched.withSources(List.of(img));
+      fail("did not throw exception when given one source");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Expected 2 source images", e.getMessage());
+    }
+    try {
+      patched.withSources(List.of(patch, img));
+      fail("did not throw exception when given sources of the wrong size");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Source must be the same size as the image", e.getMessage());
+    }
+  }
+}
@@ -3,9 +3,10 @@ import org.junit.Test;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.util.HashMap;
-import java.util.Map;
 
+import imageprocessing.model.ARGB;
+import imageprocessing.model.Histogram;
+import imageprocessing.model.LazyImage;
 import imageprocessing.model.ManipulableImage;
 import imageprocessing.model.Pixel;
 import imageprocessing.model.PixelGridImage;
@@ -142,32 +143,39 @@ public class PixelGridImageTest {
 
   @Test
   public void testHistogram() {
-    Map<Integer, Integer> redHistogram = twoX2.histogram(pixel -> pixel.getChannels()[0]);
-    Map<Integer, Integer> redExpected = new HashMap<>();
-    redExpected.put(16, 1);
-    redExpected.put(234, 1);
-    redExpected.put(255, 2);
-    assertEquals(redExpected, redHistogram);
-    Map<Integer, Integer> greenHistogram = twoX2.histogram(pixel -> pixel.getChannels()[1]);
-    Map<Integer, Integer> greenExpected = new HashMap<>();
-    greenExpected.put(0, 1);
-    greenExpected.put(85, 1);
-    greenExpected.put(234, 1);
-    greenExpected.put(255, 1);
-    assertEquals(greenExpected, greenHistogram);
-    Map<Integer, Integer> blueHistogram = twoX2.histogram(pixel -> pixel.getChannels()[2]);
-    Map<Integer, Integer> blueExpected = new HashMap<>();
-    blueExpected.put(0, 1);
-    blueExpected.put(16, 1);
-    blueExpected.put(80, 1);
-    blueExpected.put(227, 1);
-    assertEquals(blueExpected, blueHistogram);
-    Map<Integer, Integer> intensityHistogram = twoX2.histogram(Pixel::getIntensity);
-    Map<Integer, Integer> intensityExpected = new HashMap<>();
-    intensityExpected.put(85, 1);
-    intensityExpected.put(112, 1);
-    intensityExpected.put(159, 1);
-    intensityExpected.put(197, 1);
-    assertEquals(intensityExpected, intensityHistogram);
+    int[] redExpected = new int[256];
+    redExpected[16] = 1;
+    redExpected[234] = 1;
+    redExpected[255] = 2;
+    assertEquals(new Histogram(redExpected), twoX2.histogram(ARGB::red));
+    int[] greenExpected = new int[256];
+    greenExpected[0] = 1;
+    greenExpected[85] = 1;
+    greenExpected[234] = 1;
+    greenExpected[255] = 1;
+    assertEquals(new Histogram(greenExpected), twoX2.histogram(ARGB::green));
+    int[] blueExpected = new int[256];
+    blueExpected[0] = 1;
+    blueExpected[16] = 1;
+    blueExpected[80] = 1;
+    blueExpected[227] = 1;
+    assertEquals(new Histogram(blueExpected), twoX2.histogram(ARGB::blue));
+    int[] intensityExpected = new int[256];
+    intensityExpected[85] = 1;
+    intensityExpected[112] = 1;
+    intensityExpected[159] = 1;
+    intensityExpected[197] = 1;
+    assertEquals(new Histogram(intensityExpected), twoX2.histogram(ARGB::intensity));
+    assertEquals(new Histogram(intensityExpected), LazyImage.of(twoX2).histogram(ARGB::intensity));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testInvalidHistogramValues() {
+    try {
+      twoX2.histogram(argb -> ARGB.red(argb) * 2);
+      fail("did not throw exception when given values above 255");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Histogram values must be between 0 and 255", e.getMessage());
+    }
+  }
+}
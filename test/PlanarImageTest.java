@@ -0,0 +1,128 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ImageFactory;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.model.WritableImage;
+import imageprocessing.operations.Blur;
+import imageprocessing.operations.GrayscaleB;
+import imageprocessing.operations.GrayscaleG;
+import imageprocessing.operations.GrayscaleR;
+import imageprocessing.operations.Operation;
+import imageprocessing.operations.Sepia;
+import imageprocessing.operations.Sharpen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the PlanarImage class.
+ */
+public class PlanarImageTest {
+
+  private WritableImage packed;
+  private WritableImage packedAlpha;
+
+  @Before
+  public void init() {
+    packed = new PackedImage(6, 5, false);
+    packedAlpha = new PackedImage(6, 5, true);
+    for (int r = 0; r < 5; r++) {
+      for (int c = 0; c < 6; c++) {
+        packed.setARGB(r, c, ARGB.pack(r * 60, c * 50, (r * 7 + c * 31) % 256));
+        packedAlpha.setARGB(r, c, ARGB.pack(c * 40, r * 20, 255 - r * c, (r + c) * 25));
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidConstructor() {
+    try {
+      new PlanarImage(2, 2, new byte[4], null, new byte[4], null);
+      fail("did not throw exception when given a null plane");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Pixel data can't be null", e.getMessage());
+    }
+    try {
+      new PlanarImage(2, 2, new byte[4], new byte[4], new byte[4], new byte[3]);
+      fail("did not throw exception when given a mismatched plane");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Pixel data does not match the image dimensions", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testConversion() {
+    PlanarImage planar = PlanarImage.of(packed);
+    assertFalse(planar.hasAlpha());
+    assertEquals(packed, planar);
+    assertEquals(planar, packed);
+    assertEquals(packed.hashCode(), planar.hashCode());
+    assertEquals(packed, planar.toPacked());
+    assertSame(planar, PlanarImage.of(planar));
+    PlanarImage planarAlpha = PlanarImage.of(packedAlpha);
+    assertTrue(planarAlpha.hasAlpha());
+    assertEquals(packedAlpha.getARGB(4, 5), planarAlpha.getARGB(4, 5));
+    assertEquals(packedAlpha.getMaxValue(), planarAlpha.getMaxValue());
+  }
+
+  @Test
+  public void testPlanes() {
+    PlanarImage planar = PlanarImage.of(packedAlpha);
+    ByteBuffer green = planar.getPlane(PlanarImage.GREEN);
+    assertTrue(green.isReadOnly());
+    assertEquals(30, green.remaining());
+    assertEquals(80, green.get(4 * 6 + 5) & 0xFF);
+    assertEquals(225, planar.getPlane(PlanarImage.ALPHA).get(4 * 6 + 5) & 0xFF);
+    try {
+      PlanarImage.of(packed).getPlane(PlanarImage.ALPHA);
+      fail("did not throw exception when asking for a missing alpha plane");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image has no plane 3", e.getMessage());
+    }
+    PlanarImage swapped = planar.selectPlanes(PlanarImage.BLUE, PlanarImage.GREEN,
+        PlanarImage.RED);
+    assertEquals(ARGB.pack(235, 80, 200, 225), swapped.getARGB(4, 5));
+  }
+
+  @Test
+  public void testOperationsMatchPacked() {
+    Operation[] ops = new Operation[]{new GrayscaleR(), new GrayscaleG(), new GrayscaleB(),
+        new Blur(), new Sharpen(), new Sepia()};
+    for (ManipulableImage img : new ManipulableImage[]{packed, packedAlpha}) {
+      PlanarImage planar = PlanarImage.of(img);
+      for (Operation op : ops) {
+        ManipulableImage result = op.modify(planar);
+        assertTrue(result instanceof PlanarImage);
+        assertEquals(img.hasAlpha(), result.hasAlpha());
+        assertEquals(op.modify(img), result);
+      }
+    }
+  }
+
+  @Test
+  public void testCopy() {
+    PlanarImage planar = PlanarImage.of(packed);
+    WritableImage copy = planar.copy();
+    copy.setARGB(0, 0, ARGB.pack(1, 2, 3));
+    assertEquals(packed, planar);
+    assertEquals(ARGB.pack(1, 2, 3), copy.getARGB(0, 0));
+  }
+
+  @Test
+  public void testFactory() {
+    ImageFactory factory = new ImageFactory(ImageFactory.Storage.PLANAR);
+    assertTrue(factory.createImage(3, 3, true) instanceof PlanarImage);
+    ManipulableImage wrapped = factory.createImage(1, 1, new int[]{ARGB.pack(9, 8, 7)}, false);
+    assertTrue(wrapped instanceof PlanarImage);
+    assertEquals(ARGB.pack(9, 8, 7), wrapped.getARGB(0, 0));
+  }
+}
@@ -0,0 +1,122 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import imageprocessing.model.ARGB;
+import imageprocessing.model.LazyImage;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.MappedImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.PlanarImage;
+import imageprocessing.model.RGBAPixel;
+import imageprocessing.model.RowBands;
+import imageprocessing.operations.Blur;
+import imageprocessing.operations.Brighten;
+import imageprocessing.operations.LookupTable;
+import imageprocessing.operations.Operation;
+import imageprocessing.operations.Sepia;
+import imageprocessing.operations.Sharpen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the RowBands class.
+ */
+public class RowBandsTest {
+
+  private PackedImage img;
+  private RowBands parallel;
+
+  @Before
+  public void init() {
+    Random random = new Random(7);
+    int[] argb = new int[53 * 41];
+    for (int i = 0; i < argb.length; i++) {
+      argb[i] = random.nextInt();
+    }
+    img = new PackedImage(53, 41, argb, true);
+    parallel = new RowBands(4, 100);
+  }
+
+  @Test
+  public void testInvalidArguments() {
+    try {
+      new RowBands(0);
+      fail("did not throw exception when given no threads");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Parallelism must be positive", e.getMessage());
+    }
+    try {
+      new RowBands(2, 0);
+      fail("did not throw exception when given a threshold of 0");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Threshold must be positive", e.getMessage());
+    }
+    assertEquals(1, RowBands.SEQUENTIAL.getParallelism());
+    assertEquals(4, parallel.getParallelism());
+  }
+
+  @Test
+  public void testBandsCoverEveryRowOnce() {
+    int[] counts = new int[1000];
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    parallel.run(() -> {
+      RowBands.forEach(counts.length, 10, (from, to) -> {
+        threads.add(Thread.currentThread().getName());
+        for (int r = from; r < to; r++) {
+          counts[r]++;
+        }
+      });
+      return null;
+    });
+    for (int count : counts) {
+      assertEquals(1, count);
+    }
+    assertTrue(threads.size() >= 1);
+    int[] calls = new int[1];
+    RowBands.forEach(counts.length, 10, (from, to) -> calls[0]++);
+    assertEquals(1, calls[0]); // outside of a parallel run, the whole image is one band
+  }
+
+  @Test
+  public void testResultsMatchSequential() {
+    Operation[] operations = {new Blur(), new Sharpen(), new Sepia(), new Brighten(-20),
+        new LookupTable(v -> 255 - v)};
+    ManipulableImage[] images = {img, PlanarImage.of(img), MappedImage.copyOf(img)};
+    for (Operation operation : operations) {
+      for (ManipulableImage image : images) {
+        ManipulableImage expected = operation.modify(image);
+        assertEquals(expected, parallel.run(() -> operation.modify(image)));
+        assertEquals(expected, parallel.run(() -> {
+          ManipulableImage deferred = operation.modify(LazyImage.of(image));
+          return deferred instanceof LazyImage ? ((LazyImage) deferred).materialize() : deferred;
+        }));
+      }
+    }
+    ManipulableImage opaque = new PackedImage(53, 41, false).mapARGB(p -> p | 0x123456);
+    ManipulableImage expected = opaque.applyToAll(p -> new RGBAPixel(p.getChannels()[0],
+        p.getChannels()[1], p.getChannels()[2], 9));
+    assertEquals(expected, parallel.run(() -> opaque.applyToAll(p -> new RGBAPixel(
+        p.getChannels()[0], p.getChannels()[1], p.getChannels()[2], 9))));
+  }
+
+  @Test
+  public void testExceptionsAreRethrown() {
+    try {
+      parallel.run(() -> img.mapARGB(p -> {
+        if (ARGB.red(p) > 250) {
+          throw new IllegalStateException("too red");
+        }
+        return p;
+      }));
+      fail("did not rethrow the exception thrown by a band");
+    } catch (IllegalStateException e) {
+      assertEquals("too red", e.getMessage());
+    }
+  }
+}
@@ -1,15 +1,32 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import imageprocessing.controller.ImageProcessingController;
 import imageprocessing.controller.SimpleIPController;
+import imageprocessing.filehandler.PPMHandler;
+import imageprocessing.model.ImageFactory;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.RowBands;
+import imageprocessing.operations.Blur;
+import imageprocessing.operations.Brighten;
+import imageprocessing.operations.FlipHorizontal;
+import imageprocessing.operations.FlipVertical;
+import imageprocessing.operations.GrayscaleLuma;
+import imageprocessing.operations.RotateClockwise;
+import imageprocessing.operations.RotateCounterclockwise;
+import imageprocessing.operations.Sepia;
 import imageprocessing.view.ImageProcessingTextView;
 import imageprocessing.view.ImageProcessingView;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 import java.io.StringReader;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * Tests for the image processing controller.
@@ -20,6 +37,9 @@ public class SimpleIPControllerTest {
   private ImageProcessingView view;
   private Appendable out;
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @Before
   public void init() {
     out = new StringBuilder();
@@ -210,4 +230,171 @@ public class SimpleIPControllerTest {
             + "Goodbye!",
         out.toString().substring(90));
   }
-}
\ No newline at end of file
+
+  /**
+   * Return the path of the file in a temporary folder which the round-trip tests save to.
+   *
+   * @return the path of the saved file.
+   */
+  private String savedPath() {
+    return new File(folder.getRoot(), "saved.ppm").getPath();
+  }
+
+  /**
+   * Run the given commands through a controller with the given settings, where {@code %s} in the
+   * commands stands for {@link #savedPath()}, and load the image they saved there.
+   *
+   * @param commands the commands to run, which save an image to {@code %s}.
+   * @param factory  the factory of the controller.
+   * @param limit    the resident memory limit of the controller.
+   * @param bands    the row bands of the controller.
+   * @return the saved image.
+   * @throws IOException if the saved image can't be read.
+   */
+  private ManipulableImage runAndReload(String commands, ImageFactory factory, long limit,
+      RowBands bands) throws IOException {
+    controller = new SimpleIPController(new StringReader(commands.replace("%s", savedPath())),
+        view, factory, limit, bands);
+    controller.processImage();
+    return load(savedPath());
+  }
+
+  /**
+   * Run the given commands through a controller with the default settings (see
+   * {@link #runAndReload(String, ImageFactory, long, RowBands)}).
+   *
+   * @param commands the commands to run, which save an image to {@code %s}.
+   * @return the saved image.
+   * @throws IOException if the saved image can't be read.
+   */
+  private ManipulableImage runAndReload(String commands) throws IOException {
+    return runAndReload(commands, new ImageFactory(), Runtime.getRuntime().maxMemory() / 2,
+        RowBands.SEQUENTIAL);
+  }
+
+  /**
+   * Load the PPM image at the given path.
+   *
+   * @param path the path of the image.
+   * @return the image.
+   * @throws IOException if the image can't be read.
+   */
+  private static ManipulableImage load(String path) throws IOException {
+    return new PPMHandler().load(path);
+  }
+
+  @Test
+  public void testSpillingToScratchFiles() throws IOException {
+    ManipulableImage saved = runAndReload(
+        "load test/testImage.ppm img brighten 10 img img-bright vertical-flip img-bright img "
+            + "save img %s q", new ImageFactory(ImageFactory.Storage.OFF_HEAP), 0,
+        RowBands.SEQUENTIAL);
+    assertEquals("Loading...\n"
+            + "Loaded test/testImage.ppm as img\n"
+            + "Width: 3 | Height: 3 | Max value: 255\n"
+            + "Successfully applied brighten to img, now named img-bright\n"
+            + "Successfully applied vertical-flip to img-bright, now named img\n"
+            + "Saved img to " + savedPath() + "\n"
+            + "Goodbye!",
+        out.toString().substring(90));
+    ManipulableImage expected =
+        new FlipVertical().modify(new Brighten(10).modify(load("test/testImage.ppm")));
+    assertEquals(expected, saved);
+  }
+
+  @Test
+  public void testDeferredOperationChain() throws IOException {
+    ManipulableImage saved = runAndReload(
+        "load test/testImage.ppm img brighten 30 img img luma-component img img "
+            + "sepia img img-sepia blur img-sepia img save img %s q");
+    ManipulableImage expected = new Blur().modify(new Sepia().modify(
+        new GrayscaleLuma().modify(new Brighten(30).modify(load("test/testImage.ppm")))));
+    assertEquals(expected, saved);
+  }
+
+  @Test
+  public void testLongScripts() throws IOException {
+    StringBuilder commands = new StringBuilder("load test/testImage.ppm a brighten 20 a a ");
+    for (int i = 0; i < 4000; i++) {
+      commands.append("brighten -1 a a brighten 1 a a ");
+    }
+    commands.append("save a %s q");
+    ManipulableImage expected = new Brighten(20).modify(load("test/testImage.ppm"));
+    assertEquals(expected, runAndReload(commands.toString()));
+  }
+
+  @Test
+  public void testContinuingFromComputedImages() throws IOException {
+    // blurring a computes its pixels, b continues from them, and then a goes on using them alone
+    String commands = "load test/testImage.ppm a brighten 10 a a blur a c brighten 10 a b "
+        + "load test/testImage.ppm b brighten 10 a a save a %s q";
+    ManipulableImage expected = new Brighten(20).modify(load("test/testImage.ppm"));
+    for (long limit : new long[]{Long.MAX_VALUE, 0}) {
+      assertEquals(expected, runAndReload(commands,
+          new ImageFactory(ImageFactory.Storage.OFF_HEAP), limit, RowBands.SEQUENTIAL));
+    }
+  }
+
+  @Test
+  public void testParallelCommands() throws IOException {
+    ManipulableImage saved = runAndReload(
+        "load test/testImage.ppm img sepia img img-sepia blur img-sepia img save img %s q",
+        new ImageFactory(), Long.MAX_VALUE, new RowBands(3, 4));
+    ManipulableImage expected =
+        new Blur().modify(new Sepia().modify(load("test/testImage.ppm")));
+    assertEquals(expected, saved);
+  }
+
+  @Test
+  public void testReusingOverwrittenImages() throws IOException {
+    ManipulableImage saved = runAndReload(
+        "load test/testImage.ppm img blur img a horizontal-flip a b blur b a vertical-flip a b "
+            + "sepia b a blur a b save b %s q");
+    ManipulableImage expected = new Blur().modify(new Sepia().modify(new FlipVertical().modify(
+        new Blur().modify(new FlipHorizontal().modify(
+            new Blur().modify(load("test/testImage.ppm")))))));
+    assertEquals(expected, saved);
+  }
+
+  @Test
+  public void testChainedReorientations() throws IOException {
+    ManipulableImage saved = runAndReload(
+        "load test/testImage.ppm img rotate-clockwise img a horizontal-flip a b sepia b a "
+            + "rotate-counterclockwise a b blur b a vertical-flip a img save img %s q");
+    ManipulableImage expected = new FlipVertical().modify(new Blur().modify(
+        new RotateCounterclockwise().modify(new Sepia().modify(new FlipHorizontal().modify(
+            new RotateClockwise().modify(load("test/testImage.ppm")))))));
+    assertEquals(expected, saved);
+  }
+
+  @Test
+  public void testCropAndRegions() throws IOException {
+    ManipulableImage img = load("test/testImage.ppm");
+    ManipulableImage cropped = runAndReload("load test/testImage.ppm img crop 1 0 2 2 img top "
+        + "save top %s q");
+    assertTrue(out.toString().contains("Successfully cropped img, now named top\n"));
+    assertEquals(img.crop(1, 0, 2, 2), cropped);
+    ManipulableImage region = runAndReload(
+        "load test/testImage.ppm img apply-region 0 1 2 2 blur img b "
+            + "apply-region 1 1 1 1 brighten 20 b c crop 2 2 2 2 img d crop a 0 1 1 img d "
+            + "apply-region 0 0 1 2 rotate-clockwise img d crop 0 0 1 1 nothing d "
+            + "save c %s q");
+    String output = out.toString();
+    assertTrue(output.contains("Successfully applied blur to a region of img, now named b\n"));
+    assertTrue(output.contains("Successfully applied brighten to a region of b, now named c\n"));
+    assertTrue(output.contains("Region must be inside the image. Try again.\n"));
+    assertTrue(output.contains("Invalid region. Try again.\n"));
+    assertTrue(output.contains("Operation must keep the size of the region. Try again.\n"));
+    assertTrue(output.contains("Image nothing not found. Try again.\n"));
+    ManipulableImage blurred = new Blur().modify(img);
+    for (int r = 0; r < 3; r++) {
+      for (int c = 0; c < 3; c++) {
+        int expected = r < 2 && c > 0 ? blurred.getARGB(r, c) : img.getARGB(r, c);
+        if (r == 1 && c == 1) {
+          expected = new Brighten(20).modify(blurred).getARGB(r, c);
+        }
+        assertEquals(expected, region.getARGB(r, c));
+      }
+    }
+  }
+}
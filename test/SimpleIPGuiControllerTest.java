@@ -121,4 +121,40 @@ public class SimpleIPGuiControllerTest {
     controller.applyOperation(null, new Brighten(44));
     assertEquals("No image to modify", log.toString());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testCrop() {
+    controller.crop(null, 0, 0, 1, 1);
+    assertEquals("No image to crop", log.toString());
+    log.setLength(0);
+    try {
+      ManipulableImage img = new PPMHandler().load("test/testImage.ppm");
+      controller.crop(img, 0, 2, 2, 2);
+      assertEquals("Region must be inside the image. Try again.", log.toString());
+      log.setLength(0);
+      controller.crop(img, 0, 1, 1, 2);
+      assertEquals("Successfully set image\n"
+          + "Successfully cropped image", log.toString());
+    } catch (IOException e) {
+      fail("threw i/o exception");
+    }
+  }
+
+  @Test
+  public void testApplyToRegion() {
+    controller.applyOperation(null, new Brighten(10), 0, 0, 1, 1);
+    assertEquals("No image to modify", log.toString());
+    log.setLength(0);
+    try {
+      ManipulableImage img = new PPMHandler().load("test/testImage.ppm");
+      controller.applyOperation(img, new Brighten(10), 0, 2, 2, 2);
+      assertEquals("Region must be inside the image. Try again.", log.toString());
+      log.setLength(0);
+      controller.applyOperation(img, new Brighten(10), 0, 1, 1, 2);
+      assertEquals("Successfully set image\n"
+          + "Successfully applied operation to region", log.toString());
+    } catch (IOException e) {
+      fail("threw i/o exception");
+    }
+  }
+}
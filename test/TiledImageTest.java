@@ -0,0 +1,204 @@
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import imageprocessing.filehandler.PPMHandler;
+import imageprocessing.model.ARGB;
+import imageprocessing.model.ImageFactory;
+import imageprocessing.model.ManipulableImage;
+import imageprocessing.model.OrientedImage;
+import imageprocessing.model.PackedImage;
+import imageprocessing.model.TileCache;
+import imageprocessing.model.TiledImage;
+import imageprocessing.model.WritableImage;
+import imageprocessing.operations.Blur;
+import imageprocessing.operations.Brighten;
+import imageprocessing.operations.FlipHorizontal;
+import imageprocessing.operations.FlipVertical;
+import imageprocessing.operations.Operation;
+import imageprocessing.operations.Sepia;
+import imageprocessing.operations.Sharpen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the TiledImage class and its tile cache.
+ */
+public class TiledImageTest {
+
+  private TileCache cache;
+  private WritableImage tiled;
+  private WritableImage packed;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void init() {
+    // room for only four 4x4 tiles, so a 13x11 image keeps evicting tiles to its scratch file
+    cache = new TileCache(4 * 4 * 4 * 4);
+    tiled = new TiledImage(13, 11, false, 4, cache);
+    packed = new PackedImage(13, 11, false);
+    for (int r = 0; r < 11; r++) {
+      for (int c = 0; c < 13; c++) {
+        int argb = ARGB.pack((r * 31 + c * 7) % 256, (r * 13 + c * 29) % 256, (r + c) * 9 % 256);
+        tiled.setARGB(r, c, argb);
+        packed.setARGB(r, c, argb);
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidConstructor() {
+    try {
+      new TiledImage(10, 10, false, 0, cache);
+      fail("did not throw exception when given a bad tile size");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Tile size must be between 1 and 4096", e.getMessage());
+    }
+    try {
+      new TiledImage(10, 10, false, 4, null);
+      fail("did not throw exception when given a null cache");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Tile cache can't be null", e.getMessage());
+    }
+    try {
+      new TileCache(0);
+      fail("did not throw exception when given an empty budget");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Tile cache budget must be positive", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testSurvivesEviction() {
+    assertTrue(cache.getUsage() <= cache.getBudget());
+    assertEquals(packed, tiled);
+    assertEquals(tiled, packed);
+    assertEquals(packed.hashCode(), tiled.hashCode());
+    assertEquals(packed.getARGB(10, 12), tiled.getARGB(10, 12));
+    assertEquals(packed.getMaxValue(), tiled.getMaxValue());
+    assertTrue(cache.getUsage() <= cache.getBudget());
+  }
+
+  @Test
+  public void testBlankTiles() {
+    ManipulableImage blank = new TiledImage(5, 5, false, 2, cache);
+    assertEquals(ARGB.pack(0, 0, 0), blank.getARGB(4, 4));
+    ManipulableImage blankAlpha = new TiledImage(5, 5, true, 2, cache);
+    assertEquals(0, blankAlpha.getARGB(4, 4));
+  }
+
+  @Test
+  public void testOperationsMatchPacked() {
+    Operation[] ops = new Operation[]{new Blur(), new Sharpen(), new Sepia(), new Brighten(30),
+        new FlipHorizontal(), new FlipVertical()};
+    for (Operation op : ops) {
+      ManipulableImage result = op.modify(tiled);
+      if (result instanceof OrientedImage) { // flips only view the image
+        assertSame(tiled, ((OrientedImage) result).getSource());
+        result = result.copy();
+      }
+      assertTrue(result instanceof TiledImage);
+      assertEquals(op.modify(packed), result);
+    }
+    assertTrue(cache.getUsage() <= cache.getBudget());
+  }
+
+  @Test
+  public void testCopy() {
+    WritableImage copy = tiled.copy();
+    copy.setARGB(0, 0, ARGB.pack(1, 2, 3));
+    assertEquals(packed, tiled);
+    assertEquals(ARGB.pack(1, 2, 3), copy.getARGB(0, 0));
+  }
+
+  @Test
+  public void testSinglePixelsAcrossEvictions() {
+    // read the image column by column, so every pixel lands in a different tile than the last
+    for (int c = 0; c < 13; c++) {
+      for (int r = 0; r < 11; r++) {
+        assertEquals(packed.getARGB(r, c), tiled.getARGB(r, c));
+      }
+    }
+    for (int c = 0; c < 13; c++) {
+      for (int r = 0; r < 11; r++) {
+        tiled.setARGB(r, c, ARGB.pack(r, c, 7));
+      }
+    }
+    for (int r = 0; r < 11; r++) {
+      for (int c = 0; c < 13; c++) {
+        assertEquals(ARGB.pack(r, c, 7), tiled.getARGB(r, c));
+      }
+    }
+    assertTrue(cache.getUsage() <= cache.getBudget());
+  }
+
+  @Test
+  public void testClose() {
+    TiledImage image = (TiledImage) tiled;
+    assertFalse(image.isClosed());
+    image.close();
+    image.close();
+    assertTrue(image.isClosed());
+    assertEquals(0, cache.getUsage());
+    try {
+      image.getARGB(0, 0);
+      fail("did not throw exception when reading a closed image");
+    } catch (IllegalStateException e) {
+      assertEquals("Image has already been closed", e.getMessage());
+    }
+    try {
+      image.setARGB(0, 0, 0);
+      fail("did not throw exception when writing a closed image");
+    } catch (IllegalStateException e) {
+      assertEquals("Image has already been closed", e.getMessage());
+    }
+    try {
+      image.getRow(0);
+      fail("did not throw exception when reading a row of a closed image");
+    } catch (IllegalStateException e) {
+      assertEquals("Image has already been closed", e.getMessage());
+    }
+    try {
+      image.setRow(0, new int[13]);
+      fail("did not throw exception when writing a row of a closed image");
+    } catch (IllegalStateException e) {
+      assertEquals("Image has already been closed", e.getMessage());
+    }
+    try {
+      image.copy();
+      fail("did not throw exception when copying a closed image");
+    } catch (IllegalStateException e) {
+      assertEquals("Image has already been closed", e.getMessage());
+    }
+    assertEquals(0, cache.getUsage()); // nothing was loaded back into the cache
+  }
+
+  @Test
+  public void testFactory() {
+    ImageFactory factory = new ImageFactory(100, cache);
+    assertFalse(factory.isTiled(10, 10));
+    assertTrue(factory.isTiled(10, 11));
+    assertTrue(factory.createImage(10, 10, false) instanceof PackedImage);
+    assertTrue(factory.createImage(10, 11, false) instanceof TiledImage);
+  }
+
+  @Test
+  public void testPPMRoundTrip() throws IOException {
+    PPMHandler handler = new PPMHandler(new ImageFactory(0, cache));
+    String path = new File(folder.getRoot(), "tiled.ppm").getPath();
+    handler.save(tiled, path);
+    ManipulableImage loaded = handler.load(path);
+    assertTrue(loaded instanceof TiledImage);
+    assertEquals(packed, loaded);
+  }
+}